@@ -104,6 +104,14 @@ public class RangedSeries<E> {
     return myRange.getIntersection(myIntersectRange);
   }
 
+  /**
+   * @return The {@link Range} object that scopes the data independently of the view, see {@link #RangedSeries(Range, DataSeries, Range)}.
+   */
+  @NotNull
+  public Range getIntersectRange() {
+    return myIntersectRange;
+  }
+
   /**
    * @return The {@link Range} object that represents the xRange of this series.
    */
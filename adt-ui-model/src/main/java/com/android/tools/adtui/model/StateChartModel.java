@@ -29,6 +29,12 @@ public class StateChartModel<E> extends AspectModel<StateChartModel.Aspect> {
   @NotNull
   private final List<RangedSeries<E>> mSeriesList;
 
+  /**
+   * Incremented every time the underlying data (as opposed to the visible range) changes, so renderers that cache
+   * the content of a series can tell when their cache is stale.
+   */
+  private int myDataVersion;
+
   public StateChartModel() {
     mSeriesList = new ArrayList<>();
   }
@@ -40,6 +46,18 @@ public class StateChartModel<E> extends AspectModel<StateChartModel.Aspect> {
   public void addSeries(@NotNull RangedSeries<E> series) {
     mSeriesList.add(series);
     series.getXRange().addDependency(this).onChange(Range.Aspect.RANGE, () -> changed(Aspect.MODEL_CHANGED));
+    dataChanged();
+  }
+
+  /**
+   * Notifies listeners that the data backing the series has changed, independently of any range change.
+   */
+  public void dataChanged() {
+    myDataVersion++;
     changed(Aspect.MODEL_CHANGED);
   }
+
+  public int getDataVersion() {
+    return myDataVersion;
+  }
 }
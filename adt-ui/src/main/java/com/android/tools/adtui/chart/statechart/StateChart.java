@@ -81,6 +81,12 @@ public final class StateChart<T> extends AnimatedComponent {
   private final List<Rectangle2D.Float> myRectangles = new ArrayList<>();
   private final List<T> myRectangleValues = new ArrayList<>();
 
+  /**
+   * Image tiles of previously rendered content, or null if tile caching is disabled. See {@link #setTileCacheEnabled(boolean)}.
+   */
+  @Nullable
+  private StateChartTileCache<T> myTileCache = null;
+
   /**
    * In some cases, StateChart is delegated to by a parent containing component (e.g. a JList or
    * a table). In order to preform some painting optimizations, we need access to that source
@@ -153,6 +159,7 @@ public final class StateChart<T> extends AnimatedComponent {
       myModel.removeDependencies(myAspectObserver);
     }
     myModel = model;
+    invalidateTileCache();
     myModel.addDependency(myAspectObserver).onChange(StateChartModel.Aspect.MODEL_CHANGED, this::modelChanged);
     modelChanged();
   }
@@ -164,6 +171,36 @@ public final class StateChart<T> extends AnimatedComponent {
 
   public void setRenderMode(@NotNull RenderMode mode) {
     myRenderMode = mode;
+    invalidateTileCache();
+  }
+
+  /**
+   * Enables rendering through a cache of image tiles, which are reused across frames and while panning as long as the zoom level and
+   * the model's data version don't change. This avoids re-querying, reducing and filling every state on each repaint, and is intended
+   * for charts backed by data that doesn't stream in, e.g. thread and CPU tracks of a parsed capture.
+   */
+  public void setTileCacheEnabled(boolean enabled) {
+    if (enabled == (myTileCache != null)) {
+      return;
+    }
+    myTileCache = enabled ? new StateChartTileCache<>(myConfig.getReducer(), this::drawShapes) : null;
+    opaqueRepaint();
+  }
+
+  /**
+   * Drops all cached tiles. Call this when the colors returned by the {@link StateChartColorProvider} change, e.g. on selection.
+   */
+  public void invalidateTileCache() {
+    if (myTileCache != null) {
+      myTileCache.invalidate();
+    }
+  }
+
+  @Override
+  public void updateUI() {
+    super.updateUI();
+    // The colors and fonts of the cached tiles may come from the previous look and feel.
+    invalidateTileCache();
   }
 
   /**
@@ -283,13 +320,19 @@ public final class StateChart<T> extends AnimatedComponent {
   protected void draw(Graphics2D g2d, Dimension dim) {
     Stopwatch stopwatch = new Stopwatch().start();
 
+    g2d.setFont(getFont());
+    g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+
+    if (myTileCache != null && myTileCache.draw(g2d, myModel, getWidth(), getHeight(), myHeightGap, myRowPoint)) {
+      addDebugInfo("Tiled draw ms: %.2f", stopwatch.getElapsedSinceLastDeltaNs() / 1000000.f);
+      addDebugInfo("Tile hits/misses: %d/%d", myTileCache.getHitCount(), myTileCache.getMissCount());
+      return;
+    }
+
     transformToViewSpace();
 
     long transformTime = stopwatch.getElapsedSinceLastDeltaNs();
 
-    g2d.setFont(getFont());
-    g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-
     assert myRectangles.size() == myRectangleValues.size();
     List<Rectangle2D.Float> transformedShapes = new ArrayList<>(myRectangles.size());
     List<T> transformedValues = new ArrayList<>(myRectangleValues.size());
@@ -356,9 +399,21 @@ public final class StateChart<T> extends AnimatedComponent {
         (value, key) -> (value.x + value.width < key.x) ? -1 : (value.x > key.width ? 1 : 0));
     }
 
-    for (int i = 0; i < transformedShapes.size(); i++) {
-      T value = transformedValues.get(i);
-      Rectangle2D.Float rect = transformedShapes.get(i);
+    drawShapes(g2d, transformedShapes, transformedValues, hoverIndex);
+
+    long drawTime = stopwatch.getElapsedSinceLastDeltaNs();
+
+    addDebugInfo("XS ms: %.2fms, %.2fms", transformTime / 1000000.f, scalingTime / 1000000.f);
+    addDebugInfo("RDT ms: %.2f, %.2f, %.2f", reducerTime / 1000000.f, drawTime / 1000000.f,
+                 (scalingTime + reducerTime + drawTime) / 1000000.f);
+    addDebugInfo("# of drawn rects: %d", transformedShapes.size());
+  }
+
+  private void drawShapes(@NotNull Graphics2D g2d, @NotNull List<Rectangle2D.Float> shapes, @NotNull List<T> values, int hoverIndex) {
+    g2d.setFont(getFont());
+    for (int i = 0; i < shapes.size(); i++) {
+      T value = values.get(i);
+      Rectangle2D.Float rect = shapes.get(i);
       boolean isMouseOver = (i == hoverIndex);
       Color color = myColorProvider.getColor(isMouseOver, value);
       g2d.setColor(color);
@@ -374,13 +429,6 @@ public final class StateChart<T> extends AnimatedComponent {
         }
       }
     }
-
-    long drawTime = stopwatch.getElapsedSinceLastDeltaNs();
-
-    addDebugInfo("XS ms: %.2fms, %.2fms", transformTime / 1000000.f, scalingTime / 1000000.f);
-    addDebugInfo("RDT ms: %.2f, %.2f, %.2f", reducerTime / 1000000.f, drawTime / 1000000.f,
-                 (scalingTime + reducerTime + drawTime) / 1000000.f);
-    addDebugInfo("# of drawn rects: %d", transformedShapes.size());
   }
 
   private void registerMouseEvents() {
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.chart.statechart;
+
+import com.android.tools.adtui.model.Range;
+import com.android.tools.adtui.model.RangedSeries;
+import com.android.tools.adtui.model.SeriesData;
+import com.android.tools.adtui.model.StateChartModel;
+import com.google.common.annotations.VisibleForTesting;
+import com.intellij.ide.ui.UISettings;
+import com.intellij.ui.scale.JBUIScale;
+import com.intellij.util.ui.ImageUtil;
+import com.intellij.util.ui.UIUtil;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Caches the rendered content of a {@link StateChart} as fixed-width image tiles.
+ *
+ * Tiles are laid out on an absolute pixel grid (data x * pixels-per-unit), so a tile stays valid while the view pans at a constant
+ * zoom level. The whole cache is flushed when the zoom level, the component height, the screen scale or the data version of the model
+ * changes. Tiles are created at the scale of the screen they are drawn on, so they look the same as content drawn directly.
+ *
+ * This is only meant for models whose data doesn't change without a call to {@link StateChartModel#dataChanged()}, e.g. data
+ * coming from a parsed capture.
+ */
+final class StateChartTileCache<T> {
+  @VisibleForTesting
+  static final int TILE_WIDTH_PX = 256;
+
+  /**
+   * Enough tiles to cover a wide screen twice, so panning back and forth doesn't thrash the cache.
+   */
+  private static final int MAX_TILES = 32;
+
+  /**
+   * Paints already transformed and reduced rectangles into a graphics context, see {@link StateChart}.
+   */
+  interface Painter<T> {
+    void paint(@NotNull Graphics2D g2d, @NotNull List<Rectangle2D.Float> shapes, @NotNull List<T> values, int hoverIndex);
+  }
+
+  @NotNull private final StateChartReducer<T> myReducer;
+  @NotNull private final Painter<T> myPainter;
+
+  private final Map<Long, Tile<T>> myTiles = new LinkedHashMap<Long, Tile<T>>(MAX_TILES, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, Tile<T>> eldest) {
+      return size() > MAX_TILES;
+    }
+  };
+
+  private double myPixelsPerUnit = Double.NaN;
+  private int myHeight = -1;
+  private int myDataVersion = -1;
+  private float myHeightGap;
+  private float myScale = Float.NaN;
+
+  private int myHitCount;
+  private int myMissCount;
+
+  StateChartTileCache(@NotNull StateChartReducer<T> reducer, @NotNull Painter<T> painter) {
+    myReducer = reducer;
+    myPainter = painter;
+  }
+
+  /**
+   * Drops all tiles. Must be called whenever something affecting the rendering but not tracked by the cache key changes, e.g. the
+   * render mode or the colors returned by the color provider.
+   */
+  void invalidate() {
+    myTiles.clear();
+  }
+
+  /**
+   * Draws the visible part of the model using cached tiles, rendering the missing ones.
+   *
+   * @param heightGap gap between series as a percentage {0...1} of the height given to each of them.
+   * @param rowPoint  mouse position relative to the chart, used to paint the hovered state on top of the tiles.
+   * @return false if the model can't be drawn from tiles (e.g. series with different view ranges), in which case nothing was drawn.
+   */
+  boolean draw(@NotNull Graphics2D g2d,
+               @NotNull StateChartModel<T> model,
+               int width,
+               int height,
+               float heightGap,
+               @Nullable Point rowPoint) {
+    List<RangedSeries<T>> series = model.getSeries();
+    if (series.isEmpty() || width <= 0 || height <= 0) {
+      return false;
+    }
+    Range viewRange = series.get(0).getXRange();
+    for (RangedSeries<T> data : series) {
+      if (!data.getXRange().isSameAs(viewRange)) {
+        return false;
+      }
+    }
+    if (viewRange.isEmpty() || viewRange.getLength() == 0) {
+      return false;
+    }
+
+    double pixelsPerUnit = width / viewRange.getLength();
+    float scale = JBUIScale.sysScale(g2d);
+    if (pixelsPerUnit != myPixelsPerUnit || height != myHeight || heightGap != myHeightGap || scale != myScale ||
+        model.getDataVersion() != myDataVersion) {
+      invalidate();
+      myPixelsPerUnit = pixelsPerUnit;
+      myHeight = height;
+      myHeightGap = heightGap;
+      myScale = scale;
+      myDataVersion = model.getDataVersion();
+    }
+
+    // Position of the view's left edge on the absolute pixel grid. Rounding once and offsetting by whole tiles keeps adjacent tiles
+    // seamless.
+    double originPx = viewRange.getMin() * pixelsPerUnit;
+    long firstTile = (long)Math.floor(originPx / TILE_WIDTH_PX);
+    long lastTile = (long)Math.floor((originPx + width - 1) / TILE_WIDTH_PX);
+    long firstTileX = Math.round(firstTile * (double)TILE_WIDTH_PX - originPx);
+
+    for (long tileIndex = firstTile; tileIndex <= lastTile; tileIndex++) {
+      Tile<T> tile = myTiles.get(tileIndex);
+      if (tile == null) {
+        tile = renderTile(g2d, series, tileIndex);
+        myTiles.put(tileIndex, tile);
+        myMissCount++;
+      }
+      else {
+        myHitCount++;
+      }
+      int tileX = (int)(firstTileX + (tileIndex - firstTile) * TILE_WIDTH_PX);
+      UIUtil.drawImage(g2d, tile.myImage, tileX, 0, null);
+    }
+
+    if (rowPoint != null) {
+      long hoverTileIndex = firstTile + Math.floorDiv(rowPoint.x - firstTileX, TILE_WIDTH_PX);
+      Tile<T> hoverTile = myTiles.get(hoverTileIndex);
+      if (hoverTile != null) {
+        int tileX = (int)(firstTileX + (hoverTileIndex - firstTile) * TILE_WIDTH_PX);
+        int hoverIndex = hoverTile.indexAt(rowPoint.x - tileX, rowPoint.y);
+        if (hoverIndex >= 0) {
+          Rectangle2D.Float shape = hoverTile.myShapes.get(hoverIndex);
+          Rectangle2D.Float translated = new Rectangle2D.Float(shape.x + tileX, shape.y, shape.width, shape.height);
+          List<Rectangle2D.Float> shapes = new ArrayList<>(1);
+          shapes.add(translated);
+          List<T> values = new ArrayList<>(1);
+          values.add(hoverTile.myValues.get(hoverIndex));
+          myPainter.paint(g2d, shapes, values, 0);
+        }
+      }
+    }
+    return true;
+  }
+
+  @NotNull
+  private Tile<T> renderTile(@NotNull Graphics2D target, @NotNull List<RangedSeries<T>> series, long tileIndex) {
+    double tileMin = tileIndex * (double)TILE_WIDTH_PX / myPixelsPerUnit;
+    double tileMax = (tileIndex + 1) * (double)TILE_WIDTH_PX / myPixelsPerUnit;
+
+    List<Rectangle2D.Float> shapes = new ArrayList<>();
+    List<T> values = new ArrayList<>();
+    int seriesSize = series.size();
+    float rectHeight = (float)myHeight / seriesSize;
+    float gap = rectHeight * myHeightGap;
+    float barHeight = rectHeight - gap;
+    for (int seriesIndex = 0; seriesIndex < seriesSize; seriesIndex++) {
+      RangedSeries<T> data = series.get(seriesIndex);
+      Range dataRange = data.getIntersectRange();
+      double min = Math.max(tileMin, dataRange.getMin());
+      double max = Math.min(tileMax, dataRange.getMax());
+      if (min >= max) {
+        continue;
+      }
+      List<SeriesData<T>> seriesDataList = data.getSeriesForRange(new Range(min, max));
+      if (seriesDataList.isEmpty()) {
+        continue;
+      }
+      float y = myHeight - rectHeight * (seriesIndex + 1) + gap * 0.5f;
+
+      // Same block construction as StateChart#transformToViewSpace, except that blocks aren't clamped to the tile so that text
+      // labels line up across tile boundaries. The image bounds take care of the clipping.
+      long previousX = seriesDataList.get(0).x;
+      T previousValue = seriesDataList.get(0).value;
+      for (int i = 1; i < seriesDataList.size(); i++) {
+        SeriesData<T> seriesData = seriesDataList.get(i);
+        if (seriesData.value.equals(previousValue)) {
+          continue;
+        }
+        if (seriesData.x >= min) {
+          addShape(shapes, values, previousValue, Math.max(dataRange.getMin(), previousX),
+                   Math.min(dataRange.getMax(), seriesData.x), tileMin, y, barHeight);
+        }
+        previousValue = seriesData.value;
+        previousX = seriesData.x;
+        if (previousX >= max) {
+          break;
+        }
+      }
+      if (previousX < max && previousValue != null) {
+        addShape(shapes, values, previousValue, Math.max(dataRange.getMin(), previousX), max, tileMin, y, barHeight);
+      }
+    }
+
+    myReducer.reduce(shapes, values);
+
+    // Use the scale of the target so the tile is as sharp as the untiled content on HiDPI screens.
+    BufferedImage image = ImageUtil.createImage(target, TILE_WIDTH_PX, myHeight, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = (Graphics2D)image.getGraphics();
+    UISettings.setupAntialiasing(g);
+    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+    myPainter.paint(g, shapes, values, -1);
+    g.dispose();
+    return new Tile<>(image, shapes, values);
+  }
+
+  private void addShape(@NotNull List<Rectangle2D.Float> shapes,
+                        @NotNull List<T> values,
+                        @NotNull T value,
+                        double startX,
+                        double endX,
+                        double tileMin,
+                        float y,
+                        float height) {
+    shapes.add(new Rectangle2D.Float((float)((startX - tileMin) * myPixelsPerUnit),
+                                     y,
+                                     (float)((endX - startX) * myPixelsPerUnit),
+                                     height));
+    values.add(value);
+  }
+
+  @VisibleForTesting
+  int getTileCount() {
+    return myTiles.size();
+  }
+
+  int getHitCount() {
+    return myHitCount;
+  }
+
+  int getMissCount() {
+    return myMissCount;
+  }
+
+  private static final class Tile<T> {
+    @NotNull private final BufferedImage myImage;
+    @NotNull private final List<Rectangle2D.Float> myShapes;
+    @NotNull private final List<T> myValues;
+
+    private Tile(@NotNull BufferedImage image, @NotNull List<Rectangle2D.Float> shapes, @NotNull List<T> values) {
+      myImage = image;
+      myShapes = shapes;
+      myValues = values;
+    }
+
+    /**
+     * @return index of the last shape containing the given tile-relative point, or -1. The last one wins since it's painted on top.
+     */
+    private int indexAt(float x, float y) {
+      for (int i = myShapes.size() - 1; i >= 0; i--) {
+        Rectangle2D.Float shape = myShapes.get(i);
+        if (x >= shape.x && x <= shape.x + shape.width && y >= shape.y && y <= shape.y + shape.height) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+}
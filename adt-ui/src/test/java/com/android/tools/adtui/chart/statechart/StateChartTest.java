@@ -21,9 +21,13 @@ import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.util.EnumMap;
 import java.util.HashMap;
 
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
 import static org.mockito.Mockito.*;
 
 public class StateChartTest {
@@ -135,6 +139,129 @@ public class StateChartTest {
     verify(fakeGraphics, times(0)).setColor(Color.RED);
   }
 
+  @Test
+  public void tileCacheReusesTilesWhilePanning() {
+    StateChartModel<Integer> model = new StateChartModel<>();
+    int[] queryCount = new int[1];
+    DataSeries<Integer> dataSeries = (range) -> {
+      queryCount[0]++;
+      return ImmutableList.of(new SeriesData<>(0, 1), new SeriesData<>(500, 2));
+    };
+    Range viewRange = new Range(0, StateChartTileCache.TILE_WIDTH_PX);
+    model.addSeries(new RangedSeries<>(viewRange, dataSeries));
+    StateChart<Integer> stateChart = new StateChart<>(model, new StateChartColorProvider<Integer>() {
+      @NotNull
+      @Override
+      public Color getColor(boolean isMouseOver, @NotNull Integer value) {
+        return Color.BLACK;
+      }
+    });
+    stateChart.setTileCacheEnabled(true);
+    stateChart.setSize(StateChartTileCache.TILE_WIDTH_PX, 10);
+
+    Graphics2D fakeGraphics = mock(Graphics2D.class);
+    when(fakeGraphics.create()).thenReturn(fakeGraphics);
+    // The tile cache reads the scale of the target graphics.
+    when(fakeGraphics.getTransform()).thenReturn(new AffineTransform());
+    stateChart.paint(fakeGraphics);
+    assertThat(queryCount[0]).isEqualTo(1);
+
+    // Repainting at the same position is served from the cache.
+    stateChart.paint(fakeGraphics);
+    assertThat(queryCount[0]).isEqualTo(1);
+
+    // Panning by half a tile only renders the newly exposed tile.
+    viewRange.shift(StateChartTileCache.TILE_WIDTH_PX / 2);
+    stateChart.paint(fakeGraphics);
+    assertThat(queryCount[0]).isEqualTo(2);
+
+    // A data change invalidates all tiles.
+    model.dataChanged();
+    stateChart.paint(fakeGraphics);
+    assertThat(queryCount[0]).isEqualTo(4);
+  }
+
+  @Test
+  public void tileCacheIsFlushedOnZoom() {
+    StateChartModel<Integer> model = new StateChartModel<>();
+    int[] queryCount = new int[1];
+    DataSeries<Integer> dataSeries = (range) -> {
+      queryCount[0]++;
+      return ImmutableList.of(new SeriesData<>(0, 1));
+    };
+    Range viewRange = new Range(0, 100);
+    model.addSeries(new RangedSeries<>(viewRange, dataSeries));
+    StateChart<Integer> stateChart = new StateChart<>(model, new StateChartColorProvider<Integer>() {
+      @NotNull
+      @Override
+      public Color getColor(boolean isMouseOver, @NotNull Integer value) {
+        return Color.BLACK;
+      }
+    });
+    stateChart.setTileCacheEnabled(true);
+    stateChart.setSize(100, 10);
+
+    Graphics2D fakeGraphics = mock(Graphics2D.class);
+    when(fakeGraphics.create()).thenReturn(fakeGraphics);
+    // The tile cache reads the scale of the target graphics.
+    when(fakeGraphics.getTransform()).thenReturn(new AffineTransform());
+    stateChart.paint(fakeGraphics);
+    assertThat(queryCount[0]).isEqualTo(1);
+
+    viewRange.setMax(50);
+    stateChart.paint(fakeGraphics);
+    assertThat(queryCount[0]).isEqualTo(2);
+  }
+
+  @Test
+  public void tiledDrawMatchesUntiledDraw() {
+    int width = StateChartTileCache.TILE_WIDTH_PX * 2;
+    int height = 20;
+    Range viewRange = new Range(0, width);
+    StateChart<Integer> tiledChart = createTwoSeriesChart(viewRange);
+    tiledChart.setTileCacheEnabled(true);
+    tiledChart.setSize(width, height);
+    StateChart<Integer> untiledChart = createTwoSeriesChart(viewRange);
+    untiledChart.setSize(width, height);
+
+    assertSameImage(paintToImage(tiledChart), paintToImage(untiledChart));
+
+    // Panning by part of a tile draws the tiles at an offset.
+    viewRange.shift(StateChartTileCache.TILE_WIDTH_PX / 4);
+    assertSameImage(paintToImage(tiledChart), paintToImage(untiledChart));
+  }
+
+  @NotNull
+  private static StateChart<Integer> createTwoSeriesChart(@NotNull Range viewRange) {
+    StateChartModel<Integer> model = new StateChartModel<>();
+    model.addSeries(new RangedSeries<>(viewRange, (range) -> ImmutableList.of(
+      new SeriesData<>(0, 1), new SeriesData<>(100, 2), new SeriesData<>(300, 1), new SeriesData<>(600, 3))));
+    model.addSeries(new RangedSeries<>(viewRange, (range) -> ImmutableList.of(
+      new SeriesData<>(0, 2), new SeriesData<>(250, 3), new SeriesData<>(257, 1))));
+    HashMap<Integer, Color> colors = new HashMap<>();
+    colors.put(1, Color.RED);
+    colors.put(2, Color.GREEN);
+    colors.put(3, Color.BLUE);
+    return new StateChart<>(model, colors);
+  }
+
+  @NotNull
+  private static BufferedImage paintToImage(@NotNull StateChart<Integer> stateChart) {
+    BufferedImage image = new BufferedImage(stateChart.getWidth(), stateChart.getHeight(), BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = image.createGraphics();
+    stateChart.paint(g);
+    g.dispose();
+    return image;
+  }
+
+  private static void assertSameImage(@NotNull BufferedImage actual, @NotNull BufferedImage expected) {
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertWithMessage("pixel (%s, %s)", x, y).that(actual.getRGB(x, y)).isEqualTo(expected.getRGB(x, y));
+      }
+    }
+  }
+
   private enum State {
     // We don't actually need any states.
   }
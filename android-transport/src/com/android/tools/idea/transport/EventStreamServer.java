@@ -21,10 +21,12 @@ import com.android.tools.profiler.proto.Common;
 import com.android.tools.profiler.proto.Transport;
 import com.android.tools.profiler.proto.TransportServiceGrpc;
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.diagnostic.Logger;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.stub.StreamObserver;
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
@@ -62,6 +64,7 @@ public class EventStreamServer implements Disposable {
   @NotNull private final String myServerName;
   @NotNull private final BlockingDeque<Common.Event> myEventQueue = new LinkedBlockingDeque<Common.Event>();
   @NotNull private final Map<String, ByteString> myByteCache = new HashMap<>();
+  @Nullable private volatile BytesLoader myBytesLoader;
 
   @NotNull private final Object myServerLock = new Object();
   @GuardedBy("myServerLock") private Server myServer;
@@ -86,6 +89,14 @@ public class EventStreamServer implements Disposable {
     return myByteCache;
   }
 
+  /**
+   * Serves the bytes that are not in the byte cache map from {@code loader}, e.g. to read large payloads from a file only when they are
+   * requested. The loader is closed when the server stops.
+   */
+  public void setBytesLoader(@NotNull BytesLoader loader) {
+    myBytesLoader = loader;
+  }
+
   public void start() throws IOException {
     synchronized (myServerLock) {
       if (myServer != null) {
@@ -114,6 +125,27 @@ public class EventStreamServer implements Disposable {
       myTransportService.shutDownAndWait();
       myServer.shutdownNow();
     }
+    BytesLoader loader = myBytesLoader;
+    if (loader != null) {
+      try {
+        loader.close();
+      }
+      catch (IOException exception) {
+        Logger.getInstance(EventStreamServer.class).warn(String.format("Failed to close the bytes loader of server %s", myServerName),
+                                                         exception);
+      }
+    }
+  }
+
+  /**
+   * Loads the bytes of a stream on demand, see {@link #setBytesLoader(BytesLoader)}.
+   */
+  public interface BytesLoader extends Closeable {
+    /**
+     * @return the bytes with the given id, or null if there are none.
+     */
+    @Nullable
+    ByteString load(@NotNull String id) throws IOException;
   }
 
   private class StreamTransportService extends TransportServiceGrpc.TransportServiceImplBase {
@@ -156,13 +188,18 @@ public class EventStreamServer implements Disposable {
 
     @Override
     public void getBytes(Transport.BytesRequest request, StreamObserver<Transport.BytesResponse> responseObserver) {
-      if (myByteCache.containsKey(request.getId())) {
-        responseObserver.onNext(Transport.BytesResponse.newBuilder().setContents(myByteCache.get(request.getId())).build());
-        myByteCache.remove(request.getId());
-      }
-      else {
-        responseObserver.onNext(Transport.BytesResponse.getDefaultInstance());
+      ByteString bytes = myByteCache.remove(request.getId());
+      BytesLoader loader = myBytesLoader;
+      if (bytes == null && loader != null) {
+        try {
+          bytes = loader.load(request.getId());
+        }
+        catch (IOException exception) {
+          Logger.getInstance(EventStreamServer.class).warn(String.format("Failed to load bytes %s", request.getId()), exception);
+        }
       }
+      responseObserver.onNext(bytes == null ? Transport.BytesResponse.getDefaultInstance()
+                                            : Transport.BytesResponse.newBuilder().setContents(bytes).build());
       responseObserver.onCompleted();
     }
   }
@@ -132,6 +132,44 @@ class TransportServiceTest : LightPlatformTestCase() {
       .isEqualTo(Transport.BytesResponse.getDefaultInstance())
   }
 
+  /**
+   * Validate that bytes missing from the byte cache are loaded on demand, and that the loader is closed along with the server.
+   */
+  fun testStreamServerBytesLoader() {
+    val loadedIds = mutableListOf<String>()
+    var isLoaderClosed = false
+    val testStreamServer = EventStreamServer("testStreamServerBytesLoader")
+    testStreamServer.setBytesLoader(object : EventStreamServer.BytesLoader {
+      override fun load(id: String): ByteString? {
+        loadedIds.add(id)
+        return if (id == "lazy") ByteString.copyFrom("DeadBeef".toByteArray()) else null
+      }
+
+      override fun close() {
+        isLoaderClosed = true
+      }
+    })
+    testStreamServer.start()
+    val stream = myService.registerStreamServer(Common.Stream.Type.FILE, testStreamServer)
+    val client = TransportClient(TransportService.CHANNEL_NAME)
+
+    val cachedBytes = ByteString.copyFrom("Cached".toByteArray())
+    testStreamServer.byteCacheMap["cached"] = cachedBytes
+    assertThat(client.transportStub.getBytes(Transport.BytesRequest.newBuilder().setStreamId(stream.streamId).setId("cached").build())
+                 .contents).isEqualTo(cachedBytes)
+    assertThat(loadedIds).isEmpty()
+
+    assertThat(client.transportStub.getBytes(Transport.BytesRequest.newBuilder().setStreamId(stream.streamId).setId("lazy").build())
+                 .contents).isEqualTo(ByteString.copyFrom("DeadBeef".toByteArray()))
+    assertThat(client.transportStub.getBytes(Transport.BytesRequest.newBuilder().setStreamId(stream.streamId).setId("missing").build()))
+      .isEqualTo(Transport.BytesResponse.getDefaultInstance())
+    assertThat(loadedIds).containsExactly("lazy", "missing").inOrder()
+
+    assertThat(isLoaderClosed).isFalse()
+    myService.unregisterStreamServer(stream.streamId)
+    assertThat(isLoaderClosed).isTrue()
+  }
+
   // Wait for the events to be drained from the deque. This ensures that they are in the database ready to be queried.
   fun waitForQueueDrained(deque: BlockingDeque<Common.Event>) {
     val doneLatch = CountDownLatch(1)
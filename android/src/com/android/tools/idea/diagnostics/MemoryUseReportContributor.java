@@ -15,13 +15,18 @@
  */
 package com.android.tools.idea.diagnostics;
 
+import com.android.tools.idea.res.AarResourceRepositoryCache;
 import com.intellij.openapi.util.LowMemoryWatcher;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 
 public class MemoryUseReportContributor implements DiagnosticReportContributor {
   private static final int MEGABYTE = 1024 * 1024;
+  /** Maximum number of AAR resource repositories listed in the report, the largest ones first. */
+  private static final int MAX_REPORTED_AAR_REPOSITORIES = 20;
   private String myReport;
   private AtomicInteger myLowMemorySignalsCount;
   private LowMemoryWatcher myLowMemoryWatcher;
@@ -46,7 +51,26 @@ public class MemoryUseReportContributor implements DiagnosticReportContributor {
 
     myReport = "Low memory events count: " + myLowMemorySignalsCount.get() + "\n" +
                "Total heap: " + totalMemory + "MB\n" +
-               "Current heap used: " + usedMemory + "MB\n";
+               "Current heap used: " + usedMemory + "MB\n" +
+               getAarResourceRepositoriesReport();
+  }
+
+  /**
+   * Describes the AAR resource repositories held by {@link AarResourceRepositoryCache}, which can take a large part of the heap.
+   */
+  private static String getAarResourceRepositoriesReport() {
+    List<AarResourceRepositoryCache.EntryStats> entries = AarResourceRepositoryCache.getInstance().getEntryStats();
+    StringBuilder report = new StringBuilder();
+    report.append("Cached AAR resource repositories: ").append(entries.size())
+      .append(" with ").append(entries.stream().mapToLong(AarResourceRepositoryCache.EntryStats::getItemCount).sum()).append(" items\n");
+    entries.stream()
+      .sorted(Comparator.comparingInt(AarResourceRepositoryCache.EntryStats::getItemCount).reversed())
+      .limit(MAX_REPORTED_AAR_REPOSITORIES)
+      .forEach(entry -> report.append("  ").append(entry.getLibraryName())
+        .append(": ").append(entry.getItemCount()).append(" items")
+        .append(", loaded in ").append(entry.getLoadTimeMillis()).append("ms")
+        .append(", ").append(entry.getHitCount()).append(" hits\n"));
+    return report.toString();
   }
 
   @Override
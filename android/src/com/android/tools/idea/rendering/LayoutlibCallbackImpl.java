@@ -188,6 +188,10 @@ public class LayoutlibCallbackImpl extends LayoutlibCallback {
    * (e.g. as an item in a recycler view), each version will use different elements from the sample data.
    */
   private final Map<String, AtomicInteger> myLayoutCounterForSampleData = new HashMap<>();
+  /**
+   * PSI files read since the last {@link #reset()}, like drawables and included layouts, with their modification stamp at the time.
+   */
+  private final Map<PsiFile, Long> myReadPsiFiles = new HashMap<>();
 
   /**
    * Creates a new {@link LayoutlibCallbackImpl} to be used with the layout lib.
@@ -270,6 +274,23 @@ public class LayoutlibCallbackImpl extends LayoutlibCallback {
     myLayoutName = null;
     myLayoutEmbeddedParser = null;
     myAaptDeclaredResources = ImmutableMap.of();
+    myReadPsiFiles.clear();
+  }
+
+  /**
+   * Returns the PSI files read since the last {@link #reset()} and their modification stamps when they were read. The render only
+   * depends on those files, besides the layout itself, the resource values and the project classes.
+   */
+  @NotNull
+  ImmutableMap<PsiFile, Long> getReadPsiFiles() {
+    return ImmutableMap.copyOf(myReadPsiFiles);
+  }
+
+  /**
+   * Returns the generation of the project class loader used by the render, or -1 if no project class has been loaded yet.
+   */
+  long getClassLoaderGeneration() {
+    return myClassLoader.getModuleClassLoaderGeneration();
   }
 
   /**
@@ -401,6 +422,7 @@ public class LayoutlibCallbackImpl extends LayoutlibCallback {
             return getParserFromText(fileName, fontFamilyXml);
           }
 
+          myReadPsiFiles.putIfAbsent(psiFile, psiFile.getModificationStamp());
           String psiText = ApplicationManager.getApplication().isReadAccessAllowed()
                            ? psiFile.getText()
                            : ApplicationManager.getApplication().runReadAction((Computable<String>)psiFile::getText);
@@ -546,6 +568,7 @@ public class LayoutlibCallbackImpl extends LayoutlibCallback {
         if (file != null) {
           PsiFile psiFile = AndroidPsiUtils.getPsiFileSafely(myModule.getProject(), file);
           if (psiFile instanceof XmlFile) {
+            myReadPsiFiles.putIfAbsent(psiFile, psiFile.getModificationStamp());
             ResourceResolver resourceResolver = myRenderTask != null ? myRenderTask.getContext().getConfiguration().getResourceResolver()
                                                                      : null;
             // Do not honor the merge tag for layouts that are inflated via this call. This is just being inflated as part of a different
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering;
+
+import com.android.ide.common.rendering.api.Result;
+import com.android.ide.common.rendering.api.ViewInfo;
+import com.android.tools.idea.rendering.imagepool.ImagePool;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.intellij.psi.PsiFile;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Bounded cache of successful {@link RenderResult}s, keyed by a hash of all the inputs of the render (see
+ * {@link RenderTask#setRenderResultCache(RenderResultCache)}).
+ * <p>
+ * Switching between layouts, configurations or themes renders the same inputs over and over again. The key depends on the contents of
+ * the layout and on the versions of the other inputs, so an entry is never served for different inputs. The only exception are the
+ * files layoutlib reads while rendering, like drawables and included layouts, which are not known before the render. Their
+ * modification stamps are kept with the entry, and the entry is dropped when one of them changes. The least recently used entries are
+ * evicted once the cache is full.
+ * <p>
+ * The images are kept in an {@link ImagePool} and every result returned by {@link #get} gets its own copy, so callers can dispose
+ * them as usual.
+ * <p>
+ * Entries are detached from the session that rendered them: the view hierarchy is copied without the layoutlib view and layout
+ * params objects, and the default properties and styles, which are keyed by those views, are not kept. This way the cache does not
+ * pin view trees, or the {@link org.jetbrains.android.uipreview.ModuleClassLoader} that loaded them, once the session is disposed.
+ */
+public final class RenderResultCache {
+  private static final class Entry {
+    @NotNull private final Result myResult;
+    @NotNull private final ImmutableList<ViewInfo> myRootViews;
+    @NotNull private final ImmutableList<ViewInfo> mySystemRootViews;
+    @NotNull private final ImagePool.Image myImage;
+    /** Files read by the render other than the layout itself, with their modification stamps when they were read. */
+    @NotNull private final ImmutableMap<PsiFile, Long> myDependencies;
+
+    private Entry(@NotNull RenderResult result, @NotNull ImagePool.Image image, @NotNull ImmutableMap<PsiFile, Long> dependencies) {
+      // Only successful results are cached, and the data layoutlib attaches to those is not needed for a new result.
+      myResult = Result.Status.SUCCESS.createResult();
+      myRootViews = detach(result.getRootViews());
+      mySystemRootViews = detach(result.getSystemRootViews());
+      myImage = image;
+      myDependencies = dependencies;
+    }
+
+    /**
+     * Returns whether none of the files the render read has been modified or deleted since.
+     */
+    private boolean isUpToDate() {
+      for (Map.Entry<PsiFile, Long> dependency : myDependencies.entrySet()) {
+        PsiFile file = dependency.getKey();
+        if (!file.isValid() || file.getModificationStamp() != dependency.getValue()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * {@link ViewInfo} that only keeps the values of the original one, and not the layoutlib objects it points to.
+   */
+  private static final class DetachedViewInfo extends ViewInfo {
+    @NotNull private final ViewType myViewType;
+
+    private DetachedViewInfo(@NotNull ViewInfo info) {
+      super(info.getClassName(), info.getCookie(), info.getLeft(), info.getTop(), info.getRight(), info.getBottom());
+      myViewType = info.getViewType();
+      setExtendedInfo(info.getBaseLine(), info.getLeftMargin(), info.getTopMargin(), info.getRightMargin(), info.getBottomMargin());
+      setChildren(detach(info.getChildren()));
+    }
+
+    @NotNull
+    @Override
+    public ViewType getViewType() {
+      return myViewType;
+    }
+  }
+
+  @NotNull
+  private static ImmutableList<ViewInfo> detach(@NotNull List<ViewInfo> views) {
+    ImmutableList.Builder<ViewInfo> builder = ImmutableList.builderWithExpectedSize(views.size());
+    for (ViewInfo view : views) {
+      builder.add(new DetachedViewInfo(view));
+    }
+    return builder.build();
+  }
+
+  @NotNull private final ImagePool myImagePool;
+  private final int myMaxEntries;
+  /** Entries in access order, so the first one is the least recently used. Also used as the lock for the cache. */
+  private final LinkedHashMap<HashCode, Entry> myEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * @param imagePool pool where the cached images are stored
+   * @param maxEntries maximum number of results to keep
+   */
+  public RenderResultCache(@NotNull ImagePool imagePool, int maxEntries) {
+    myImagePool = imagePool;
+    myMaxEntries = maxEntries;
+  }
+
+  /**
+   * Returns a new {@link RenderResult} with the contents of the result cached for {@code key}, or null if there is none.
+   *
+   * @param imagePool the pool where the image of the returned result will be allocated
+   */
+  @Nullable
+  RenderResult get(@NotNull HashCode key,
+                   @NotNull RenderTask renderTask,
+                   @NotNull PsiFile file,
+                   @NotNull RenderLogger logger,
+                   @NotNull ImagePool imagePool) {
+    Entry entry;
+    BufferedImage image;
+    synchronized (myEntries) {
+      entry = myEntries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (!entry.isUpToDate()) {
+        myEntries.remove(key);
+        entry.myImage.dispose();
+        return null;
+      }
+      // Copy while holding the lock so the image can not be evicted and disposed in the meantime.
+      image = entry.myImage.getCopy();
+    }
+    if (image == null) {
+      return null;
+    }
+
+    return new RenderResult(
+      file,
+      renderTask.getContext().getModule(),
+      logger,
+      renderTask,
+      entry.myResult,
+      entry.myRootViews,
+      entry.mySystemRootViews,
+      imagePool.copyOf(image),
+      ImmutableMap.of(),
+      ImmutableMap.of());
+  }
+
+  /**
+   * Stores a copy of {@code result} for {@code key}. Only successful results with an image are cached.
+   *
+   * @param dependencies files read by the render other than the layout itself, with their modification stamps when they were read
+   */
+  void put(@NotNull HashCode key, @NotNull RenderResult result, @NotNull ImmutableMap<PsiFile, Long> dependencies) {
+    if (!result.getRenderResult().isSuccess() || !result.hasImage()) {
+      return;
+    }
+    BufferedImage image = result.getRenderedImage().getCopy();
+    if (image == null) {
+      return;
+    }
+
+    Entry entry = new Entry(result, myImagePool.copyOf(image), dependencies);
+    synchronized (myEntries) {
+      Entry previous = myEntries.put(key, entry);
+      if (previous != null) {
+        previous.myImage.dispose();
+      }
+      Iterator<Entry> iterator = myEntries.values().iterator();
+      while (myEntries.size() > myMaxEntries && iterator.hasNext()) {
+        iterator.next().myImage.dispose();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes all the entries and releases their images.
+   */
+  public void clear() {
+    synchronized (myEntries) {
+      myEntries.values().forEach(entry -> entry.myImage.dispose());
+      myEntries.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (myEntries) {
+      return myEntries.size();
+    }
+  }
+}
@@ -55,11 +55,13 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 import org.jetbrains.android.facet.AndroidFacet;
@@ -75,6 +77,17 @@ import org.jetbrains.annotations.TestOnly;
  * The {@link RenderService} provides rendering and layout information for Android layouts. This is a wrapper around the layout library.
  */
 public class RenderService implements Disposable {
+  /**
+   * Priority of render actions. Layoutlib can only render one layout at a time, so when several renders are queued, the ones with a
+   * higher priority run first. Actions of the same priority run in submission order.
+   */
+  public enum RenderingPriority {
+    /** Renders the user is interacting with, e.g. the layout editor. This is the default priority. */
+    HIGH,
+    /** Batch renders of many configurations, e.g. the Layout Validation tool, which shouldn't delay the interactive ones. */
+    LOW
+  }
+
   /** Number of ms that we will wait for the rendering thread to return before timing out */
   private static final long DEFAULT_RENDER_THREAD_TIMEOUT_MS = Long.getLong("layoutlib.thread.timeout",
                                                                             TimeUnit.SECONDS.toMillis(
@@ -103,16 +116,13 @@ public class RenderService implements Disposable {
   private final Project myProject;
 
   private static void innerInitializeRenderExecutor() {
-    ourRenderingExecutor = new ThreadPoolExecutor(1, 1,
-                             0, TimeUnit.MILLISECONDS,
-                             new LinkedBlockingQueue<>(),
-                             (Runnable r) -> {
-                               Thread renderingThread = new Thread(null, r, "Layoutlib Render Thread");
-                               renderingThread.setDaemon(true);
-                               ourRenderingThread.set(renderingThread);
-
-                               return renderingThread;
-                             });
+    ourRenderingExecutor = new RenderExecutor((Runnable r) -> {
+      Thread renderingThread = new Thread(null, r, "Layoutlib Render Thread");
+      renderingThread.setDaemon(true);
+      ourRenderingThread.set(renderingThread);
+
+      return renderingThread;
+    });
   }
 
   @TestOnly
@@ -156,6 +166,13 @@ public class RenderService implements Disposable {
 
   private final ImagePool myImagePool = ImagePoolFactory.createImagePool();
 
+  /**
+   * Maximum number of results kept by {@link #myRenderResultCache}.
+   */
+  private static final int RENDER_RESULT_CACHE_SIZE = 32;
+
+  private final RenderResultCache myRenderResultCache = new RenderResultCache(myImagePool, RENDER_RESULT_CACHE_SIZE);
+
   /**
    * @return the {@linkplain RenderService} for the given facet.
    */
@@ -225,6 +242,7 @@ public class RenderService implements Disposable {
   @Override
   public void dispose() {
     myProject.putUserData(KEY, null);
+    myRenderResultCache.clear();
     myImagePool.dispose();
   }
 
@@ -314,7 +332,16 @@ public class RenderService implements Disposable {
    */
   @NotNull
   public static <T> CompletableFuture<T> runAsyncRenderAction(@NotNull Supplier<T> callable) {
-    return CompletableFuture.supplyAsync(callable, ourRenderingExecutor);
+    return runAsyncRenderAction(callable, RenderingPriority.HIGH);
+  }
+
+  /**
+   * Same as {@link #runAsyncRenderAction(Supplier)}, running the action once all the queued actions of a higher priority have run.
+   */
+  @NotNull
+  public static <T> CompletableFuture<T> runAsyncRenderAction(@NotNull Supplier<T> callable, @NotNull RenderingPriority priority) {
+    return CompletableFuture.supplyAsync(callable,
+                                         runnable -> ourRenderingExecutor.execute(new PrioritizedRenderAction(runnable, priority)));
   }
 
   /**
@@ -327,6 +354,13 @@ public class RenderService implements Disposable {
     ourRenderingExecutor.execute(runnable);
   }
 
+  /**
+   * Same as {@link #runAsyncRenderAction(Runnable)}, running the action once all the queued actions of a higher priority have run.
+   */
+  public static void runAsyncRenderAction(@NotNull Runnable runnable, @NotNull RenderingPriority priority) {
+    ourRenderingExecutor.execute(new PrioritizedRenderAction(runnable, priority));
+  }
+
   /**
    * Given a {@link ViewInfo} from a layoutlib rendering, checks that the view info provides
    * valid bounds. This is normally the case. However, there are known scenarios, where
@@ -398,6 +432,45 @@ public class RenderService implements Disposable {
     return myImagePool;
   }
 
+  /**
+   * Single thread executor running the queued render actions by {@link RenderingPriority}.
+   */
+  private static final class RenderExecutor extends ThreadPoolExecutor {
+    private RenderExecutor(@NotNull ThreadFactory threadFactory) {
+      super(1, 1, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), threadFactory);
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+      // Everything queued must be comparable, including the tasks created by submit.
+      super.execute(command instanceof PrioritizedRenderAction ? command : new PrioritizedRenderAction(command, RenderingPriority.HIGH));
+    }
+  }
+
+  private static final class PrioritizedRenderAction implements Runnable, Comparable<PrioritizedRenderAction> {
+    private static final AtomicLong ourNextSequence = new AtomicLong();
+
+    @NotNull private final Runnable myRunnable;
+    @NotNull private final RenderingPriority myPriority;
+    private final long mySequence = ourNextSequence.getAndIncrement();
+
+    private PrioritizedRenderAction(@NotNull Runnable runnable, @NotNull RenderingPriority priority) {
+      myRunnable = runnable;
+      myPriority = priority;
+    }
+
+    @Override
+    public void run() {
+      myRunnable.run();
+    }
+
+    @Override
+    public int compareTo(@NotNull PrioritizedRenderAction other) {
+      int result = myPriority.compareTo(other.myPriority);
+      return result != 0 ? result : Long.compare(mySequence, other.mySequence);
+    }
+  }
+
   /** This is the View.MeasureSpec mode shift */
   private static final int MEASURE_SPEC_MODE_SHIFT = 30;
 
@@ -429,6 +502,8 @@ public class RenderService implements Disposable {
     private boolean useHighQualityShadows = StudioFlags.NELE_RENDER_HIGH_QUALITY_SHADOW.get();
     private SessionParams.RenderingMode myRenderingMode = null;
     private boolean useTransparentBackground = false;
+    private boolean useRenderResultCache = false;
+    @NotNull private RenderingPriority myPriority = RenderingPriority.HIGH;
 
     private RenderTaskBuilder(@NotNull RenderService service,
                               @NotNull AndroidFacet facet,
@@ -542,6 +617,15 @@ public class RenderService implements Disposable {
       return this;
     }
 
+    /**
+     * @see RenderTask#setPriority(RenderingPriority)
+     */
+    @NotNull
+    public RenderTaskBuilder withPriority(@NotNull RenderingPriority priority) {
+      myPriority = priority;
+      return this;
+    }
+
     /**
      * @see RenderTask#setTransparentBackground()
      */
@@ -551,6 +635,18 @@ public class RenderService implements Disposable {
       return this;
     }
 
+    /**
+     * Serves the renders of the task from the {@link RenderResultCache} of the service when the same inputs have been rendered before.
+     * Only suitable for tasks that are just used to obtain a render image, since cached results are not backed by a render session.
+     *
+     * @see RenderTask#setRenderResultCache(RenderResultCache)
+     */
+    @NotNull
+    public RenderTaskBuilder useRenderResultCache() {
+      useRenderResultCache = true;
+      return this;
+    }
+
     /**
      * Builds a new {@link RenderTask}. The returned future always completes successfully but the value might be null if the RenderTask
      * can not be created.
@@ -615,7 +711,8 @@ public class RenderService implements Disposable {
             .setDecorations(showDecorations)
             .setHighQualityShadows(useHighQualityShadows)
             .setShadowEnabled(isShadowEnabled)
-            .setShowWithToolsAttributes(showWithToolsAttributes);
+            .setShowWithToolsAttributes(showWithToolsAttributes)
+            .setPriority(myPriority);
 
           if (myMaxRenderWidth != -1 && myMaxRenderHeight != -1) {
             task.setMaxRenderSize(myMaxRenderWidth, myMaxRenderHeight);
@@ -629,6 +726,10 @@ public class RenderService implements Disposable {
             task.setRenderingMode(myRenderingMode);
           }
 
+          if (useRenderResultCache) {
+            task.setRenderResultCache(myService.myRenderResultCache);
+          }
+
           return task;
         } catch (IllegalStateException | IncorrectOperationException | AssertionError e) {
           // Ignore the exception if it was generated when the facet is being disposed (project is being closed)
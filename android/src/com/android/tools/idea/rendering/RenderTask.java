@@ -17,6 +17,7 @@ package com.android.tools.idea.rendering;
 
 import static com.android.SdkConstants.CLASS_COMPOSE;
 import static com.android.SdkConstants.CLASS_COMPOSE_VIEW_ADAPTER;
+import static com.google.common.base.Charsets.UTF_8;
 import static com.intellij.lang.annotation.HighlightSeverity.ERROR;
 
 import com.android.SdkConstants;
@@ -65,6 +66,10 @@ import com.android.tools.idea.res.ResourceIdManager;
 import com.android.tools.idea.res.ResourceRepositoryManager;
 import com.android.tools.idea.util.DependencyManagementUtil;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.Futures;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
@@ -89,7 +94,9 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
 import org.jetbrains.android.facet.AndroidFacet;
 import org.jetbrains.android.util.AndroidUtils;
@@ -154,6 +161,13 @@ public class RenderTask {
   @NotNull private RenderingMode myRenderingMode = RenderingMode.NORMAL;
   private boolean mySetTransparentBackground = false;
   private boolean myShowDecorations = true;
+  @NotNull private RenderService.RenderingPriority myPriority = RenderService.RenderingPriority.HIGH;
+  @Nullable private RenderResultCache myRenderResultCache;
+  /** Key of the render in {@link #myRenderResultCache}, set when the session was inflated and not rendered yet. */
+  @Nullable private HashCode myRenderResultKey;
+  private float myQuality = 1f;
+  /** Maximum number of pixels of the rendered images for {@link #myQuality}, or 0 if they are not limited. */
+  private long myMaxImagePixels = 0;
   private boolean myShadowEnabled = true;
   private boolean myHighQualityShadow = true;
   private boolean myShowWithToolsAttributes = true;
@@ -230,25 +244,35 @@ public class RenderTask {
   }
 
   public void setQuality(float quality) {
+    myQuality = quality;
     if (quality >= 1.f) {
+      myMaxImagePixels = 0;
       myCachingImageFactory = SIMPLE_IMAGE_FACTORY;
       return;
     }
 
     float actualSamplingFactor = MIN_DOWNSCALING_FACTOR + Math.max(Math.min(quality, 1f), 0f) * (1f - MIN_DOWNSCALING_FACTOR);
-    long maxSize = (long)((float)DOWNSCALED_IMAGE_MAX_BYTES * actualSamplingFactor);
-    myCachingImageFactory = new CachingImageFactory(((width, height) -> {
-      int downscaleWidth = width;
-      int downscaleHeight = height;
-      int size = width * height;
-      if (size > maxSize) {
-        double scale = maxSize / (double)size;
-        downscaleWidth *= scale;
-        downscaleHeight *= scale;
-      }
+    myMaxImagePixels = (long)((float)DOWNSCALED_IMAGE_MAX_BYTES * actualSamplingFactor);
+    myCachingImageFactory = new CachingImageFactory(((width, height) -> createDownscaledImage(width, height, 1f)));
+  }
 
-      return SIMPLE_IMAGE_FACTORY.getImage(downscaleWidth, downscaleHeight);
-    }));
+  /**
+   * Creates the image a {@code width} x {@code height} layout is drawn into. The image is scaled down by {@code scale}, or by the limit of
+   * the quality if that is smaller. The two are not compounded: a downscaled render of a layout that the quality already scales down more
+   * than {@code scale} gets the same image as a full render.
+   */
+  @VisibleForTesting
+  @NotNull
+  BufferedImage createDownscaledImage(int width, int height, float scale) {
+    double downscale = scale;
+    long size = (long)width * height;
+    if (myMaxImagePixels > 0 && size > myMaxImagePixels) {
+      downscale = Math.min(downscale, myMaxImagePixels / (double)size);
+    }
+    if (downscale >= 1) {
+      return SIMPLE_IMAGE_FACTORY.getImage(width, height);
+    }
+    return SIMPLE_IMAGE_FACTORY.getImage(Math.max(1, (int)(width * downscale)), Math.max(1, (int)(height * downscale)));
   }
 
   public void restoreDefaultQuality() {
@@ -309,7 +333,7 @@ public class RenderTask {
         catch (IllegalAccessException e) {
           LOG.debug(e);
         }
-      });
+      }, myPriority);
     } catch(Throwable t) {
       LOG.debug(t);
     }
@@ -329,7 +353,7 @@ public class RenderTask {
         catch (IllegalAccessException e) {
           LOG.debug(e);
         }
-      });
+      }, myPriority);
     } catch (Throwable t) {
       LOG.debug(t);
     }
@@ -362,7 +386,7 @@ public class RenderTask {
         catch (IllegalAccessException e) {
           LOG.debug(e);
         }
-      });
+      }, myPriority);
     }
     catch (Throwable t) {
       LOG.debug(t);
@@ -389,14 +413,15 @@ public class RenderTask {
         // Wait for all current running operations to complete
         CompletableFuture.allOf(currentRunningFutures).get(5, TimeUnit.SECONDS);
       }
-      catch (InterruptedException | ExecutionException e) {
-        // We do not care about these exceptions since we are disposing the task anyway
+      catch (InterruptedException | ExecutionException | TimeoutException e) {
+        // We do not care about these exceptions since we are disposing the task anyway. On a timeout, the session is still disposed below,
+        // after the operations that are still running since the rendering thread runs one action at a time.
         LOG.debug(e);
       }
       myLayoutlibCallback.setLogger(IRenderLogger.NULL_LOGGER);
       if (myRenderSession != null) {
         try {
-          RenderService.runAsyncRenderAction(myRenderSession::dispose);
+          RenderService.runAsyncRenderAction(myRenderSession::dispose, myPriority);
           myRenderSession = null;
         }
         catch (Exception ignored) {
@@ -495,6 +520,32 @@ public class RenderTask {
     return this;
   }
 
+  /**
+   * Sets the priority of the render actions of this task, relative to the actions of other tasks.
+   *
+   * @return this (such that chains of setters can be stringed together)
+   */
+  @SuppressWarnings("UnusedReturnValue")
+  @NotNull
+  public RenderTask setPriority(@NotNull RenderService.RenderingPriority priority) {
+    myPriority = priority;
+    return this;
+  }
+
+  /**
+   * Sets the cache used by {@link #render()}. When the task has no session yet and the cache contains a result for the same layout
+   * contents, configuration, resources and project classes, that result is returned without inflating or rendering the layout.
+   * Results returned from the cache are not backed by a session of this task.
+   *
+   * @return this (such that chains of setters can be stringed together)
+   */
+  @SuppressWarnings("UnusedReturnValue")
+  @NotNull
+  public RenderTask setRenderResultCache(@Nullable RenderResultCache cache) {
+    myRenderResultCache = cache;
+    return this;
+  }
+
   /**
    * Sets the value of the {@link com.android.layoutlib.bridge.android.RenderParamsFlags#FLAG_ENABLE_SHADOW}
    * which dictates if shadows will be rendered or not by layout lib.
@@ -542,7 +593,7 @@ public class RenderTask {
    * @return the {@link RenderResult resulting from rendering the current model
    */
   @Nullable
-  private RenderResult createRenderSession(@NotNull IImageFactory factory) {
+  private RenderResult createRenderSession(@NotNull IImageFactory factory, boolean useRenderResultCache) {
     PsiFile psiFile = getXmlFile();
     if (psiFile == null) {
       throw new IllegalStateException("createRenderSession shouldn't be called on RenderTask without PsiFile");
@@ -578,6 +629,18 @@ public class RenderTask {
       modelParser = includingParser;
     }
 
+    myRenderResultKey = null;
+    if (useRenderResultCache && myRenderResultCache != null && includingParser == null && modelParser instanceof LayoutPsiPullParser) {
+      HashCode key = computeRenderResultKey(psiFile, (LayoutPsiPullParser)modelParser);
+      if (key != null) {
+        RenderResult cachedResult = myRenderResultCache.get(key, this, psiFile, myLogger, myImagePool);
+        if (cachedResult != null) {
+          return cachedResult;
+        }
+        myRenderResultKey = key;
+      }
+    }
+
     RenderTaskContext context = getContext();
     IAndroidTarget target = context.getConfiguration().getTarget();
     int simulatedPlatform = target instanceof CompatibilityRenderTarget ? target.getVersion().getApiLevel() : 0;
@@ -687,6 +750,9 @@ public class RenderTask {
         }
         RenderResult result = RenderResult.create(this, session, psiFile, myLogger, myImagePool.copyOf(session.getImage()));
         myRenderSession = session;
+        if (!session.getResult().isSuccess()) {
+          myRenderResultKey = null;
+        }
         addDiagnostics(result.getRenderResult());
         return result;
       }
@@ -776,7 +842,7 @@ public class RenderTask {
     }
 
     synchronized (myRunningFutures) {
-      CompletableFuture<V> newFuture = RenderService.runAsyncRenderAction(callable);
+      CompletableFuture<V> newFuture = RenderService.runAsyncRenderAction(callable, myPriority);
       myRunningFutures.add(newFuture);
       newFuture
         .whenCompleteAsync((result, ex) -> {
@@ -795,6 +861,15 @@ public class RenderTask {
    */
   @NotNull
   public CompletableFuture<RenderResult> inflate() {
+    return inflate(false);
+  }
+
+  /**
+   * @param useRenderResultCache if true and {@link #myRenderResultCache} contains a result for the current inputs, that result is
+   *                             returned and no session is created
+   */
+  @NotNull
+  private CompletableFuture<RenderResult> inflate(boolean useRenderResultCache) {
     // During development only:
     //assert !ApplicationManager.getApplication().isReadAccessAllowed() : "Do not hold read lock during inflate!";
 
@@ -813,7 +888,7 @@ public class RenderTask {
         }
 
         return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-      }));
+      }, useRenderResultCache));
     }
     catch (Exception e) {
       String message = e.getMessage();
@@ -850,6 +925,58 @@ public class RenderTask {
     return CompletableFuture.completedFuture(null);
   }
 
+  /**
+   * Computes the key of the render in the {@link RenderResultCache}. It covers the contents of the layout, the configuration, the
+   * settings of this task, the version of the project resources and the generation of the project class loader. The other files the
+   * render reads, like drawables and included layouts, are checked by the cache itself.
+   *
+   * @return the key, or null if the render can not be cached because the project class loader has not been created yet
+   */
+  @Nullable
+  private HashCode computeRenderResultKey(@NotNull PsiFile psiFile, @NotNull LayoutPsiPullParser parser) {
+    Hasher hasher = Hashing.goodFastHash(128).newHasher();
+    VirtualFile virtualFile = psiFile.getVirtualFile();
+    hasher.putString(virtualFile != null ? virtualFile.getPath() : psiFile.getName(), UTF_8);
+    parser.putLayout(hasher);
+
+    RenderTaskContext context = getContext();
+    Configuration configuration = context.getConfiguration();
+    IAndroidTarget target = configuration.getTarget();
+    hasher.putString(configuration.getFullConfig().getQualifierString(), UTF_8)
+      .putString(Strings.nullToEmpty(configuration.getTheme()), UTF_8)
+      .putString(Strings.nullToEmpty(configuration.getActivity()), UTF_8)
+      .putString(target != null ? target.hashString() : "", UTF_8)
+      .putFloat(configuration.getFontScale())
+      .putString(myLocale.toLocaleId(), UTF_8);
+
+    HardwareConfig hardwareConfig = myHardwareConfigHelper.getConfig();
+    hasher.putInt(hardwareConfig.getScreenWidth())
+      .putInt(hardwareConfig.getScreenHeight())
+      .putFloat(hardwareConfig.getXdpi())
+      .putFloat(hardwareConfig.getYdpi())
+      .putString(String.valueOf(hardwareConfig.getDensity()), UTF_8)
+      .putString(String.valueOf(hardwareConfig.getScreenSize()), UTF_8)
+      .putString(String.valueOf(hardwareConfig.getOrientation()), UTF_8)
+      .putBoolean(hardwareConfig.isScreenRound())
+      .putBoolean(hardwareConfig.hasSoftwareButtons());
+
+    hasher.putString(myRenderingMode.name(), UTF_8)
+      .putBoolean(myShowDecorations)
+      .putBoolean(mySetTransparentBackground || requiresTransparency())
+      .putBoolean(myShadowEnabled)
+      .putBoolean(myHighQualityShadow)
+      .putFloat(myQuality);
+
+    long classLoaderGeneration = myLayoutlibCallback.getClassLoaderGeneration();
+    if (classLoaderGeneration == -1) {
+      return null;
+    }
+    LocalResourceRepository appResources = ResourceRepositoryManager.getAppResources(context.getModule());
+    hasher.putLong(appResources != null ? appResources.getModificationCount() : -1)
+      .putLong(classLoaderGeneration);
+    return hasher.hash();
+  }
+
   /**
    * Method used to report unhandled layoutlib exceptions to the crash reporter
    */
@@ -862,7 +989,7 @@ public class RenderTask {
    * Renders the layout to the current {@link IImageFactory} set in {@link #myImageFactoryDelegate}
    */
   @NotNull
-  private CompletableFuture<RenderResult> renderInner() {
+  private CompletableFuture<RenderResult> renderInner(@NotNull BooleanSupplier isCancelled) {
     // During development only:
     //assert !ApplicationManager.getApplication().isReadAccessAllowed() : "Do not hold read lock during render!";
 
@@ -871,7 +998,8 @@ public class RenderTask {
 
     CompletableFuture<RenderResult> inflateCompletableResult;
     if (myRenderSession == null) {
-      inflateCompletableResult = inflate()
+      // Results are only cached for the default image factory, since the image depends on it.
+      inflateCompletableResult = inflate(myImageFactoryDelegate == myCachingImageFactory)
         .whenComplete((renderResult, exception) -> {
           Result result = renderResult != null ? renderResult.getRenderResult() : null;
           if (result == null || !result.isSuccess()) {
@@ -889,9 +1017,20 @@ public class RenderTask {
       inflateCompletableResult = CompletableFuture.completedFuture(null);
     }
 
-    return inflateCompletableResult.thenCompose(ignored -> {
+    return inflateCompletableResult.thenCompose(inflateResult -> {
+      if (myRenderSession == null && inflateResult != null) {
+        // The result was found in the render result cache, there is nothing to render.
+        return CompletableFuture.completedFuture(inflateResult);
+      }
+      if (isCancelled.getAsBoolean()) {
+        return CompletableFuture.completedFuture(null);
+      }
       try {
         return runAsyncRenderAction(() -> {
+          // Other render actions might have been queued before this one, so check again before drawing.
+          if (isCancelled.getAsBoolean()) {
+            return null;
+          }
           myRenderSession.render();
           RenderResult result =
             RenderResult.create(this, myRenderSession, psiFile, myLogger, myImagePool.copyOf(myRenderSession.getImage()));
@@ -900,13 +1039,19 @@ public class RenderTask {
             reportException(renderResult.getException());
             myLogger.error(null, renderResult.getErrorMessage(), renderResult.getException(), null, null);
           }
+          // Only the first render after inflating is cached, later ones depend on the state of the session.
+          HashCode key = myRenderResultKey;
+          myRenderResultKey = null;
+          if (key != null && myRenderResultCache != null && !myLogger.hasProblems()) {
+            myRenderResultCache.put(key, result, myLayoutlibCallback.getReadPsiFiles());
+          }
           return result;
         }).whenComplete((result, ex) -> {
           // After render clean-up. Dispose the GapWorker cache and the Choreographer queued tasks.
           clearGapWorkerCache();
           RenderService.runAsyncRenderAction(() -> {
             android.view.Choreographer.releaseInstance();
-          });
+          }, myPriority);
         });
       }
       catch (Exception e) {
@@ -931,7 +1076,7 @@ public class RenderTask {
   CompletableFuture<RenderResult> render(@NotNull IImageFactory factory) {
     myImageFactoryDelegate = factory;
 
-    return renderInner();
+    return renderInner(() -> false);
   }
 
   /**
@@ -945,6 +1090,31 @@ public class RenderTask {
     return render(myCachingImageFactory);
   }
 
+  /**
+   * Like {@link #render()}, but the render is abandoned if {@code isCancelled} returns true before the layout is drawn, in which case
+   * the returned future is completed with null. {@code isCancelled} is only checked between the inflation and the drawing, where
+   * abandoning the render leaves the session ready for the next one.
+   */
+  @NotNull
+  public CompletableFuture<RenderResult> render(@NotNull BooleanSupplier isCancelled) {
+    myImageFactoryDelegate = myCachingImageFactory;
+
+    return renderInner(isCancelled);
+  }
+
+  /**
+   * Like {@link #render(BooleanSupplier)}, but the layout is drawn into an image scaled down by {@code scale}, which must be in (0, 1].
+   * Used to quickly show a preview of the layout that is replaced later by a full render. These results are never cached.
+   * <p>
+   * The quality set with {@link #setQuality(float)} still limits the size of the image, see {@link #createDownscaledImage}.
+   */
+  @NotNull
+  public CompletableFuture<RenderResult> renderDownscaled(float scale, @NotNull BooleanSupplier isCancelled) {
+    myImageFactoryDelegate = new CachingImageFactory((width, height) -> createDownscaledImage(width, height, scale));
+
+    return renderInner(isCancelled);
+  }
+
   /**
    * Sets the time for which the next frame will be selected. The time is the elapsed time from
    * the current system nanos time.
@@ -1102,7 +1272,7 @@ public class RenderTask {
   public CompletableFuture<Map<XmlTag, ViewInfo>> measureChildren(@NotNull XmlTag parent, @Nullable AttributeFilter filter) {
     ILayoutPullParser modelParser = LayoutPsiPullParser.create(filter, parent, myLogger);
     Map<XmlTag, ViewInfo> map = new HashMap<>();
-    return RenderService.runAsyncRenderAction(() -> measure(modelParser))
+    return RenderService.runAsyncRenderAction(() -> measure(modelParser), myPriority)
         .thenComposeAsync(session -> {
           if (session != null) {
             try {
@@ -1123,7 +1293,7 @@ public class RenderTask {
               return CompletableFuture.completedFuture(map);
             }
             finally {
-              RenderService.runAsyncRenderAction(session::dispose);
+              RenderService.runAsyncRenderAction(session::dispose, myPriority);
             }
           }
 
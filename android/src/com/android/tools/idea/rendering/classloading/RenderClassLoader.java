@@ -66,9 +66,18 @@ public abstract class RenderClassLoader extends ClassLoader {
   @GuardedBy("myJarClassLoaderLock")
   private Supplier<UrlClassLoader> myJarClassLoader = Suppliers.memoize(() -> createJarClassLoader(getExternalJars()));
   protected boolean myInsideJarClassLoader;
+  @Nullable private final TransformedClassCache myTransformedClassCache;
 
   public RenderClassLoader(@Nullable ClassLoader parent) {
+    this(parent, null);
+  }
+
+  /**
+   * @param transformedClassCache cache of rewritten classes, or null to rewrite every class when loading it.
+   */
+  public RenderClassLoader(@Nullable ClassLoader parent, @Nullable TransformedClassCache transformedClassCache) {
     super(parent);
+    myTransformedClassCache = transformedClassCache;
   }
 
   protected abstract List<URL> getExternalJars();
@@ -109,7 +118,7 @@ public abstract class RenderClassLoader extends ClassLoader {
       if (!isValidClassFile(data)) {
         throw new ClassFormatError(name);
       }
-      byte[] rewritten = ClassConverter.rewriteClass(data, DEFAULT_TRANSFORMS);
+      byte[] rewritten = rewriteClass(data);
       return defineClassAndPackage(name, rewritten, 0, rewritten.length);
     }
     catch (IOException | ClassNotFoundException e) {
@@ -142,7 +151,7 @@ public abstract class RenderClassLoader extends ClassLoader {
       throw new ClassFormatError(fqcn);
     }
 
-    byte[] rewritten = ClassConverter.rewriteClass(data, DEFAULT_TRANSFORMS);
+    byte[] rewritten = rewriteClass(data);
     try {
       if (LOG.isDebugEnabled()) {
         LOG.debug(String.format("Defining class '%s' from disk file", anonymizeClassName(fqcn)));
@@ -156,6 +165,14 @@ public abstract class RenderClassLoader extends ClassLoader {
     }
   }
 
+  @NotNull
+  private byte[] rewriteClass(@NotNull byte[] data) {
+    if (myTransformedClassCache == null) {
+      return ClassConverter.rewriteClass(data, DEFAULT_TRANSFORMS);
+    }
+    return myTransformedClassCache.getOrTransform(data, bytes -> ClassConverter.rewriteClass(bytes, DEFAULT_TRANSFORMS));
+  }
+
   @NotNull
   protected Class<?> defineClassAndPackage(@NotNull String name, @NotNull byte[] b, int offset, int len) {
     int i = name.lastIndexOf('.');
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering.classloading;
+
+import com.google.common.hash.Hashing;
+import com.intellij.openapi.diagnostic.Logger;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * On-disk cache of the class files rewritten by {@link RenderClassLoader}, keyed by a hash of the original class file.
+ * <p>
+ * Every new class loader rewrites every class it loads, which dominates the first render after a build even though most of the classes
+ * (all the library ones and most of the project ones) haven't changed. Since the key only depends on the class file contents, the
+ * cache is shared by all the modules and survives IDE restarts.
+ * <p>
+ * Entries are never invalidated, as the contents and the IDE build are part of the key. Instead, {@link #trimToSize(long)} removes the
+ * least recently used entries, and the temporary files left behind by writes that were interrupted.
+ */
+public final class TransformedClassCache {
+  private static final Logger LOG = Logger.getInstance(TransformedClassCache.class);
+
+  /**
+   * Version of the transformations applied by {@link RenderClassLoader}. Every IDE build gets its own entries, so this only needs to be
+   * incremented for development builds, whose build number doesn't change.
+   */
+  private static final int TRANSFORM_VERSION = 1;
+
+  /**
+   * Hits only record the access of entries that haven't been accessed for this long, so loading classes doesn't write to the disk every
+   * time. This is precise enough for {@link #trimToSize(long)}.
+   */
+  private static final long ACCESS_RECORD_INTERVAL_MS = TimeUnit.DAYS.toMillis(1);
+
+  /**
+   * Temporary files older than this are left behind by writes that were interrupted, e.g. by the IDE exiting, rather than being written.
+   */
+  private static final long ABANDONED_TEMP_FILE_AGE_MS = TimeUnit.HOURS.toMillis(1);
+
+  private static final String ENTRY_EXTENSION = ".class";
+  private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+  @NotNull private final Path myDirectory;
+  @NotNull private final String myBuildId;
+
+  /**
+   * @param buildId identifies the build of the IDE, or plugin, doing the transformations. Entries written by other builds are not used.
+   */
+  public TransformedClassCache(@NotNull Path directory, @NotNull String buildId) {
+    myDirectory = directory;
+    myBuildId = buildId;
+  }
+
+  /**
+   * @return the cached result of {@code transform} applied to {@code classBytes}, computing and storing it if it isn't cached yet.
+   */
+  @NotNull
+  public byte[] getOrTransform(@NotNull byte[] classBytes, @NotNull Function<byte[], byte[]> transform) {
+    Path entry = getEntry(classBytes);
+    try {
+      byte[] cached = Files.readAllBytes(entry);
+      // Record the access for trimToSize.
+      long now = System.currentTimeMillis();
+      if (now - Files.getLastModifiedTime(entry).toMillis() > ACCESS_RECORD_INTERVAL_MS) {
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(now));
+      }
+      return cached;
+    }
+    catch (NoSuchFileException ignored) {
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+
+    byte[] transformed = transform.apply(classBytes);
+    write(entry, transformed);
+    return transformed;
+  }
+
+  /**
+   * Deletes the least recently used entries until the cache takes at most {@code maxSizeBytes}, and the abandoned temporary files.
+   */
+  public void trimToSize(long maxSizeBytes) {
+    List<Path> entries = new ArrayList<>();
+    List<BasicFileAttributes> attributes = new ArrayList<>();
+    long totalSize = 0;
+    long now = System.currentTimeMillis();
+    try (DirectoryStream<Path> buckets = Files.newDirectoryStream(myDirectory)) {
+      for (Path bucket : buckets) {
+        try (DirectoryStream<Path> bucketFiles = Files.newDirectoryStream(bucket)) {
+          for (Path file : bucketFiles) {
+            String fileName = file.getFileName().toString();
+            BasicFileAttributes fileAttributes;
+            try {
+              fileAttributes = Files.readAttributes(file, BasicFileAttributes.class);
+            }
+            catch (NoSuchFileException ignored) {
+              // Concurrently deleted, or a temporary file that was just moved to its entry.
+              continue;
+            }
+            if (fileName.endsWith(ENTRY_EXTENSION)) {
+              entries.add(file);
+              attributes.add(fileAttributes);
+              totalSize += fileAttributes.size();
+            }
+            else if (fileName.endsWith(TEMP_FILE_EXTENSION) &&
+                     now - fileAttributes.lastModifiedTime().toMillis() > ABANDONED_TEMP_FILE_AGE_MS) {
+              deleteIfExists(file);
+            }
+          }
+        }
+      }
+    }
+    catch (NoSuchFileException ignored) {
+      return;
+    }
+    catch (IOException e) {
+      LOG.warn("Unable to list the transformed class cache", e);
+      return;
+    }
+
+    if (totalSize <= maxSizeBytes) {
+      return;
+    }
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < entries.size(); i++) {
+      order.add(i);
+    }
+    order.sort(Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+    for (int i : order) {
+      if (totalSize <= maxSizeBytes) {
+        break;
+      }
+      if (deleteIfExists(entries.get(i))) {
+        totalSize -= attributes.get(i).size();
+      }
+    }
+  }
+
+  /**
+   * @return false if the file couldn't be deleted.
+   */
+  private static boolean deleteIfExists(@NotNull Path file) {
+    try {
+      Files.deleteIfExists(file);
+      return true;
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+      return false;
+    }
+  }
+
+  @NotNull
+  private Path getEntry(@NotNull byte[] classBytes) {
+    String key = Hashing.sha256().newHasher()
+      .putInt(TRANSFORM_VERSION)
+      .putUnencodedChars(myBuildId)
+      // The transformations target the class file version of the running JDK.
+      .putInt(ClassConverter.getCurrentClassVersion())
+      .putBytes(classBytes)
+      .hash()
+      .toString();
+    // Spread the entries over subdirectories to keep them small.
+    return myDirectory.resolve(key.substring(0, 2)).resolve(key + ENTRY_EXTENSION);
+  }
+
+  private static void write(@NotNull Path entry, @NotNull byte[] transformed) {
+    try {
+      Files.createDirectories(entry.getParent());
+      // Write to a temporary file first so concurrent readers never see a partial entry.
+      Path temp = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), TEMP_FILE_EXTENSION);
+      try {
+        Files.write(temp, transformed);
+        try {
+          Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      finally {
+        Files.deleteIfExists(temp);
+      }
+    }
+    catch (IOException e) {
+      // The cache is only an optimization, the class can still be loaded.
+      LOG.debug(e);
+    }
+  }
+}
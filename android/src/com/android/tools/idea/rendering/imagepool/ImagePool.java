@@ -117,6 +117,32 @@ public interface ImagePool {
 
     long totalBytesInUse();
 
+    /**
+     * Returns the number of bytes of the free images currently held by the pool.
+     */
+    long totalBytesPooled();
+
+    /**
+     * Returns the maximum number of bytes of free images that the pool will hold.
+     */
+    long maxBytesPooled();
+
+    /**
+     * Returns the number of times a free image from the pool was reused.
+     */
+    long totalHits();
+
+    /**
+     * Returns the number of times a new image had to be allocated.
+     */
+    long totalMisses();
+
+    /**
+     * Returns the number of free images that were dropped from the pool, either because it was over its memory cap or because the
+     * garbage collector reclaimed them.
+     */
+    long totalEvictions();
+
     BucketStats[] getBucketStats();
   }
 
@@ -52,11 +52,18 @@ public final class ImagePoolFactory {
   private ImagePoolFactory() {
   }
 
+  /**
+   * Fraction of the maximum heap size that the free images of a pool can take.
+   */
+  private static final int MAX_POOLED_BYTES_HEAP_DIVISOR = 10;
+
   /**
    * Creates a new {@link ImagePool} with the default settings
    */
   @NotNull
   public static ImagePool createImagePool() {
+    // Cap the free images by the configured heap size so that, on small heaps, pooling does not keep enough high-DPI images around to
+    // force full GCs.
     return new ImagePoolImpl(new int[]{50, 500, 1000, 1500, 2000, 5000}, (w, h) -> (type) -> {
       // Images below 1k, do not pool
       if (w * h < 1000) {
@@ -64,7 +71,7 @@ public final class ImagePoolFactory {
       }
 
       return 50_000_000 / (w * h);
-    });
+    }, Runtime.getRuntime().maxMemory() / MAX_POOLED_BYTES_HEAP_DIVISOR);
   }
 
   /**
@@ -30,6 +30,7 @@ import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.awt.image.WritableRaster;
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -38,6 +39,7 @@ import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -65,9 +67,17 @@ class ImagePoolImpl implements ImagePool {
   @SuppressWarnings("IOResourceOpenedButNotSafelyClosed")
   private final FinalizableReferenceQueue myFinalizableReferenceQueue = new FinalizableReferenceQueue();
   private final Set<Reference<?>> myReferences = Sets.newConcurrentHashSet();
+  /** Free images that were reclaimed by the garbage collector while still in their bucket. */
+  private final ReferenceQueue<BufferedImage> myClearedImages = new ReferenceQueue<>();
 
   private final LongAdder myTotalAllocatedBytes = new LongAdder();
   private final LongAdder myTotalInUseBytes = new LongAdder();
+  /** Bytes of the free images held by the buckets. Never above {@link #myMaxPooledBytes}. */
+  private final AtomicLong myTotalPooledBytes = new AtomicLong();
+  private final long myMaxPooledBytes;
+  private final LongAdder myHits = new LongAdder();
+  private final LongAdder myMisses = new LongAdder();
+  private final LongAdder myEvictions = new LongAdder();
 
   private final Stats myStats = new Stats() {
     @Override
@@ -80,6 +90,31 @@ class ImagePoolImpl implements ImagePool {
       return myTotalInUseBytes.sum();
     }
 
+    @Override
+    public long totalBytesPooled() {
+      return myTotalPooledBytes.get();
+    }
+
+    @Override
+    public long maxBytesPooled() {
+      return myMaxPooledBytes;
+    }
+
+    @Override
+    public long totalHits() {
+      return myHits.sum();
+    }
+
+    @Override
+    public long totalMisses() {
+      return myMisses.sum();
+    }
+
+    @Override
+    public long totalEvictions() {
+      return myEvictions.sum();
+    }
+
     @Override
     public BucketStats[] getBucketStats() {
       return myBucketStats.values().stream()
@@ -98,14 +133,63 @@ class ImagePoolImpl implements ImagePool {
    *                           allocated into the pool.
    * @param bucketSizingPolicy Function that returns the maximum size for a given bucket. The bucket is defined by width, height and image
    *                           type. If the returned size is 0, no pooling will be done for that bucket size.
+   * @param maxPooledBytes     Maximum number of bytes of free images kept by the pool across all the buckets. Images freed once the pool
+   *                           is at its cap are left to the garbage collector.
    */
-  ImagePoolImpl(@NotNull int[] bucketSizes, @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy) {
+  ImagePoolImpl(@NotNull int[] bucketSizes,
+                @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy,
+                long maxPooledBytes) {
     if (LOG.isDebugEnabled()) {
-      LOG.debug("New ImagePool " + Arrays.toString(bucketSizes));
+      LOG.debug("New ImagePool " + Arrays.toString(bucketSizes) + " maxPooledBytes=" + maxPooledBytes);
     }
     myBucketSizes = bucketSizes;
     Arrays.sort(myBucketSizes);
     myBucketSizingPolicy = bucketSizingPolicy;
+    myMaxPooledBytes = maxPooledBytes;
+  }
+
+  ImagePoolImpl(@NotNull int[] bucketSizes, @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy) {
+    this(bucketSizes, bucketSizingPolicy, Long.MAX_VALUE);
+  }
+
+  /**
+   * Reserves {@code bytes} of the pool memory cap for a free image. Returns false if the image does not fit.
+   */
+  private boolean reservePooledBytes(long bytes) {
+    while (true) {
+      long current = myTotalPooledBytes.get();
+      if (current + bytes > myMaxPooledBytes) {
+        return false;
+      }
+      if (myTotalPooledBytes.compareAndSet(current, current + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Returns the bytes of a free image that left its bucket to the pool memory cap. Returns false if they were already returned.
+   */
+  private boolean releasePooledBytes(@NotNull PooledImageReference imageRef) {
+    if (imageRef.myIsReleased.compareAndSet(false, true)) {
+      myTotalPooledBytes.addAndGet(-imageRef.mySizeBytes);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Removes the free images reclaimed by the garbage collector from their buckets, so they stop counting against the pool memory cap.
+   */
+  private void drainClearedImages() {
+    Reference<? extends BufferedImage> reference;
+    while ((reference = myClearedImages.poll()) != null) {
+      PooledImageReference imageRef = (PooledImageReference)reference;
+      imageRef.myBucket.remove(imageRef);
+      if (releasePooledBytes(imageRef)) {
+        myEvictions.increment();
+      }
+    }
   }
 
   private boolean isDisposed = false;
@@ -184,6 +268,7 @@ class ImagePoolImpl implements ImagePool {
   @NotNull
   ImageImpl create(final int w, final int h, final int type, @Nullable Consumer<BufferedImage> freedCallback) {
     assert !isDisposed : "ImagePool already disposed";
+    drainClearedImages();
 
     // To avoid creating a large number of EvictingQueues, we distribute the images in buckets and use that
     Bucket bucket = getTypeBucket(w, h, type);
@@ -194,14 +279,21 @@ class ImagePoolImpl implements ImagePool {
     }
 
     BufferedImage image;
-    SoftReference<BufferedImage> imageRef;
+    PooledImageReference imageRef;
     try {
       imageRef = bucket.remove();
+      boolean released = releasePooledBytes(imageRef);
       while ((image = imageRef.get()) == null) {
+        // Reclaimed by the garbage collector
+        if (released) {
+          myEvictions.increment();
+        }
         imageRef = bucket.remove();
+        released = releasePooledBytes(imageRef);
       }
 
       long totalSize = image.getWidth() * image.getHeight();
+      myHits.increment();
       if (bucketStats != null) {
         bucketStats.bucketHit();
       }
@@ -228,6 +320,7 @@ class ImagePoolImpl implements ImagePool {
       if (LOG.isDebugEnabled()) {
         LOG.debug(String.format("  New image %dx%d - %d\n", w, h, type));
       }
+      myMisses.increment();
       if (bucketStats != null) {
         bucketStats.bucketMiss();
       }
@@ -252,7 +345,21 @@ class ImagePoolImpl implements ImagePool {
       public void finalizeReferent() {
         // This method might be called twice if the user has manually called the free() method. The second call will have no effect.
         if (myReferences.remove(this)) {
-          boolean accepted = bucket.offer(new SoftReference<>(imagePointer));
+          long imageSize = (long)imagePointer.getWidth() * imagePointer.getHeight() * 4;
+          boolean accepted = false;
+          if (bucket != NULL_BUCKET) {
+            drainClearedImages();
+            if (reservePooledBytes(imageSize)) {
+              accepted = bucket.offer(new PooledImageReference(imagePointer, imageSize, bucket, myClearedImages));
+              if (!accepted) {
+                myTotalPooledBytes.addAndGet(-imageSize);
+              }
+            }
+            else {
+              // The pool is at its memory cap
+              myEvictions.increment();
+            }
+          }
           if (bucketStats != null) {
             if (accepted) {
               bucketStats.returnedImageAccepted();
@@ -267,12 +374,10 @@ class ImagePoolImpl implements ImagePool {
                                     w, h, type, bucket.myMinWidth, bucket.myMinHeight));
           }
 
-          long estimatedSize = imagePointer.getWidth() * imagePointer.getHeight() * 4;
+          // The image is not in use anymore. If it was not returned to the pool, it is not allocated by the pool either.
+          myTotalInUseBytes.add(-imageSize);
           if (!accepted) {
-            myTotalAllocatedBytes.add(-estimatedSize);
-          }
-          else {
-            myTotalInUseBytes.add(-estimatedSize);
+            myTotalAllocatedBytes.add(-imageSize);
           }
           if (freedCallback != null) {
             freedCallback.accept(imagePointer);
@@ -357,8 +462,28 @@ class ImagePoolImpl implements ImagePool {
     }
   }
 
-  private static class Bucket extends ForwardingQueue<SoftReference<BufferedImage>> {
-    private final Queue<SoftReference<BufferedImage>> myDelegate;
+  /**
+   * Reference to a free image in a {@link Bucket}. Keeps the size of the image so it can be accounted for after the image is collected.
+   * Once cleared, the reference is enqueued so the pool can remove it from its bucket without waiting for the bucket to be used.
+   */
+  private static final class PooledImageReference extends SoftReference<BufferedImage> {
+    private final long mySizeBytes;
+    private final Bucket myBucket;
+    /** Set once {@link #mySizeBytes} has been returned to the pool memory cap, either on dequeue or when draining cleared images. */
+    private final AtomicBoolean myIsReleased = new AtomicBoolean();
+
+    private PooledImageReference(@NotNull BufferedImage image,
+                                 long sizeBytes,
+                                 @NotNull Bucket bucket,
+                                 @NotNull ReferenceQueue<BufferedImage> clearedImages) {
+      super(image, clearedImages);
+      mySizeBytes = sizeBytes;
+      myBucket = bucket;
+    }
+  }
+
+  private static class Bucket extends ForwardingQueue<PooledImageReference> {
+    private final Queue<PooledImageReference> myDelegate;
     private final int myMinWidth;
     private final int myMinHeight;
     private final int myMaxSize;
@@ -373,11 +498,11 @@ class ImagePoolImpl implements ImagePool {
       myMaxSize = maxSize;
       myDelegate = maxSize == 0 ?
                    EvictingQueue.create(0)
-                                : new ArrayBlockingQueue<SoftReference<BufferedImage>>(maxSize);
+                                : new ArrayBlockingQueue<PooledImageReference>(maxSize);
     }
 
     @Override
-    protected Queue<SoftReference<BufferedImage>> delegate() {
+    protected Queue<PooledImageReference> delegate() {
       return myDelegate;
     }
 
@@ -419,6 +544,19 @@ class ImagePoolImpl implements ImagePool {
     return myStats;
   }
 
+  /**
+   * Simulates the garbage collector reclaiming every free image held by the buckets.
+   */
+  @VisibleForTesting
+  void clearPooledImages() {
+    for (Bucket bucket : myPool.values()) {
+      for (PooledImageReference imageRef : bucket) {
+        imageRef.clear();
+        imageRef.enqueue();
+      }
+    }
+  }
+
   /**
    * Disposes the image pool
    */
@@ -427,6 +565,7 @@ class ImagePoolImpl implements ImagePool {
     myFinalizableReferenceQueue.close();
     myReferences.clear();
     myPool.clear();
+    myTotalPooledBytes.set(0);
   }
 
   public static class ImageImpl implements ImagePool.Image {
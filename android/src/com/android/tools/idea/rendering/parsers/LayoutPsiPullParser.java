@@ -78,6 +78,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.util.Computable;
@@ -468,6 +469,18 @@ public class LayoutPsiPullParser extends LayoutPullParser implements AaptAttrPar
     return myDeclaredAaptAttrs;
   }
 
+  /**
+   * Adds the contents of the layout, as it will be passed to layoutlib, to the given {@link Hasher}.
+   */
+  public void putLayout(@NotNull Hasher hasher) {
+    if (myRoot != null) {
+      myRoot.putTree(hasher);
+    }
+    hasher.putBoolean(myUseSrcCompat);
+    hasher.putBoolean(myUseToolsNamespace);
+    hasher.putInt(mySampleDataCounter);
+  }
+
   @NonNull
   @Override
   public ResourceNamespace getLayoutNamespace() {
@@ -947,7 +960,9 @@ public class LayoutPsiPullParser extends LayoutPullParser implements AaptAttrPar
    * @param honorMergeParentTag if true, this method will look into the {@code tools:parentTag} to replace the root {@code <merge>} tag.
    */
   @Nullable
-  private static TagSnapshot createSnapshot(@NotNull XmlTag tag, boolean honorMergeParentTag, @NotNull Consumer<TagSnapshot> tagPostProcessor) {
+  private static TagSnapshot createSnapshot(@NotNull XmlTag tag,
+                                            boolean honorMergeParentTag,
+                                            @NotNull Consumer<TagSnapshot> tagPostProcessor) {
     Consumer<TagSnapshot> tagDecorator = TAG_SNAPSHOT_DECORATOR.andThen(tagPostProcessor);
     if (tag.getName().equals(TAG_LAYOUT)) {
       // If we are creating a snapshot of a databinding layout (the root tag is <layout>), we need to emulate some post-processing that
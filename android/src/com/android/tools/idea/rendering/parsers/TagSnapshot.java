@@ -22,16 +22,24 @@ import static com.android.SdkConstants.ATTR_USE_TAG;
 import static com.android.SdkConstants.TOOLS_URI;
 import static com.google.common.base.Charsets.UTF_8;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
+import com.intellij.lang.ASTNode;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.impl.source.tree.CompositeElement;
 import com.intellij.psi.xml.XmlAttribute;
 import com.intellij.psi.xml.XmlTag;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -46,6 +54,11 @@ import org.jetbrains.annotations.Nullable;
  * instant.
  */
 public final class TagSnapshot {
+  /**
+   * Contents of a tag and its children as of their last snapshot. See {@link #createTagSnapshot(XmlTag, Consumer, Collection)}.
+   */
+  private static final Key<CachedTemplate> CACHED_TEMPLATE = Key.create("TagSnapshot.CACHED_TEMPLATE");
+
   @Nullable public final String namespace;
   @NotNull  public final String tagName;
   @Nullable public final XmlTag tag;
@@ -60,6 +73,13 @@ public final class TagSnapshot {
 
   private TagSnapshot(@Nullable XmlTag tag, @Nullable String tagName, @Nullable String prefix, @Nullable String namespace,
                       @NotNull List<AttributeSnapshot> attributes, @NotNull List<TagSnapshot> children, boolean hasDeclaredAaptAttrs) {
+    this(tag, tagName, prefix, namespace, attributes, children, hasDeclaredAaptAttrs,
+         tag != null ? tag.getLocalNamespaceDeclarations() : Collections.emptyMap());
+  }
+
+  private TagSnapshot(@Nullable XmlTag tag, @Nullable String tagName, @Nullable String prefix, @Nullable String namespace,
+                      @NotNull List<AttributeSnapshot> attributes, @NotNull List<TagSnapshot> children, boolean hasDeclaredAaptAttrs,
+                      @NotNull Map<String, String> namespaceDeclarations) {
     this.tagName = tagName != null ? tagName : "?";
     this.prefix = prefix == null || prefix.isEmpty() ? null : prefix;
     this.namespace = namespace;
@@ -67,7 +87,7 @@ public final class TagSnapshot {
     this.attributes = attributes;
     this.children = children;
     this.hasDeclaredAaptAttrs = hasDeclaredAaptAttrs;
-    this.namespaceDeclarations = tag != null ? tag.getLocalNamespaceDeclarations() : Collections.emptyMap();
+    this.namespaceDeclarations = namespaceDeclarations;
   }
 
   /**
@@ -93,15 +113,71 @@ public final class TagSnapshot {
    */
   @NotNull
   public static TagSnapshot createTagSnapshot(@NotNull XmlTag tag, @Nullable Consumer<TagSnapshot> afterCreate) {
+    return createTagSnapshot(tag, afterCreate, null);
+  }
+
+  /**
+   * Creates a new tag snapshot starting at the given tag
+   * <p>
+   * The contents of every tag are cached in the tag itself, keyed by the modification count of its AST node. That count changes
+   * whenever the tag or anything below it changes, so after an edit only the edited tag and its parents are read again from PSI. The
+   * other subtrees are copied from the cache without walking their PSI. The snapshots are always new instances, since they are
+   * modified after creation (e.g. by {@code afterCreate}). Subtrees with {@code aapt:attr} definitions are not cached, as their
+   * attributes get a new unique id on every snapshot.
+   *
+   * @param tag The root tag to create the snapshot from
+   * @param afterCreate If not null, this will be called for every new {@link TagSnapshot} created by this call
+   * @param changedTags If not null, the tags that could not be reused from a previous snapshot are added to it
+   */
+  @VisibleForTesting
+  @NotNull
+  static TagSnapshot createTagSnapshot(@NotNull XmlTag tag,
+                                       @Nullable Consumer<TagSnapshot> afterCreate,
+                                       @Nullable Collection<XmlTag> changedTags) {
+    return getTemplate(tag, changedTags).instantiate(afterCreate);
+  }
+
+  @NotNull
+  private static Template getTemplate(@NotNull XmlTag tag, @Nullable Collection<XmlTag> changedTags) {
+    ASTNode node = tag.getNode();
+    long modificationCount = node instanceof CompositeElement ? ((CompositeElement)node).getModificationCount() : -1;
+    CachedTemplate cached = tag.getUserData(CACHED_TEMPLATE);
+    if (cached != null && modificationCount != -1 && cached.modificationCount == modificationCount && cached.isNamespaceValid(tag)) {
+      return cached.template;
+    }
+
+    Template template = readTemplate(tag, changedTags);
+    if (modificationCount != -1 && !template.hasDeclaredAaptAttrs) {
+      Map<String, String> namespaces = new HashMap<>();
+      for (String prefix : template.prefixes) {
+        namespaces.put(prefix, tag.getNamespaceByPrefix(prefix));
+      }
+      tag.putUserData(CACHED_TEMPLATE, new CachedTemplate(modificationCount, template, namespaces));
+    }
+    if (changedTags != null) {
+      changedTags.add(tag);
+    }
+    return template;
+  }
+
+  @NotNull
+  private static Template readTemplate(@NotNull XmlTag tag, @Nullable Collection<XmlTag> changedTags) {
     // Attributes
     List<AttributeSnapshot> attributes = AttributeSnapshot.createAttributesForTag(tag);
+    ImmutableSet.Builder<String> prefixes = ImmutableSet.builder();
+    // Tags without prefix are in the default namespace, which can be declared by any parent.
+    prefixes.add(tag.getNamespacePrefix());
+    for (AttributeSnapshot attribute : attributes) {
+      if (attribute.prefix != null) {
+        prefixes.add(attribute.prefix);
+      }
+    }
 
     // Children
-    List<TagSnapshot> children;
+    List<Template> children;
     XmlTag[] subTags = tag.getSubTags();
     boolean hasDeclaredAaptAttrs = false;
     if (subTags.length > 0) {
-      TagSnapshot last = null;
       children = Lists.newArrayListWithCapacity(subTags.length);
       for (XmlTag subTag : subTags) {
         if (AAPT_URI.equals(subTag.getNamespace())) {
@@ -116,29 +192,19 @@ public final class TagSnapshot {
           continue;
         }
 
-        TagSnapshot child = createTagSnapshot(subTag, afterCreate);
+        Template child = getTemplate(subTag, changedTags);
         hasDeclaredAaptAttrs |= child.hasDeclaredAaptAttrs;
+        prefixes.addAll(child.prefixes);
         children.add(child);
-        if (last != null) {
-          last.myNext = child;
-        }
-        last = child;
       }
     } else {
       children = Collections.emptyList();
     }
 
-
     XmlAttribute useTagAttribute = tag.getAttribute(ATTR_USE_TAG, TOOLS_URI);
     String tagName = useTagAttribute == null ? tag.getName() : useTagAttribute.getValue();
-    TagSnapshot newSnapshot =
-      new TagSnapshot(tag, tagName, tag.getNamespacePrefix(),
-                      tag.getNamespace(), attributes, children, hasDeclaredAaptAttrs);
-    if (afterCreate != null) {
-      afterCreate.accept(newSnapshot);
-    }
-
-    return newSnapshot;
+    return new Template(tag, tagName, tag.getNamespacePrefix(), tag.getNamespace(), attributes, children, hasDeclaredAaptAttrs,
+                        prefixes.build());
   }
 
   @NotNull
@@ -256,4 +322,128 @@ public final class TagSnapshot {
     }
     return hasher.hash().asLong();
   }
+
+  /**
+   * Adds the tag names, namespaces and attributes of this snapshot and all its children to the given {@link Hasher}. Unlike
+   * {@link #getSignature()}, the result identifies the whole tree.
+   */
+  public void putTree(@NotNull Hasher hasher) {
+    hasher.putString(tagName, UTF_8);
+    if (namespace != null) {
+      hasher.putString(namespace, UTF_8);
+    }
+    hasher.putInt(attributes.size());
+    for (AttributeSnapshot attribute : attributes) {
+      if (attribute.namespace != null) {
+        hasher.putString(attribute.namespace, UTF_8);
+      }
+      hasher.putString(attribute.name, UTF_8);
+      if (attribute.value != null) {
+        hasher.putString(attribute.value, UTF_8);
+      }
+    }
+    hasher.putInt(children.size());
+    for (TagSnapshot child : children) {
+      child.putTree(hasher);
+    }
+  }
+
+  /**
+   * The contents of a tag and of its children, from which {@link TagSnapshot}s are created. Templates are not modified after creation.
+   */
+  private static final class Template {
+    @NotNull private final XmlTag tag;
+    @Nullable private final String tagName;
+    @Nullable private final String prefix;
+    @Nullable private final String namespace;
+    @NotNull private final List<AttributeSnapshot> attributes;
+    @NotNull private final List<Template> children;
+    private final boolean hasDeclaredAaptAttrs;
+    @NotNull private final Map<String, String> namespaceDeclarations;
+    /**
+     * Namespace prefixes used by the tags and attributes of this subtree.
+     */
+    @NotNull private final Set<String> prefixes;
+
+    private Template(@NotNull XmlTag tag, @Nullable String tagName, @Nullable String prefix, @Nullable String namespace,
+                     @NotNull List<AttributeSnapshot> attributes, @NotNull List<Template> children, boolean hasDeclaredAaptAttrs,
+                     @NotNull Set<String> prefixes) {
+      this.tag = tag;
+      this.tagName = tagName;
+      this.prefix = prefix;
+      this.namespace = namespace;
+      this.attributes = attributes;
+      this.children = children;
+      this.hasDeclaredAaptAttrs = hasDeclaredAaptAttrs;
+      this.namespaceDeclarations = tag.getLocalNamespaceDeclarations();
+      this.prefixes = prefixes;
+    }
+
+    @NotNull
+    private TagSnapshot instantiate(@Nullable Consumer<TagSnapshot> afterCreate) {
+      List<TagSnapshot> childSnapshots;
+      if (children.isEmpty()) {
+        childSnapshots = Collections.emptyList();
+      }
+      else {
+        childSnapshots = Lists.newArrayListWithCapacity(children.size());
+        TagSnapshot last = null;
+        for (Template child : children) {
+          TagSnapshot childSnapshot = child.instantiate(afterCreate);
+          childSnapshots.add(childSnapshot);
+          if (last != null) {
+            last.myNext = childSnapshot;
+          }
+          last = childSnapshot;
+        }
+      }
+
+      List<AttributeSnapshot> attributeSnapshots = Lists.newArrayListWithExpectedSize(attributes.size());
+      for (AttributeSnapshot attribute : attributes) {
+        // Templates with aapt:attr definitions are not cached, so their attributes are only handed out once.
+        attributeSnapshots.add(attribute instanceof AaptAttrAttributeSnapshot
+                               ? attribute
+                               : new AttributeSnapshot(attribute.namespace, attribute.prefix, attribute.name, attribute.value));
+      }
+
+      TagSnapshot newSnapshot = new TagSnapshot(tag, tagName, prefix, namespace, attributeSnapshots, childSnapshots,
+                                                hasDeclaredAaptAttrs, namespaceDeclarations);
+      if (afterCreate != null) {
+        afterCreate.accept(newSnapshot);
+      }
+      return newSnapshot;
+    }
+  }
+
+  /**
+   * Template of a tag together with the modification count of the tag it was read at.
+   */
+  private static final class CachedTemplate {
+    private final long modificationCount;
+    @NotNull private final Template template;
+    /**
+     * Namespaces the prefixes of the subtree resolved to from the tag when the template was read.
+     */
+    @NotNull private final Map<String, String> namespaces;
+
+    private CachedTemplate(long modificationCount, @NotNull Template template, @NotNull Map<String, String> namespaces) {
+      this.modificationCount = modificationCount;
+      this.template = template;
+      this.namespaces = namespaces;
+    }
+
+    /**
+     * The modification count only covers the tag and its children, but the namespace of a prefix can be declared by any parent.
+     * Checks that the prefixes still resolve to the namespaces they had when the template was read. Redeclarations within the
+     * subtree are covered by the modification count.
+     */
+    private boolean isNamespaceValid(@NotNull XmlTag tag) {
+      for (Map.Entry<String, String> entry : namespaces.entrySet()) {
+        if (!tag.getNamespaceByPrefix(entry.getKey()).equals(entry.getValue())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
 }
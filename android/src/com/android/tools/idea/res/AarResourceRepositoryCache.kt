@@ -23,26 +23,65 @@ import com.android.tools.idea.resources.aar.AarResourceRepository
 import com.android.tools.idea.resources.aar.AarSourceResourceRepository
 import com.android.tools.idea.resources.aar.CachingData
 import com.android.tools.idea.resources.aar.RESOURCE_CACHE_DIRECTORY
+import com.android.resources.ResourceType
 import com.android.utils.concurrency.getAndUnwrap
+import com.google.common.annotations.VisibleForTesting
 import com.google.common.cache.Cache
 import com.google.common.cache.CacheBuilder
+import com.google.common.cache.RemovalCause
+import com.google.common.cache.RemovalNotification
 import com.google.common.hash.Hashing
 import com.intellij.openapi.application.ApplicationManager
 import com.intellij.openapi.application.PathManager
 import com.intellij.openapi.diagnostic.Logger
+import org.jetbrains.annotations.TestOnly
 import java.nio.file.Files
 import java.nio.file.NoSuchFileException
 import java.nio.file.Path
 import java.nio.file.Paths
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
 import javax.annotation.concurrent.ThreadSafe
 
+/**
+ * Number of bytes retained by a resource item of an AAR repository, used to derive the capacity of the cache. It is computed from the
+ * object layout of a typical value item with compressed oops: 32 bytes for the item itself, 64 bytes for each of its name and value
+ * strings of about 20 Latin-1 characters, and 96 bytes for its key in the [com.google.common.collect.ArrayListMultimap] of the
+ * repository (hash map node, table slot, array list and its backing array).
+ */
+private const val ESTIMATED_BYTES_PER_ITEM = 256
+/** The repositories in the LRU part of the cache may keep up to 1/8 of the heap worth of resource items, all of them together. */
+private const val MAX_HEAP_FRACTION = 8
+
+private val LOG = Logger.getInstance(AarResourceRepositoryCache::class.java)
+
 /**
  * Cache of AAR resource repositories.
+ *
+ * Repositories are kept in an LRU cache weighted by the number of resource items they contain, so the memory used by the cache
+ * is predictable and repositories are dropped one at a time instead of all at once. The cache holds the repositories strongly, so
+ * memory pressure doesn't make all of them reload at once; the memory they take is bounded by the weight limit instead.
+ * Repositories evicted from the LRU cache stay weakly reachable and are reused for as long as some project still holds on to them.
  */
 @ThreadSafe
 class AarResourceRepositoryCache private constructor() {
-  private val myProtoRepositories = CacheBuilder.newBuilder().softValues().build<Path, AarProtoResourceRepository>()
-  private val mySourceRepositories = CacheBuilder.newBuilder().softValues().build<ResourceFolder, AarSourceResourceRepository>()
+  /**
+   * Proto repositories keyed by the [Path] of their res.apk and source repositories keyed by their [ResourceFolder], sharing a single
+   * budget of resource items.
+   */
+  private val myRepositories = RepositoryCache<AarResourceRepository>(
+    Runtime.getRuntime().maxMemory() / MAX_HEAP_FRACTION / ESTIMATED_BYTES_PER_ITEM,
+    ::countResourceItems)
+
+  /**
+   * Statistics of a repository in the LRU part of the cache.
+   *
+   * @param libraryName the name of the library of the repository
+   * @param itemCount the number of resource items in the repository, which is the weight of the cache entry
+   * @param loadTimeMillis the time it took to load the repository, or zero if it was reused after eviction
+   * @param hitCount the number of times the repository was returned from the cache without loading it
+   */
+  data class EntryStats(val libraryName: String?, val itemCount: Int, val loadTimeMillis: Long, val hitCount: Long)
 
   /**
    * Returns a cached or a newly created source resource repository.
@@ -59,7 +98,7 @@ class AarResourceRepositoryCache private constructor() {
     if (resFolder.root.toPath() == null) {
       throw IllegalArgumentException("Cannot find resource directory ${resFolder.root} for $libraryName")
     }
-    return getRepository(resFolder, libraryName, mySourceRepositories) {
+    return getRepository(resFolder, libraryName, myRepositories) {
         AarSourceResourceRepository.create(resFolder, libraryName, createCachingData(library))
     }
   }
@@ -77,22 +116,34 @@ class AarResourceRepositoryCache private constructor() {
 
     val resApkFile = resApkPath.toPath() ?: throw IllegalArgumentException("Cannot find $resApkPath for $libraryName")
 
-    return getRepository(resApkFile, libraryName, myProtoRepositories) { AarProtoResourceRepository.create(resApkFile, libraryName) }
+    return getRepository(resApkFile, libraryName, myRepositories) { AarProtoResourceRepository.create(resApkFile, libraryName) }
   }
 
   fun removeProtoRepository(resApkFile: Path) {
-    myProtoRepositories.invalidate(resApkFile)
+    myRepositories.remove(resApkFile)
   }
 
   fun removeSourceRepository(resourceFolder: ResourceFolder) {
-    mySourceRepositories.invalidate(resourceFolder)
+    myRepositories.remove(resourceFolder)
   }
 
   fun clear() {
-    myProtoRepositories.invalidateAll()
-    mySourceRepositories.invalidateAll()
+    myRepositories.clear()
+  }
+
+  /**
+   * Returns statistics of the repositories currently held in the LRU part of the cache.
+   */
+  fun getEntryStats(): List<EntryStats> {
+    return myRepositories.getEntryStats().map { EntryStats(it.value.libraryName, it.weight, it.loadTimeMillis, it.hitCount) }
   }
 
+  /**
+   * Returns the number of repositories in the LRU part of the cache.
+   */
+  @TestOnly
+  fun getRepositoryCount(): Long = myRepositories.size()
+
   private fun createCachingData(library: ExternalLibrary): CachingData? {
     val resFolder = library.resFolder
     if (resFolder == null || resFolder.resources != null) {
@@ -128,8 +179,15 @@ class AarResourceRepositoryCache private constructor() {
     val instance: AarResourceRepositoryCache
         get() = ApplicationManager.getApplication().getService(AarResourceRepositoryCache::class.java)
 
-    private fun <K, T : AarResourceRepository> getRepository(key: K, libraryName: String, cache: Cache<K, T>, factory: () -> T): T {
-      val aarRepository = cache.getAndUnwrap(key, { factory() })
+    private fun countResourceItems(repository: AarResourceRepository): Int {
+      return ResourceType.values().sumBy { repository.getResources(repository.namespace, it).size() }
+    }
+
+    private inline fun <reified T : AarResourceRepository> getRepository(key: Any, libraryName: String,
+                                                                         cache: RepositoryCache<AarResourceRepository>,
+                                                                         noinline factory: () -> T): T {
+      // Keys of proto and source repositories are never equal, so the repository is always of the requested kind.
+      val aarRepository = cache.get(key, factory) as T
 
       if (libraryName != aarRepository.libraryName) {
         assert(false) { "Library name mismatch: $libraryName vs ${aarRepository.libraryName}" }
@@ -141,3 +199,86 @@ class AarResourceRepositoryCache private constructor() {
     }
   }
 }
+
+/**
+ * LRU cache of values weighted by [weigher] and held strongly up to [maxWeight]. Values evicted to stay within [maxWeight] are kept
+ * in a weak-valued map, from which they are put back into the cache if they are requested again before being garbage collected.
+ */
+@VisibleForTesting
+internal class RepositoryCache<V : Any>(maxWeight: Long, private val weigher: (V) -> Int) {
+  /**
+   * Statistics of a cache entry.
+   *
+   * @param loadTimeMillis the time it took to create the value, or zero if it was reused after eviction
+   * @param hitCount the number of times the value was returned without creating or reusing it
+   */
+  class EntryStats<V>(val value: V, val weight: Int, val loadTimeMillis: Long, val hitCount: Long)
+
+  private class Entry<V>(val value: V, val weight: Int, val loadTimeMillis: Long) {
+    val hitCount = AtomicLong()
+  }
+
+  private val evicted: Cache<Any, V> = CacheBuilder.newBuilder().weakValues().build()
+  // A single segment, so the budget and the LRU order are global rather than per segment.
+  private val entries: Cache<Any, Entry<V>> = CacheBuilder.newBuilder()
+    .concurrencyLevel(1)
+    .maximumWeight(maxWeight)
+    .weigher { _: Any, entry: Entry<V> -> entry.weight }
+    .removalListener { notification: RemovalNotification<Any, Entry<V>> ->
+      // Only values evicted for size are kept for reuse. Values removed explicitly are out of date.
+      if (notification.cause == RemovalCause.SIZE) {
+        val entry = notification.value!!
+        evicted.put(notification.key!!, entry.value)
+        if (LOG.isDebugEnabled) {
+          LOG.debug("Evicted ${notification.key}: ${entry.weight} items, loaded in ${entry.loadTimeMillis} ms, " +
+                    "${entry.hitCount.get()} hits")
+        }
+      }
+    }
+    .build()
+
+  fun get(key: Any, factory: () -> V): V {
+    var created = false
+    val entry = entries.getAndUnwrap(key) {
+      created = true
+      val reused = evicted.getIfPresent(key)
+      if (reused != null) {
+        evicted.invalidate(key)
+        Entry(reused, weigher(reused), 0)
+      }
+      else {
+        val start = System.nanoTime()
+        val value = factory()
+        Entry(value, weigher(value), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+      }
+    }
+    if (!created) {
+      entry.hitCount.incrementAndGet()
+    }
+    return entry.value
+  }
+
+  /**
+   * Returns statistics of the entries in the LRU part of the cache.
+   */
+  fun getEntryStats(): List<EntryStats<V>> {
+    return entries.asMap().values.map { EntryStats(it.value, it.weight, it.loadTimeMillis, it.hitCount.get()) }
+  }
+
+  /**
+   * Checks if the LRU part of the cache contains a value for [key], without affecting the LRU order.
+   */
+  fun contains(key: Any): Boolean = entries.asMap().containsKey(key)
+
+  fun size(): Long = entries.size()
+
+  fun remove(key: Any) {
+    entries.invalidate(key)
+    evicted.invalidate(key)
+  }
+
+  fun clear() {
+    entries.invalidateAll()
+    evicted.invalidateAll()
+  }
+}
@@ -25,6 +25,7 @@ import com.intellij.openapi.application.ApplicationManager
 import com.intellij.openapi.application.PathManager
 import org.jetbrains.annotations.TestOnly
 import java.io.File
+import java.io.IOException
 import java.nio.file.Files
 import java.nio.file.Path
 import java.nio.file.Paths
@@ -41,6 +42,10 @@ class FrameworkResourceRepositoryManager {
   private data class CacheKey(val path: Path, val useCompiled9Patches: Boolean)
 
   private val cache = ConcurrentHashMap<CacheKey, FrameworkResourceRepository>()
+  /** Locks serializing the loading of additional languages, one per repository. */
+  private val languageLoadingLocks = ConcurrentHashMap<CacheKey, Any>()
+  /** Real paths of the resource directories and jars, to avoid going to disk on every lookup. */
+  private val canonicalPaths = ConcurrentHashMap<Path, Path>()
 
   /**
    * Returns a [FrameworkResourceRepository] for the given "res" directory or a jar file. The `languages` parameter
@@ -58,21 +63,40 @@ class FrameworkResourceRepositoryManager {
     useCompiled9Patches: Boolean,
     languages: Set<String>
   ): FrameworkResourceRepository {
-    val path = resourceDirectoryOrFile.toPath()
+    val path = canonicalize(resourceDirectoryOrFile.toPath())
     val cacheKey = CacheKey(path, useCompiled9Patches)
-    val cachingData = createCachingData(path)
     val cached = cache.computeIfAbsent(cacheKey) {
-       FrameworkResourceRepository.create(path, languages, cachingData, useCompiled9Patches)
+       FrameworkResourceRepository.create(path, languages, createCachingData(path), useCompiled9Patches)
     }
-    if (languages.isEmpty()) {
+    if (languages.isEmpty() || cached.containsLanguages(languages)) {
       return cached
     }
 
-    val repository = cached.loadMissingLanguages(languages, cachingData)
-    if (repository !== cached) {
-      cache[cacheKey] = repository
+    // Load the missing languages under a per-repository lock, so that projects requesting languages at the same time don't end up
+    // with separate copies of the repository. The loading is not done inside ConcurrentHashMap.compute since it reads from disk.
+    synchronized(languageLoadingLocks.computeIfAbsent(cacheKey) { Any() }) {
+      val current = cache[cacheKey] ?: cached
+      val repository = current.loadMissingLanguages(languages, createCachingData(path))
+      if (repository !== current) {
+        cache[cacheKey] = repository
+      }
+      return repository
+    }
+  }
+
+  /**
+   * Resolves symbolic links and relative segments, so that all projects using the same platform, and all IDE instances
+   * sharing the same cache files, share a single repository regardless of how the SDK location is spelled. Only successfully
+   * resolved paths are remembered, so that a platform installed later is still resolved.
+   */
+  private fun canonicalize(path: Path): Path {
+    canonicalPaths[path]?.let { return it }
+    return try {
+      path.toRealPath().also { canonicalPaths[path] = it }
+    }
+    catch (e: IOException) {
+      path.toAbsolutePath().normalize()
     }
-    return repository
   }
 
   private fun createCachingData(resFolderOrJar: Path): CachingData? {
@@ -97,5 +121,6 @@ class FrameworkResourceRepositoryManager {
   @TestOnly
   fun clearCache() {
     cache.clear()
+    canonicalPaths.clear()
   }
 }
@@ -55,6 +55,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Predicate;
 import javax.annotation.concurrent.GuardedBy;
 import org.jetbrains.annotations.NotNull;
@@ -108,6 +110,14 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   private final Table<ResourceNamespace, ResourceType, Set<SingleNamespaceResourceRepository>> myUnreconciledResources =
       Tables.newCustomTable(new HashMap<>(), () -> Maps.newEnumMap(ResourceType.class));
 
+  /**
+   * Immutable copies of the merged resource maps keyed by namespace and indexed by {@link ResourceType#ordinal()}. The snapshots
+   * are published under {@code ITEM_MAP_LOCK}, but read without it, so that resource lookups don't contend for the lock. A snapshot
+   * is dropped when a child repository invalidates resources of its type and is rebuilt on the next lookup.
+   */
+  private final Map<ResourceNamespace, AtomicReferenceArray<ImmutableListMultimap<String, ResourceItem>>> mySnapshots =
+      new ConcurrentHashMap<>();
+
   MultiResourceRepository(@NotNull String displayName) {
     super(displayName);
   }
@@ -149,6 +159,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
         myModificationCounts[i++] = child.getModificationCount();
       }
       myCachedMaps.clear();
+      mySnapshots.clear();
 
       invalidateParentCaches();
     }
@@ -357,6 +368,69 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     return map;
   }
 
+  /**
+   * Returns an immutable copy of the merged map of resources of the given namespace and type. Doesn't take {@code ITEM_MAP_LOCK}
+   * unless the snapshot has to be rebuilt.
+   */
+  @NotNull
+  private ImmutableListMultimap<String, ResourceItem> getSnapshot(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
+    AtomicReferenceArray<ImmutableListMultimap<String, ResourceItem>> snapshots = mySnapshots.get(namespace);
+    ImmutableListMultimap<String, ResourceItem> snapshot = snapshots == null ? null : snapshots.get(type.ordinal());
+    if (snapshot != null) {
+      return snapshot;
+    }
+
+    synchronized (ITEM_MAP_LOCK) {
+      ListMultimap<String, ResourceItem> map = getMap(namespace, type);
+      snapshot = map == null ? ImmutableListMultimap.of() : ImmutableListMultimap.copyOf(map);
+      mySnapshots.computeIfAbsent(namespace, ns -> new AtomicReferenceArray<>(ResourceType.values().length))
+          .set(type.ordinal(), snapshot);
+      return snapshot;
+    }
+  }
+
+  @Override
+  @NotNull
+  public List<ResourceItem> getResources(@NotNull ResourceNamespace namespace,
+                                         @NotNull ResourceType resourceType,
+                                         @NotNull String resourceName) {
+    return getSnapshot(namespace, resourceType).get(resourceName);
+  }
+
+  @Override
+  @NotNull
+  public List<ResourceItem> getResources(@NotNull ResourceNamespace namespace,
+                                         @NotNull ResourceType resourceType,
+                                         @NotNull Predicate<ResourceItem> filter) {
+    List<ResourceItem> result = null;
+    for (ResourceItem item : getSnapshot(namespace, resourceType).values()) {
+      if (filter.test(item)) {
+        if (result == null) {
+          result = new ArrayList<>();
+        }
+        result.add(item);
+      }
+    }
+    return result == null ? ImmutableList.of() : result;
+  }
+
+  @Override
+  @NotNull
+  public ListMultimap<String, ResourceItem> getResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
+    return getSnapshot(namespace, resourceType);
+  }
+
+  @Override
+  @NotNull
+  public Set<String> getResourceNames(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
+    return getSnapshot(namespace, resourceType).keySet();
+  }
+
+  @Override
+  public boolean hasResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType, @NotNull String resourceName) {
+    return getSnapshot(namespace, resourceType).containsKey(resourceName);
+  }
+
   @GuardedBy("ITEM_MAP_LOCK")
   @NotNull
   private static ListMultimap<String, ResourceItem> getResourcesUnderLock(@NotNull SingleNamespaceResourceRepository repository,
@@ -415,6 +489,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     myCachedMaps.clear();
     myResourceNames.clear();
     myUnreconciledResources.clear();
+    mySnapshots.clear();
     setModificationCount(ourModificationCounter.incrementAndGet());
 
     invalidateParentCaches();
@@ -433,6 +508,13 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     // In such a case we don't need to do anything.
     ImmutableList<SingleNamespaceResourceRepository> leafs = myLeafsByNamespace.get(namespace);
     if (leafs != null && leafs.contains(repository)) {
+      AtomicReferenceArray<ImmutableListMultimap<String, ResourceItem>> snapshots = mySnapshots.get(namespace);
+      if (snapshots != null) {
+        for (ResourceType type : types) {
+          snapshots.set(type.ordinal(), null);
+        }
+      }
+
       // Update myUnreconciledResources only if myCachedMaps is used for this namespace.
       if (leafs.size() != 1) {
         for (ResourceType type : types) {
@@ -652,6 +652,9 @@ public final class ResourceRepositoryManager implements Disposable {
     if (appResources != null) {
       appResources.updateRoots(getLibraryResources());
     }
+    else {
+      prewarmLibraryResources();
+    }
 
     if (oldLibraryResourceMap != null) {
       oldLibraryResourceMap.size(); // Access oldLibraryResourceMap to make sure that it is still in scope at this point.
@@ -774,6 +777,19 @@ public final class ResourceRepositoryManager implements Disposable {
     return getLibraryResourceMap().values();
   }
 
+  /**
+   * Starts loading the library resource repositories in the background, so that they are already in {@link AarResourceRepositoryCache}
+   * when the first editor or preview of the module asks for them.
+   */
+  private void prewarmLibraryResources() {
+    // Not using the disk IO executor since computeLibraryResourceMap submits its own tasks to it and waits for them.
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      if (!myFacet.isDisposed()) {
+        getLibraryResources();
+      }
+    });
+  }
+
   @NotNull
   private Map<ExternalLibrary, AarResourceRepository> getLibraryResourceMap() {
     synchronized (myLibraryLock) {
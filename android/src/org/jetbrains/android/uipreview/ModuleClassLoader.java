@@ -18,6 +18,7 @@ import com.android.tools.idea.projectsystem.AndroidModuleSystem;
 import com.android.tools.idea.projectsystem.ProjectSystemUtil;
 import com.android.tools.idea.rendering.RenderSecurityManager;
 import com.android.tools.idea.rendering.classloading.RenderClassLoader;
+import com.android.tools.idea.rendering.classloading.TransformedClassCache;
 import com.android.tools.idea.res.LocalResourceRepository;
 import com.android.tools.idea.res.ResourceClassRegistry;
 import com.android.tools.idea.res.ResourceIdManager;
@@ -35,6 +36,7 @@ import java.net.URL;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import org.jetbrains.android.dom.manifest.AndroidManifestUtils;
 import org.jetbrains.android.facet.AndroidFacet;
@@ -50,10 +52,15 @@ import org.jetbrains.annotations.Nullable;
 public final class ModuleClassLoader extends RenderClassLoader {
   private static final Logger LOG = Logger.getInstance(ModuleClassLoader.class);
 
+  private static final AtomicLong ourNextGeneration = new AtomicLong();
+
   /** The base module to use as a render context; the class loader will consult the module dependencies and library dependencies
    * of this class as well to find classes */
   private final WeakReference<Module> myModuleReference;
 
+  /** Unique number of this class loader. A new class loader, and so a new generation, is created whenever the project classes change */
+  private final long myGeneration = ourNextGeneration.incrementAndGet();
+
   /** Map from fully qualified class name to the corresponding .class file for each class loaded by this class loader */
   private Map<String, VirtualFile> myClassFiles;
   /** Map from fully qualified class name to the corresponding last modified info for each class loaded by this class loader */
@@ -69,8 +76,8 @@ public final class ModuleClassLoader extends RenderClassLoader {
     }
   }
 
-  ModuleClassLoader(@Nullable ClassLoader parent, @NotNull Module module) {
-    super(parent);
+  ModuleClassLoader(@Nullable ClassLoader parent, @NotNull Module module, @Nullable TransformedClassCache transformedClassCache) {
+    super(parent, transformedClassCache);
     myModuleReference = new WeakReference<>(module);
 
     registerResources(module);
@@ -409,6 +416,13 @@ public final class ModuleClassLoader extends RenderClassLoader {
     return areDependenciesUpToDate();
   }
 
+  /**
+   * Returns a number identifying this class loader. Renders using the same generation see the same project classes.
+   */
+  public long getGeneration() {
+    return myGeneration;
+  }
+
   public boolean isClassLoaded(@NotNull String className) {
     return findLoadedClass(className) != null;
   }
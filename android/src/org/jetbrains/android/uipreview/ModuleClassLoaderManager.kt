@@ -16,10 +16,14 @@
 package org.jetbrains.android.uipreview
 
 import com.android.tools.idea.LogAnonymizerUtil.anonymize
+import com.android.tools.idea.rendering.classloading.TransformedClassCache
+import com.intellij.openapi.application.ApplicationInfo
 import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.application.PathManager
 import com.intellij.openapi.diagnostic.Logger
 import com.intellij.openapi.diagnostic.debug
 import com.intellij.openapi.module.Module
+import java.nio.file.Paths
 import java.util.WeakHashMap
 import java.util.concurrent.locks.ReentrantReadWriteLock
 import kotlin.concurrent.read
@@ -32,6 +36,16 @@ class ModuleClassLoaderManager {
   private val cacheLock: ReentrantReadWriteLock = ReentrantReadWriteLock()
   private val cache: MutableMap<Module, ModuleClassLoader> = WeakHashMap();
 
+  /**
+   * Rewritten classes shared by the class loaders of all the modules, so a new class loader only rewrites the classes that changed.
+   */
+  private val transformedClassCache = TransformedClassCache(Paths.get(PathManager.getSystemPath(), TRANSFORMED_CLASS_CACHE_DIRECTORY),
+                                                            ApplicationInfo.getInstance().build.asString())
+
+  init {
+    ApplicationManager.getApplication().executeOnPooledThread { transformedClassCache.trimToSize(TRANSFORMED_CLASS_CACHE_MAX_SIZE_BYTES) }
+  }
+
   /**
    * Returns a project class loader to use for rendering. May cache instances across render sessions.
    */
@@ -56,7 +70,7 @@ class ModuleClassLoaderManager {
 
       if (moduleClassLoader == null) {
         LOG.debug { "Loading new class loader for module ${anonymize(module)}" }
-        moduleClassLoader = ModuleClassLoader(parent, module)
+        moduleClassLoader = ModuleClassLoader(parent, module, transformedClassCache)
         cacheLock.write {
           cache[module] = moduleClassLoader
         }
@@ -83,6 +97,9 @@ class ModuleClassLoaderManager {
     @JvmStatic
     private val LOG = Logger.getInstance(ModuleClassLoaderManager::class.java)
 
+    private const val TRANSFORMED_CLASS_CACHE_DIRECTORY = "layoutlib-transformed-classes"
+    private const val TRANSFORMED_CLASS_CACHE_MAX_SIZE_BYTES = 256L * 1024 * 1024
+
     @JvmStatic
     fun get(): ModuleClassLoaderManager =
       ApplicationManager.getApplication().getService(ModuleClassLoaderManager::class.java);
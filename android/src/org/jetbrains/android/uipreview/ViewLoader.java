@@ -580,6 +580,16 @@ public class ViewLoader {
     }
   }
 
+  /**
+   * Returns the generation of the project class loader, without creating it, or -1 if it has not been created yet.
+   *
+   * @see ModuleClassLoader#getGeneration()
+   */
+  public long getModuleClassLoaderGeneration() {
+    ModuleClassLoader moduleClassLoader = myModuleClassLoader;
+    return moduleClassLoader != null ? moduleClassLoader.getGeneration() : -1;
+  }
+
   /**
    * Returns true if this ViewLoaded has loaded the given class.
    */
@@ -20,6 +20,10 @@ import com.google.common.util.concurrent.ListenableFuture;
 import java.util.concurrent.CompletableFuture;
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -84,4 +88,28 @@ public class RenderServiceTest extends TestCase {
     future.get();
     assertTrue(called.get());
   }
+
+  public void testAsyncRenderActionPriority() throws ExecutionException, InterruptedException {
+    CountDownLatch countDownLatch = new CountDownLatch(1);
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    // Keep the render thread busy while the other actions are queued.
+    CompletableFuture<Void> blocking = RenderService.runAsyncRenderAction(() -> {
+      try {
+        countDownLatch.await();
+      }
+      catch (InterruptedException ignore) {
+      }
+      return null;
+    });
+    CompletableFuture<Boolean> low1 = RenderService.runAsyncRenderAction(() -> order.add("low1"), RenderService.RenderingPriority.LOW);
+    RenderService.runAsyncRenderAction(() -> {
+      order.add("lowRunnable");
+    }, RenderService.RenderingPriority.LOW);
+    CompletableFuture<Boolean> low2 = RenderService.runAsyncRenderAction(() -> order.add("low2"), RenderService.RenderingPriority.LOW);
+    CompletableFuture<Boolean> high = RenderService.runAsyncRenderAction(() -> order.add("high"));
+
+    countDownLatch.countDown();
+    CompletableFuture.allOf(blocking, low1, low2, high).get();
+    assertEquals(Arrays.asList("high", "low1", "lowRunnable", "low2"), order);
+  }
 }
\ No newline at end of file
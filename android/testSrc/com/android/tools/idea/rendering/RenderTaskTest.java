@@ -32,9 +32,11 @@ import com.android.tools.adtui.imagediff.ImageDiffUtil;
 import com.android.tools.analytics.crash.CrashReport;
 import com.android.tools.analytics.crash.CrashReporter;
 import com.android.tools.idea.configurations.Configuration;
+import com.android.tools.idea.rendering.imagepool.ImagePoolFactory;
 import com.google.common.io.Files;
 import com.google.common.util.concurrent.Futures;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.roots.CompilerModuleExtension;
 import com.intellij.openapi.roots.CompilerProjectExtension;
 import com.intellij.openapi.roots.SourceFolder;
@@ -42,6 +44,7 @@ import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.xml.XmlFile;
 import com.intellij.testFramework.PsiTestUtil;
 import java.awt.Color;
 import java.awt.Graphics2D;
@@ -55,6 +58,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.imageio.ImageIO;
 import javax.tools.ToolProvider;
 import org.intellij.lang.annotations.Language;
@@ -243,6 +247,150 @@ public class RenderTaskTest extends AndroidTestCase {
     task.dispose().get(5, TimeUnit.SECONDS);
   }
 
+  public void testRenderResultCache() throws Exception {
+    VirtualFile file = myFixture.addFileToProject("res/layout/layout.xml", SIMPLE_LAYOUT).getVirtualFile();
+    Configuration configuration = RenderTestUtil.getConfiguration(myModule, file);
+    RenderLogger logger = mock(RenderLogger.class);
+    RenderResultCache cache = new RenderResultCache(ImagePoolFactory.createImagePool(), 2);
+
+    RenderTask task = RenderTestUtil.createRenderTask(myFacet, file, configuration, logger);
+    task.setRenderResultCache(cache);
+    RenderResult result = task.render().get();
+    checkSimpleLayoutResult(result);
+    BufferedImage renderedImage = result.getRenderedImage().getCopy();
+    ViewInfo renderedRoot = result.getRootViews().get(0);
+    assertNotNull(renderedRoot.getViewObject());
+    assertEquals(1, cache.size());
+    task.dispose().get(5, TimeUnit.SECONDS);
+
+    // Same inputs, the result comes from the cache and no session is created
+    task = RenderTestUtil.createRenderTask(myFacet, file, configuration, logger);
+    task.setRenderResultCache(cache);
+    RenderResult cachedResult = task.render().get();
+    checkSimpleLayoutResult(cachedResult);
+    ImageDiffUtil.assertImageSimilar("cached", renderedImage, cachedResult.getRenderedImage().getCopy(), 0);
+    // The cached views keep the bounds and cookies, but not the layoutlib objects of the disposed session
+    ViewInfo cachedRoot = cachedResult.getRootViews().get(0);
+    assertSame(renderedRoot.getCookie(), cachedRoot.getCookie());
+    assertEquals(renderedRoot.getRight(), cachedRoot.getRight());
+    assertEquals(renderedRoot.getBottom(), cachedRoot.getBottom());
+    assertEquals(renderedRoot.getViewType(), cachedRoot.getViewType());
+    for (ViewInfo view : cachedRoot.getChildren()) {
+      assertNull(view.getViewObject());
+      assertNull(view.getLayoutParamsObject());
+    }
+    assertNull(cachedRoot.getViewObject());
+    assertTrue(cachedResult.getDefaultProperties().isEmpty());
+    assertNull(Futures.getUnchecked(task.layout()));
+    // Disposing a cached result must not affect the cache
+    cachedResult.dispose();
+    task.dispose().get(5, TimeUnit.SECONDS);
+
+    // A different configuration is a different entry
+    configuration.setTheme("@android:style/Theme.Material");
+    task = RenderTestUtil.createRenderTask(myFacet, file, configuration, logger);
+    task.setRenderResultCache(cache);
+    checkSimpleLayoutResult(task.render());
+    assertNotNull(Futures.getUnchecked(task.layout()));
+    assertEquals(2, cache.size());
+    task.dispose().get(5, TimeUnit.SECONDS);
+  }
+
+  public void testRenderResultCacheChecksIncludedLayouts() throws Exception {
+    XmlFile included = (XmlFile)myFixture.addFileToProject(
+      "res/layout/included.xml",
+      "<View xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+      "    android:layout_width=\"50dp\"\n" +
+      "    android:layout_height=\"50dp\"\n" +
+      "    android:background=\"#F00\" />");
+    VirtualFile file = myFixture.addFileToProject(
+      "res/layout/layout.xml",
+      "<FrameLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+      "    android:layout_width=\"match_parent\"\n" +
+      "    android:layout_height=\"match_parent\">\n" +
+      "  <include layout=\"@layout/included\" />\n" +
+      "</FrameLayout>").getVirtualFile();
+    Configuration configuration = RenderTestUtil.getConfiguration(myModule, file);
+    RenderLogger logger = mock(RenderLogger.class);
+    RenderResultCache cache = new RenderResultCache(ImagePoolFactory.createImagePool(), 2);
+
+    RenderTask task = RenderTestUtil.createRenderTask(myFacet, file, configuration, logger);
+    task.setRenderResultCache(cache);
+    assertNotNull(task.render().get());
+    assertEquals(1, cache.size());
+    task.dispose().get(5, TimeUnit.SECONDS);
+
+    // Editing the included layout doesn't change the layout itself, but the cached result must not be used anymore
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> included.getRootTag().setAttribute("android:background", "#00F"));
+    task = RenderTestUtil.createRenderTask(myFacet, file, configuration, logger);
+    task.setRenderResultCache(cache);
+    assertNotNull(task.render().get());
+    // Only results rendered by a session can be laid out again
+    assertNotNull(Futures.getUnchecked(task.layout()));
+    task.dispose().get(5, TimeUnit.SECONDS);
+  }
+
+  public void testCancelledRender() throws Exception {
+    VirtualFile file = myFixture.addFileToProject("res/layout/layout.xml", SIMPLE_LAYOUT).getVirtualFile();
+    Configuration configuration = RenderTestUtil.getConfiguration(myModule, file);
+    RenderLogger logger = mock(RenderLogger.class);
+
+    RenderTask task = RenderTestUtil.createRenderTask(myFacet, file, configuration, logger);
+    // Cancelled right after the inflation
+    assertNull(task.render(() -> true).get());
+    // Cancelled right before drawing
+    AtomicInteger checks = new AtomicInteger();
+    assertNull(task.render(() -> checks.incrementAndGet() > 1).get());
+    assertEquals(2, checks.get());
+    // The session can still be used after an abandoned render
+    checkSimpleLayoutResult(task.render(() -> false));
+    checkSimpleLayoutResult(task.render());
+    task.dispose().get(5, TimeUnit.SECONDS);
+  }
+
+  public void testDownscaledRender() throws Exception {
+    VirtualFile file = myFixture.addFileToProject("res/layout/layout.xml", SIMPLE_LAYOUT).getVirtualFile();
+    Configuration configuration = RenderTestUtil.getConfiguration(myModule, file);
+    RenderLogger logger = mock(RenderLogger.class);
+
+    RenderTask task = RenderTestUtil.createRenderTask(myFacet, file, configuration, logger);
+    RenderResult result = task.render().get();
+    checkSimpleLayoutResult(result);
+    int width = result.getRenderedImage().getWidth();
+    int height = result.getRenderedImage().getHeight();
+
+    RenderResult preview = task.renderDownscaled(0.25f, () -> false).get();
+    assertEquals((int)(width * 0.25f), preview.getRenderedImage().getWidth());
+    assertEquals((int)(height * 0.25f), preview.getRenderedImage().getHeight());
+
+    // The next render is a full render again
+    result = task.render().get();
+    assertEquals(width, result.getRenderedImage().getWidth());
+    assertEquals(height, result.getRenderedImage().getHeight());
+    task.dispose().get(5, TimeUnit.SECONDS);
+  }
+
+  public void testDownscaledImageWithQuality() throws Exception {
+    VirtualFile file = myFixture.addFileToProject("res/layout/layout.xml", SIMPLE_LAYOUT).getVirtualFile();
+    Configuration configuration = RenderTestUtil.getConfiguration(myModule, file);
+    RenderLogger logger = mock(RenderLogger.class);
+
+    RenderTask task = RenderTestUtil.createRenderTask(myFacet, file, configuration, logger);
+    // The lowest quality limits the images to 1,250,000 pixels
+    task.setQuality(0f);
+    assertEquals(1000, task.createDownscaledImage(1000, 1000, 1f).getWidth());
+    assertEquals(250, task.createDownscaledImage(1000, 1000, 0.25f).getWidth());
+    assertEquals(625, task.createDownscaledImage(2000, 2000, 1f).getWidth());
+    // The preview scale and the quality are not compounded, the smallest of the two is used
+    assertEquals(500, task.createDownscaledImage(2000, 2000, 0.25f).getWidth());
+    assertEquals(625, task.createDownscaledImage(2000, 2000, 0.5f).getWidth());
+
+    task.setQuality(1f);
+    assertEquals(2000, task.createDownscaledImage(2000, 2000, 1f).getWidth());
+    assertEquals(500, task.createDownscaledImage(2000, 2000, 0.25f).getWidth());
+    task.dispose().get(5, TimeUnit.SECONDS);
+  }
+
   public void testAsyncCallAndDispose() throws ExecutionException, InterruptedException, TimeoutException {
     VirtualFile layoutFile = myFixture.addFileToProject("res/layout/foo.xml", "").getVirtualFile();
     Configuration configuration = RenderTestUtil.getConfiguration(myModule, layoutFile);
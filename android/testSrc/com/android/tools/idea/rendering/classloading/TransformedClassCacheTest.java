@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering.classloading;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TransformedClassCacheTest {
+  private static final String BUILD_ID = "AI-1.0";
+
+  @Rule
+  public TemporaryFolder myTemporaryFolder = new TemporaryFolder();
+
+  private final AtomicInteger myTransformCount = new AtomicInteger();
+  private final Function<byte[], byte[]> myTransform = bytes -> {
+    myTransformCount.incrementAndGet();
+    byte[] result = new byte[bytes.length];
+    for (int i = 0; i < bytes.length; i++) {
+      result[i] = (byte)(bytes[i] + 1);
+    }
+    return result;
+  };
+
+  @Test
+  public void testTransformsOnlyOnce() throws IOException {
+    Path directory = myTemporaryFolder.newFolder().toPath();
+    TransformedClassCache cache = new TransformedClassCache(directory, BUILD_ID);
+
+    assertArrayEquals(new byte[]{2, 3, 4}, cache.getOrTransform(new byte[]{1, 2, 3}, myTransform));
+    assertArrayEquals(new byte[]{2, 3, 4}, cache.getOrTransform(new byte[]{1, 2, 3}, myTransform));
+    assertEquals(1, myTransformCount.get());
+
+    assertArrayEquals(new byte[]{5}, cache.getOrTransform(new byte[]{4}, myTransform));
+    assertEquals(2, myTransformCount.get());
+  }
+
+  @Test
+  public void testEntriesSurviveNewInstances() throws IOException {
+    Path directory = myTemporaryFolder.newFolder().toPath();
+    new TransformedClassCache(directory, BUILD_ID).getOrTransform(new byte[]{1, 2, 3}, myTransform);
+
+    assertArrayEquals(new byte[]{2, 3, 4}, new TransformedClassCache(directory, BUILD_ID).getOrTransform(new byte[]{1, 2, 3}, myTransform));
+    assertEquals(1, myTransformCount.get());
+  }
+
+  @Test
+  public void testTrimToSize() throws IOException {
+    Path directory = myTemporaryFolder.newFolder().toPath();
+    TransformedClassCache cache = new TransformedClassCache(directory, BUILD_ID);
+    cache.getOrTransform(new byte[]{1, 2, 3}, myTransform);
+    cache.getOrTransform(new byte[]{4, 5, 6}, myTransform);
+
+    cache.trimToSize(6);
+    cache.getOrTransform(new byte[]{1, 2, 3}, myTransform);
+    cache.getOrTransform(new byte[]{4, 5, 6}, myTransform);
+    assertEquals(2, myTransformCount.get());
+
+    cache.trimToSize(0);
+    cache.getOrTransform(new byte[]{1, 2, 3}, myTransform);
+    assertEquals(3, myTransformCount.get());
+  }
+
+  @Test
+  public void testEntriesAreNotSharedAcrossBuilds() throws IOException {
+    Path directory = myTemporaryFolder.newFolder().toPath();
+    new TransformedClassCache(directory, BUILD_ID).getOrTransform(new byte[]{1, 2, 3}, myTransform);
+
+    new TransformedClassCache(directory, "AI-2.0").getOrTransform(new byte[]{1, 2, 3}, myTransform);
+    assertEquals(2, myTransformCount.get());
+  }
+
+  @Test
+  public void testHitsOnlyRecordTheAccessOfStaleEntries() throws IOException {
+    Path directory = myTemporaryFolder.newFolder().toPath();
+    TransformedClassCache cache = new TransformedClassCache(directory, BUILD_ID);
+    cache.getOrTransform(new byte[]{1, 2, 3}, myTransform);
+    Path entry = getSingleFile(directory);
+    long now = System.currentTimeMillis();
+
+    Files.setLastModifiedTime(entry, FileTime.fromMillis(now - TimeUnit.HOURS.toMillis(1)));
+    FileTime recent = Files.getLastModifiedTime(entry);
+    cache.getOrTransform(new byte[]{1, 2, 3}, myTransform);
+    assertEquals(recent, Files.getLastModifiedTime(entry));
+
+    Files.setLastModifiedTime(entry, FileTime.fromMillis(now - TimeUnit.DAYS.toMillis(2)));
+    cache.getOrTransform(new byte[]{1, 2, 3}, myTransform);
+    assertTrue(Files.getLastModifiedTime(entry).toMillis() >= now);
+  }
+
+  @Test
+  public void testTrimToSizeDeletesAbandonedTempFiles() throws IOException {
+    Path directory = myTemporaryFolder.newFolder().toPath();
+    TransformedClassCache cache = new TransformedClassCache(directory, BUILD_ID);
+    cache.getOrTransform(new byte[]{1, 2, 3}, myTransform);
+    Path bucket = getSingleFile(directory).getParent();
+    Path abandoned = Files.write(bucket.resolve("abandoned.class123.tmp"), new byte[]{1});
+    Files.setLastModifiedTime(abandoned, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+    Path inProgress = Files.write(bucket.resolve("in-progress.class456.tmp"), new byte[]{1});
+
+    cache.trimToSize(Long.MAX_VALUE);
+    assertFalse(Files.exists(abandoned));
+    assertTrue(Files.exists(inProgress));
+    cache.getOrTransform(new byte[]{1, 2, 3}, myTransform);
+    assertEquals(1, myTransformCount.get());
+  }
+
+  @NotNull
+  private static Path getSingleFile(@NotNull Path directory) throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      List<Path> regularFiles = files.filter(Files::isRegularFile).collect(Collectors.toList());
+      assertEquals(1, regularFiles.size());
+      return regularFiles.get(0);
+    }
+  }
+}
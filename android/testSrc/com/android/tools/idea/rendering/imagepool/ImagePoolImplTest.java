@@ -153,6 +153,72 @@ public class ImagePoolImplTest {
     gc();
   }
 
+  @Test
+  public void testMemoryCapAndStats() {
+    // 50x50 images are allocated in the 500x500 bucket, so the cap only fits one free image
+    long bucketImageBytes = 500 * 500 * 4;
+    ImagePoolImpl pool = new ImagePoolImpl(new int[]{50, 500, 1000}, (w, h) -> (type) -> 10, bucketImageBytes);
+    try {
+      ImagePool.Stats stats = pool.getStats();
+      ImagePoolImpl.ImageImpl image1 = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePoolImpl.ImageImpl image2 = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      assertEquals(2, stats.totalMisses());
+      assertEquals(bucketImageBytes, stats.maxBytesPooled());
+
+      image1.dispose();
+      assertEquals(bucketImageBytes, stats.totalBytesPooled());
+      image2.dispose();
+      assertEquals(bucketImageBytes, stats.totalBytesPooled());
+      assertEquals(1, stats.totalEvictions());
+
+      pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      assertEquals(1, stats.totalHits());
+      assertEquals(0, stats.totalBytesPooled());
+      pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      assertEquals(3, stats.totalMisses());
+    }
+    finally {
+      pool.dispose();
+    }
+  }
+
+  @Test
+  public void testClearedImagesReleaseTheMemoryCap() {
+    // 50x50 images are allocated in the 500x500 bucket, so the cap only fits one free image
+    long bucketImageBytes = 500 * 500 * 4;
+    ImagePoolImpl pool = new ImagePoolImpl(new int[]{50, 500, 1000}, (w, h) -> (type) -> 10, bucketImageBytes);
+    try {
+      ImagePool.Stats stats = pool.getStats();
+      ImagePoolImpl.ImageImpl image1 = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePoolImpl.ImageImpl image2 = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      image1.dispose();
+      assertEquals(bucketImageBytes, stats.totalBytesPooled());
+
+      // The garbage collector reclaims the free image, so the pool has room for the next one
+      pool.clearPooledImages();
+      BufferedImage internalPtr = image2.myBuffer;
+      image2.dispose();
+      assertEquals(bucketImageBytes, stats.totalBytesPooled());
+      assertEquals(1, stats.totalEvictions());
+      assertEquals(internalPtr, pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null).myBuffer);
+      assertEquals(0, stats.totalBytesPooled());
+
+      // Creating an image also drops the reclaimed ones, even if they are in another bucket
+      ImagePoolImpl.ImageImpl image3 = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      image3.dispose();
+      pool.clearPooledImages();
+      pool.create(600, 600, BufferedImage.TYPE_INT_ARGB, null);
+      assertEquals(0, stats.totalBytesPooled());
+      assertEquals(2, stats.totalEvictions());
+      pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      assertEquals(1, stats.totalHits());
+      assertEquals(2, stats.totalEvictions());
+    }
+    finally {
+      pool.dispose();
+    }
+  }
+
   @Test
   public void testDefaultPooling() throws InterruptedException {
     // Small images won't be pooled
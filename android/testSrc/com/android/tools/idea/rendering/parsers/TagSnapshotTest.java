@@ -22,13 +22,21 @@ import static com.android.SdkConstants.ATTR_ORIENTATION;
 import static com.android.SdkConstants.VALUE_VERTICAL;
 import static com.android.SdkConstants.VALUE_WRAP_CONTENT;
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
 
 import com.android.tools.idea.testing.AndroidProjectRule;
+import com.google.common.collect.ImmutableSet;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.util.Computable;
 import com.intellij.psi.XmlElementFactory;
 import com.intellij.psi.xml.XmlTag;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.intellij.lang.annotations.Language;
 import org.junit.Rule;
@@ -134,4 +142,87 @@ public class TagSnapshotTest {
       "}",
       button.toString());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testUnchangedSubtreesAreReused() {
+    @Language("XML") final String layoutString = "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                                                 "  android:orientation=\"vertical\">\n" +
+                                                 "  <Button\n" +
+                                                 "    android:layout_width=\"wrap_content\"\n" +
+                                                 "    android:layout_height=\"wrap_content\" />\n" +
+                                                 "  <TextView\n" +
+                                                 "    android:layout_width=\"wrap_content\"\n" +
+                                                 "    android:layout_height=\"wrap_content\" />\n" +
+                                                 "</LinearLayout>";
+    XmlTag linearLayout = ApplicationManager.getApplication().runReadAction(
+      (Computable<XmlTag>)() -> XmlElementFactory.getInstance(myProjectRule.getProject()).createTagFromText(layoutString));
+    XmlTag button = linearLayout.getSubTags()[0];
+
+    Set<XmlTag> changedTags = new HashSet<>();
+    TagSnapshot first = ApplicationManager.getApplication().runReadAction(
+      (Computable<TagSnapshot>)() -> TagSnapshot.createTagSnapshot(linearLayout, null, changedTags));
+    assertEquals(3, changedTags.size());
+
+    changedTags.clear();
+    TagSnapshot second = ApplicationManager.getApplication().runReadAction(
+      (Computable<TagSnapshot>)() -> TagSnapshot.createTagSnapshot(linearLayout, null, changedTags));
+    assertTrue(changedTags.isEmpty());
+    assertEquals(first.toString(), second.toString());
+    // Snapshots can be modified, so they must not be shared.
+    assertNotSame(first.children.get(0).attributes.get(0), second.children.get(0).attributes.get(0));
+
+    WriteCommandAction.runWriteCommandAction(
+      myProjectRule.getProject(), () -> { button.setAttribute(ATTR_LAYOUT_WIDTH, ANDROID_URI, "match_parent"); });
+    TagSnapshot third = ApplicationManager.getApplication().runReadAction(
+      (Computable<TagSnapshot>)() -> TagSnapshot.createTagSnapshot(linearLayout, null, changedTags));
+    // The parent of the modified tag is also reported since its subtree changed.
+    assertEquals(ImmutableSet.of(linearLayout, button), changedTags);
+    assertEquals("match_parent", third.children.get(0).getAttribute(ATTR_LAYOUT_WIDTH, ANDROID_URI));
+    assertEquals(VALUE_WRAP_CONTENT, third.children.get(1).getAttribute(ATTR_LAYOUT_WIDTH, ANDROID_URI));
+    assertSame(third.children.get(1), third.children.get(0).getNextSibling());
+  }
+
+  @Test
+  public void testChangesToReusedSnapshotsDoNotLeak() {
+    @Language("XML") final String layoutString = "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\">\n" +
+                                                 "  <Button android:layout_width=\"wrap_content\" />\n" +
+                                                 "</LinearLayout>";
+    XmlTag linearLayout = ApplicationManager.getApplication().runReadAction(
+      (Computable<XmlTag>)() -> XmlElementFactory.getInstance(myProjectRule.getProject()).createTagFromText(layoutString));
+
+    TagSnapshot first = ApplicationManager.getApplication().runReadAction(
+      (Computable<TagSnapshot>)() -> TagSnapshot.createTagSnapshot(linearLayout, snapshot -> snapshot.setAttribute(
+        ATTR_LAYOUT_WIDTH, ANDROID_URI, "android", "match_parent")));
+    assertEquals("match_parent", first.children.get(0).getAttribute(ATTR_LAYOUT_WIDTH, ANDROID_URI));
+
+    Set<XmlTag> changedTags = new HashSet<>();
+    TagSnapshot second = ApplicationManager.getApplication().runReadAction(
+      (Computable<TagSnapshot>)() -> TagSnapshot.createTagSnapshot(linearLayout, null, changedTags));
+    assertTrue(changedTags.isEmpty());
+    assertEquals(VALUE_WRAP_CONTENT, second.children.get(0).getAttribute(ATTR_LAYOUT_WIDTH, ANDROID_URI));
+    assertNull(second.getAttribute(ATTR_LAYOUT_WIDTH, ANDROID_URI));
+  }
+
+  @Test
+  public void testSubtreeIsReadAgainWhenAParentRedeclaresItsNamespace() {
+    @Language("XML") final String layoutString = "<FrameLayout xmlns:android=\"http://schemas.android.com/apk/res/android\">\n" +
+                                                 "  <LinearLayout>\n" +
+                                                 "    <Button android:layout_width=\"wrap_content\" />\n" +
+                                                 "  </LinearLayout>\n" +
+                                                 "</FrameLayout>";
+    XmlTag frameLayout = ApplicationManager.getApplication().runReadAction(
+      (Computable<XmlTag>)() -> XmlElementFactory.getInstance(myProjectRule.getProject()).createTagFromText(layoutString));
+    XmlTag linearLayout = frameLayout.getSubTags()[0];
+
+    ApplicationManager.getApplication().runReadAction(
+      (Computable<TagSnapshot>)() -> TagSnapshot.createTagSnapshot(linearLayout, null));
+
+    WriteCommandAction.runWriteCommandAction(
+      myProjectRule.getProject(), () -> { frameLayout.setAttribute("xmlns:android", "http://schemas.android.com/apk/res-auto"); });
+    Set<XmlTag> changedTags = new HashSet<>();
+    TagSnapshot snapshot = ApplicationManager.getApplication().runReadAction(
+      (Computable<TagSnapshot>)() -> TagSnapshot.createTagSnapshot(linearLayout, null, changedTags));
+    assertEquals(ImmutableSet.of(linearLayout, linearLayout.getSubTags()[0]), changedTags);
+    assertEquals("http://schemas.android.com/apk/res-auto", snapshot.children.get(0).attributes.get(0).namespace);
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.res
+
+import com.google.common.truth.Truth.assertThat
+import com.intellij.util.ref.GCUtil
+import org.junit.Test
+import java.nio.file.Paths
+
+/**
+ * Tests for the [RepositoryCache] behind [AarResourceRepositoryCache].
+ */
+class AarResourceRepositoryCacheTest {
+  private class Repository(val itemCount: Int)
+
+  private val cache = RepositoryCache<Repository>(10, Repository::itemCount)
+  private val loadedKeys = mutableListOf<Any>()
+
+  private fun get(key: Any, itemCount: Int = 4): Repository {
+    return cache.get(key) {
+      loadedKeys.add(key)
+      Repository(itemCount)
+    }
+  }
+
+  @Test
+  fun hitsDoNotLoadAgain() {
+    val repository = get("a")
+    assertThat(get("a")).isSameAs(repository)
+    assertThat(get("a")).isSameAs(repository)
+    assertThat(loadedKeys).containsExactly("a")
+  }
+
+  @Test
+  fun entriesAreEvictedWhenTheirItemsExceedTheBudget() {
+    get("a")
+    get("b")
+    assertThat(cache.size()).isEqualTo(2)
+    get("c")
+    assertThat(cache.size()).isEqualTo(2)
+    assertThat(cache.contains("a")).isFalse()
+    assertThat(cache.contains("b")).isTrue()
+    assertThat(cache.contains("c")).isTrue()
+  }
+
+  @Test
+  fun leastRecentlyUsedEntryIsEvictedFirst() {
+    get("a")
+    get("b")
+    get("a")
+    get("c")
+    assertThat(cache.contains("a")).isTrue()
+    assertThat(cache.contains("b")).isFalse()
+    assertThat(cache.contains("c")).isTrue()
+  }
+
+  @Test
+  fun protoAndSourceKeysShareOneBudget() {
+    get(Paths.get("/libs/a/res.apk"), 6)
+    get("source", 6)
+    assertThat(cache.size()).isEqualTo(1)
+    assertThat(cache.contains("source")).isTrue()
+  }
+
+  @Test
+  fun evictedRepositoriesAreReusedWhileReferenced() {
+    val repository = get("a")
+    get("b")
+    get("c")
+    assertThat(cache.contains("a")).isFalse()
+
+    // The repository is still in use, so it is put back in the cache instead of being loaded again.
+    assertThat(get("a")).isSameAs(repository)
+    assertThat(cache.contains("a")).isTrue()
+    assertThat(loadedKeys).containsExactly("a", "b", "c")
+  }
+
+  @Test
+  fun cachedRepositoriesAreNotCollected() {
+    get("a")
+    get("b")
+
+    // Nothing references the repositories outside of the cache, but they are within the budget.
+    GCUtil.tryGcSoftlyReachableObjects()
+    get("a")
+    get("b")
+    assertThat(loadedKeys).containsExactly("a", "b")
+  }
+
+  @Test
+  fun entryStatsCountHits() {
+    val repository = get("a", 3)
+    get("a")
+    get("a")
+    get("b", 5)
+    get("c", 5) // Evicts "a".
+    get("b")
+
+    assertThat(cache.getEntryStats().map { Triple(it.value.itemCount, it.weight, it.hitCount) })
+      .containsExactly(Triple(5, 5, 1L), Triple(5, 5, 0L))
+    assertThat(get("a", 3)).isSameAs(repository)
+    // Reused after eviction, so it was not loaded and starts with no hits.
+    val stats = cache.getEntryStats().single { it.value === repository }
+    assertThat(stats.loadTimeMillis).isEqualTo(0)
+    assertThat(stats.hitCount).isEqualTo(0)
+  }
+
+  @Test
+  fun evictedRepositoriesAreLoadedAgainOnceCollected() {
+    get("a")
+    get("b")
+    get("c")
+    assertThat(cache.contains("a")).isFalse()
+
+    GCUtil.tryGcSoftlyReachableObjects()
+    get("a")
+    assertThat(loadedKeys).containsExactly("a", "b", "c", "a")
+  }
+
+  @Test
+  fun removedRepositoriesAreLoadedAgain() {
+    val repository = get("a")
+    get("b")
+    get("c")
+    cache.remove("a") // Evicted and still referenced.
+    cache.remove("c") // In the LRU part of the cache.
+    assertThat(cache.contains("c")).isFalse()
+
+    assertThat(get("a")).isNotSameAs(repository)
+    get("c")
+    assertThat(loadedKeys).containsExactly("a", "b", "c", "a", "c")
+  }
+
+  @Test
+  fun clearRemovesAllRepositories() {
+    val repository = get("a")
+    get("b")
+    get("c")
+    cache.clear()
+    assertThat(cache.size()).isEqualTo(0)
+
+    assertThat(get("a")).isNotSameAs(repository)
+    assertThat(loadedKeys).containsExactly("a", "b", "c", "a")
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.res
+
+import com.android.SdkConstants.FD_DATA
+import com.android.SdkConstants.FD_RES
+import com.google.common.truth.Truth.assertThat
+import com.intellij.openapi.util.io.FileUtil
+import com.intellij.testFramework.PlatformTestCase
+import org.jetbrains.android.sdk.StudioEmbeddedRenderTarget
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+/**
+ * Tests for [FrameworkResourceRepositoryManager].
+ */
+class FrameworkResourceRepositoryManagerTest : PlatformTestCase() {
+  private lateinit var tempDir: Path
+  private lateinit var frameworkResDir: Path
+
+  override fun setUp() {
+    super.setUp()
+    tempDir = FileUtil.createTempDirectory("FrameworkResourceRepositoryManagerTest", null).toPath()
+    frameworkResDir = Paths.get(StudioEmbeddedRenderTarget.getInstance().location, FD_DATA, FD_RES).normalize()
+  }
+
+  override fun tearDown() {
+    try {
+      FrameworkResourceRepositoryManager.getInstance().clearCache()
+    }
+    finally {
+      super.tearDown()
+    }
+  }
+
+  fun testAliasedPathsShareOneRepository() {
+    val manager = FrameworkResourceRepositoryManager.getInstance()
+    val link = Files.createSymbolicLink(tempDir.resolve("res"), frameworkResDir)
+    val dotted = frameworkResDir.resolve("values").resolve("..")
+
+    val repository = manager.getFrameworkResources(frameworkResDir.toFile(), false, emptySet())
+    assertThat(manager.getFrameworkResources(link.toFile(), false, emptySet())).isSameAs(repository)
+    assertThat(manager.getFrameworkResources(dotted.toFile(), false, emptySet())).isSameAs(repository)
+
+    // Languages loaded through one alias are visible through the others.
+    val withFrench = manager.getFrameworkResources(link.toFile(), false, setOf("fr"))
+    assertThat(withFrench.containsLanguages(setOf("fr"))).isTrue()
+    assertThat(manager.getFrameworkResources(frameworkResDir.toFile(), false, setOf("fr"))).isSameAs(withFrench)
+    assertThat(manager.getFrameworkResources(dotted.toFile(), false, emptySet())).isSameAs(withFrench)
+  }
+}
@@ -26,6 +26,7 @@ import com.android.ide.common.resources.configuration.FolderConfiguration;
 import com.android.resources.ResourceType;
 import com.android.tools.lint.detector.api.Lint;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
 import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -228,6 +229,36 @@ public class ModuleResourceRepositoryTest extends AndroidTestCase {
     assertItemIsInDir(res2, layout2);
   }
 
+  public void testResourceSnapshots() {
+    VirtualFile layoutOverlay = myFixture.copyFileToProject(LAYOUT_OVERLAY, "res2/layout/layout1.xml");
+    VirtualFile res2 = layoutOverlay.getParent().getParent();
+    VirtualFile res3 = myFixture.copyFileToProject(LAYOUT, "res/layout/layout1.xml").getParent().getParent();
+    ModuleResourceRepository resources = ModuleResourceRepository.createForTest(myFacet, ImmutableList.of(res2, res3), RES_AUTO, null);
+
+    // Lookups share the snapshot of the merged resources until one of the children changes.
+    ListMultimap<String, ResourceItem> layouts = resources.getResources(RES_AUTO, ResourceType.LAYOUT);
+    assertSame(layouts, resources.getResources(RES_AUTO, ResourceType.LAYOUT));
+    assertThat(layouts.keySet()).containsExactly("layout1");
+
+    WriteCommandAction.runWriteCommandAction(null, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          layoutOverlay.rename(this, "layout2.xml");
+        }
+        catch (IOException e) {
+          fail(e.toString());
+        }
+      }
+    });
+
+    ListMultimap<String, ResourceItem> updatedLayouts = resources.getResources(RES_AUTO, ResourceType.LAYOUT);
+    assertNotSame(layouts, updatedLayouts);
+    assertThat(updatedLayouts.keySet()).containsExactly("layout1", "layout2");
+    assertItemIsInDir(res3, getSingleItem(resources, ResourceType.LAYOUT, "layout1"));
+    assertTrue(resources.hasResources(RES_AUTO, ResourceType.LAYOUT, "layout2"));
+  }
+
   public void testOverlayUpdates2() {
     // Like testOverlayUpdates1, but rather than testing changes to layout resources (file-based resource)
     // perform document edits in value-documents
@@ -29,6 +29,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.jetbrains.android.AndroidTestCase;
 
 /**
@@ -49,6 +50,28 @@ public class ResourceRepositoryManagerTest extends AndroidTestCase {
     assertThat(Iterables.getOnlyElement(repositoryManager.getLibraryResources()).getNamespace()).isEqualTo(libraryNamespace);
   }
 
+  /**
+   * Checks that the library resources are loaded in the background when the roots change before the app resources are created.
+   */
+  public void testLibraryResourcesArePrewarmed() throws Exception {
+    enableNamespacing("p1.p2");
+    addBinaryAarDependency(myModule);
+
+    ResourceRepositoryManager repositoryManager = ResourceRepositoryManager.getInstance(myFacet);
+    repositoryManager.resetAllCaches();
+    assertThat(repositoryManager.getExistingAppResources()).isNull();
+    AarResourceRepositoryCache cache = AarResourceRepositoryCache.getInstance();
+    assertThat(cache.getRepositoryCount()).isEqualTo(0);
+
+    repositoryManager.updateRootsAndLibraries();
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (cache.getRepositoryCount() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(cache.getRepositoryCount()).isEqualTo(1);
+    assertThat(repositoryManager.getExistingAppResources()).isNull();
+  }
+
   public void testDisposal() {
     myFacet.getProperties().ALLOW_USER_CONFIGURATION = false;
     assertThat(AndroidModel.isRequired(myFacet)).named("module uses a model").isTrue();
@@ -40,6 +40,16 @@ interface NlDiagnosticsRead {
    * Returns the last render image size in bytes
    */
   fun lastRenderImageSize(): Long
+
+  /**
+   * Returns the [percentile] percentile for the render latency, the time from a render request to the end of the render serving it
+   */
+  fun renderLatency(percentile: Int): Long
+
+  /**
+   * Returns the number of renders abandoned because the model changed while they were running
+   */
+  fun supersededRenders(): Int
 }
 
 /**
@@ -50,6 +60,16 @@ interface NlDiagnosticsWrite {
    * Record a render action with the time and the size of the generated image
    */
   fun recordRender(timeMs: Long, lastRenderSizeBytes: Long)
+
+  /**
+   * Record the time from a render request to the end of the render serving it
+   */
+  fun recordRenderLatency(latencyMs: Long)
+
+  /**
+   * Record a render abandoned because the model changed while it was running
+   */
+  fun recordSupersededRender()
 }
 
 /**
@@ -61,11 +81,17 @@ object NopNlDiagnosticsImpl : NlDiagnosticsRead, NlDiagnosticsWrite {
   override fun renderTime(percentile: Int): Long = -1
   override fun recordRender(timeMs: Long, lastRenderSizeBytes: Long) {}
   override fun lastRenders(): List<Long> = emptyList()
+  override fun renderLatency(percentile: Int): Long = -1
+  override fun supersededRenders(): Int = -1
+  override fun recordRenderLatency(latencyMs: Long) {}
+  override fun recordSupersededRender() {}
 }
 
 private class NlDiagnosticsImpl : NlDiagnosticsRead, NlDiagnosticsWrite {
   private val lastRenderTimes = EvictingQueue.create<Long>(100)
+  private val lastRenderLatencies = EvictingQueue.create<Long>(100)
   private var lastRenderImageBytes = -1L
+  private var supersededRenderCount = 0
 
   override fun lastRenders(): List<Long> = lastRenderTimes.toList()
 
@@ -80,6 +106,20 @@ private class NlDiagnosticsImpl : NlDiagnosticsRead, NlDiagnosticsWrite {
   override fun renderTime(percentile: Int): Long = if (lastRenderTimes.size > 0)
     Quantiles.percentiles().index(percentile).compute(lastRenderTimes).toLong()
   else -1
+
+  override fun renderLatency(percentile: Int): Long = if (lastRenderLatencies.size > 0)
+    Quantiles.percentiles().index(percentile).compute(lastRenderLatencies).toLong()
+  else -1
+
+  override fun supersededRenders(): Int = supersededRenderCount
+
+  override fun recordRenderLatency(latencyMs: Long) {
+    lastRenderLatencies.add(latencyMs)
+  }
+
+  override fun recordSupersededRender() {
+    supersededRenderCount++
+  }
 }
 
 object NlDiagnosticsManager {
@@ -48,7 +48,13 @@ public class Display {
     if (needsRebuild) {
       needsRebuild = scene.layout(mTime, sceneContext);
       myDisplayList.clear();
-      scene.buildDisplayList(myDisplayList, mTime, sceneContext);
+      if (myDisplayListVersion == 0) {
+        scene.buildDisplayList(myDisplayList, mTime, sceneContext);
+      }
+      else {
+        // Only the commands of the components invalidated since the last build are rebuilt.
+        scene.updateDisplayList(myDisplayList, mTime, sceneContext);
+      }
       myDisplayListVersion = scene.getDisplayListVersion();
       if (needsRebuild) {
         scene.needsRebuildList();
@@ -70,6 +70,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 import org.intellij.lang.annotations.JdkConstants;
 import org.intellij.lang.annotations.MagicConstant;
@@ -103,7 +104,26 @@ public class Scene implements SelectionListener, Disposable {
   public static final int NO_LAYOUT = 0;
   public static final int IMMEDIATE_LAYOUT = 1;
   public static final int ANIMATED_LAYOUT = 2;
+  /**
+   * Extra space around invalidated components repainted by {@link #repaintDirtyRegion()}, to cover the targets drawn outside of their
+   * bounds.
+   */
+  @AndroidDpCoordinate private static final int DIRTY_REGION_MARGIN = 20;
   private long myDisplayListVersion = 1;
+  /**
+   * Incremented by {@link #needsRebuildList()} to discard the display list commands retained by all the {@link SceneComponent}s.
+   */
+  private long myDisplayListFragmentsVersion = 1;
+  /**
+   * The {@link #myDisplayListFragmentsVersion} of the last display list built for each {@link SceneContext}.
+   */
+  private final Map<SceneContext, Long> myBuiltDisplayListFragmentsVersions = new WeakHashMap<>();
+  /**
+   * Union of the areas invalidated by {@link #needsRebuildList(SceneComponent)} since the last {@link #repaint()} or
+   * {@link #repaintDirtyRegion()}, or null if nothing or everything has been invalidated.
+   */
+  @AndroidDpCoordinate @Nullable private Rectangle myDirtyRegion;
+  private boolean myIsFullyDirty = false;
   private Target myOverTarget;
   private Target mySnapTarget;
   private SceneComponent myCurrentComponent;
@@ -368,6 +388,8 @@ public class Scene implements SelectionListener, Disposable {
     if (myRoot != null) {
       markSelection(myRoot, model);
     }
+    // The selection changes the decorations and targets of other components too, e.g. the constraints to the selected ones.
+    needsRebuildList();
   }
 
   /**
@@ -409,10 +431,37 @@ public class Scene implements SelectionListener, Disposable {
     buildDisplayList(displayList, time, SceneContext.get());
   }
 
+  /**
+   * Repaints the whole surface.
+   */
   public void repaint() {
+    myDirtyRegion = null;
+    myIsFullyDirty = false;
     myDesignSurface.repaint();
   }
 
+  /**
+   * Repaints only the parts of the surface invalidated through {@link #needsRebuildList(SceneComponent)} since the last repaint, or
+   * the whole surface if {@link #needsRebuildList()} was called. Only use it when all the changes to the scene since the last repaint
+   * went through {@link #needsRebuildList(SceneComponent)}, like hovering; otherwise use {@link #repaint()}.
+   */
+  public void repaintDirtyRegion() {
+    Rectangle dirtyRegion = myIsFullyDirty ? null : myDirtyRegion;
+    myDirtyRegion = null;
+    myIsFullyDirty = false;
+    if (dirtyRegion == null) {
+      myDesignSurface.repaint();
+      return;
+    }
+    for (SceneView sceneView : mySceneManager.getSceneViews()) {
+      SceneContext context = sceneView.getContext();
+      myDesignSurface.repaintRegion(new Rectangle(context.getSwingXDip(dirtyRegion.x),
+                                                  context.getSwingYDip(dirtyRegion.y),
+                                                  context.getSwingDimensionDip(dirtyRegion.width) + 1,
+                                                  context.getSwingDimensionDip(dirtyRegion.height) + 1));
+    }
+  }
+
   /**
    * Paint the current scene into the given display list
    *
@@ -420,13 +469,26 @@ public class Scene implements SelectionListener, Disposable {
    * @param time
    */
   public void buildDisplayList(@NotNull DisplayList displayList, long time, SceneContext sceneContext) {
+    myDisplayListFragmentsVersion++;
+    updateDisplayList(displayList, time, sceneContext);
+  }
+
+  /**
+   * Paint the current scene into the given display list, reusing the commands of the {@link SceneComponent}s that haven't been
+   * invalidated since the last display list built for the same {@link SceneContext}.
+   */
+  public void updateDisplayList(@NotNull DisplayList displayList, long time, @NotNull SceneContext sceneContext) {
     if (myRoot != null) {
-      // clear the objects and release
-      sceneContext.getScenePicker().foreachObject(o -> {
-        if (o instanceof SecondarySelector) {
-          ((SecondarySelector)o).release();
-        }
-      });
+      Long builtVersion = myBuiltDisplayListFragmentsVersions.put(sceneContext, myDisplayListFragmentsVersion);
+      if (builtVersion == null || builtVersion != myDisplayListFragmentsVersion) {
+        // Nothing is reused, so release the objects of the previous display list. When commands are reused, the objects they
+        // hold must stay valid and the ones of the rebuilt commands are left to the garbage collector.
+        sceneContext.getScenePicker().foreachObject(o -> {
+          if (o instanceof SecondarySelector) {
+            ((SecondarySelector)o).release();
+          }
+        });
+      }
 
       sceneContext.getScenePicker().reset();
       myRoot.buildDisplayList(time, displayList, sceneContext);
@@ -502,28 +564,28 @@ public class Scene implements SelectionListener, Disposable {
                          @JdkConstants.InputEventMask int modifiersEx) {
     myLastMouseX = x;
     myLastMouseY = y;
+    long displayListVersion = myDisplayListVersion;
     if (myLastHoverConstraintComponent != null) { // clear hover constraint
       myLastHoverConstraintComponent.putClientProperty(ConstraintLayoutDecorator.CONSTRAINT_HOVER, null);
+      needsRebuildList(getSceneComponent(myLastHoverConstraintComponent));
       myLastHoverConstraintComponent = null;
-      needsRebuildList();
     }
     if (myRoot != null) {
       myHoverListener.find(transform, myRoot, x, y, modifiersEx);
       mySnapListener.find(transform, myRoot, x, y, modifiersEx);
     }
-    repaint();
     Target closestTarget = myHoverListener.getClosestTarget(modifiersEx);
     String tooltip = null;
     if (myOverTarget != closestTarget) {
       if (myOverTarget != null) {
         myOverTarget.setMouseHovered(false);
+        needsRebuildList(myOverTarget.getComponent());
         myOverTarget = null;
-        needsRebuildList();
       }
       if (closestTarget != null) {
         closestTarget.setMouseHovered(true);
         myOverTarget = closestTarget;
-        needsRebuildList();
+        needsRebuildList(closestTarget.getComponent());
       }
     }
     if (closestTarget != null) {
@@ -532,13 +594,13 @@ public class Scene implements SelectionListener, Disposable {
       if (snapTarget != mySnapTarget) {
         if (mySnapTarget != null) {
           mySnapTarget.setMouseHovered(false);
+          needsRebuildList(mySnapTarget.getComponent());
           mySnapTarget = null;
-          needsRebuildList();
         }
         if (snapTarget != null) {
           snapTarget.setMouseHovered(true);
           mySnapTarget = closestTarget;
-          needsRebuildList();
+          needsRebuildList(snapTarget.getComponent());
         }
       }
     }
@@ -552,13 +614,14 @@ public class Scene implements SelectionListener, Disposable {
     if (myCurrentComponent != closestComponent) {
       if (myCurrentComponent != null) {
         myCurrentComponent.setDrawState(SceneComponent.DrawState.NORMAL);
+        needsRebuildList(myCurrentComponent);
         myCurrentComponent = null;
       }
       if (closestComponent != null) {
         closestComponent.setDrawState(SceneComponent.DrawState.HOVER);
         myCurrentComponent = closestComponent;
+        needsRebuildList(closestComponent);
       }
-      needsRebuildList();
     }
 
     if (closestComponent == null
@@ -570,10 +633,15 @@ public class Scene implements SelectionListener, Disposable {
         myLastHoverConstraintComponent = ss.getComponent();
         tooltip = getConstraintToolTip(ss);
         component.putClientProperty(ConstraintLayoutDecorator.CONSTRAINT_HOVER, ss.getConstraint());
-        needsRebuildList();
+        needsRebuildList(getSceneComponent(component));
       }
     }
 
+    if (myDisplayListVersion != displayListVersion) {
+      // Hovering usually only changes a few components, so only their area is repainted.
+      repaintDirtyRegion();
+    }
+
     if (getTooltipVisibility()) {
       getDesignSurface().setDesignToolTip(tooltip);
     }
@@ -1077,6 +1145,38 @@ public class Scene implements SelectionListener, Disposable {
   // requiring it to be done explicitly by the code that's modifying them.
   public void needsRebuildList() {
     myDisplayListVersion++;
+    myDisplayListFragmentsVersion++;
+    myIsFullyDirty = true;
+  }
+
+  /**
+   * Like {@link #needsRebuildList()}, but only the display list commands of the given component (and of its ancestors) are
+   * rebuilt, and only its area is repainted by the next {@link #repaintDirtyRegion()}. Falls back to {@link #needsRebuildList()} if
+   * the component is null.
+   */
+  public void needsRebuildList(@Nullable SceneComponent component) {
+    if (component == null) {
+      needsRebuildList();
+      return;
+    }
+    myDisplayListVersion++;
+    component.invalidateDisplayListFragments();
+    if (!myIsFullyDirty) {
+      // The parent draws the decorations connecting the component to its siblings, e.g. the constraints.
+      SceneComponent parent = component.getParent();
+      Rectangle bounds = (parent != null ? parent : component).fillRect(null);
+      bounds.grow(DIRTY_REGION_MARGIN, DIRTY_REGION_MARGIN);
+      if (myDirtyRegion == null) {
+        myDirtyRegion = bounds;
+      }
+      else {
+        myDirtyRegion.add(bounds);
+      }
+    }
+  }
+
+  long getDisplayListFragmentsVersion() {
+    return myDisplayListFragmentsVersion;
   }
 
   //endregion
@@ -1159,7 +1259,11 @@ public class Scene implements SelectionListener, Disposable {
   }
 
   public void setFilterType(@NotNull FilterType filterType) {
-    myFilterType = filterType;
+    if (myFilterType != filterType) {
+      myFilterType = filterType;
+      // The filter decides which targets of all the components are drawn.
+      needsRebuildList();
+    }
   }
 
   @Nullable
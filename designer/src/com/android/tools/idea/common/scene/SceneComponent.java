@@ -39,6 +39,8 @@ import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -92,6 +94,40 @@ public class SceneComponent {
 
   @Nullable private Notch.Provider myNotchProvider = null;
 
+  /**
+   * Incremented whenever something drawn by this component or by one of its descendants changes, see
+   * {@link #invalidateDisplayListFragments()}.
+   */
+  private long myDisplayListFragmentVersion = 0;
+  /**
+   * The commands built by this component and its descendants for each {@link SceneContext}, reused by
+   * {@link #buildDisplayList(long, DisplayList, SceneContext)} until they are invalidated.
+   */
+  private final Map<SceneContext, DisplayListFragment> myDisplayListFragments = new WeakHashMap<>();
+
+  private static final class DisplayListFragment {
+    @NotNull private final DisplayList myList;
+    private final long mySceneVersion;
+    private final long myComponentVersion;
+    private final double myScale;
+    private final boolean myShowOnlySelection;
+
+    private DisplayListFragment(@NotNull DisplayList list, long sceneVersion, long componentVersion, @NotNull SceneContext sceneContext) {
+      myList = list;
+      mySceneVersion = sceneVersion;
+      myComponentVersion = componentVersion;
+      myScale = sceneContext.getScale();
+      myShowOnlySelection = sceneContext.showOnlySelection();
+    }
+
+    private boolean isValid(long sceneVersion, long componentVersion, @NotNull SceneContext sceneContext) {
+      return mySceneVersion == sceneVersion &&
+             myComponentVersion == componentVersion &&
+             myScale == sceneContext.getScale() &&
+             myShowOnlySelection == sceneContext.showOnlySelection();
+    }
+  }
+
   @AndroidDpCoordinate
   public int getCenterX() {
     return myCurrentLeft + (myCurrentRight - myCurrentLeft) / 2;
@@ -500,7 +536,10 @@ public class SceneComponent {
   }
 
   public void setToolLocked(boolean locked) {
-    myIsToolLocked = locked;
+    if (myIsToolLocked != locked) {
+      myIsToolLocked = locked;
+      invalidateDisplayListFragments();
+    }
   }
 
   public boolean isToolLocked() {
@@ -515,6 +554,7 @@ public class SceneComponent {
     }
     if (oldState != myDrawState) {
       DecoratorUtilities.setTimeChange(myNlComponent, DecoratorUtilities.VIEW, DecoratorUtilities.mapState(drawState));
+      myScene.needsRebuildList(this);
     }
   }
 
@@ -658,12 +698,14 @@ public class SceneComponent {
       myCachedTargetList = null;
       myTargets.add(target);
     }
+    invalidateDisplayListFragments();
   }
 
   public void addChild(@NotNull SceneComponent child) {
     child.removeFromParent();
     child.setParent(this);
     myChildren.add(child);
+    invalidateDisplayListFragments();
   }
 
   public void removeFromParent() {
@@ -676,6 +718,7 @@ public class SceneComponent {
   private void remove(@NotNull SceneComponent component) {
     if (myChildren.remove(component)) {
       component.myParent = null;
+      invalidateDisplayListFragments();
     }
   }
 
@@ -757,8 +800,33 @@ public class SceneComponent {
     }
   }
 
+  /**
+   * Adds the commands drawing this component and its descendants to the given {@link DisplayList}.
+   * <p>
+   * The commands are kept per {@link SceneContext} and reused for as long as neither this component nor any of its descendants
+   * has been invalidated and {@link Scene#needsRebuildList()} hasn't been called, so a hover or selection change only rebuilds the
+   * commands of the affected components and of their ancestors.
+   */
   public void buildDisplayList(long time, @NotNull DisplayList list, SceneContext sceneContext) {
-    myDecorator.buildList(list, time, sceneContext, this);
+    long sceneVersion = myScene.getDisplayListFragmentsVersion();
+    DisplayListFragment fragment = myDisplayListFragments.get(sceneContext);
+    if (fragment == null || !fragment.isValid(sceneVersion, myDisplayListFragmentVersion, sceneContext)) {
+      DisplayList fragmentList = new DisplayList();
+      myDecorator.buildList(fragmentList, time, sceneContext, this);
+      fragment = new DisplayListFragment(fragmentList, sceneVersion, myDisplayListFragmentVersion, sceneContext);
+      myDisplayListFragments.put(sceneContext, fragment);
+    }
+    list.addAll(fragment.myList);
+  }
+
+  /**
+   * Discards the retained display list commands of this component and of its ancestors, since their commands include the ones
+   * of this component.
+   */
+  void invalidateDisplayListFragments() {
+    for (SceneComponent component = this; component != null; component = component.myParent) {
+      component.myDisplayListFragmentVersion++;
+    }
   }
 
   //endregion
@@ -833,6 +901,7 @@ public class SceneComponent {
       myCachedTargetList = null;
       myTargets.clear();
     }
+    invalidateDisplayListFragments();
 
     // update the Targets created by parent's TargetProvider
     SceneComponent parent = myParent;
@@ -97,6 +97,14 @@ abstract public class SceneManager implements Disposable {
     return mySceneView;
   }
 
+  /**
+   * Returns all the {@link SceneView}s showing the {@link Scene} of this manager.
+   */
+  @NotNull
+  public ImmutableList<SceneView> getSceneViews() {
+    return ImmutableList.of(getSceneView());
+  }
+
   @NotNull
   public ImmutableList<Layer> getLayers() {
     return mySceneView.getLayers();
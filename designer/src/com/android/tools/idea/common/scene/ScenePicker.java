@@ -20,11 +20,22 @@ import java.util.function.Consumer;
 
 /**
  * This class provides efficient detection of many objects
+ * <p>
+ * Once enough objects have been added, {@link #find(int, int)} uses a uniform grid over the bounding rectangles of the objects, built
+ * on the first search after the objects change, so each search only tests the objects whose bounds overlap the cell of the point.
  */
 public class ScenePicker {
   private final static int MAX_DATA_SIZE = 10;
   private final static int INITAL_OBJECT_STORE = 30;
   private final static double EPSILON = 0.00001;
+  /** Below this number of objects, testing all of them is cheaper than building the grid. */
+  private final static int MIN_GRID_OBJECTS = 32;
+  /** Minimum size of a grid cell, in pixels. */
+  private final static int MIN_GRID_CELL_SIZE = 32;
+  /** Maximum number of grid cells along each axis. Larger areas use larger cells. */
+  private final static int MAX_GRID_CELLS = 128;
+  /** Objects spanning more cells than this are kept out of the grid and tested on every search. */
+  private final static int MAX_OBJECT_GRID_CELLS = 64;
   private double[] mObjectData = new double[100];
   private int mObjectDataUsed = 0;
   private int[] mObjectOffset = new int[INITAL_OBJECT_STORE];
@@ -34,6 +45,19 @@ public class ScenePicker {
   HitElementListener mHitElementListener;
 
   private int mObjectCount = 0;
+
+  // The grid: the objects overlapping cell c are mGridItems[mGridCellStart[c]] to mGridItems[mGridCellStart[c + 1] - 1], in the
+  // order they were added. mGridCellStart is null when the grid isn't used.
+  private int mGridObjectCount = -1;
+  private int mGridX;
+  private int mGridY;
+  private int mGridCellSize;
+  private int mGridColumns;
+  private int mGridRows;
+  private int[] mGridCellStart;
+  private int[] mGridItems;
+  private int[] mGridLargeObjects;
+  private int mGridLargeObjectCount;
   private final static int OBJECT_LINE = 0;
   private final static int OBJECT_POINT = 1;
   private final static int OBJECT_CURVE = 2;
@@ -70,19 +94,128 @@ public class ScenePicker {
    * @param y location y
    */
   public void find(int x, int y) {
+    if (mGridObjectCount != mObjectCount) {
+      buildGrid();
+    }
+    if (mGridCellStart == null) {
+      for (int i = 0; i < mObjectCount; i++) {
+        find(i, x, y);
+      }
+      return;
+    }
+
+    int start = 0;
+    int end = 0;
+    int column = Math.floorDiv(x - mGridX, mGridCellSize);
+    int row = Math.floorDiv(y - mGridY, mGridCellSize);
+    if (column >= 0 && column < mGridColumns && row >= 0 && row < mGridRows) {
+      int cell = row * mGridColumns + column;
+      start = mGridCellStart[cell];
+      end = mGridCellStart[cell + 1];
+    }
+    // Merge the objects of the cell with the large ones, so the listener is notified in the same order as without the grid.
+    int large = 0;
+    while (start < end || large < mGridLargeObjectCount) {
+      if (large == mGridLargeObjectCount || start < end && mGridItems[start] < mGridLargeObjects[large]) {
+        find(mGridItems[start++], x, y);
+      }
+      else {
+        find(mGridLargeObjects[large++], x, y);
+      }
+    }
+  }
+
+  private void find(int object, int x, int y) {
+    int p = object * 4;
+    int x1 = mRect[p++];
+    int y1 = mRect[p++];
+    int x2 = mRect[p++];
+    int y2 = mRect[p];
+    if (inRect(x, y, x1, y1, x2, y2)) {
+      SelectionEngine selector = myEngines[mTypes[object]];
+      if (selector.inRange(object, x, y)) {
+        mHitElementListener.over(mObjects[object], selector.distance());
+      }
+    }
+  }
+
+  /**
+   * Builds the grid used by {@link #find(int, int)} for the current objects.
+   */
+  private void buildGrid() {
+    mGridObjectCount = mObjectCount;
+    mGridCellStart = null;
+    mGridLargeObjectCount = 0;
+    if (mObjectCount < MIN_GRID_OBJECTS) {
+      return;
+    }
+
+    int minX = Integer.MAX_VALUE;
+    int minY = Integer.MAX_VALUE;
+    int maxX = Integer.MIN_VALUE;
+    int maxY = Integer.MIN_VALUE;
+    for (int i = 0; i < mObjectCount * 4; i += 4) {
+      minX = Math.min(minX, mRect[i]);
+      minY = Math.min(minY, mRect[i + 1]);
+      maxX = Math.max(maxX, mRect[i + 2]);
+      maxY = Math.max(maxY, mRect[i + 3]);
+    }
+    long width = (long)maxX - minX + 1;
+    long height = (long)maxY - minY + 1;
+    long cellSize = Math.max(MIN_GRID_CELL_SIZE, (Math.max(width, height) + MAX_GRID_CELLS - 1) / MAX_GRID_CELLS);
+    mGridX = minX;
+    mGridY = minY;
+    mGridCellSize = (int)Math.min(cellSize, Integer.MAX_VALUE);
+    mGridColumns = (int)((width + cellSize - 1) / cellSize);
+    mGridRows = (int)((height + cellSize - 1) / cellSize);
+
+    // Count the objects of each cell, then fill the cells in the order the objects were added.
+    int[] cellStart = new int[mGridColumns * mGridRows + 1];
+    if (mGridLargeObjects == null || mGridLargeObjects.length < mObjectCount) {
+      mGridLargeObjects = new int[mObjectCount];
+    }
+    for (int i = 0; i < mObjectCount; i++) {
+      if (isLargeGridObject(i)) {
+        mGridLargeObjects[mGridLargeObjectCount++] = i;
+        continue;
+      }
+      for (int row = gridRow(i, 1); row <= gridRow(i, 3); row++) {
+        for (int column = gridColumn(i, 0); column <= gridColumn(i, 2); column++) {
+          cellStart[row * mGridColumns + column + 1]++;
+        }
+      }
+    }
+    for (int cell = 1; cell < cellStart.length; cell++) {
+      cellStart[cell] += cellStart[cell - 1];
+    }
+    int[] items = new int[cellStart[cellStart.length - 1]];
+    int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
     for (int i = 0; i < mObjectCount; i++) {
-      int p = i * 4;
-      int x1 = mRect[p++];
-      int y1 = mRect[p++];
-      int x2 = mRect[p++];
-      int y2 = mRect[p];
-      if (inRect(x, y, x1, y1, x2, y2)) {
-        SelectionEngine selector = myEngines[mTypes[i]];
-        if (selector.inRange(i, x, y)) {
-          mHitElementListener.over(mObjects[i], selector.distance());
+      if (isLargeGridObject(i)) {
+        continue;
+      }
+      for (int row = gridRow(i, 1); row <= gridRow(i, 3); row++) {
+        for (int column = gridColumn(i, 0); column <= gridColumn(i, 2); column++) {
+          items[next[row * mGridColumns + column]++] = i;
         }
       }
     }
+    mGridCellStart = cellStart;
+    mGridItems = items;
+  }
+
+  private boolean isLargeGridObject(int object) {
+    long columns = gridColumn(object, 2) - gridColumn(object, 0) + 1;
+    long rows = gridRow(object, 3) - gridRow(object, 1) + 1;
+    return columns * rows > MAX_OBJECT_GRID_CELLS;
+  }
+
+  private int gridColumn(int object, int coordinate) {
+    return (int)(((long)mRect[object * 4 + coordinate] - mGridX) / mGridCellSize);
+  }
+
+  private int gridRow(int object, int coordinate) {
+    return (int)(((long)mRect[object * 4 + coordinate] - mGridY) / mGridCellSize);
   }
 
   /**
@@ -124,6 +257,7 @@ public class ScenePicker {
   public void reset() {
     mObjectCount = 0;
     mObjectDataUsed = 0;
+    mGridObjectCount = -1;
     Arrays.fill(mObjects, null);// delete references
   }
 
@@ -346,6 +346,13 @@ public class DisplayList {
     myCommands.add(cmd);
   }
 
+  /**
+   * Appends all the commands of the given list, which must not have any pending clip.
+   */
+  public void addAll(@NotNull DisplayList list) {
+    myCommands.addAll(list.myCommands);
+  }
+
   public void pushClip(@NotNull SceneContext context, @Nullable @AndroidDpCoordinate Rectangle r) {
     if (r == null) {
       myUnClipStack.add(new EmptyUNClip());
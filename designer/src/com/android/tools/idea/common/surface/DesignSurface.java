@@ -834,6 +834,15 @@ public abstract class DesignSurface extends EditorDesignSurface implements Dispo
     return myScrollPane.getViewport().getViewPosition();
   }
 
+  /**
+   * Returns the part of the surface that is currently visible in the scroll pane.
+   */
+  @SwingCoordinate
+  @NotNull
+  public Rectangle getViewRect() {
+    return myScrollPane.getViewport().getViewRect();
+  }
+
   /**
    * Set the scale factor used to multiply the content size.
    *
@@ -934,6 +943,15 @@ public abstract class DesignSurface extends EditorDesignSurface implements Dispo
     return myLayeredPane;
   }
 
+  /**
+   * Repaints only the given region of the surface contents.
+   *
+   * @param region the region to repaint, relative to {@link #getLayeredPane()}
+   */
+  public void repaintRegion(@SwingCoordinate @NotNull Rectangle region) {
+    myLayeredPane.repaint(region);
+  }
+
   @NotNull
   public DesignerAnalyticsManager getAnalyticsManager() {
     return myAnalyticsManager;
@@ -1239,6 +1257,11 @@ public abstract class DesignSurface extends EditorDesignSurface implements Dispo
       paintBackground(g2d, tlx, tly);
 
       Rectangle bounds = myScrollPane.getViewport().getViewRect();
+      // Keep the clip of partial repaints (see repaintRegion) so layers don't paint outside of it.
+      Rectangle clip = g2d.getClipBounds();
+      if (clip != null) {
+        bounds = bounds.intersection(clip);
+      }
       for (Layer layer : myLayers) {
         if (layer.isVisible()) {
           g2d.setClip(bounds);
@@ -685,8 +685,7 @@ public class ConstraintLayoutHandler extends ViewGroupHandler implements Compone
                         @InputEventMask int modifiers) {
       getAnalyticsManager(editor).trackInferConstraints();
       try {
-        Scout.inferConstraintsAndCommit(component);
-        ensureLayersAreShown(editor, 1000);
+        Scout.inferConstraintsAndCommitInBackground(component, () -> ensureLayersAreShown(editor, 1000));
       }
       catch (Exception e) {
         // TODO show dialog the inference failed
@@ -826,6 +826,7 @@ public class ConstraintAnchorTarget extends AnchorTarget {
           // Finish previous dragging setup.
           myIsDragging = false;
           DecoratorUtilities.setTryingToConnectState(myComponent.getAuthoritativeNlComponent(), myType, false);
+          myComponent.getScene().needsRebuildList();
 
           List<NlComponent> allItemsNlComponents =
             allItems.stream().map(item -> item.getAuthoritativeNlComponent()).collect(Collectors.toCollection(ArrayList::new));
@@ -834,6 +835,8 @@ public class ConstraintAnchorTarget extends AnchorTarget {
             public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
               super.popupMenuWillBecomeVisible(e);
               DecoratorUtilities.setTryingToConnectState(myComponent.getAuthoritativeNlComponent(), allItemsNlComponents, myType, true);
+              myComponent.getScene().needsRebuildList();
+              myComponent.getScene().repaint();
             }
 
             @Override
@@ -841,6 +844,8 @@ public class ConstraintAnchorTarget extends AnchorTarget {
               super.popupMenuWillBecomeInvisible(e);
               DecoratorUtilities.setTryingToConnectState(myComponent.getAuthoritativeNlComponent(), allItemsNlComponents, myType, false);
               myComponent.getScene().setFilterType(Scene.FilterType.NONE);
+              myComponent.getScene().needsRebuildList();
+              myComponent.getScene().repaint();
             }
           });
           if (menu.getComponentCount() > 0) {
@@ -882,6 +887,7 @@ public class ConstraintAnchorTarget extends AnchorTarget {
   public void mouseCancel() {
     super.mouseCancel();
     DecoratorUtilities.setTryingToConnectState(myComponent.getNlComponent(), myType, false);
+    myComponent.getScene().needsRebuildList();
     revertToPreviousState();
   }
 
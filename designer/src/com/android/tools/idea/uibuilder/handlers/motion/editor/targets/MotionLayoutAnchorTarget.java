@@ -963,6 +963,7 @@ public class MotionLayoutAnchorTarget extends AnchorTarget {
           // Finish previous dragging setup.
           myIsDragging = false;
           DecoratorUtilities.setTryingToConnectState(myComponent.getAuthoritativeNlComponent(), myType, false);
+          myComponent.getScene().needsRebuildList();
 
           List<NlComponent> allItemsNlComponents =
             allItems.stream().map(item -> item.getAuthoritativeNlComponent()).collect(Collectors.toCollection(ArrayList::new));
@@ -971,6 +972,8 @@ public class MotionLayoutAnchorTarget extends AnchorTarget {
             public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
               super.popupMenuWillBecomeVisible(e);
               DecoratorUtilities.setTryingToConnectState(myComponent.getAuthoritativeNlComponent(), allItemsNlComponents, myType, true);
+              myComponent.getScene().needsRebuildList();
+              myComponent.getScene().repaint();
             }
 
             @Override
@@ -978,6 +981,8 @@ public class MotionLayoutAnchorTarget extends AnchorTarget {
               super.popupMenuWillBecomeInvisible(e);
               DecoratorUtilities.setTryingToConnectState(myComponent.getAuthoritativeNlComponent(), allItemsNlComponents, myType, false);
               myComponent.getScene().setFilterType(Scene.FilterType.NONE);
+              myComponent.getScene().needsRebuildList();
+              myComponent.getScene().repaint();
             }
           });
           if (menu.getComponentCount() > 0) {
@@ -999,6 +1004,7 @@ public class MotionLayoutAnchorTarget extends AnchorTarget {
   public void mouseCancel() {
     super.mouseCancel();
     DecoratorUtilities.setTryingToConnectState(myComponent.getNlComponent(), myType, false);
+    myComponent.getScene().needsRebuildList();
     revertToPreviousState();
   }
 
@@ -152,11 +152,11 @@ public class Display3D extends JPanel {
       Arrays.fill(rgbData, 0xFF000000);
 
       if (mTriData.myTexture != null) {
-        Rasterize.toZBuff(myZBuffer, rgbData, w, h, myTransFormCache,
-                          mTriData.myTexture, mTriData.myTextureWidth, mTriData.myTextureHeight, myViewMatrix.m);
+        Rasterize.toZBuffTiled(myZBuffer, rgbData, w, h, myTransFormCache,
+                               mTriData.myTexture, mTriData.myTextureWidth, mTriData.myTextureHeight);
       }
       else { // run a simple render if no myTexture
-        Rasterize.simple(myZBuffer, rgbData, w, h, myTransFormCache);
+        Rasterize.toZBuffTiled(myZBuffer, rgbData, w, h, myTransFormCache, null, 0, 0);
       }
 
       isImageInvalid = false;
@@ -216,11 +216,11 @@ public class Display3D extends JPanel {
       Arrays.fill(rgbData, 0xFF000000);
 
       if (mTriData.myTexture != null) {
-        Rasterize.toZBuff(myZBuffer, rgbData, w, h, myTransFormCache,
-                          mTriData.myTexture, mTriData.myTextureWidth, mTriData.myTextureHeight, myViewMatrix.m);
+        Rasterize.toZBuffTiled(myZBuffer, rgbData, w, h, myTransFormCache,
+                               mTriData.myTexture, mTriData.myTextureWidth, mTriData.myTextureHeight);
       }
       else { // run a simple render if no myTexture
-        Rasterize.simple(myZBuffer, rgbData, w, h, myTransFormCache);
+        Rasterize.toZBuffTiled(myZBuffer, rgbData, w, h, myTransFormCache, null, 0, 0);
       }
 
       isImageInvalid = false;
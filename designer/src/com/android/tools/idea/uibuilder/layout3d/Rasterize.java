@@ -15,7 +15,15 @@
  */
 package com.android.tools.idea.uibuilder.layout3d;
 
+import com.google.common.util.concurrent.Futures;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This is a collection of code to rasterize code
@@ -1326,6 +1334,352 @@ public class Rasterize {
     }
   }
 
+  /**
+   * Images with fewer pixels than this are rendered by {@link #toZBuffTiled} on the calling thread.
+   */
+  static final int MIN_TILED_PIXELS = 512 * 512;
+
+  /**
+   * Width and height of the tiles rendered by {@link #toZBuffTiled}, small enough for the z-buffer and colors of a tile to stay in cache.
+   */
+  private static final int TILE_SIZE = 64;
+
+  /**
+   * Threads helping the calling thread render the tiles of {@link #toZBuffTiled}. They come from the application pool, so rendering
+   * doesn't compete with the other users of the common fork-join pool.
+   */
+  private static final int TILE_HELPER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+  private static final ExecutorService ourTileExecutor =
+    AppExecutorUtil.createBoundedApplicationPoolExecutor("Layout3D Rasterizer", TILE_HELPER_THREADS);
+
+  /**
+   * Per triangle values computed once by {@link #setup} and shared by all the tiles the triangle covers.
+   */
+  private static final class TriangleSetup {
+    // 28.4 fixed-point edge equations
+    int myDX12, myDX23, myDX31;
+    int myDY12, myDY23, myDY31;
+    int myC1, myC2, myC3;
+    // bounding box in pixels, clipped to the image
+    int myMinX, myMaxX, myMinY, myMaxY;
+    // z = myZOff + myDzDx * x + myDzDy * y
+    float myDzDx, myDzDy, myZOff;
+    boolean myTextured;
+    // texture coordinates, only set when myTextured
+    float myDtxDx, myDtxDy, myTxOff;
+    float myDtyDx, myDtyDy, myTyOff;
+    int myColor;
+    float myDiffuse;
+  }
+
+  /**
+   * Same as {@link #toZBuff(float[], int[], int, int, TriData, int[], int, int, double[])} (or {@link #simple} if {@code texture} is
+   * null), but for large images the screen is split in tiles rendered in parallel by the calling thread and a dedicated pool.
+   * <p>
+   * Each tile is rendered into its own small z-buffer and image, with the triangles overlapping it in their original order, and then
+   * copied back. Tiles never share pixels, so the result is the same as rendering on a single thread. Depth and texture coordinates are
+   * stepped incrementally along each span instead of being recomputed for every pixel.
+   *
+   * @param zbuff   used to provide the z-buffer
+   * @param rgb     the image is output here
+   * @param w       the width of the image
+   * @param h       the height of the image
+   * @param tri     the data set it contains triangles indexes etc
+   * @param texture the myTexture use to render the triangles with, or null for a simple flat render
+   * @param tWidth  the width of the myTexture
+   * @param tHeight the height of the myTexture
+   */
+  public static void toZBuffTiled(float[] zbuff, int[] rgb, int w, int h, TriData tri, int[] texture, int tWidth, int tHeight) {
+    if (w * h < MIN_TILED_PIXELS) {
+      if (texture != null) {
+        toZBuff(zbuff, rgb, w, h, tri, texture, tWidth, tHeight, null);
+      }
+      else {
+        simple(zbuff, rgb, w, h, tri);
+      }
+      return;
+    }
+
+    int count = tri.myIndex.length / 3;
+    TriangleSetup[] setups = new TriangleSetup[count];
+    for (int i = 0; i < count; i++) {
+      setups[i] = setup(tri, i, texture != null, w, h);
+    }
+
+    // Bin the triangles by the tiles their bounding box overlaps, keeping their order within each tile.
+    int columns = (w + TILE_SIZE - 1) / TILE_SIZE;
+    int rows = (h + TILE_SIZE - 1) / TILE_SIZE;
+    int[] tileStart = new int[columns * rows + 1];
+    for (TriangleSetup setup : setups) {
+      if (setup != null) {
+        for (int row = setup.myMinY / TILE_SIZE; row <= (setup.myMaxY - 1) / TILE_SIZE; row++) {
+          for (int column = setup.myMinX / TILE_SIZE; column <= (setup.myMaxX - 1) / TILE_SIZE; column++) {
+            tileStart[row * columns + column + 1]++;
+          }
+        }
+      }
+    }
+    for (int i = 1; i < tileStart.length; i++) {
+      tileStart[i] += tileStart[i - 1];
+    }
+    int[] tileItems = new int[tileStart[tileStart.length - 1]];
+    int[] tileFill = Arrays.copyOf(tileStart, tileStart.length - 1);
+    for (int i = 0; i < count; i++) {
+      TriangleSetup setup = setups[i];
+      if (setup != null) {
+        for (int row = setup.myMinY / TILE_SIZE; row <= (setup.myMaxY - 1) / TILE_SIZE; row++) {
+          for (int column = setup.myMinX / TILE_SIZE; column <= (setup.myMaxX - 1) / TILE_SIZE; column++) {
+            tileItems[tileFill[row * columns + column]++] = i;
+          }
+        }
+      }
+    }
+
+    // The calling thread and the helpers take rows of tiles until there are none left, each reusing the same tile buffers.
+    AtomicInteger nextRow = new AtomicInteger();
+    Runnable renderRows = () -> {
+      float[] tileZ = new float[TILE_SIZE * TILE_SIZE];
+      int[] tileRgb = new int[TILE_SIZE * TILE_SIZE];
+      for (int row = nextRow.getAndIncrement(); row < rows; row = nextRow.getAndIncrement()) {
+        renderTileRow(row, columns, tileStart, tileItems, setups, tileZ, tileRgb, zbuff, rgb, w, h, texture, tWidth, tHeight);
+      }
+    };
+    List<Future<?>> helpers = new ArrayList<>();
+    for (int i = 0; i < Math.min(TILE_HELPER_THREADS, rows - 1); i++) {
+      helpers.add(ourTileExecutor.submit(renderRows));
+    }
+    renderRows.run();
+    helpers.forEach(Futures::getUnchecked);
+  }
+
+  /**
+   * Renders the tiles of a row, using {@code tileZ} and {@code tileRgb} as the buffers of each tile.
+   */
+  private static void renderTileRow(int row, int columns, int[] tileStart, int[] tileItems, TriangleSetup[] setups,
+                                    float[] tileZ, int[] tileRgb, float[] zbuff, int[] rgb, int w, int h,
+                                    int[] texture, int tWidth, int tHeight) {
+    int tileY = row * TILE_SIZE;
+    int tileH = Math.min(TILE_SIZE, h - tileY);
+    for (int column = 0; column < columns; column++) {
+      int tile = row * columns + column;
+      if (tileStart[tile] == tileStart[tile + 1]) {
+        continue;
+      }
+      int tileX = column * TILE_SIZE;
+      int tileW = Math.min(TILE_SIZE, w - tileX);
+      for (int y = 0; y < tileH; y++) {
+        System.arraycopy(zbuff, (tileY + y) * w + tileX, tileZ, y * tileW, tileW);
+        System.arraycopy(rgb, (tileY + y) * w + tileX, tileRgb, y * tileW, tileW);
+      }
+      for (int i = tileStart[tile]; i < tileStart[tile + 1]; i++) {
+        renderTile(tileZ, tileRgb, tileX, tileY, tileW, tileH, setups[tileItems[i]], texture, tWidth, tHeight);
+      }
+      for (int y = 0; y < tileH; y++) {
+        System.arraycopy(tileZ, y * tileW, zbuff, (tileY + y) * w + tileX, tileW);
+        System.arraycopy(tileRgb, y * tileW, rgb, (tileY + y) * w + tileX, tileW);
+      }
+    }
+  }
+
+  /**
+   * Computes the values needed to render the triangle {@code index} of {@code tri} the same way {@link #render_perspectiveAffine} and
+   * {@link #flat} do.
+   *
+   * @return the setup of the triangle, or null if it is culled, degenerate or outside of the image
+   */
+  private static TriangleSetup setup(TriData tri, int index, boolean useTexture, int w, int h) {
+    int p1 = tri.myIndex[index * 3];
+    int p2 = tri.myIndex[index * 3 + 1];
+    int p3 = tri.myIndex[index * 3 + 2];
+    int type = (tri.mySurfaceType != null) ? tri.mySurfaceType[index] : 0;
+    boolean textured = useTexture && type == 1;
+
+    float fx1 = tri.myVert[p1], fy1 = tri.myVert[p1 + 1], fz1 = tri.myVert[p1 + 2];
+    float fx2 = tri.myVert[p2], fy2 = tri.myVert[p2 + 1], fz2 = tri.myVert[p2 + 2];
+    float fx3 = tri.myVert[p3], fy3 = tri.myVert[p3 + 1], fz3 = tri.myVert[p3 + 2];
+    float tx1 = 0, ty1 = 0, tx2 = 0, ty2 = 0, tx3 = 0, ty3 = 0;
+    if (textured) {
+      tx1 = tri.myTexture_uv[p1];
+      ty1 = tri.myTexture_uv[p1 + 1];
+      tx2 = tri.myTexture_uv[p2];
+      ty2 = tri.myTexture_uv[p2 + 1];
+      tx3 = tri.myTexture_uv[p3];
+      ty3 = tri.myTexture_uv[p3 + 1];
+    }
+
+    if (((fx1 - fx2) * (fy3 - fy2) - (fy1 - fy2) * (fx3 - fx2)) < 0) {
+      float tmp = fx1;
+      fx1 = fx2;
+      fx2 = tmp;
+      tmp = fy1;
+      fy1 = fy2;
+      fy2 = tmp;
+      tmp = fz1;
+      fz1 = fz2;
+      fz2 = tmp;
+      tmp = tx1;
+      tx1 = tx2;
+      tx2 = tmp;
+      tmp = ty1;
+      ty1 = ty2;
+      ty2 = tmp;
+    }
+    else if (textured) {
+      // render_perspectiveAffine only draws the triangles facing the viewer
+      return null;
+    }
+
+    double d = (fx1 * (fy3 - fy2) - fx2 * fy3 + fx3 * fy2 + (fx2 - fx3) * fy1);
+    if (d == 0) {
+      return null;
+    }
+
+    TriangleSetup setup = new TriangleSetup();
+    setup.myDzDx = (float)(-(fy1 * (fz3 - fz2) - fy2 * fz3 + fy3 * fz2 + (fy2 - fy3) * fz1) / d);
+    setup.myDzDy = (float)((fx1 * (fz3 - fz2) - fx2 * fz3 + fx3 * fz2 + (fx2 - fx3) * fz1) / d);
+    setup.myZOff = (float)((fx1 * (fy3 * fz2 - fy2 * fz3) + fy1 * (fx2 * fz3 - fx3 * fz2) + (fx3 * fy2 - fx2 * fy3) * fz1) / d);
+
+    float dx12 = fx1 - fx2;
+    float dy12 = fy1 - fy2;
+    float dz12 = fz1 - fz2;
+    float dx13 = fx1 - fx3;
+    float dy13 = fy1 - fy3;
+    float dz13 = fz1 - fz3;
+    float normal_x = dy12 * dz13 - dy13 * dz12; // cross
+    float normal_y = dz12 * dx13 - dz13 * dx12;
+    float normal_z = dx12 * dy13 - dx13 * dy12;
+    float norm = normal_x * normal_x + normal_y * normal_y + normal_z * normal_z;
+    normal_z /= Math.sqrt(norm);
+    float diffuse = -normal_z;
+    if (diffuse < 0) diffuse = 0;
+    setup.myDiffuse = (diffuse + 1) / 2;
+
+    setup.myTextured = textured;
+    if (textured) {
+      float dsx1 = fx1 - fx2, dsx2 = fx2 - fx3;
+      float dsy1 = fy1 - fy2, dsy2 = fy2 - fy3;
+      float dtx1 = tx1 - tx2, dtx2 = tx2 - tx3;
+      float dty1 = ty1 - ty2, dty2 = ty2 - ty3;
+      float delta = dsx1 * dsy2 - dsx2 * dsy1;
+      setup.myDtxDx = (dsy2 * dtx1 - dsy1 * dtx2) / delta;
+      setup.myDtxDy = (dsx1 * dtx2 - dsx2 * dtx1) / delta;
+      setup.myDtyDx = (dsy2 * dty1 - dsy1 * dty2) / delta;
+      setup.myDtyDy = (dsx1 * dty2 - dsx2 * dty1) / delta;
+      setup.myTxOff = tx1 - setup.myDtxDx * fx1 - setup.myDtxDy * fy1;
+      setup.myTyOff = ty1 - setup.myDtyDx * fx1 - setup.myDtyDy * fy1;
+    }
+    else {
+      setup.myColor = (type == 0) ? BLUE : GRAY;
+    }
+
+    // 28.4 fixed-point coordinates
+
+    int Y1 = (int)(16.0f * fy1 + .5f);
+    int Y2 = (int)(16.0f * fy2 + .5f);
+    int Y3 = (int)(16.0f * fy3 + .5f);
+
+    int X1 = (int)(16.0f * fx1 + .5f);
+    int X2 = (int)(16.0f * fx2 + .5f);
+    int X3 = (int)(16.0f * fx3 + .5f);
+
+    setup.myDX12 = X1 - X2;
+    setup.myDX23 = X2 - X3;
+    setup.myDX31 = X3 - X1;
+
+    setup.myDY12 = Y1 - Y2;
+    setup.myDY23 = Y2 - Y3;
+    setup.myDY31 = Y3 - Y1;
+
+    setup.myMinX = Math.max((min(X1, X2, X3) + 0xF) >> 4, 0);
+    setup.myMaxX = Math.min((max(X1, X2, X3) + 0xF) >> 4, w);
+    setup.myMinY = Math.max((min(Y1, Y2, Y3) + 0xF) >> 4, 0);
+    setup.myMaxY = Math.min((max(Y1, Y2, Y3) + 0xF) >> 4, h);
+    if (setup.myMinX >= setup.myMaxX || setup.myMinY >= setup.myMaxY) {
+      return null;
+    }
+
+    setup.myC1 = setup.myDY12 * X1 - setup.myDX12 * Y1;
+    setup.myC2 = setup.myDY23 * X2 - setup.myDX23 * Y2;
+    setup.myC3 = setup.myDY31 * X3 - setup.myDX31 * Y3;
+
+    if (setup.myDY12 < 0 || (setup.myDY12 == 0 && setup.myDX12 > 0)) {
+      setup.myC1++;
+    }
+    if (setup.myDY23 < 0 || (setup.myDY23 == 0 && setup.myDX23 > 0)) {
+      setup.myC2++;
+    }
+    if (setup.myDY31 < 0 || (setup.myDY31 == 0 && setup.myDX31 > 0)) {
+      setup.myC3++;
+    }
+    return setup;
+  }
+
+  /**
+   * Renders the part of a triangle inside a tile into the z-buffer and image of the tile, whose rows are {@code tileW} pixels long.
+   */
+  private static void renderTile(float[] tileZ, int[] tileRgb, int tileX, int tileY, int tileW, int tileH,
+                                 TriangleSetup setup, int[] texture, int tWidth, int tHeight) {
+    int minx = Math.max(setup.myMinX, tileX);
+    int maxx = Math.min(setup.myMaxX, tileX + tileW);
+    int miny = Math.max(setup.myMinY, tileY);
+    int maxy = Math.min(setup.myMaxY, tileY + tileH);
+    if (minx >= maxx || miny >= maxy) {
+      return;
+    }
+
+    int FDX12 = setup.myDX12 << 4;
+    int FDX23 = setup.myDX23 << 4;
+    int FDX31 = setup.myDX31 << 4;
+
+    int FDY12 = setup.myDY12 << 4;
+    int FDY23 = setup.myDY23 << 4;
+    int FDY31 = setup.myDY31 << 4;
+
+    int CY1 = setup.myC1 + setup.myDX12 * (miny << 4) - setup.myDY12 * (minx << 4);
+    int CY2 = setup.myC2 + setup.myDX23 * (miny << 4) - setup.myDY23 * (minx << 4);
+    int CY3 = setup.myC3 + setup.myDX31 * (miny << 4) - setup.myDY31 * (minx << 4);
+
+    float dx = setup.myDzDx;
+    float dtx = setup.myDtxDx;
+    float dty = setup.myDtyDx;
+    int color = shade(setup.myColor, setup.myDiffuse);
+    int off = (miny - tileY) * tileW - tileX;
+    for (int y = miny; y < maxy; y++) {
+      int CX1 = CY1;
+      int CX2 = CY2;
+      int CX3 = CY3;
+      // Values at the start of the span, stepped along it instead of being recomputed for every pixel
+      float zval = setup.myZOff + setup.myDzDy * y + dx * minx;
+      float tx = setup.myTxOff + setup.myDtxDy * y + dtx * minx;
+      float ty = setup.myTyOff + setup.myDtyDy * y + dty * minx;
+      for (int x = minx; x < maxx; x++) {
+        if (CX1 > 0 && CX2 > 0 && CX3 > 0) {
+          int point = x + off;
+          if (tileZ[point] > zval) {
+            tileZ[point] = zval;
+            if (setup.myTextured) {
+              int texel = clamp((int)tx, tWidth - 1) + clamp((int)ty, tHeight - 1) * tWidth;
+              tileRgb[point] = shade(texture[texel], setup.myDiffuse);
+            }
+            else {
+              tileRgb[point] = color;
+            }
+          }
+        }
+        CX1 -= FDY12;
+        CX2 -= FDY23;
+        CX3 -= FDY31;
+        zval += dx;
+        tx += dtx;
+        ty += dty;
+      }
+      CY1 += FDX12;
+      CY2 += FDX23;
+      CY3 += FDX31;
+      off += tileW;
+    }
+  }
+
   /**
    * debugging support code
    */
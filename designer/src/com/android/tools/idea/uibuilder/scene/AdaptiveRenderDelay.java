@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.uibuilder.scene;
+
+import com.google.common.collect.EvictingQueue;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Computes how long {@link LayoutlibSceneManager} waits for more render requests before rendering, from the duration of the recent
+ * renders.
+ * <p>
+ * When renders are fast, requests are served almost immediately. When they are slow, waiting a fraction of a render for more requests
+ * (e.g. the next keystroke while typing) costs little and saves starting renders that would be obsolete before they finish.
+ */
+class AdaptiveRenderDelay {
+  /**
+   * Number of recent renders used to compute the delay.
+   */
+  private static final int RENDER_HISTORY_SIZE = 10;
+
+  private final int myMinDelayMs;
+  private final int myMaxDelayMs;
+  @GuardedBy("this")
+  private final EvictingQueue<Long> myRenderTimesMs = EvictingQueue.create(RENDER_HISTORY_SIZE);
+  @GuardedBy("this")
+  private long myTotalRenderTimeMs;
+
+  /**
+   * @param minDelayMs the delay used when renders are fast, or before any render has finished
+   * @param maxDelayMs the maximum delay, regardless of how slow renders are
+   */
+  AdaptiveRenderDelay(int minDelayMs, int maxDelayMs) {
+    myMinDelayMs = minDelayMs;
+    myMaxDelayMs = maxDelayMs;
+  }
+
+  synchronized void recordRender(long renderTimeMs) {
+    if (myRenderTimesMs.remainingCapacity() == 0) {
+      myTotalRenderTimeMs -= myRenderTimesMs.peek();
+    }
+    myRenderTimesMs.add(renderTimeMs);
+    myTotalRenderTimeMs += renderTimeMs;
+  }
+
+  /**
+   * Returns the delay to wait for more requests before rendering: half of the average duration of the recent renders, within the
+   * minimum and maximum delays.
+   */
+  synchronized int getDelayMs() {
+    if (myRenderTimesMs.isEmpty()) {
+      return myMinDelayMs;
+    }
+    long delayMs = myTotalRenderTimeMs / myRenderTimesMs.size() / 2;
+    return (int)Math.max(myMinDelayMs, Math.min(myMaxDelayMs, delayMs));
+  }
+}
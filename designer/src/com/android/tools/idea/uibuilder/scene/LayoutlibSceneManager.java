@@ -71,12 +71,14 @@ import com.android.tools.idea.uibuilder.type.MenuFileType;
 import com.android.tools.idea.util.ListenerCollection;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 import com.google.wireless.android.sdk.stats.LayoutEditorRenderResult;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.util.ProgressIndicatorBase;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.xml.XmlTag;
@@ -88,12 +90,14 @@ import com.intellij.util.ui.UIUtil;
 import com.intellij.util.ui.update.MergingUpdateQueue;
 import com.intellij.util.ui.update.Update;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
@@ -102,6 +106,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -135,6 +140,11 @@ public class LayoutlibSceneManager extends SceneManager {
   @GuardedBy("myRenderingQueueLock")
   private MergingUpdateQueue myRenderingQueue;
   private static final int RENDER_DELAY_MS = 10;
+  private static final int MAX_RENDER_DELAY_MS = 200;
+  /**
+   * Delay of {@link #myRenderingQueue}, adjusted after every render.
+   */
+  private final AdaptiveRenderDelay myRenderDelay = new AdaptiveRenderDelay(RENDER_DELAY_MS, MAX_RENDER_DELAY_MS);
   private RenderTask myRenderTask;
   // Protects all accesses to the myRenderTask reference. RenderTask calls to render and layout do not need to be protected
   // since RenderTask is able to handle those safely.
@@ -152,7 +162,19 @@ public class LayoutlibSceneManager extends SceneManager {
   @AndroidCoordinate private static final int VISUAL_EMPTY_COMPONENT_SIZE = 1;
   private long myElapsedFrameTimeMs = -1;
   private final LinkedList<CompletableFuture<Void>> myRenderFutures = new LinkedList<>();
+  /**
+   * Time of the oldest request in {@link #myRenderFutures}, used to measure the render latency.
+   */
+  @GuardedBy("myRenderFutures")
+  private long myOldestRenderRequestTimeMs = -1;
   private final Semaphore myUpdateHierarchyLock = new Semaphore(1);
+  private final Object myHierarchyChangesLock = new Object();
+  /**
+   * Components whose bounds were changed by the hierarchy updates that have not been applied to the {@link Scene} yet, or null if the
+   * hierarchy was rebuilt and the whole {@link Scene} needs to be updated.
+   */
+  @GuardedBy("myHierarchyChangesLock")
+  @Nullable private Set<NlComponent> myHierarchyChanges = null;
   @NotNull private final ViewEditor myViewEditor;
   private final ListenerCollection<RenderListener> myRenderListeners = ListenerCollection.createWithDirectExecutor();
   /**
@@ -177,6 +199,26 @@ public class LayoutlibSceneManager extends SceneManager {
    */
   private boolean useShrinkRendering = false;
 
+  /**
+   * Priority of the renders of this LayoutlibSceneManager relative to the other renders queued in {@link RenderService}
+   */
+  @NotNull private RenderService.RenderingPriority myRenderingPriority = RenderService.RenderingPriority.HIGH;
+
+  /**
+   * Scale of the preview render, see {@link #setPreviewRenderScale(float)}.
+   */
+  private float myPreviewRenderScale = 1f;
+
+  /**
+   * When true, the next render is a downscaled preview render.
+   */
+  private final AtomicBoolean myNeedsPreviewRender = new AtomicBoolean(false);
+
+  /**
+   * True if the current render result comes from a preview render, and a full render is needed to refine it.
+   */
+  private volatile boolean myIsShowingPreview = false;
+
   /**
    * When true, this will force the current {@link RenderTask} to be disposed and re-created on the next render. This will also
    * re-inflate the model.
@@ -397,11 +439,74 @@ public class LayoutlibSceneManager extends SceneManager {
     return builder.build();
   }
 
+  @NotNull
+  @Override
+  public ImmutableList<SceneView> getSceneViews() {
+    return mySecondarySceneView != null ? ImmutableList.of(getSceneView(), mySecondarySceneView) : super.getSceneViews();
+  }
+
   @Nullable
   public SceneView getSecondarySceneView() {
     return mySecondarySceneView;
   }
 
+  @Override
+  public void update() {
+    synchronized (myHierarchyChangesLock) {
+      myHierarchyChanges = new HashSet<>();
+    }
+    super.update();
+  }
+
+  /**
+   * Applies the pending hierarchy changes to the {@link Scene}. Only the {@link SceneComponent}s of the components whose bounds changed
+   * are updated, unless the hierarchy was rebuilt since the last {@link #update()} or one of them has no {@link SceneComponent} yet.
+   */
+  @VisibleForTesting
+  void updateFromHierarchyChanges() {
+    Set<NlComponent> changedComponents;
+    synchronized (myHierarchyChangesLock) {
+      changedComponents = myHierarchyChanges;
+      myHierarchyChanges = changedComponents != null ? new HashSet<>() : null;
+    }
+    if (changedComponents == null) {
+      update();
+      return;
+    }
+
+    Scene scene = getScene();
+    for (NlComponent component : changedComponents) {
+      SceneComponent sceneComponent = scene.getSceneComponent(component);
+      if (sceneComponent == null) {
+        update();
+        return;
+      }
+    }
+    for (NlComponent component : changedComponents) {
+      SceneComponent sceneComponent = scene.getSceneComponent(component);
+      updateFromComponent(sceneComponent);
+      postUpdateFromComponent(sceneComponent);
+      scene.needsRebuildList(sceneComponent);
+    }
+  }
+
+  /**
+   * Records the result of a hierarchy update, to be applied to the {@link Scene} by {@link #updateFromHierarchyChanges()}.
+   *
+   * @param changedComponents the components whose bounds changed, or null if the hierarchy was rebuilt
+   */
+  @VisibleForTesting
+  void addHierarchyChanges(@Nullable List<NlComponent> changedComponents) {
+    synchronized (myHierarchyChangesLock) {
+      if (changedComponents == null) {
+        myHierarchyChanges = null;
+      }
+      else if (myHierarchyChanges != null) {
+        myHierarchyChanges.addAll(changedComponents);
+      }
+    }
+  }
+
   @Override
   protected void updateFromComponent(SceneComponent sceneComponent) {
     super.updateFromComponent(sceneComponent);
@@ -477,7 +582,7 @@ public class LayoutlibSceneManager extends SceneManager {
         if (!Disposer.isDisposed(LayoutlibSceneManager.this)) {
           boolean previous = getScene().isAnimated();
           getScene().setAnimated(animate);
-          update();
+          updateFromHierarchyChanges();
           getScene().setAnimated(previous);
         }
       });
@@ -532,6 +637,9 @@ public class LayoutlibSceneManager extends SceneManager {
   private CompletableFuture<Void> requestRender(@Nullable LayoutEditorRenderResult.Trigger trigger) {
     CompletableFuture<Void> callback = new CompletableFuture<>();
     synchronized (myRenderFutures) {
+      if (myRenderFutures.isEmpty()) {
+        myOldestRenderRequestTimeMs = System.currentTimeMillis();
+      }
       myRenderFutures.add(callback);
     }
 
@@ -679,6 +787,28 @@ public class LayoutlibSceneManager extends SceneManager {
     useShrinkRendering = enabled;
   }
 
+  public void setRenderingPriority(@NotNull RenderService.RenderingPriority priority) {
+    myRenderingPriority = priority;
+  }
+
+  /**
+   * If {@code scale} is less than 1, the first render of the model is drawn into an image scaled down by {@code scale}, which is much
+   * faster for large devices. The following renders, requested for example with {@link #requestRender()}, are full renders.
+   *
+   * @see #isShowingPreview()
+   */
+  public void setPreviewRenderScale(float scale) {
+    myPreviewRenderScale = scale;
+    myNeedsPreviewRender.set(scale < 1f);
+  }
+
+  /**
+   * Returns true if the current render result comes from a downscaled preview render. See {@link #setPreviewRenderScale(float)}.
+   */
+  public boolean isShowingPreview() {
+    return myIsShowingPreview;
+  }
+
   @Override
   @NotNull
   public CompletableFuture<Void> requestLayout(boolean animate) {
@@ -756,12 +886,14 @@ public class LayoutlibSceneManager extends SceneManager {
     try {
       myUpdateHierarchyLock.acquire();
       try {
+        List<NlComponent> changedComponents;
         if (result == null || !result.getRenderResult().isSuccess()) {
-          updateHierarchy(Collections.emptyList(), getModel());
+          changedComponents = updateHierarchy(Collections.emptyList(), getModel());
         }
         else {
-          updateHierarchy(getRootViews(result), getModel());
+          changedComponents = updateHierarchy(getRootViews(result), getModel());
         }
+        addHierarchyChanges(changedComponents);
       } finally {
         myUpdateHierarchyLock.release();
       }
@@ -776,18 +908,38 @@ public class LayoutlibSceneManager extends SceneManager {
     return getModel().getType() == MenuFileType.INSTANCE ? result.getSystemRootViews() : result.getRootViews();
   }
 
+  /**
+   * Updates the components of {@code model} from the result of a render.
+   * <p>
+   * When the render comes from the same inflation as the components (as after a layout pass or a render that didn't re-inflate the
+   * model), the components are matched to the {@link ViewInfo}s by their {@link TagSnapshot} cookies and only their bounds are updated.
+   * Otherwise the component hierarchy is rebuilt with {@link NlModel#syncWithPsi}.
+   *
+   * @return the components whose bounds changed, or null if the hierarchy was rebuilt
+   */
   @VisibleForTesting
-  public static void updateHierarchy(@NotNull XmlTag rootTag, @NotNull List<ViewInfo> rootViews, @NotNull NlModel model) {
+  @Nullable
+  public static List<NlComponent> updateHierarchy(@NotNull XmlTag rootTag, @NotNull List<ViewInfo> rootViews, @NotNull NlModel model) {
+    List<NlComponent> changedComponents = updateBoundsIncrementally(rootTag, rootViews, model);
+    if (changedComponents != null) {
+      return changedComponents;
+    }
     model.syncWithPsi(rootTag, rootViews.stream().map(ViewInfoTagSnapshotNode::new).collect(Collectors.toList()));
     updateBounds(rootViews, model);
+    return null;
   }
 
+  /**
+   * @see #updateHierarchy(XmlTag, List, NlModel)
+   */
   @VisibleForTesting
-  public static void updateHierarchy(@NotNull List<ViewInfo> rootViews, @NotNull NlModel model) {
+  @Nullable
+  public static List<NlComponent> updateHierarchy(@NotNull List<ViewInfo> rootViews, @NotNull NlModel model) {
     XmlTag root = getRootTag(model);
     if (root != null) {
-      updateHierarchy(root, rootViews, model);
+      return updateHierarchy(root, rootViews, model);
     }
+    return null;
   }
 
   // Get the root tag of the xml file associated with the specified model.
@@ -943,6 +1095,8 @@ public class LayoutlibSceneManager extends SceneManager {
       taskBuilder.disableToolsAttributes();
     }
 
+    taskBuilder.withPriority(myRenderingPriority);
+
     return taskBuilder;
   }
 
@@ -1003,11 +1157,17 @@ public class LayoutlibSceneManager extends SceneManager {
       logConfigurationChange(surface);
       getModel().resetLastChange();
 
+      BooleanSupplier isSuperseded = createSupersededCheck();
       long renderStartTimeMs = System.currentTimeMillis();
-      return renderImpl(trigger)
+      return renderImpl(trigger, isSuperseded)
         .thenApply(result -> {
           if (result == null) {
-            completeRender();
+            if (isSuperseded.getAsBoolean()) {
+              supersedeRender(trigger);
+            }
+            else {
+              completeRender();
+            }
             return null;
           }
 
@@ -1026,6 +1186,8 @@ public class LayoutlibSceneManager extends SceneManager {
           }
           try {
             long renderTimeMs = System.currentTimeMillis() - renderStartTimeMs;
+            myRenderDelay.recordRender(renderTimeMs);
+            getRenderingQueue().setMergingTimeSpan(myRenderDelay.getDelayMs());
             NlDiagnosticsManager.getWriteInstance(surface).recordRender(renderTimeMs,
                                                                         myRenderResult.getRenderedImage().getWidth() * myRenderResult.getRenderedImage().getHeight() * 4);
           }
@@ -1054,22 +1216,50 @@ public class LayoutlibSceneManager extends SceneManager {
     return CompletableFuture.completedFuture(null);
   }
 
+  /**
+   * Returns whether a render started now has been superseded by a model change. The change re-inflates and renders the model again, so
+   * there is no point in finishing the render.
+   */
+  @VisibleForTesting
+  @NotNull
+  protected BooleanSupplier createSupersededCheck() {
+    long modificationCount = getModel().getModificationCount();
+    return () -> getModel().getModificationCount() != modificationCount;
+  }
+
   /**
    * Completes all the futures created by {@link #requestRender()} and signals the current render as finished by
    * setting {@link #myIsCurrentlyRendering} to false.
    */
   private void completeRender() {
     ImmutableList<CompletableFuture<Void>> callbacks;
+    long oldestRequestTimeMs;
     synchronized (myRenderFutures) {
       callbacks = ImmutableList.copyOf(myRenderFutures);
       myRenderFutures.clear();
+      oldestRequestTimeMs = myOldestRenderRequestTimeMs;
+      myOldestRenderRequestTimeMs = -1;
+    }
+    if (oldestRequestTimeMs != -1) {
+      NlDiagnosticsManager.getWriteInstance(getDesignSurface()).recordRenderLatency(System.currentTimeMillis() - oldestRequestTimeMs);
     }
     callbacks.forEach(callback -> callback.complete(null));
     myIsCurrentlyRendering.set(false);
   }
 
+  /**
+   * Signals the current render as abandoned because the model changed while it was running. Unlike {@link #completeRender()}, the
+   * futures created by {@link #requestRender()} are only completed by the render of the new model, which is requested right away.
+   */
+  private void supersedeRender(@Nullable LayoutEditorRenderResult.Trigger trigger) {
+    NlDiagnosticsManager.getWriteInstance(getDesignSurface()).recordSupersededRender();
+    myIsCurrentlyRendering.set(false);
+    requestRender(trigger);
+  }
+
   @NotNull
-  private CompletableFuture<RenderResult> renderImpl(@Nullable LayoutEditorRenderResult.Trigger trigger) {
+  private CompletableFuture<RenderResult> renderImpl(@Nullable LayoutEditorRenderResult.Trigger trigger,
+                                                     @NotNull BooleanSupplier isSuperseded) {
     return inflate(myForceInflate.getAndSet(false))
       .whenCompleteAsync((result, ex) -> {
         if (ex != null) {
@@ -1091,7 +1281,14 @@ public class LayoutlibSceneManager extends SceneManager {
           if (elapsedFrameTimeMs != -1) {
             myRenderTask.setElapsedFrameTimeNanos(TimeUnit.MILLISECONDS.toNanos(elapsedFrameTimeMs));
           }
-          return myRenderTask.render().thenApply(result -> {
+          boolean isPreview = myNeedsPreviewRender.getAndSet(false);
+          CompletableFuture<RenderResult> renderFuture = isPreview
+                                                         ? myRenderTask.renderDownscaled(myPreviewRenderScale, isSuperseded)
+                                                         : myRenderTask.render(isSuperseded);
+          return renderFuture.thenApply(result -> {
+            if (result != null) {
+              myIsShowingPreview = isPreview;
+            }
             // When the layout was inflated in this same call, we do not have to update the hierarchy again
             if (result != null && !inflated) {
               updateHierarchy(result);
@@ -1178,6 +1375,138 @@ public class LayoutlibSceneManager extends SceneManager {
     NlComponentHelperKt.setViewInfo(component, null);
   }
 
+  /**
+   * Updates the bounds of the components of {@code model} without rebuilding the hierarchy, if every {@link TagSnapshot} cookie of
+   * {@code rootViews} is the snapshot of a component and the components still mirror the tags of the file.
+   *
+   * @return the components whose bounds changed, or null if the hierarchy needs to be rebuilt
+   */
+  @Nullable
+  private static List<NlComponent> updateBoundsIncrementally(@NotNull XmlTag rootTag,
+                                                             @NotNull List<ViewInfo> rootViews,
+                                                             @NotNull NlModel model) {
+    ImmutableList<NlComponent> components = model.getComponents();
+    if (rootViews.isEmpty() || components.size() != 1 || components.get(0).getTagDeprecated() != rootTag) {
+      return null;
+    }
+    NlComponent root = components.get(0);
+    Boolean matchesPsi = ApplicationManager.getApplication().runReadAction((Computable<Boolean>)() -> matchesTags(root));
+    if (!matchesPsi) {
+      return null;
+    }
+
+    Map<TagSnapshot, NlComponent> snapshotToComponent = Maps.newIdentityHashMap();
+    model.flattenComponents().forEach(component -> {
+      if (component.getSnapshot() != null) {
+        snapshotToComponent.put(component.getSnapshot(), component);
+      }
+    });
+    Map<NlComponent, Rectangle> newBounds = Maps.newIdentityHashMap();
+    Map<NlComponent, ViewInfo> newViewInfos = Maps.newIdentityHashMap();
+    for (ViewInfo view : rootViews) {
+      if (!collectBounds(view, 0, 0, snapshotToComponent, newBounds, newViewInfos)) {
+        return null;
+      }
+    }
+    if (newBounds.size() != snapshotToComponent.size()) {
+      // Some components are not in the render anymore
+      return null;
+    }
+
+    // Components without a ViewInfo get their bounds from their parent or children in fixBounds, so recompute them too.
+    Map<NlComponent, Rectangle> oldBounds = Maps.newIdentityHashMap();
+    List<NlComponent> changedComponents = new ArrayList<>();
+    model.flattenComponents().forEach(component -> {
+      NlComponentHelperKt.setViewInfo(component, newViewInfos.get(component));
+      Rectangle bounds = newBounds.get(component);
+      if (bounds == null) {
+        oldBounds.put(component, getBounds(component));
+        clearDerivedData(component);
+      }
+      else if (!bounds.equals(getBounds(component))) {
+        NlComponentHelperKt.setBounds(component, bounds.x, bounds.y, bounds.width, bounds.height);
+        changedComponents.add(component);
+      }
+    });
+    if (!oldBounds.isEmpty()) {
+      fixBounds(root);
+      oldBounds.forEach((component, bounds) -> {
+        if (!bounds.equals(getBounds(component))) {
+          changedComponents.add(component);
+        }
+      });
+    }
+    return changedComponents;
+  }
+
+  /**
+   * Returns whether the children of {@code component} and of its descendants are the components of the current sub tags of their tags.
+   */
+  private static boolean matchesTags(@NotNull NlComponent component) {
+    XmlTag tag = component.getTagDeprecated();
+    if (!tag.isValid()) {
+      return false;
+    }
+    XmlTag[] subTags = tag.getSubTags();
+    List<NlComponent> children = component.getChildren();
+    if (subTags.length != children.size()) {
+      return false;
+    }
+    for (int i = 0; i < subTags.length; i++) {
+      NlComponent child = children.get(i);
+      if (child.getTagDeprecated() != subTags[i] || !matchesTags(child)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes the bounds of the components of {@code view} and of its descendants the same way
+   * {@link #updateBounds(ViewInfo, int, int, Map, Map)} does.
+   *
+   * @return false if a {@link TagSnapshot} cookie doesn't belong to any component
+   */
+  private static boolean collectBounds(@NotNull ViewInfo view,
+                                       @AndroidCoordinate int parentX,
+                                       @AndroidCoordinate int parentY,
+                                       @NotNull Map<TagSnapshot, NlComponent> snapshotToComponent,
+                                       @NotNull Map<NlComponent, Rectangle> newBounds,
+                                       @NotNull Map<NlComponent, ViewInfo> newViewInfos) {
+    ViewInfo bounds = RenderService.getSafeBounds(view);
+    Object cookie = view.getCookie();
+    if (cookie instanceof TagSnapshot) {
+      TagSnapshot snapshot = (TagSnapshot)cookie;
+      NlComponent component = snapshotToComponent.get(snapshot);
+      if (component == null || component.getTagDeprecated() != snapshot.tag) {
+        return false;
+      }
+      if (!newViewInfos.containsKey(component)) {
+        newViewInfos.put(component, view);
+        int width = bounds.getRight() - bounds.getLeft();
+        int height = bounds.getBottom() - bounds.getTop();
+        newBounds.put(component, new Rectangle(parentX + bounds.getLeft(), parentY + bounds.getTop(),
+                                               Math.max(width, VISUAL_EMPTY_COMPONENT_SIZE),
+                                               Math.max(height, VISUAL_EMPTY_COMPONENT_SIZE)));
+      }
+    }
+    parentX += bounds.getLeft();
+    parentY += bounds.getTop();
+
+    for (ViewInfo child : view.getChildren()) {
+      if (!collectBounds(child, parentX, parentY, snapshotToComponent, newBounds, newViewInfos)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @NotNull
+  private static Rectangle getBounds(@NotNull NlComponent component) {
+    return new Rectangle(NlComponentHelperKt.getX(component), NlComponentHelperKt.getY(component),
+                         NlComponentHelperKt.getW(component), NlComponentHelperKt.getH(component));
+  }
+
   // TODO: we shouldn't be going back in and modifying NlComponents here
   private static void updateBounds(@NotNull List<ViewInfo> rootViews, @NotNull NlModel model) {
     model.flattenComponents().forEach(LayoutlibSceneManager::clearDerivedData);
@@ -17,8 +17,13 @@ package com.android.tools.idea.uibuilder.scout;
 
 import com.android.tools.idea.common.command.NlWriteCommandActionUtil;
 import com.android.tools.idea.common.model.NlComponent;
+import com.android.tools.idea.common.model.NlModel;
 import com.android.tools.idea.common.scene.target.AnchorTarget;
 import com.android.tools.idea.uibuilder.handlers.constraint.ConstraintComponentUtilities;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.util.Disposer;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
@@ -250,6 +255,61 @@ public class Scout {
    * @param rejectOverlaps if true will not infer if views overlap
    */
   private static void inferConstraints(NlComponent root, boolean rejectOverlaps, boolean fromConvert) {
+    List<LayoutInference> inferences = new ArrayList<>();
+    collectInferences(root, rejectOverlaps, fromConvert, inferences);
+    for (LayoutInference inference : inferences) {
+      inference.myProbabilities.computeTables();
+      inference.apply();
+    }
+  }
+
+  /**
+   * The widgets of a ConstraintLayout and the inference tables computed for them.
+   */
+  private static final class LayoutInference {
+    private final ScoutWidget[] myWidgets;
+    private final boolean myFromConvert;
+    private final ScoutProbabilities myProbabilities = new ScoutProbabilities();
+
+    private LayoutInference(ScoutWidget[] widgets, boolean fromConvert) {
+      myWidgets = widgets;
+      myFromConvert = fromConvert;
+      myProbabilities.prepare(widgets);
+    }
+
+    /**
+     * Returns true if the layout still has the children the tables were computed for.
+     */
+    private boolean isValid() {
+      List<NlComponent> children = myWidgets[0].mNlComponent.getChildren();
+      if (children.size() != myWidgets.length - 1) {
+        return false;
+      }
+      for (int i = 1; i < myWidgets.length; i++) {
+        if (children.get(i - 1) != myWidgets[i].mNlComponent) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Applies the constraints of the computed tables to the widgets.
+     */
+    private void apply() {
+      myProbabilities.applyConstraints(myWidgets);
+      if (myFromConvert) {
+        postInferCleanupFromConvert(myWidgets);
+      }
+    }
+  }
+
+  /**
+   * Collects the layouts whose constraints are inferred starting from {@code root}, nested ConstraintLayouts first. Reading the
+   * widgets is done here, so the tables of the collected layouts can be computed on any thread.
+   */
+  private static void collectInferences(NlComponent root, boolean rejectOverlaps, boolean fromConvert,
+                                        List<LayoutInference> inferences) {
     if (root == null) {
       return;
     }
@@ -266,7 +326,7 @@ public class Scout {
     for (NlComponent constraintWidget : root.getChildren()) {
       if (ConstraintComponentUtilities.isConstraintLayout(constraintWidget)) {
         if (!constraintWidget.getChildren().isEmpty()) {
-          inferConstraints(constraintWidget);
+          collectInferences(constraintWidget, true, false, inferences);
         }
       }
     }
@@ -279,10 +339,7 @@ public class Scout {
 
     NlComponent[] widgets = list.toArray(new NlComponent[list.size()]);
     ScoutWidget[] scoutWidgets = ScoutWidget.create(widgets, fromConvert);
-    ScoutWidget.computeConstraints(scoutWidgets);
-    if (fromConvert) {
-      postInferCleanupFromConvert(scoutWidgets);
-    }
+    inferences.add(new LayoutInference(scoutWidgets, fromConvert));
   }
 
   private static void postInferCleanupFromConvert(ScoutWidget[] widgets) {
@@ -323,6 +380,52 @@ public class Scout {
    */
   public static void inferConstraintsAndCommit(NlComponent component) {
     inferConstraints(component, false, false);
+    commitInferredConstraints(component);
+  }
+
+  /**
+   * Like {@link #inferConstraintsAndCommit(NlComponent)}, but the inference tables of large layouts are computed in a cancelable
+   * background task. The constraints are then applied and committed on the event dispatch thread, unless children were added to or
+   * removed from the layouts in the meantime. Must be called on the event dispatch thread.
+   *
+   * @param component   the root element to infer from
+   * @param onCommitted called on the event dispatch thread once the constraints have been committed
+   */
+  public static void inferConstraintsAndCommitInBackground(@NotNull NlComponent component, @NotNull Runnable onCommitted) {
+    List<LayoutInference> inferences = new ArrayList<>();
+    collectInferences(component, false, false, inferences);
+    int widgetCount = inferences.stream().mapToInt(inference -> inference.myWidgets.length).sum();
+    if (!ScoutProbabilities.isParallel(widgetCount)) {
+      inferences.forEach(inference -> inference.myProbabilities.computeTables());
+      applyAndCommit(component, inferences);
+      onCommitted.run();
+      return;
+    }
+
+    NlModel model = component.getModel();
+    ProgressManager.getInstance().run(new Task.Backgroundable(model.getProject(), "Inferring Constraints", true) {
+      @Override
+      public void run(@NotNull ProgressIndicator indicator) {
+        inferences.forEach(inference -> inference.myProbabilities.computeTables());
+      }
+
+      @Override
+      public void onSuccess() {
+        if (Disposer.isDisposed(model) || !inferences.stream().allMatch(LayoutInference::isValid)) {
+          return; // The constraints were inferred for a layout that is not there anymore.
+        }
+        applyAndCommit(component, inferences);
+        onCommitted.run();
+      }
+    });
+  }
+
+  private static void applyAndCommit(@NotNull NlComponent component, @NotNull List<LayoutInference> inferences) {
+    inferences.forEach(LayoutInference::apply);
+    commitInferredConstraints(component);
+  }
+
+  private static void commitInferredConstraints(@NotNull NlComponent component) {
     ArrayList<NlComponent> list = new ArrayList<>(component.getChildren());
     list.add(0, component);
     commit(list, "Infering constraints");
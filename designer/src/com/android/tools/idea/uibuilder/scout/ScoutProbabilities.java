@@ -16,8 +16,12 @@
 
 package com.android.tools.idea.uibuilder.scout;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
  * Inference Probability tables
@@ -41,12 +45,19 @@ public class ScoutProbabilities {
     private static final int ROOT_MARGIN_DISCOUNT = 16;
     private static final int MAX_ROOT_OVERHANG = 10;
     private static final boolean SKIP_SPARSE_COLUMNS = true;
+    /**
+     * From this number of widgets the tables are computed in parallel, and {@link Scout} computes them in
+     * a cancelable background task.
+     */
+    @VisibleForTesting
+    static final int MIN_PARALLEL_WIDGETS = 16;
 
     float[][][] mProbability; // probability of a connection
     float[][][] mMargin; // margin needed for that connection
     float[][][][] mBinaryBias; // Ratio needed for binary connections (should be .5 for now)
     float[][][][] mBinaryProbability; // probability of a left_right/up_down
     int len;
+    private WidgetGeometry[] mGeometry; // everything the estimation functions need from the widgets
 
     /**
      * This calculates a constraint tables
@@ -54,6 +65,27 @@ public class ScoutProbabilities {
      * @param list ordered list of widgets root must be list[0]
      */
     public void computeConstraints(ScoutWidget[] list) {
+        prepare(list);
+        computeTables();
+        if (DEBUG) {
+            printTable(list);
+        }
+    }
+
+    /**
+     * Returns true if the tables of the given number of widgets are computed in parallel.
+     */
+    static boolean isParallel(int widgetCount) {
+        return widgetCount >= MIN_PARALLEL_WIDGETS;
+    }
+
+    /**
+     * Validates the widgets and reads from them everything needed by {@link #computeTables()}, which can then
+     * run on any thread.
+     *
+     * @param list ordered list of widgets root must be list[0]
+     */
+    void prepare(ScoutWidget[] list) {
         if (list.length < 2) {
             throw new IllegalArgumentException("list must contain more than 1 widget");
         }
@@ -73,74 +105,110 @@ public class ScoutProbabilities {
 
         mProbability = new float[len][][];
         mMargin = new float[len][][];
+        mBinaryProbability = new float[len][2][len * 2][len * 2];
+        mBinaryBias = new float[len][2][len * 2][len * 2];
 
-        // calculate probability for normal connections
-        float[] result = new float[2]; // estimation function return 2 values probability & margin
+        // Read everything the estimation functions need from the widgets once, so the tables can be computed
+        // on other threads.
+        mGeometry = new WidgetGeometry[len];
+        for (int i = 0; i < len; i++) {
+            mGeometry[i] = new WidgetGeometry(list[i]);
+        }
+    }
 
-        for (int i = 1; i < len; i++) { // for all non root widgets
-            Direction[] all = Direction.getAllDirections();
-            if (list[i].isGuideline()) {
-                continue;
+    /**
+     * Computes the tables of all the widgets prepared by {@link #prepare}, in parallel for large layouts.
+     * Stops with a {@link com.intellij.openapi.progress.ProcessCanceledException} if the progress indicator
+     * of the calling thread is canceled.
+     */
+    void computeTables() {
+        computeTables(isParallel(len));
+    }
+
+    @VisibleForTesting
+    void computeTables(boolean parallel) {
+        WidgetGeometry[] geometry = mGeometry;
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        float[][] distances = new float[len][len];
+        IntStream rows = IntStream.range(0, len);
+        (parallel ? rows.parallel() : rows).forEach(i -> {
+            for (int j = 0; j < len; j++) {
+                distances[i][j] = WidgetGeometry.distance(geometry[i], geometry[j]);
             }
-            mProbability[i] = new float[all.length][];
-            mMargin[i] = new float[all.length][];
-            for (int dir = 0; dir < all.length; dir++) { // for all possible connections
-                Direction direction = Direction.get(dir);
-                int connectTypes = direction.connectTypes();
-
-                // create the multidimensional array on the fly
-                // to account for the variying size of the probability space
-                mProbability[i][dir] = new float[len * connectTypes];
-                mMargin[i][dir] = new float[len * connectTypes];
-
-                // fill in all candidate connections
-                for (int candidate = 0; candidate < mMargin[i][dir].length; candidate++) {
-                    int widgetNumber = candidate / connectTypes;
-                    int opposite = candidate % connectTypes;
-                    Direction connectTo = (opposite == 0) ? direction : direction.getOpposite();
-
-                    estimateProbability(list[i], direction, list[widgetNumber],
-                            connectTo, list, result);
-                    mProbability[i][dir][candidate] = result[RESULT_PROBABILITY];
-                    mMargin[i][dir][candidate] = result[RESULT_MARGIN];
-                }
+        });
+
+        IntStream widgets = IntStream.range(1, len); // for all non root widgets
+        (parallel ? widgets.parallel() : widgets).forEach(i -> {
+            if (indicator != null) {
+                indicator.checkCanceled();
+            }
+            computeTables(i, geometry, distances);
+        });
+    }
+
+    /**
+     * Computes the tables of the widget {@code i}. Only writes to the tables of that widget, so it can run
+     * concurrently for different widgets.
+     */
+    private void computeTables(int i, WidgetGeometry[] list, float[][] distances) {
+        if (list[i].isGuideline) {
+            return; // guidelines are not connected, all their probabilities stay 0
+        }
+        float[] result = new float[2]; // estimation function return 2 values probability & margin
+
+        // calculate probability for normal connections
+        Direction[] all = Direction.getAllDirections();
+        mProbability[i] = new float[all.length][];
+        mMargin[i] = new float[all.length][];
+        for (int dir = 0; dir < all.length; dir++) { // for all possible connections
+            Direction direction = Direction.get(dir);
+            int connectTypes = direction.connectTypes();
+
+            // create the multidimensional array on the fly
+            // to account for the variying size of the probability space
+            mProbability[i][dir] = new float[len * connectTypes];
+            mMargin[i][dir] = new float[len * connectTypes];
+
+            // fill in all candidate connections
+            for (int candidate = 0; candidate < mMargin[i][dir].length; candidate++) {
+                int widgetNumber = candidate / connectTypes;
+                int opposite = candidate % connectTypes;
+                Direction connectTo = (opposite == 0) ? direction : direction.getOpposite();
+
+                estimateProbability(list[i], direction, list[widgetNumber],
+                        connectTo, distances[i][widgetNumber], result);
+                mProbability[i][dir][candidate] = result[RESULT_PROBABILITY];
+                mMargin[i][dir][candidate] = result[RESULT_MARGIN];
             }
         }
 
         // calculate probability for "centered" connections
-        mBinaryProbability = new float[len][2][len * 2][len * 2];
-        mBinaryBias = new float[len][2][len * 2][len * 2];
         Direction[][] directions =
                 { { Direction.TOP, Direction.BOTTOM}, { Direction.LEFT, Direction.RIGHT} };
-        for (int i = 1; i < len; i++) {
-            for (int horizontal = 0; horizontal < 2; horizontal++) { // vert=0 or horizantal=1
-                Direction[] sides = directions[horizontal];
-                for (int candidate1 = 0; candidate1 < len * 2; candidate1++) {
-                    for (int candidate2 = 0; candidate2 < len * 2; candidate2++) {
-
-                        // candidates are 2 per widget (left/right or above/below)
-                        int widget1Number = candidate1 / 2;
-                        int widget2Number = candidate2 / 2;
-
-                        // pick the sides to connect
-                        Direction widget1Side = sides[candidate1 & 0x1];
-                        Direction widget2Side = sides[candidate2 & 0x1];
-
-                        estimateBinaryProbability(list[i], horizontal,
-                                list[widget1Number], widget1Side,
-                                list[widget2Number], widget2Side,
-                                list, result);
-                        mBinaryProbability[i][horizontal][candidate1][candidate2] =
-                                result[RESULT_PROBABILITY];
-                        mBinaryBias[i][horizontal][candidate1][candidate2] =
-                                result[RESULT_MARGIN];
-                    }
+        for (int horizontal = 0; horizontal < 2; horizontal++) { // vert=0 or horizantal=1
+            Direction[] sides = directions[horizontal];
+            for (int candidate1 = 0; candidate1 < len * 2; candidate1++) {
+                for (int candidate2 = 0; candidate2 < len * 2; candidate2++) {
+
+                    // candidates are 2 per widget (left/right or above/below)
+                    int widget1Number = candidate1 / 2;
+                    int widget2Number = candidate2 / 2;
+
+                    // pick the sides to connect
+                    Direction widget1Side = sides[candidate1 & 0x1];
+                    Direction widget2Side = sides[candidate2 & 0x1];
+
+                    estimateBinaryProbability(list[i], horizontal,
+                            list[widget1Number], widget1Side,
+                            list[widget2Number], widget2Side,
+                            distances[i][widget1Number], distances[i][widget2Number], result);
+                    mBinaryProbability[i][horizontal][candidate1][candidate2] =
+                            result[RESULT_PROBABILITY];
+                    mBinaryBias[i][horizontal][candidate1][candidate2] =
+                            result[RESULT_MARGIN];
                 }
             }
         }
-        if (DEBUG) {
-            printTable(list);
-        }
     }
 
     /**
@@ -548,11 +616,12 @@ public class ScoutProbabilities {
      * @param fromDir direction on that widget
      * @param to      destination widget
      * @param toDir   destination side to connect
+     * @param fromToDistance the distance between the two widgets
      * @param result  populates results with probability and offset
      */
-    private static void estimateProbability(ScoutWidget from, Direction fromDir,
-            ScoutWidget to, Direction toDir,
-            ScoutWidget[] list,
+    private static void estimateProbability(WidgetGeometry from, Direction fromDir,
+            WidgetGeometry to, Direction toDir,
+            float fromToDistance,
             float[] result) {
         result[RESULT_PROBABILITY] = 0;
         result[RESULT_MARGIN] = 0;
@@ -560,30 +629,30 @@ public class ScoutProbabilities {
         if (from == to) { // 0 probability of connecting to yourself
             return;
         }
-        if (from.isGuideline()) {
+        if (from.isGuideline) {
             return;
         }
 
-        if (to.isGuideline()) {
+        if (to.isGuideline) {
             if ((toDir == Direction.TOP || toDir == Direction.BOTTOM) &&
-                to.isVerticalGuideline()) {
+                to.isVerticalGuideline) {
                 return;
             }
             if ((toDir == Direction.RIGHT || toDir == Direction.LEFT) &&
-                to.isHorizontalGuideline()) {
+                to.isHorizontalGuideline) {
                 return;
             }
         }
 
         // if it already has a baseline do not connect to it
-        if ((toDir == Direction.TOP || toDir == Direction.BOTTOM) & from.hasBaseline()) {
-            if (from.hasConnection(Direction.BASELINE)) {
+        if ((toDir == Direction.TOP || toDir == Direction.BOTTOM) & from.hasBaseline) {
+            if (from.hasBaselineConnection) {
                 return;
             }
         }
 
         if (fromDir == Direction.BASELINE) { // if baseline 0  probability of connecting to non baseline
-            if (!from.hasBaseline() || !to.hasBaseline()) { // no base line
+            if (!from.hasBaseline || !to.hasBaseline) { // no base line
                 return;
             }
         }
@@ -592,8 +661,8 @@ public class ScoutProbabilities {
         float toLocation = to.getLocation(toDir);
         float positionDiff =
                 (fromDir.reverse()) ? fromLocation - toLocation : toLocation - fromLocation;
-        float distance = 2 * ScoutWidget.distance(from, to);
-        if (to.isRoot()) {
+        float distance = 2 * fromToDistance;
+        if (to.isRoot) {
             distance = Math.abs(distance - ROOT_MARGIN_DISCOUNT);
         }
         // probability decreases with distance and margin distance
@@ -604,7 +673,7 @@ public class ScoutProbabilities {
             }
             probability *= 2;
         }
-        if (to.isRoot()) {
+        if (to.isRoot) {
             probability *= 2;
         }
         result[RESULT_PROBABILITY] = (positionDiff >= 0) ? probability : NEGATIVE_GAP_FLAG;
@@ -621,13 +690,15 @@ public class ScoutProbabilities {
      * @param toDir1      direction on that widget
      * @param to2         connect to on other side
      * @param toDir2      direction on that widget
+     * @param distance1   the distance between {@code from} and {@code to1}
+     * @param distance2   the distance between {@code from} and {@code to2}
      * @param result      populates results with probability and offset
      */
     private static void estimateBinaryProbability(
-            ScoutWidget from, int orientation, // 0 = north/south 1 = east/west
-            ScoutWidget to1, Direction toDir1,
-            ScoutWidget to2, Direction toDir2,
-            ScoutWidget[] list,
+            WidgetGeometry from, int orientation, // 0 = north/south 1 = east/west
+            WidgetGeometry to1, Direction toDir1,
+            WidgetGeometry to2, Direction toDir2,
+            float distance1, float distance2,
             float[] result) {
 
         result[RESULT_PROBABILITY] = 0;
@@ -635,19 +706,18 @@ public class ScoutProbabilities {
         if (from == to1 || from == to2) { // cannot center on yourself
             return;
         }
-        if (from.isGuideline()) {
+        if (from.isGuideline) {
             return;
         }
         // if it already has a baseline do not connect to it
-        if ((orientation == Direction.ORIENTATION_VERTICAL) & from.hasBaseline()) {
-            if (from.hasConnection(Direction.BASELINE)) {
+        if ((orientation == Direction.ORIENTATION_VERTICAL) & from.hasBaseline) {
+            if (from.hasBaselineConnection) {
                 return;
             }
         }
         // distance normalizing scale factor
         float scale = 0.5f *
-                ((orientation == Direction.ORIENTATION_VERTICAL) ? from.getParent().getHeight() :
-                        from.getParent().getWidth());
+                ((orientation == Direction.ORIENTATION_VERTICAL) ? from.parentHeight : from.parentWidth);
         Direction fromLeft = Direction.getDirections(orientation)[0];
         Direction fromRight = Direction.getDirections(orientation)[1];
 
@@ -660,11 +730,11 @@ public class ScoutProbabilities {
 
         if (positionDiff1 < 0 || positionDiff2 < 0) { // do not center if not aligned
             boolean badCandidate = true;
-            if (positionDiff2 < 0 && to2.isRoot() && positionDiff2 > -MAX_ROOT_OVERHANG) {
+            if (positionDiff2 < 0 && to2.isRoot && positionDiff2 > -MAX_ROOT_OVERHANG) {
                 badCandidate = false;
                 positionDiff2 = 0;
             }
-            if (positionDiff1 < 0 && to1.isRoot() && positionDiff2 > -MAX_ROOT_OVERHANG) {
+            if (positionDiff1 < 0 && to1.isRoot && positionDiff2 > -MAX_ROOT_OVERHANG) {
                 badCandidate = false;
                 positionDiff2 = 0;
             }
@@ -674,19 +744,79 @@ public class ScoutProbabilities {
             }
         }
 
-        float distance1 = ScoutWidget.distance(from, to1) / scale;
-        float distance2 = ScoutWidget.distance(from, to2) / scale;
+        distance1 /= scale;
+        distance2 /= scale;
         float diff = Math.abs(positionDiff1 - positionDiff2);
         float probability = ((diff < SLOPE_CENTER_CONNECTION) ? 1 : 0); // favor close distance
         probability = probability / (1+ distance1 + distance2);
         probability += 1 / (1 + Math.abs(positionDiff1 - positionDiff2));
         probability *=
-                (to1.isRoot() && to2.isRoot()) ? 2 : ((SUPPORT_CENTER_TO_NON_ROOT) ? 1f : 0);
+                (to1.isRoot && to2.isRoot) ? 2 : ((SUPPORT_CENTER_TO_NON_ROOT) ? 1f : 0);
 
         result[RESULT_PROBABILITY] = probability;
         result[RESULT_MARGIN] = Math.min(positionDiff1,positionDiff2);
     }
 
+    /**
+     * The properties of a {@link ScoutWidget} used by the estimators, read once per widget so the tables can be
+     * computed without going back to the components.
+     */
+    private static final class WidgetGeometry {
+        final boolean isRoot;
+        final boolean isGuideline;
+        final boolean isVerticalGuideline;
+        final boolean isHorizontalGuideline;
+        final boolean hasBaseline;
+        final boolean hasBaselineConnection;
+        final float top;
+        final float bottom;
+        final float left;
+        final float right;
+        final float baseline;
+        final float parentWidth;
+        final float parentHeight;
+
+        WidgetGeometry(ScoutWidget widget) {
+            isRoot = widget.isRoot();
+            isGuideline = widget.isGuideline();
+            isVerticalGuideline = widget.isVerticalGuideline();
+            isHorizontalGuideline = widget.isHorizontalGuideline();
+            hasBaseline = widget.hasBaseline();
+            hasBaselineConnection = widget.hasConnection(Direction.BASELINE);
+            top = widget.getLocation(Direction.TOP);
+            bottom = widget.getLocation(Direction.BOTTOM);
+            left = widget.getLocation(Direction.LEFT);
+            right = widget.getLocation(Direction.RIGHT);
+            baseline = widget.getLocation(Direction.BASELINE);
+            ScoutWidget parent = widget.getParent();
+            parentWidth = parent != null ? parent.getWidth() : 0;
+            parentHeight = parent != null ? parent.getHeight() : 0;
+        }
+
+        float getLocation(Direction dir) {
+            switch (dir) {
+                case TOP:
+                    return top;
+                case BOTTOM:
+                    return bottom;
+                case LEFT:
+                    return left;
+                case RIGHT:
+                    return right;
+                default:
+                    return baseline;
+            }
+        }
+
+        /**
+         * Same as {@link ScoutWidget#distance(ScoutWidget, ScoutWidget)}.
+         */
+        static float distance(WidgetGeometry a, WidgetGeometry b) {
+            return ScoutWidget.distance(a.left, a.top, a.right, a.bottom, a.isVerticalGuideline, a.isHorizontalGuideline,
+                    b.left, b.top, b.right, b.bottom, b.isVerticalGuideline, b.isHorizontalGuideline);
+        }
+    }
+
     /*-----------------------------------------------------------------------*/
     // Printing fuctions (for use in debugging)
     /*-----------------------------------------------------------------------*/
@@ -989,30 +989,28 @@ public class ScoutWidget implements Comparable<ScoutWidget> {
    * @return the distance between two widgets at there closest point to each other
    */
   static float distance(ScoutWidget a, ScoutWidget b) {
+    return distance(a.mX, a.mY, a.mX + a.mWidth, a.mY + a.mHeight, a.isVerticalGuideline(), a.isHorizontalGuideline(),
+                    b.mX, b.mY, b.mX + b.mWidth, b.mY + b.mHeight, b.isVerticalGuideline(), b.isHorizontalGuideline());
+  }
 
-    float ax1, ax2, ay1, ay2;
-    float bx1, bx2, by1, by2;
-    ax1 = a.mX;
-    ax2 = a.mX + a.mWidth;
-    ay1 = a.mY;
-    ay2 = a.mY + a.mHeight;
-    if (a.isVerticalGuideline()) {
+  /**
+   * calculates the distance between two rectangles, guidelines being infinitely long
+   */
+  static float distance(float ax1, float ay1, float ax2, float ay2, boolean aVerticalGuideline, boolean aHorizontalGuideline,
+                        float bx1, float by1, float bx2, float by2, boolean bVerticalGuideline, boolean bHorizontalGuideline) {
+    if (aVerticalGuideline) {
       ay1 = -10000; // make the line infinite long
       ay2 = 10000;
     }
-    if (a.isHorizontalGuideline()) {
+    if (aHorizontalGuideline) {
       ax1 = -10000; // make the line infinite long
       ax2 = 10000;
     }
-    bx1 = b.mX;
-    bx2 = b.mX + b.mWidth;
-    by1 = b.mY;
-    by2 = b.mY + b.mHeight;
-    if (b.isVerticalGuideline()) {
+    if (bVerticalGuideline) {
       by1 = -10000; // make the line infinite long
       by2 = 10000;
     }
-    if (b.isHorizontalGuideline()) {
+    if (bHorizontalGuideline) {
       bx1 = -10000; // make the line infinite long
       bx2 = 10000;
     }
@@ -77,6 +77,8 @@ class DiagnosticsLayer(val surface: DesignSurface) : Layer() {
       | Mem avail     ${runtime.freeMemory() / MB}MB ${PCT_FORMAT.format(freeMemPct)}%
       | 90% Render    ${PCT_FORMAT.format(diagnostics.renderTime(90))}ms
       | Last render   ${PCT_FORMAT.format(lastRenderMs)}ms / ${diagnostics.lastRenderImageSize() / MB}MB
+      | 90% Latency   ${PCT_FORMAT.format(diagnostics.renderLatency(90))}ms
+      | Superseded    ${diagnostics.supersededRenders()}
       |
       |Image pool
       | Allocated     ${(poolStats?.totalBytesAllocated() ?: -1) / MB}MB
@@ -28,7 +28,10 @@ import com.android.tools.adtui.workbench.WorkBench;
 import com.android.tools.editor.ActionToolbarUtil;
 import com.android.tools.editor.PanZoomListener;
 import com.android.tools.idea.common.model.NlModel;
+import com.android.tools.idea.common.scene.SceneManager;
+import com.android.tools.idea.common.surface.SceneView;
 import com.android.tools.idea.common.surface.DesignSurface;
+import com.android.tools.idea.rendering.RenderService;
 import com.android.tools.idea.rendering.RenderSettings;
 import com.android.tools.idea.res.ResourceHelper;
 import com.android.tools.idea.startup.ClearResourceCacheAfterFirstBuild;
@@ -40,6 +43,7 @@ import com.android.tools.idea.uibuilder.surface.NlDesignSurface;
 import com.android.tools.idea.uibuilder.surface.SceneMode;
 import com.android.tools.idea.uibuilder.visual.analytics.MultiViewMetricTrackerKt;
 import com.android.tools.idea.util.SyncUtil;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.intellij.CommonBundle;
 import com.intellij.openapi.Disposable;
@@ -59,15 +63,21 @@ import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
+import com.intellij.util.Alarm;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.concurrency.EdtExecutorService;
+import com.intellij.util.ui.update.MergingUpdateQueue;
+import com.intellij.util.ui.update.Update;
 import icons.StudioIcons;
 import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Container;
 import java.awt.DefaultFocusTraversalPolicy;
+import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.event.AdjustmentEvent;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -103,6 +113,17 @@ public class VisualizationForm implements Disposable, ConfigurationSetListener,
    */
   @SwingCoordinate private static final int VERTICAL_SCREEN_DELTA = 48;
 
+  /**
+   * Scale of the first render of every configuration. The previews are replaced by full renders once the user stops scrolling or zooming,
+   * see {@link #scheduleRefinePreviews()}.
+   */
+  private static final float PREVIEW_RENDER_SCALE = 0.25f;
+
+  /**
+   * Delay after the last scroll or zoom before the previews are refined.
+   */
+  private static final int REFINE_PREVIEWS_DELAY_MS = 300;
+
   private final Project myProject;
   private final NlDesignSurface mySurface;
   private final WorkBench<DesignSurface> myWorkBench;
@@ -116,6 +137,13 @@ public class VisualizationForm implements Disposable, ConfigurationSetListener,
 
   @Nullable private List<NlModel> myModels = null;
 
+  private final MergingUpdateQueue myRefinePreviewsQueue;
+
+  /**
+   * Set to true to cancel the ongoing refinement of the previews, see {@link #refinePreviews()}.
+   */
+  @NotNull private AtomicBoolean myCancelRefinePreviews = new AtomicBoolean(false);
+
   /**
    * Contains the editor that is currently being loaded.
    * Once the file is loaded, myPendingEditor will be null.
@@ -148,7 +176,12 @@ public class VisualizationForm implements Disposable, ConfigurationSetListener,
           // 0.0f makes it spend 50% memory. See document in RenderTask#MIN_DOWNSCALING_FACTOR.
           return settings.copy(0.0f, false, showDecoration);
         };
-        return new LayoutlibSceneManager(model, surface, renderSettingsProvider);
+        LayoutlibSceneManager sceneManager = new LayoutlibSceneManager(model, surface, renderSettingsProvider);
+        // Rendering all the configurations takes a while, don't hold up the renders of the layout editor meanwhile.
+        sceneManager.setRenderingPriority(RenderService.RenderingPriority.LOW);
+        // Show all the configurations quickly at a low resolution first. They are refined later, starting with the visible ones.
+        sceneManager.setPreviewRenderScale(PREVIEW_RENDER_SCALE);
+        return sceneManager;
       })
       .setActionManagerProvider((surface) -> new VisualizationActionManager((NlDesignSurface) surface))
       .setInteractionHandlerProvider((surface) -> new VisualizationInteractionHandler(surface, () -> myCurrentModelsProvider ))
@@ -161,6 +194,10 @@ public class VisualizationForm implements Disposable, ConfigurationSetListener,
       .build();
     mySurface.addPanZoomListener(this);
 
+    myRefinePreviewsQueue = new MergingUpdateQueue("visualization.refine.previews", REFINE_PREVIEWS_DELAY_MS, true, null,
+                                                   this, null, Alarm.ThreadToUse.SWING_THREAD);
+    myRefinePreviewsQueue.setRestartTimerOnAdd(true);
+
     updateScreenMode();
     Disposer.register(this, mySurface);
     mySurface.setCentered(true);
@@ -341,6 +378,7 @@ public class VisualizationForm implements Disposable, ConfigurationSetListener,
   @UiThread
   private void initNeleModelWhenSmart() {
     setNoActiveModel();
+    myCancelRefinePreviews.set(true);
 
     if (myCancelPreviousAddModelsRequestTask != null) {
       myCancelPreviousAddModelsRequestTask.run();
@@ -409,6 +447,7 @@ public class VisualizationForm implements Disposable, ConfigurationSetListener,
               mySurface.updateScrolledAreaSize();
             }
             myWorkBench.showContent();
+            scheduleRefinePreviews();
           }
           else {
             removeAndDisposeModels(models);
@@ -541,11 +580,91 @@ public class VisualizationForm implements Disposable, ConfigurationSetListener,
   @Override
   public void zoomChanged() {
     VisualizationToolSettings.getInstance().getGlobalState().setScale(mySurface.getScale());
+    scheduleRefinePreviews();
   }
 
   @Override
   public void panningChanged(AdjustmentEvent adjustmentEvent) {
-    // Do nothing.
+    scheduleRefinePreviews();
+  }
+
+  /**
+   * Schedules {@link #refinePreviews()}. Every call postpones it, so it only happens once the user stops scrolling or zooming.
+   */
+  private void scheduleRefinePreviews() {
+    myRefinePreviewsQueue.queue(new Update("Refine previews") {
+      @Override
+      public void run() {
+        refinePreviews();
+      }
+    });
+  }
+
+  /**
+   * Replaces the low resolution previews by full renders, one model at a time. The models visible in the surface are rendered first,
+   * so the offscreen ones don't delay them. Cancels the previous refinement, since the visible models may have changed.
+   */
+  @UiThread
+  private void refinePreviews() {
+    myCancelRefinePreviews.set(true);
+    List<NlModel> models = myModels;
+    if (models == null) {
+      return;
+    }
+    AtomicBoolean isRefineCancelled = new AtomicBoolean(false);
+    myCancelRefinePreviews = isRefineCancelled;
+
+    List<SceneManager> managers = new ArrayList<>();
+    for (NlModel model : models) {
+      SceneManager manager = mySurface.getSceneManager(model);
+      if (manager != null) {
+        managers.add(manager);
+      }
+    }
+    refineInOrder(getPreviewsToRefine(managers, mySurface.getViewRect()), isRefineCancelled);
+  }
+
+  /**
+   * Returns the managers of {@code managers} that show a preview render, the ones visible in {@code viewRect} first.
+   */
+  @VisibleForTesting
+  @NotNull
+  static List<LayoutlibSceneManager> getPreviewsToRefine(@NotNull List<SceneManager> managers,
+                                                          @SwingCoordinate @NotNull Rectangle viewRect) {
+    List<LayoutlibSceneManager> visibleManagers = new ArrayList<>();
+    List<LayoutlibSceneManager> offscreenManagers = new ArrayList<>();
+    for (SceneManager manager : managers) {
+      if (!(manager instanceof LayoutlibSceneManager) || !((LayoutlibSceneManager)manager).isShowingPreview()) {
+        continue;
+      }
+      SceneView sceneView = manager.getSceneView();
+      Dimension size = sceneView.getSize();
+      Rectangle bounds = new Rectangle(sceneView.getX(), sceneView.getY(), size.width, size.height);
+      (viewRect.intersects(bounds) ? visibleManagers : offscreenManagers).add((LayoutlibSceneManager)manager);
+    }
+    visibleManagers.addAll(offscreenManagers);
+    return visibleManagers;
+  }
+
+  /**
+   * Requests a full render of each of {@code managers} still showing a preview, one at a time and in order, until {@code isCancelled} is
+   * set.
+   *
+   * @return a future completed once the last render is done, or once the refinement is cancelled
+   */
+  @VisibleForTesting
+  @NotNull
+  static CompletableFuture<Void> refineInOrder(@NotNull List<LayoutlibSceneManager> managers, @NotNull AtomicBoolean isCancelled) {
+    CompletableFuture<Void> refineFuture = CompletableFuture.completedFuture(null);
+    for (LayoutlibSceneManager manager : managers) {
+      refineFuture = refineFuture.thenCompose(it -> {
+        if (isCancelled.get() || !manager.isShowingPreview()) {
+          return CompletableFuture.completedFuture(null);
+        }
+        return manager.requestRender();
+      });
+    }
+    return refineFuture;
   }
 
   /**
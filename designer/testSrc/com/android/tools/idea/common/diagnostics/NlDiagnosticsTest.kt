@@ -66,4 +66,19 @@ class NlDiagnosticsTest {
     assertEquals(100, read.lastRenders()[0])
     assertEquals(101, read.lastRenders()[1])
   }
+
+  @Test
+  fun testRecordingLatency() {
+    val surface = mock(DesignSurface::class.java)
+    val write = NlDiagnosticsManager.getWriteInstance(surface)
+    val read = NlDiagnosticsManager.getReadInstance(surface)
+
+    assertEquals(-1, read.renderLatency(90))
+    assertEquals(0, read.supersededRenders())
+
+    write.recordRenderLatency(200)
+    write.recordSupersededRender()
+    assertEquals(200, read.renderLatency(90))
+    assertEquals(1, read.supersededRenders())
+  }
 }
\ No newline at end of file
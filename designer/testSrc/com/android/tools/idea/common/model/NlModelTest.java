@@ -720,6 +720,134 @@ public class NlModelTest extends LayoutTestCase {
     assertEquals("android.widget.SearchView", NlComponentHelperKt.getViewInfo(searchViewComponent).getClassName());
   }
 
+  @NotNull
+  private XmlFile addIncrementalLayout() {
+    return (XmlFile)myFixture.addFileToProject("res/layout/model.xml",
+                                               "<LinearLayout" +
+                                               "         xmlns:android=\"http://schemas.android.com/apk/res/android\"" +
+                                               "         android:layout_width=\"match_parent\"" +
+                                               "         android:layout_height=\"match_parent\">" +
+                                               "             <Button" +
+                                               "               android:layout_width=\"100dp\"" +
+                                               "               android:layout_height=\"100dp\" />" +
+                                               "             <TextView" +
+                                               "               android:layout_width=\"100dp\"" +
+                                               "               android:layout_height=\"100dp\" />" +
+                                               "</LinearLayout>");
+  }
+
+  /**
+   * Creates the views of the layout of {@link #addIncrementalLayout()} for the given snapshot.
+   */
+  @NotNull
+  private static ViewInfo createIncrementalViews(@NotNull TagSnapshot rootSnapshot, int buttonWidth) {
+    ViewInfo rootViewInfo = new ViewInfo("android.widget.LinearLayout", rootSnapshot, 0, 0, 500, 500);
+    ViewInfo buttonViewInfo = new ViewInfo("android.widget.Button", rootSnapshot.children.get(0), 0, 0, buttonWidth, 100);
+    ViewInfo textViewInfo = new ViewInfo("android.widget.TextView", rootSnapshot.children.get(1), 0, 100, 100, 200);
+    rootViewInfo.setChildren(ImmutableList.of(buttonViewInfo, textViewInfo));
+    return rootViewInfo;
+  }
+
+  public void testUpdateHierarchyIncrementally() {
+    XmlFile modelXml = addIncrementalLayout();
+    NlModel model = createModel(modelXml);
+
+    TagSnapshot rootSnapshot = TagSnapshot.createTagSnapshot(modelXml.getRootTag(), null);
+    // The first update rebuilds the hierarchy with the new snapshots
+    assertNull(LayoutlibSceneManager.updateHierarchy(ImmutableList.of(createIncrementalViews(rootSnapshot, 100)), model));
+    NlComponent root = model.getComponents().get(0);
+    NlComponent button = root.getChild(0);
+    NlComponent textView = root.getChild(1);
+
+    // A layout pass reuses the same snapshots, only the bounds of the Button change
+    ViewInfo newRootViewInfo = createIncrementalViews(rootSnapshot, 200);
+    List<NlComponent> changed = LayoutlibSceneManager.updateHierarchy(ImmutableList.of(newRootViewInfo), model);
+
+    assertThat(changed).containsExactly(button);
+    assertSame(root, model.getComponents().get(0));
+    assertSame(textView, root.getChild(1));
+    assertEquals(200, NlComponentHelperKt.getW(button));
+    assertSame(newRootViewInfo.getChildren().get(1), NlComponentHelperKt.getViewInfo(textView));
+  }
+
+  public void testUpdateHierarchyRebuildsWhenTagIsAdded() {
+    XmlFile modelXml = addIncrementalLayout();
+    NlModel model = createModel(modelXml);
+    TagSnapshot rootSnapshot = TagSnapshot.createTagSnapshot(modelXml.getRootTag(), null);
+    LayoutlibSceneManager.updateHierarchy(ImmutableList.of(createIncrementalViews(rootSnapshot, 100)), model);
+
+    XmlTag rootTag = modelXml.getRootTag();
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+      rootTag.addSubTag(rootTag.createChildTag(EDIT_TEXT, null, null, false), false);
+    });
+
+    // The render still has the views of the old tags, the new tag needs a component
+    assertNull(LayoutlibSceneManager.updateHierarchy(ImmutableList.of(createIncrementalViews(rootSnapshot, 200)), model));
+    assertThat(model.getComponents().get(0).getChildCount()).isEqualTo(3);
+  }
+
+  public void testUpdateHierarchyRebuildsWhenTagIsRemoved() {
+    XmlFile modelXml = addIncrementalLayout();
+    NlModel model = createModel(modelXml);
+    TagSnapshot rootSnapshot = TagSnapshot.createTagSnapshot(modelXml.getRootTag(), null);
+    LayoutlibSceneManager.updateHierarchy(ImmutableList.of(createIncrementalViews(rootSnapshot, 100)), model);
+
+    XmlTag textViewTag = modelXml.getRootTag().getSubTags()[1];
+    WriteCommandAction.runWriteCommandAction(getProject(), textViewTag::delete);
+
+    assertNull(LayoutlibSceneManager.updateHierarchy(ImmutableList.of(createIncrementalViews(rootSnapshot, 200)), model));
+    assertThat(model.getComponents().get(0).getChildCount()).isEqualTo(1);
+  }
+
+  public void testUpdateHierarchyRebuildsWhenSnapshotMatchesNoComponent() {
+    XmlFile modelXml = addIncrementalLayout();
+    NlModel model = createModel(modelXml);
+    LayoutlibSceneManager.updateHierarchy(
+      ImmutableList.of(createIncrementalViews(TagSnapshot.createTagSnapshot(modelXml.getRootTag(), null), 100)), model);
+    NlComponent root = model.getComponents().get(0);
+    NlComponent button = root.getChild(0);
+
+    // A render that re-inflated the layout has new snapshots for the same tags
+    TagSnapshot newRootSnapshot = TagSnapshot.createTagSnapshot(modelXml.getRootTag(), null);
+    assertNull(LayoutlibSceneManager.updateHierarchy(ImmutableList.of(createIncrementalViews(newRootSnapshot, 200)), model));
+
+    // The components are kept and take the new snapshots, so the next layout pass is incremental again
+    assertSame(root, model.getComponents().get(0));
+    assertSame(button, root.getChild(0));
+    assertSame(newRootSnapshot.children.get(0), button.getSnapshot());
+    assertEquals(200, NlComponentHelperKt.getW(button));
+    assertThat(LayoutlibSceneManager.updateHierarchy(ImmutableList.of(createIncrementalViews(newRootSnapshot, 300)), model))
+      .containsExactly(button);
+  }
+
+  public void testUpdateHierarchyIncrementallyFixesBoundsOfComponentsWithoutViews() {
+    XmlFile modelXml = addIncrementalLayout();
+    NlModel model = createModel(modelXml);
+    TagSnapshot rootSnapshot = TagSnapshot.createTagSnapshot(modelXml.getRootTag(), null);
+
+    // The TextView is not rendered, so it only gets the position of its parent
+    ViewInfo rootViewInfo = new ViewInfo("android.widget.LinearLayout", rootSnapshot, 0, 0, 500, 500);
+    rootViewInfo.setChildren(ImmutableList.of(new ViewInfo("android.widget.Button", rootSnapshot.children.get(0), 0, 0, 100, 100)));
+    assertNull(LayoutlibSceneManager.updateHierarchy(ImmutableList.of(rootViewInfo), model));
+    NlComponent root = model.getComponents().get(0);
+    NlComponent button = root.getChild(0);
+    NlComponent textView = root.getChild(1);
+    assertNull(textView.getSnapshot());
+    assertEquals(0, NlComponentHelperKt.getX(textView));
+    assertEquals(0, NlComponentHelperKt.getY(textView));
+
+    // Moving the parent in a layout pass moves the TextView through fixBounds
+    ViewInfo movedRootViewInfo = new ViewInfo("android.widget.LinearLayout", rootSnapshot, 10, 20, 510, 520);
+    movedRootViewInfo.setChildren(ImmutableList.of(new ViewInfo("android.widget.Button", rootSnapshot.children.get(0), 0, 0, 100, 100)));
+    List<NlComponent> changed = LayoutlibSceneManager.updateHierarchy(ImmutableList.of(movedRootViewInfo), model);
+
+    assertThat(changed).containsExactly(root, button, textView);
+    assertNull(NlComponentHelperKt.getViewInfo(textView));
+    assertEquals(10, NlComponentHelperKt.getX(textView));
+    assertEquals(20, NlComponentHelperKt.getY(textView));
+    assertEquals(0, NlComponentHelperKt.getW(textView));
+  }
+
   public void testLayoutListenersModifyListenerList() {
     XmlFile modelXml = (XmlFile)myFixture.addFileToProject("res/layout/model.xml",
                                                            "<LinearLayout" +
@@ -17,6 +17,7 @@ package com.android.tools.idea.common.scene
 
 import com.android.SdkConstants.*
 import com.android.tools.idea.common.fixtures.ModelBuilder
+import com.android.tools.idea.common.scene.draw.DisplayList
 import com.android.tools.idea.common.scene.target.CommonDragTarget
 import com.android.tools.idea.flags.StudioFlags
 import com.android.tools.idea.uibuilder.LayoutTestUtilities
@@ -73,6 +74,49 @@ open class SceneComponentTest: SceneTest() {
     StudioFlags.NELE_DRAG_PLACEHOLDER.clearOverride()
   }
 
+  fun testDisplayListFragmentsAreReused() {
+    val context = SceneContext.get()
+    val built = DisplayList()
+    myScene.buildDisplayList(built, 0, context)
+    val updated = DisplayList()
+    myScene.updateDisplayList(updated, 0, context)
+    assertEquals(built.serialize(), updated.serialize())
+    assertSame(built.commands[0], updated.commands[0])
+
+    myScene.getSceneComponent("child")!!.drawState = SceneComponent.DrawState.HOVER
+    val hovered = DisplayList()
+    myScene.updateDisplayList(hovered, 0, context)
+    assertNotSame(updated.commands[0], hovered.commands[0])
+    val rebuilt = DisplayList()
+    myScene.buildDisplayList(rebuilt, 0, context)
+    assertEquals(rebuilt.serialize(), hovered.serialize())
+    assertFalse(updated.serialize() == hovered.serialize())
+  }
+
+  fun testFilterTypeAndSelectionChangesRebuildAllFragments() {
+    val context = SceneContext.get()
+    val built = DisplayList()
+    myScene.buildDisplayList(built, 0, context)
+
+    val version = myScene.displayListVersion
+    myScene.filterType = Scene.FilterType.ANCHOR
+    assertTrue(myScene.displayListVersion > version)
+    val filtered = DisplayList()
+    myScene.updateDisplayList(filtered, 0, context)
+    assertNotSame(built.commands[0], filtered.commands[0])
+
+    // Setting the same filter again doesn't invalidate anything.
+    myScene.filterType = Scene.FilterType.ANCHOR
+    val unchanged = DisplayList()
+    myScene.updateDisplayList(unchanged, 0, context)
+    assertSame(filtered.commands[0], unchanged.commands[0])
+
+    myModel.surface.selectionModel.setSelection(listOf(myScene.getSceneComponent("child")!!.nlComponent))
+    val selected = DisplayList()
+    myScene.updateDisplayList(selected, 0, context)
+    assertNotSame(unchanged.commands[0], selected.commands[0])
+  }
+
   override fun createModel(): ModelBuilder {
     return model("scene_component_test.xml",
         component(LINEAR_LAYOUT)
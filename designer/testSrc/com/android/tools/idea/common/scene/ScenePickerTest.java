@@ -19,6 +19,9 @@ import junit.framework.TestCase;
 
 import java.awt.*;
 import java.awt.geom.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 /**
  * Test ScenePicker
@@ -303,6 +306,56 @@ public class ScenePickerTest extends TestCase {
     }
   }
 
+  public void testGridFindsSameObjectsAsSingleObjectPickers() {
+    Random random = new Random(42);
+    ScenePicker scenePicker = new ScenePicker();
+    ScenePicker[] singlePickers = new ScenePicker[500];
+    for (int i = 0; i < singlePickers.length; i++) {
+      singlePickers[i] = new ScenePicker();
+      int x = random.nextInt(2000);
+      int y = random.nextInt(2000);
+      int width = random.nextInt(100);
+      int height = random.nextInt(100);
+      int x2 = random.nextInt(2000);
+      int y2 = random.nextInt(2000);
+      for (ScenePicker picker : new ScenePicker[]{scenePicker, singlePickers[i]}) {
+        switch (i % 4) {
+          case 0:
+            picker.addPoint(i, 5, x, y);
+            break;
+          case 1:
+            picker.addRect(i, 5, x, y, x + width, y + height);
+            break;
+          case 2:
+            // Long lines end up in many cells.
+            picker.addLine(i, 5, x, y, x2, y2, 2);
+            break;
+          default:
+            picker.addCircle(i, 5, x, y, 20);
+            break;
+        }
+      }
+    }
+
+    List<Object> found = new ArrayList<>();
+    scenePicker.setSelectListener((obj, dist) -> found.add(obj));
+    List<Object> expected = new ArrayList<>();
+    for (int i = 0; i < singlePickers.length; i++) {
+      singlePickers[i].setSelectListener((obj, dist) -> expected.add(obj));
+    }
+    for (int i = 0; i < 2000; i++) {
+      int x = random.nextInt(2200) - 100;
+      int y = random.nextInt(2200) - 100;
+      found.clear();
+      expected.clear();
+      scenePicker.find(x, y);
+      for (ScenePicker picker : singlePickers) {
+        picker.find(x, y);
+      }
+      assertEquals(expected, found);
+    }
+  }
+
   public void testEllipseCode() {
     ScenePicker scenePicker = new ScenePicker() {
       {
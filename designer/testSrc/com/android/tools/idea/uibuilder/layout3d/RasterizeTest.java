@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.uibuilder.layout3d;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Rasterize}.
+ */
+public class RasterizeTest {
+  private static final int WIDTH = 1000;
+  private static final int HEIGHT = 700;
+  private static final int TRIANGLE_COUNT = 300;
+  private static final int TEXTURE_SIZE = 256;
+  /** Allowed difference in depth, since the tiled renderer steps the depth along each span. */
+  private static final float Z_EPSILON = 0.01f;
+  /** Allowed difference in each color channel, since a stepped texture coordinate can land on the neighboring texel. */
+  private static final int COLOR_EPSILON = 2;
+
+  /**
+   * Creates triangles of all sizes and orientations, some of them partially outside of the image. Each triangle is on its own
+   * slightly tilted plane, far enough from the others for the depth test to always pick the same triangle in both renderers.
+   */
+  private static TriData createTriangles() {
+    Random random = new Random(42);
+    TriData tri = new TriData();
+    tri.myVert = new float[TRIANGLE_COUNT * 9];
+    tri.myTexture_uv = new float[TRIANGLE_COUNT * 9];
+    tri.myIndex = new int[TRIANGLE_COUNT * 3];
+    tri.mySurfaceType = new int[TRIANGLE_COUNT];
+    for (int i = 0; i < TRIANGLE_COUNT; i++) {
+      float size = 20 + random.nextFloat() * 400;
+      float centerX = random.nextFloat() * (WIDTH + 100) - 50;
+      float centerY = random.nextFloat() * (HEIGHT + 100) - 50;
+      // 7919 is prime, so every triangle gets a different depth in a shuffled order.
+      float depth = 10 + (i * 7919 % TRIANGLE_COUNT) * 2 + random.nextFloat() * 0.5f;
+      for (int vertex = 0; vertex < 3; vertex++) {
+        int p = i * 9 + vertex * 3;
+        tri.myVert[p] = centerX + (random.nextFloat() - 0.5f) * size;
+        tri.myVert[p + 1] = centerY + (random.nextFloat() - 0.5f) * size;
+        tri.myVert[p + 2] = depth + random.nextFloat() * 0.5f;
+        tri.myTexture_uv[p] = random.nextFloat() * (TEXTURE_SIZE - 1);
+        tri.myTexture_uv[p + 1] = random.nextFloat() * (TEXTURE_SIZE - 1);
+        tri.myIndex[i * 3 + vertex] = p;
+      }
+      tri.mySurfaceType[i] = random.nextInt(3);
+    }
+    return tri;
+  }
+
+  /**
+   * A texture where neighboring texels only differ by one in one channel.
+   */
+  private static int[] createTexture() {
+    int[] texture = new int[TEXTURE_SIZE * TEXTURE_SIZE];
+    for (int y = 0; y < TEXTURE_SIZE; y++) {
+      for (int x = 0; x < TEXTURE_SIZE; x++) {
+        texture[y * TEXTURE_SIZE + x] = 0xFF000000 | x << 16 | y << 8 | 0x80;
+      }
+    }
+    return texture;
+  }
+
+  private static float[] createZBuffer() {
+    float[] zbuff = new float[WIDTH * HEIGHT];
+    Arrays.fill(zbuff, Float.MAX_VALUE);
+    return zbuff;
+  }
+
+  private static void assertSameImage(float[] expectedZ, int[] expectedRgb, float[] actualZ, int[] actualRgb) {
+    int drawn = 0;
+    for (int i = 0; i < expectedZ.length; i++) {
+      String pixel = "pixel (" + i % WIDTH + ", " + i / WIDTH + ")";
+      if (expectedZ[i] == Float.MAX_VALUE) {
+        assertWithMessage(pixel).that(actualZ[i]).isEqualTo(Float.MAX_VALUE);
+      }
+      else {
+        drawn++;
+        assertWithMessage(pixel).that(actualZ[i]).isWithin(Z_EPSILON).of(expectedZ[i]);
+      }
+      for (int shift = 0; shift < 32; shift += 8) {
+        int expected = (expectedRgb[i] >> shift) & 0xFF;
+        int actual = (actualRgb[i] >> shift) & 0xFF;
+        assertWithMessage(pixel).that(Math.abs(expected - actual)).isAtMost(COLOR_EPSILON);
+      }
+    }
+    // Make sure the comparison is meaningful.
+    assertThat(drawn).isGreaterThan(expectedZ.length / 2);
+  }
+
+  @Test
+  public void tiledFlatRenderMatchesSimple() {
+    assertThat(WIDTH * HEIGHT).isAtLeast(Rasterize.MIN_TILED_PIXELS);
+    TriData tri = createTriangles();
+
+    float[] expectedZ = createZBuffer();
+    int[] expectedRgb = new int[WIDTH * HEIGHT];
+    Rasterize.simple(expectedZ, expectedRgb, WIDTH, HEIGHT, tri);
+
+    float[] actualZ = createZBuffer();
+    int[] actualRgb = new int[WIDTH * HEIGHT];
+    Rasterize.toZBuffTiled(actualZ, actualRgb, WIDTH, HEIGHT, tri, null, 0, 0);
+
+    assertSameImage(expectedZ, expectedRgb, actualZ, actualRgb);
+  }
+
+  @Test
+  public void tiledTexturedRenderMatchesToZBuff() {
+    assertThat(WIDTH * HEIGHT).isAtLeast(Rasterize.MIN_TILED_PIXELS);
+    TriData tri = createTriangles();
+    int[] texture = createTexture();
+
+    float[] expectedZ = createZBuffer();
+    int[] expectedRgb = new int[WIDTH * HEIGHT];
+    Rasterize.toZBuff(expectedZ, expectedRgb, WIDTH, HEIGHT, tri, texture, TEXTURE_SIZE, TEXTURE_SIZE, null);
+
+    float[] actualZ = createZBuffer();
+    int[] actualRgb = new int[WIDTH * HEIGHT];
+    Rasterize.toZBuffTiled(actualZ, actualRgb, WIDTH, HEIGHT, tri, texture, TEXTURE_SIZE, TEXTURE_SIZE);
+
+    assertSameImage(expectedZ, expectedRgb, actualZ, actualRgb);
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.uibuilder.scene;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class AdaptiveRenderDelayTest {
+  @Test
+  public void testDelayFollowsRecentRenders() {
+    AdaptiveRenderDelay delay = new AdaptiveRenderDelay(10, 200);
+    assertEquals(10, delay.getDelayMs());
+
+    delay.recordRender(5);
+    assertEquals(10, delay.getDelayMs());
+
+    delay.recordRender(195);
+    assertEquals(50, delay.getDelayMs());
+
+    for (int i = 0; i < 10; i++) {
+      delay.recordRender(1000);
+    }
+    assertEquals(200, delay.getDelayMs());
+
+    // Only the recent renders are taken into account
+    for (int i = 0; i < 10; i++) {
+      delay.recordRender(60);
+    }
+    assertEquals(30, delay.getDelayMs());
+  }
+}
@@ -16,12 +16,30 @@
 package com.android.tools.idea.uibuilder.scene
 
 import com.android.SdkConstants
+import com.android.SdkConstants.ABSOLUTE_LAYOUT
+import com.android.SdkConstants.PreferenceTags.CHECK_BOX_PREFERENCE
+import com.android.tools.idea.common.diagnostics.NlDiagnosticsManager
 import com.android.tools.idea.common.fixtures.ModelBuilder
+import com.android.tools.idea.common.model.NlModel
 import com.android.tools.idea.common.type.DesignerTypeRegistrar
+import com.android.tools.idea.flags.StudioFlags
+import com.android.tools.idea.rendering.RenderSettings
+import com.android.tools.idea.uibuilder.model.h
+import com.android.tools.idea.uibuilder.model.setBounds
+import com.android.tools.idea.uibuilder.model.w
+import com.android.tools.idea.uibuilder.model.x
+import com.android.tools.idea.uibuilder.model.y
 import com.android.tools.idea.uibuilder.surface.NlDesignSurface
 import com.android.tools.idea.uibuilder.surface.SceneMode
 import com.android.tools.idea.uibuilder.type.PreferenceScreenFileType
+import com.google.common.truth.Truth.assertThat
+import com.intellij.openapi.util.Disposer
+import com.intellij.util.concurrency.EdtExecutorService
 import org.mockito.Mockito
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.BooleanSupplier
 
 class LayoutlibSceneManagerTest: SceneTest() {
 
@@ -57,12 +75,136 @@ class LayoutlibSceneManagerTest: SceneTest() {
     assertNotNull(sceneManager.secondarySceneView)
   }
 
+  fun testHierarchyChangesOnlyUpdateChangedComponents() {
+    val sceneManager = mySceneManager as LayoutlibSceneManager
+    myScene.isAnimated = false
+    sceneManager.update()
+    val first = myModel.components[0].getChild(0)!!
+    val second = myModel.components[0].getChild(1)!!
+    val firstWidth = myScene.getSceneComponent(first)!!.drawWidth
+    val secondWidth = myScene.getSceneComponent(second)!!.drawWidth
+
+    first.setBounds(first.x, first.y, first.w / 2, first.h)
+    second.setBounds(second.x, second.y, second.w / 2, second.h)
+    sceneManager.addHierarchyChanges(listOf(first))
+    sceneManager.updateFromHierarchyChanges()
+    assertThat(myScene.getSceneComponent(first)!!.drawWidth).isLessThan(firstWidth)
+    assertThat(myScene.getSceneComponent(second)!!.drawWidth).isEqualTo(secondWidth)
+
+    // A rebuilt hierarchy updates the whole Scene
+    sceneManager.addHierarchyChanges(null)
+    sceneManager.updateFromHierarchyChanges()
+    assertThat(myScene.getSceneComponent(second)!!.drawWidth).isLessThan(secondWidth)
+  }
+
+  fun testHierarchyChangesFallBackToFullUpdateWhenSceneComponentIsMissing() {
+    val sceneManager = mySceneManager as LayoutlibSceneManager
+    sceneManager.update()
+    val first = myModel.components[0].getChild(0)!!
+    myScene.removeComponent(myScene.getSceneComponent(first)!!)
+    assertNull(myScene.getSceneComponent(first))
+
+    sceneManager.addHierarchyChanges(listOf(first))
+    sceneManager.updateFromHierarchyChanges()
+    val sceneComponent = myScene.getSceneComponent(first)
+    assertNotNull(sceneComponent)
+    assertThat(sceneComponent!!.parent).isSameAs(myScene.root)
+  }
+
+  fun testRenderSupersededByModelChange() {
+    StudioFlags.NELE_RENDER_DIAGNOSTICS.override(true)
+    val model = model("absolute.xml",
+                      component(ABSOLUTE_LAYOUT)
+                        .withBounds(0, 0, 1000, 1000)
+                        .matchParentWidth()
+                        .matchParentHeight())
+      .build()
+    try {
+      // Avoid rendering any other components (nav bar and similar) so we do not have dependencies on the Material theme
+      model.configuration.setTheme("android:Theme.NoTitleBar.Fullscreen")
+      // Only the scene manager under test reacts to the model changes
+      Disposer.dispose(model.surface.sceneManager!!)
+
+      val rendersStarted = AtomicInteger()
+      val requestedDuringRender = CompletableFuture<CompletableFuture<Void>>()
+      val sceneManager = object : LayoutlibSceneManager(model, model.surface, { RenderSettings.getProjectSettings(project) },
+                                                        EdtExecutorService.getInstance()) {
+        override fun createSupersededCheck(): BooleanSupplier {
+          val isSuperseded = super.createSupersededCheck()
+          if (rendersStarted.incrementAndGet() > 1) {
+            return isSuperseded
+          }
+          return BooleanSupplier {
+            if (!requestedDuringRender.isDone) {
+              // Edit the model and request a render while the first render is running
+              model.notifyModified(NlModel.ChangeType.EDIT)
+              requestedDuringRender.complete(requestRender())
+            }
+            isSuperseded.asBoolean
+          }
+        }
+
+        // The edit is rendered by the render requested when the first one is superseded
+        override fun requestModelUpdate() {}
+      }
+      val requestsDoneWhenRendered = mutableListOf<Boolean>()
+      sceneManager.addRenderListener { requestsDoneWhenRendered.add(requestedDuringRender.getNow(null)?.isDone ?: true) }
+
+      val request = sceneManager.requestRender()
+      request.get(10, TimeUnit.SECONDS)
+      requestedDuringRender.get().get(10, TimeUnit.SECONDS)
+
+      // The first render was dropped, and the pending requests were only completed by the render that followed it
+      assertThat(rendersStarted.get()).isEqualTo(2)
+      assertThat(requestsDoneWhenRendered).containsExactly(false)
+      assertThat(sceneManager.renderResult).isNotNull()
+      assertThat(NlDiagnosticsManager.getReadInstance(model.surface).supersededRenders()).isEqualTo(1)
+    }
+    finally {
+      Disposer.dispose(model)
+      StudioFlags.NELE_RENDER_DIAGNOSTICS.clearOverride()
+    }
+  }
+
+  fun testPreviewRender() {
+    val model = model("absolute.xml",
+                      component(ABSOLUTE_LAYOUT)
+                        .withBounds(0, 0, 1000, 1000)
+                        .matchParentWidth()
+                        .matchParentHeight())
+      .build()
+    try {
+      // Avoid rendering any other components (nav bar and similar) so we do not have dependencies on the Material theme
+      model.configuration.setTheme("android:Theme.NoTitleBar.Fullscreen")
+      val sceneManager = model.surface.sceneManager as LayoutlibSceneManager
+      sceneManager.setPreviewRenderScale(0.25f)
+
+      sceneManager.requestRender().join()
+      assertThat(sceneManager.isShowingPreview).isTrue()
+      val previewWidth = sceneManager.renderResult!!.renderedImage.width
+
+      // The following renders are full renders
+      sceneManager.requestRender().join()
+      assertThat(sceneManager.isShowingPreview).isFalse()
+      assertThat(previewWidth).isAtMost(sceneManager.renderResult!!.renderedImage.width / 2)
+    }
+    finally {
+      Disposer.dispose(model)
+    }
+  }
+
   override fun createModel(): ModelBuilder {
     return model(SdkConstants.FD_RES_XML, "preference.xml",
                  component(SdkConstants.TAG_PREFERENCE_SCREEN)
                    .withBounds(0, 0, 1000, 1000)
                    .matchParentWidth()
                    .matchParentHeight()
+                   .children(
+                     component(CHECK_BOX_PREFERENCE)
+                       .withBounds(0, 0, 1000, 100),
+                     component(CHECK_BOX_PREFERENCE)
+                       .withBounds(0, 100, 1000, 100)
+                   )
     )
   }
 }
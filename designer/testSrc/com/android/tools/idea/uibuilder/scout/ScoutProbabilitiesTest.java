@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.uibuilder.scout;
+
+import static com.android.SdkConstants.CONSTRAINT_LAYOUT;
+import static com.android.SdkConstants.TEXT_VIEW;
+
+import com.android.tools.idea.common.fixtures.ComponentDescriptor;
+import com.android.tools.idea.common.fixtures.ModelBuilder;
+import com.android.tools.idea.common.model.NlComponent;
+import com.android.tools.idea.uibuilder.scene.SceneTest;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.util.ProgressIndicatorBase;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Tests for {@link ScoutProbabilities}.
+ */
+public class ScoutProbabilitiesTest extends SceneTest {
+  private static final int CHILD_COUNT = ScoutProbabilities.MIN_PARALLEL_WIDGETS + 4;
+
+  @Override
+  @NotNull
+  public ModelBuilder createModel() {
+    ComponentDescriptor[] children = new ComponentDescriptor[CHILD_COUNT];
+    for (int i = 0; i < CHILD_COUNT; i++) {
+      children[i] = component(TEXT_VIEW)
+        .id("@+id/text" + i)
+        .withBounds(20 + (i % 4) * 170, 20 + (i / 4) * 190, 98, 34)
+        .width("wrap_content")
+        .height("wrap_content");
+    }
+    return model("constraint.xml",
+                 component(CONSTRAINT_LAYOUT.defaultName())
+                   .id("@+id/content_main")
+                   .withBounds(0, 0, 720, 1024)
+                   .width("360dp")
+                   .height("512dp")
+                   .children(children));
+  }
+
+  @NotNull
+  private ScoutWidget[] createWidgets() {
+    NlComponent root = myModel.getComponents().get(0);
+    List<NlComponent> list = new ArrayList<>(root.getChildren());
+    list.add(0, root);
+    return ScoutWidget.create(list.toArray(new NlComponent[0]), false);
+  }
+
+  public void testLargeLayoutsAreComputedInParallel() {
+    assertFalse(ScoutProbabilities.isParallel(ScoutProbabilities.MIN_PARALLEL_WIDGETS - 1));
+    assertTrue(ScoutProbabilities.isParallel(ScoutProbabilities.MIN_PARALLEL_WIDGETS));
+    assertTrue(ScoutProbabilities.isParallel(createWidgets().length));
+  }
+
+  public void testParallelAndSequentialTablesAreIdentical() {
+    ScoutWidget[] widgets = createWidgets();
+    ScoutProbabilities sequential = new ScoutProbabilities();
+    sequential.prepare(widgets);
+    sequential.computeTables(false);
+    ScoutProbabilities parallel = new ScoutProbabilities();
+    parallel.prepare(widgets);
+    parallel.computeTables(true);
+
+    assertTrue(Arrays.deepEquals(sequential.mProbability, parallel.mProbability));
+    assertTrue(Arrays.deepEquals(sequential.mMargin, parallel.mMargin));
+    assertTrue(Arrays.deepEquals(sequential.mBinaryProbability, parallel.mBinaryProbability));
+    assertTrue(Arrays.deepEquals(sequential.mBinaryBias, parallel.mBinaryBias));
+  }
+
+  public void testComputationStopsWhenCanceled() {
+    ScoutProbabilities probabilities = new ScoutProbabilities();
+    probabilities.prepare(createWidgets());
+    ProgressIndicatorBase indicator = new ProgressIndicatorBase();
+    indicator.start();
+    indicator.cancel();
+    try {
+      ProgressManager.getInstance().runProcess(() -> probabilities.computeTables(true), indicator);
+      fail("The computation should have been canceled");
+    }
+    catch (ProcessCanceledException expected) {
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.uibuilder.visual
+
+import com.android.tools.idea.common.scene.SceneManager
+import com.android.tools.idea.common.surface.SceneView
+import com.android.tools.idea.uibuilder.scene.LayoutlibSceneManager
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.mockito.Mockito
+import org.mockito.Mockito.never
+import org.mockito.Mockito.verify
+import java.awt.Dimension
+import java.awt.Rectangle
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.atomic.AtomicBoolean
+
+class VisualizationFormTest {
+  private fun createManager(x: Int, y: Int, isShowingPreview: Boolean = true): LayoutlibSceneManager {
+    val sceneView = Mockito.mock(SceneView::class.java)
+    Mockito.`when`(sceneView.x).thenReturn(x)
+    Mockito.`when`(sceneView.y).thenReturn(y)
+    Mockito.`when`(sceneView.size).thenReturn(Dimension(100, 200))
+    val manager = Mockito.mock(LayoutlibSceneManager::class.java)
+    Mockito.`when`(manager.sceneView).thenReturn(sceneView)
+    Mockito.`when`(manager.isShowingPreview).thenReturn(isShowingPreview)
+    return manager
+  }
+
+  @Test
+  fun visiblePreviewsAreRefinedFirst() {
+    val viewRect = Rectangle(0, 1000, 500, 500)
+    val above = createManager(0, 0)
+    val visible1 = createManager(0, 900)
+    val below = createManager(0, 2000)
+    val visible2 = createManager(300, 1400)
+    val alreadyRefined = createManager(0, 1100, isShowingPreview = false)
+    val other = Mockito.mock(SceneManager::class.java)
+
+    val previews = VisualizationForm.getPreviewsToRefine(listOf(above, visible1, below, alreadyRefined, other, visible2), viewRect)
+
+    assertThat(previews).containsExactly(visible1, visible2, above, below).inOrder()
+  }
+
+  @Test
+  fun previewsAreRefinedOneAtATime() {
+    val managers = List(3) { createManager(0, 0) }
+    val renders = managers.map { manager ->
+      CompletableFuture<Void>().also { Mockito.`when`(manager.requestRender()).thenReturn(it) }
+    }
+
+    val refinement = VisualizationForm.refineInOrder(managers, AtomicBoolean(false))
+    verify(managers[0]).requestRender()
+    verify(managers[1], never()).requestRender()
+
+    renders[0].complete(null)
+    verify(managers[1]).requestRender()
+    verify(managers[2], never()).requestRender()
+
+    renders[1].complete(null)
+    renders[2].complete(null)
+    verify(managers[2]).requestRender()
+    assertThat(refinement.isDone).isTrue()
+  }
+
+  @Test
+  fun refinementStopsWhenCancelled() {
+    val managers = List(3) { createManager(0, 0) }
+    val firstRender = CompletableFuture<Void>()
+    Mockito.`when`(managers[0].requestRender()).thenReturn(firstRender)
+    val isCancelled = AtomicBoolean(false)
+
+    val refinement = VisualizationForm.refineInOrder(managers, isCancelled)
+    verify(managers[0]).requestRender()
+
+    // A new refinement cancels this one while the first model renders
+    isCancelled.set(true)
+    firstRender.complete(null)
+
+    assertThat(refinement.isDone).isTrue()
+    verify(managers[1], never()).requestRender()
+    verify(managers[2], never()).requestRender()
+  }
+
+  @Test
+  fun previewsRefinedMeanwhileAreSkipped() {
+    val managers = listOf(createManager(0, 0), createManager(0, 0, isShowingPreview = false))
+    Mockito.`when`(managers[0].requestRender()).thenReturn(CompletableFuture.completedFuture(null))
+
+    assertThat(VisualizationForm.refineInOrder(managers, AtomicBoolean(false)).isDone).isTrue()
+    verify(managers[0]).requestRender()
+    verify(managers[1], never()).requestRender()
+  }
+}
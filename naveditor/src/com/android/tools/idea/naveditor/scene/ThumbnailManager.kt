@@ -248,6 +248,7 @@ open class ThumbnailManager protected constructor(facet: AndroidFacet) : Android
                                 renderService: RenderService): RenderTask? {
     val task = renderService.taskBuilder(facet, configuration)
       .withPsiFile(file)
+      .useRenderResultCache()
       .buildSynchronously()
     task?.setDecorations(false)
     return task
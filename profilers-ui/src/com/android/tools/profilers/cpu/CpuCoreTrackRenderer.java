@@ -40,6 +40,8 @@ public class CpuCoreTrackRenderer implements TrackRenderer<CpuCoreTrackModel, Pr
     StateChart<CpuThreadSliceInfo> stateChart = new StateChart<>(dataModel.getStateChartModel(), new CpuCoreColorProvider());
     stateChart.setRenderMode(StateChart.RenderMode.TEXT);
     stateChart.setOpaque(true);
+    // CPU core states of a parsed capture never change, so rendered tiles can be reused while scrolling and panning.
+    stateChart.setTileCacheEnabled(true);
     return stateChart;
   }
 
@@ -44,6 +44,11 @@ public class CpuKernelCellRenderer extends CpuCellRenderer<CpuKernelModel.CpuSta
 
   private final boolean myDebugRenderingEnabled;
 
+  /**
+   * Selected thread the cached tiles of the state charts were drawn with, since the app process colors depend on it.
+   */
+  private int myTilesSelectedThread;
+
   /**
    * Current process id so we can highlight user process threads as a different color.
    */
@@ -65,6 +70,7 @@ public class CpuKernelCellRenderer extends CpuCellRenderer<CpuKernelModel.CpuSta
     myStage = stage;
     myProcessId = processId;
     myDebugRenderingEnabled = featureConfig.isPerformanceMonitoringEnabled();
+    myTilesSelectedThread = myStage.getSelectedThread();
   }
 
   @Override
@@ -96,6 +102,10 @@ public class CpuKernelCellRenderer extends CpuCellRenderer<CpuKernelModel.CpuSta
     // recalculating the render states. This causes the rendering time to be substantially improved.
     int cpuId = value.getCpuId();
     StateChartModel<CpuThreadSliceInfo> model = value.getModel();
+    if (myStage.getSelectedThread() != myTilesSelectedThread) {
+      myTilesSelectedThread = myStage.getSelectedThread();
+      myStateCharts.values().forEach(data -> data.getChart().invalidateTileCache());
+    }
     StateChart<CpuThreadSliceInfo> stateChart = getOrCreateStateChart(cpuId, model);
     stateChart.setDrawDebugInfo(myDebugRenderingEnabled);
     stateChart.setOpaque(true);
@@ -163,6 +173,7 @@ public class CpuKernelCellRenderer extends CpuCellRenderer<CpuKernelModel.CpuSta
       }
     }, (threadInfo) -> threadInfo.getName());
     stateChart.setRenderMode(StateChart.RenderMode.TEXT);
+    stateChart.setTileCacheEnabled(true);
     CpuCellRenderer.StateChartData<CpuThreadSliceInfo> data = new CpuCellRenderer.StateChartData<>(stateChart, model);
     stateChart.setHeightGap(0.0f); // Default config sets this to 0.5f;
     myStateCharts.put(cpuId, data);
@@ -140,6 +140,8 @@ public class CpuThreadTrackRenderer implements TrackRenderer<CpuThreadTrackModel
     }
     StateChart<CpuProfilerStage.ThreadState> threadStateChart = new StateChart<>(model, new CpuThreadColorProvider());
     threadStateChart.setHeightGap(0.0f);
+    // Thread states of a parsed capture never change, so rendered tiles can be reused while scrolling and panning.
+    threadStateChart.setTileCacheEnabled(true);
     return threadStateChart;
   }
 
@@ -43,6 +43,11 @@ public class StatusPanel extends JComponent {
    */
   @NotNull
   private JLabel myDurationLabel = new JLabel();
+  /**
+   * How far the operation is, only shown when the model can tell.
+   */
+  @NotNull
+  private final JLabel myProgressLabel = createLabel("", false);
   /**
    * Status itself (e.g. recording, parsing).
    */
@@ -77,7 +82,7 @@ public class StatusPanel extends JComponent {
     // entire panel area.
     JPanel mainPanel = new JPanel(new TabularLayout("*,300px,*", "*,150px,*"));
     // TODO(b/109661512): Move vgap scale into TabularLayout
-    JPanel statusPanel = new JPanel(new TabularLayout("*,Fit,20px,Fit,*", "28px,Fit,Fit,Fit,Fit,*").setVGap(JBUI.scale(5)));
+    JPanel statusPanel = new JPanel(new TabularLayout("*,Fit,20px,Fit,*", "28px,Fit,Fit,Fit,Fit,Fit,*").setVGap(JBUI.scale(5)));
     statusPanel.setBorder(new LineBorder(ProfilerColors.CPU_CAPTURE_STATUS, 1));
 
     JLabel status = createLabel("Status", true);
@@ -92,9 +97,15 @@ public class StatusPanel extends JComponent {
     statusPanel.add(myDurationLabel, new TabularLayout.Constraint(2, 3));
     statusPanel.add(technology, new TabularLayout.Constraint(3, 1));
     statusPanel.add(actualTechnology, new TabularLayout.Constraint(3, 3));
+    int buttonRow = 4;
+    if (myModel.getProgress() >= 0) {
+      statusPanel.add(createLabel("Progress", true), new TabularLayout.Constraint(4, 1));
+      statusPanel.add(myProgressLabel, new TabularLayout.Constraint(4, 3));
+      buttonRow = 5;
+    }
 
     // Adds the button centralized in the 3 middle columns (2nd to 4th).
-    statusPanel.add(createButtonPanel(), new TabularLayout.Constraint(4, 3, 1));
+    statusPanel.add(createButtonPanel(), new TabularLayout.Constraint(buttonRow, 3, 1));
 
     mainPanel.add(statusPanel, new TabularLayout.Constraint(1, 1));
     setLayout(new BorderLayout());
@@ -103,6 +114,11 @@ public class StatusPanel extends JComponent {
 
   private void updateDuration() {
     myDurationLabel.setText(getDurationText());
+    // The range changes on every update while the operation runs, which is often enough to refresh the progress too.
+    double progress = myModel.getProgress();
+    if (progress >= 0) {
+      myProgressLabel.setText(String.format("%d%%", Math.round(progress * 100)));
+    }
   }
 
   private static JLabel createLabel(String text, boolean isRightAligned) {
@@ -126,6 +142,11 @@ public class StatusPanel extends JComponent {
     return myDurationLabel;
   }
 
+  @VisibleForTesting
+  JLabel getProgressLabel() {
+    return myProgressLabel;
+  }
+
   @NotNull
   private String getDurationText() {
     return TimeFormatter
@@ -18,23 +18,30 @@ package com.android.tools.profilers.cpu.capturedetails;
 import com.android.tools.adtui.TabularLayout;
 import com.android.tools.adtui.TooltipView;
 import com.android.tools.adtui.common.AdtUiUtils;
+import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.formatter.TimeFormatter;
 import com.android.tools.profilers.ProfilerColors;
 import com.android.tools.profilers.cpu.CaptureNode;
+import com.android.tools.profilers.cpu.CaptureStatistics;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Tooltip view for displaying a node in a call chart or trace event chart.
  */
 public class CpuCaptureNodeTooltipView extends TooltipView {
   @NotNull private final CaptureNode myCaptureNode;
+  @Nullable private final CaptureStatistics.MethodStatistics myMethodStatistics;
+  @NotNull private final Range myStatisticsRange;
 
   public CpuCaptureNodeTooltipView(@NotNull JComponent parent, @NotNull CpuCaptureNodeTooltip tooltip) {
     super(tooltip.getTimeline());
     myCaptureNode = tooltip.getCaptureNode();
+    myMethodStatistics = tooltip.getMethodStatistics();
+    myStatisticsRange = tooltip.getStatisticsRange();
   }
 
   @NotNull
@@ -56,8 +63,21 @@ public class CpuCaptureNodeTooltipView extends TooltipView {
     content.add(runningLabel, new TabularLayout.Constraint(1, 0));
     content.add(idleLabel, new TabularLayout.Constraint(2, 0));
     content.add(totalLabel, new TabularLayout.Constraint(3, 0));
-    content.add(AdtUiUtils.createHorizontalSeparator(), new TabularLayout.Constraint(4, 0));
-    content.add(contextHelpLabel, new TabularLayout.Constraint(5, 0));
+    int row = 4;
+    if (myMethodStatistics != null && myMethodStatistics.getCount(myStatisticsRange) > 0) {
+      content.add(AdtUiUtils.createHorizontalSeparator(), new TabularLayout.Constraint(row++, 0));
+      content.add(new JLabel(String.format("Calls in thread: %d", myMethodStatistics.getCount(myStatisticsRange))),
+                  new TabularLayout.Constraint(row++, 0));
+      content.add(new JLabel(String.format("Longest call: %s",
+                                           TimeFormatter.getSingleUnitDurationString(
+                                             myMethodStatistics.getLongestDuration(myStatisticsRange)))),
+                  new TabularLayout.Constraint(row++, 0));
+      content.add(new JLabel(String.format("Self time in thread: %s",
+                                           TimeFormatter.getSingleUnitDurationString(myMethodStatistics.getSelfTime(myStatisticsRange)))),
+                  new TabularLayout.Constraint(row++, 0));
+    }
+    content.add(AdtUiUtils.createHorizontalSeparator(), new TabularLayout.Constraint(row++, 0));
+    content.add(contextHelpLabel, new TabularLayout.Constraint(row, 0));
     return content;
   }
 }
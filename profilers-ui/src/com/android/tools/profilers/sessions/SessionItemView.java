@@ -158,6 +158,18 @@ public final class SessionItemView extends SessionArtifactView<SessionItem> {
     return ImmutableList.of(endAction, ContextMenuItem.SEPARATOR, deleteAction);
   }
 
+  @Override
+  protected void exportArtifact() {
+    if (!getArtifact().canExport()) {
+      return;
+    }
+    getSessionsView().getIdeProfilerComponents().createExportDialog().open(
+      () -> "Export Session As",
+      () -> getArtifact().getName(),
+      () -> SessionArchive.FILE_EXTENSION,
+      file -> getProfilers().getIdeServices().saveFile(file, outputStream -> getArtifact().export(outputStream), null));
+  }
+
   /**
    * A component for rendering a green dot in {@link SessionItemView} to indicate that the session is ongoing.
    */
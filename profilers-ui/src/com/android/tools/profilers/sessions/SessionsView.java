@@ -371,7 +371,7 @@ public class SessionsView extends AspectObserver {
     loadAction.setAction(
       () -> myIdeProfilerComponents.createImportDialog().open(
         () -> "Open",
-        ImmutableList.of("hprof", "trace"),
+        ImmutableList.of("hprof", "trace", SessionArchive.FILE_EXTENSION),
         file -> {
           if (!myProfilers.getSessionsManager().importSessionFromFile(new File(file.getPath()))) {
             myIdeProfilerComponents.createUiMessageHandler()
@@ -50,6 +50,23 @@ class StatusPanelTest {
     assertThat(panel.durationLabel.text).contains("8")
   }
 
+  @Test
+  fun progressIsShownWhenKnown() {
+    val model = TestStatusPanelModel()
+    model.progress = 0.0
+    val panel = StatusPanel(model, "Status", "Abort")
+    model.progress = 0.42
+    model.testRange.max = TimeUnit.SECONDS.toNanos(8).toDouble()
+    assertThat(panel.progressLabel.text).isEqualTo("42%")
+    assertThat(TreeWalker(panel).descendants().filterIsInstance<JLabel>().map { it.text }).contains("Progress")
+  }
+
+  @Test
+  fun progressIsHiddenWhenUnknown() {
+    val panel = StatusPanel(TestStatusPanelModel(), "Status", "Abort")
+    assertThat(TreeWalker(panel).descendants().filterIsInstance<JLabel>().map { it.text }).doesNotContain("Progress")
+  }
+
   private fun getAbortbutton(panel: StatusPanel) = TreeWalker(panel)
     .descendants()
     .filterIsInstance<JButton>()
@@ -59,6 +76,7 @@ class StatusPanelTest {
 
 class TestStatusPanelModel : StatusPanelModel {
   var abortCalled = false
+  var progress = -1.0
   val testRange = Range(0.0, TimeUnit.SECONDS.toNanos(5).toDouble())
   override fun getConfigurationText(): String {
     return "Test"
@@ -72,4 +90,8 @@ class TestStatusPanelModel : StatusPanelModel {
     abortCalled = true
   }
 
+  override fun getProgress(): Double {
+    return progress
+  }
+
 }
\ No newline at end of file
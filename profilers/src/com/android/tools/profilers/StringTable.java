@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers;
+
+import com.android.tools.profiler.proto.Common;
+import com.android.tools.profilers.sessions.SessionsManager;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Interns the strings of profiler data (class names, method names, file names...).
+ * <p>
+ * Every capture of a session loads the same classes and methods again. Routing their names through the table of the session, see
+ * {@link SessionsManager#getStringTable(Common.Session)}, makes all the captures share one instance of each string instead of holding
+ * their own copies.
+ * <p>
+ * Captures load on several threads at once, so the table can be used from any thread without locking.
+ */
+public final class StringTable {
+  private final Map<String, String> myStrings = new ConcurrentHashMap<>();
+
+  /**
+   * @return the instance of {@code string} shared through this table, registering it if it's seen for the first time.
+   */
+  @NotNull
+  public String intern(@NotNull String string) {
+    String shared = myStrings.putIfAbsent(string, string);
+    return shared != null ? shared : string;
+  }
+
+  public int size() {
+    return myStrings.size();
+  }
+}
@@ -47,6 +47,7 @@ import com.android.tools.profiler.proto.Transport.GetProcessesRequest;
 import com.android.tools.profiler.proto.Transport.GetProcessesResponse;
 import com.android.tools.profiler.proto.Transport.TimeRequest;
 import com.android.tools.profiler.proto.Transport.TimeResponse;
+import com.android.tools.profilers.cpu.CpuCaptureParseScheduler;
 import com.android.tools.profilers.cpu.CpuProfiler;
 import com.android.tools.profilers.cpu.CpuProfilerStage;
 import com.android.tools.profilers.customevent.CustomEventProfiler;
@@ -133,6 +134,12 @@ public class StudioProfilers extends AspectModel<ProfilerAspect> implements Upda
 
   @NotNull private final SessionsManager mySessionsManager;
 
+  /**
+   * Schedules the parsing of the CPU captures loaded in these profilers. Half of the heap is given to parsing.
+   */
+  @NotNull private final CpuCaptureParseScheduler myCpuCaptureParseScheduler =
+    new CpuCaptureParseScheduler(Runtime.getRuntime().maxMemory() / 2);
+
   @Nullable
   private Common.Process myProcess;
 
@@ -288,6 +295,7 @@ public class StudioProfilers extends AspectModel<ProfilerAspect> implements Upda
     }
     // The following line can't throw an exception, will stop the updater's timer and guarantees future calls to isStopped() return true.
     myUpdater.stop();
+    mySessionsManager.releaseStringTables();
     // The following lines trigger aspect changes and, therefore, can make many models to update. That might cause an exception to be thrown
     // and make some models inconsistent. In this case, we want future calls to this method to return early, as we can only make the
     // inconsistency worse if we call these lines again.
@@ -791,6 +799,11 @@ public class StudioProfilers extends AspectModel<ProfilerAspect> implements Upda
     return mySessionsManager;
   }
 
+  @NotNull
+  public CpuCaptureParseScheduler getCpuCaptureParseScheduler() {
+    return myCpuCaptureParseScheduler;
+  }
+
   /**
    * @return the active session, otherwise {@link Common.Session#getDefaultInstance()} if no session is currently being profiled.
    */
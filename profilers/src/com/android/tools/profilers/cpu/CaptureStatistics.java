@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu;
+
+import com.android.tools.adtui.model.Range;
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Per-method statistics of a {@link CpuCapture}, computed once for all of its threads so that analysis queries don't need to traverse
+ * the capture trees again.
+ * <p>
+ * For every method called in a thread, the occurrences of the method are stored as arrays sorted by start time, along with prefix sums
+ * of their total and self times. Call count, total time and self time over any range are then answered with two binary searches, and
+ * the longest occurrence with a block maximum lookup. All times use the global clock, in microseconds.
+ */
+public final class CaptureStatistics {
+  /**
+   * Statistics by thread, in the order of the capture trees. Keyed by {@link CpuThreadInfo} rather than by thread id, since a capture
+   * can contain several threads with the same id (e.g. atrace captures where a thread id got reused).
+   */
+  @NotNull private final Map<CpuThreadInfo, ThreadStatistics> myThreads;
+
+  private CaptureStatistics(@NotNull Map<CpuThreadInfo, ThreadStatistics> threads) {
+    myThreads = threads;
+  }
+
+  /**
+   * Computes the statistics of all the given capture trees, one thread per task in parallel.
+   */
+  @NotNull
+  static CaptureStatistics compute(@NotNull Map<CpuThreadInfo, CaptureNode> captureTrees) {
+    Map<CpuThreadInfo, ThreadStatistics> threads = captureTrees.entrySet().parallelStream()
+      .collect(Collectors.toMap(Map.Entry::getKey, entry -> ThreadStatistics.compute(entry.getValue()),
+                                (first, second) -> first, LinkedHashMap::new));
+    return new CaptureStatistics(threads);
+  }
+
+  /**
+   * @return the statistics of the given thread, or null if the capture doesn't contain it.
+   */
+  @Nullable
+  public ThreadStatistics getThread(@NotNull CpuThreadInfo thread) {
+    return myThreads.get(thread);
+  }
+
+  /**
+   * @return the statistics of the first thread with the given id, like {@link CpuCapture#getCaptureNode(int)}, or null if the capture
+   * doesn't contain it.
+   */
+  @Nullable
+  public ThreadStatistics getThread(int threadId) {
+    for (Map.Entry<CpuThreadInfo, ThreadStatistics> entry : myThreads.entrySet()) {
+      if (entry.getKey().getId() == threadId) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  public static final class ThreadStatistics {
+    /**
+     * Methods by {@link CaptureNodeModel#getId()}, in order of first call.
+     */
+    @NotNull private final Map<String, MethodStatistics> myMethods;
+
+    private ThreadStatistics(@NotNull Map<String, MethodStatistics> methods) {
+      myMethods = methods;
+    }
+
+    @NotNull
+    private static ThreadStatistics compute(@NotNull CaptureNode root) {
+      Map<String, MethodStatistics.Builder> builders = new LinkedHashMap<>();
+      // Iterative pre-order traversal, as capture trees can be deeper than the thread stack allows for recursion. The root node
+      // represents the thread itself and isn't a method call.
+      Deque<CaptureNode> stack = new ArrayDeque<>();
+      for (int i = root.getChildCount() - 1; i >= 0; i--) {
+        stack.push(root.getChildAt(i));
+      }
+      while (!stack.isEmpty()) {
+        CaptureNode node = stack.pop();
+        long childrenDuration = 0;
+        for (int i = node.getChildCount() - 1; i >= 0; i--) {
+          CaptureNode child = node.getChildAt(i);
+          childrenDuration += child.getEndGlobal() - child.getStartGlobal();
+          stack.push(child);
+        }
+        long duration = node.getEndGlobal() - node.getStartGlobal();
+        builders.computeIfAbsent(node.getData().getId(), id -> new MethodStatistics.Builder(node.getData()))
+          .add(node.getStartGlobal(), duration, Math.max(0, duration - childrenDuration));
+      }
+
+      Map<String, MethodStatistics> methods = new LinkedHashMap<>();
+      builders.forEach((id, builder) -> methods.put(id, builder.build()));
+      return new ThreadStatistics(methods);
+    }
+
+    @NotNull
+    public Collection<MethodStatistics> getMethods() {
+      return Collections.unmodifiableCollection(myMethods.values());
+    }
+
+    @Nullable
+    public MethodStatistics getMethod(@NotNull String id) {
+      return myMethods.get(id);
+    }
+  }
+
+  /**
+   * Occurrences of a single method in a thread. An occurrence belongs to a range if it starts within it.
+   */
+  public static final class MethodStatistics {
+    /**
+     * Number of occurrences covered by each precomputed maximum.
+     */
+    private static final int BLOCK_SIZE = 64;
+
+    @NotNull private final CaptureNodeModel myModel;
+    private final long[] myStarts;
+    private final long[] myDurations;
+    /**
+     * Prefix sums of durations and self times: element i is the sum over the first i occurrences.
+     */
+    private final long[] myDurationSums;
+    private final long[] mySelfTimeSums;
+    /**
+     * Longest duration of each block of {@link #BLOCK_SIZE} consecutive occurrences.
+     */
+    private final long[] myBlockMaxDurations;
+
+    private MethodStatistics(@NotNull CaptureNodeModel model, long[] starts, long[] durations, long[] selfTimes) {
+      myModel = model;
+      myStarts = starts;
+      myDurations = durations;
+      myDurationSums = new long[starts.length + 1];
+      mySelfTimeSums = new long[starts.length + 1];
+      for (int i = 0; i < starts.length; i++) {
+        myDurationSums[i + 1] = myDurationSums[i] + durations[i];
+        mySelfTimeSums[i + 1] = mySelfTimeSums[i] + selfTimes[i];
+      }
+      myBlockMaxDurations = new long[(starts.length + BLOCK_SIZE - 1) / BLOCK_SIZE];
+      Arrays.fill(myBlockMaxDurations, -1);
+      for (int i = 0; i < durations.length; i++) {
+        myBlockMaxDurations[i / BLOCK_SIZE] = Math.max(myBlockMaxDurations[i / BLOCK_SIZE], durations[i]);
+      }
+    }
+
+    @NotNull
+    public CaptureNodeModel getModel() {
+      return myModel;
+    }
+
+    public int getCount(@NotNull Range range) {
+      return toIndex(range) - fromIndex(range);
+    }
+
+    /**
+     * @return the sum of the durations of the occurrences within {@code range}. Recursive calls are counted once per occurrence.
+     */
+    public long getTotalTime(@NotNull Range range) {
+      return myDurationSums[toIndex(range)] - myDurationSums[fromIndex(range)];
+    }
+
+    public long getSelfTime(@NotNull Range range) {
+      return mySelfTimeSums[toIndex(range)] - mySelfTimeSums[fromIndex(range)];
+    }
+
+    /**
+     * @return the duration of the longest occurrence within {@code range}, or -1 if there is none.
+     */
+    public long getLongestDuration(@NotNull Range range) {
+      int from = fromIndex(range);
+      int to = toIndex(range);
+      long longest = -1;
+      int i = from;
+      while (i < to) {
+        if (i % BLOCK_SIZE == 0 && i + BLOCK_SIZE <= to) {
+          longest = Math.max(longest, myBlockMaxDurations[i / BLOCK_SIZE]);
+          i += BLOCK_SIZE;
+        }
+        else {
+          longest = Math.max(longest, myDurations[i]);
+          i++;
+        }
+      }
+      return longest;
+    }
+
+    /**
+     * @return index of the first occurrence starting at or after the range's min.
+     */
+    private int fromIndex(@NotNull Range range) {
+      return lowerBound((long)Math.ceil(range.getMin()));
+    }
+
+    /**
+     * @return index of the first occurrence starting after the range's max.
+     */
+    private int toIndex(@NotNull Range range) {
+      return lowerBound((long)Math.floor(range.getMax()) + 1);
+    }
+
+    private int lowerBound(long timestamp) {
+      int index = Arrays.binarySearch(myStarts, timestamp);
+      if (index < 0) {
+        return -index - 1;
+      }
+      // Several occurrences can start at the same time (e.g. recursive calls), find the first one.
+      while (index > 0 && myStarts[index - 1] == timestamp) {
+        index--;
+      }
+      return index;
+    }
+
+    private static final class Builder {
+      @NotNull private final CaptureNodeModel myModel;
+      private long[] myStarts = new long[4];
+      private long[] myDurations = new long[4];
+      private long[] mySelfTimes = new long[4];
+      private int mySize;
+      private boolean mySorted = true;
+
+      private Builder(@NotNull CaptureNodeModel model) {
+        myModel = model;
+      }
+
+      private void add(long start, long duration, long selfTime) {
+        if (mySize == myStarts.length) {
+          myStarts = Arrays.copyOf(myStarts, mySize * 2);
+          myDurations = Arrays.copyOf(myDurations, mySize * 2);
+          mySelfTimes = Arrays.copyOf(mySelfTimes, mySize * 2);
+        }
+        mySorted &= mySize == 0 || myStarts[mySize - 1] <= start;
+        myStarts[mySize] = start;
+        myDurations[mySize] = duration;
+        mySelfTimes[mySize] = selfTime;
+        mySize++;
+      }
+
+      @NotNull
+      private MethodStatistics build() {
+        long[] starts = Arrays.copyOf(myStarts, mySize);
+        long[] durations = Arrays.copyOf(myDurations, mySize);
+        long[] selfTimes = Arrays.copyOf(mySelfTimes, mySize);
+        if (!mySorted) {
+          // Pre-order traversal of a well formed capture tree yields sorted start times, but don't rely on it.
+          Integer[] order = new Integer[mySize];
+          for (int i = 0; i < mySize; i++) {
+            order[i] = i;
+          }
+          Arrays.sort(order, Comparator.comparingLong(i -> myStarts[i]));
+          for (int i = 0; i < mySize; i++) {
+            starts[i] = myStarts[order[i]];
+            durations[i] = myDurations[order[i]];
+            selfTimes[i] = mySelfTimes[order[i]];
+          }
+        }
+        return new MethodStatistics(myModel, starts, durations, selfTimes);
+      }
+    }
+  }
+}
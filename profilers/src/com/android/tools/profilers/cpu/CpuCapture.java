@@ -56,6 +56,12 @@ public class CpuCapture implements ConfigurableDurationData {
    */
   private final Cpu.CpuTraceType myType;
 
+  /**
+   * Per-method statistics of all the threads, see {@link #getStatistics()}.
+   */
+  @Nullable
+  private volatile CaptureStatistics myStatistics;
+
   public CpuCapture(@NotNull TraceParser parser, long traceId, Cpu.CpuTraceType type) {
     myTraceId = traceId;
     myType = type;
@@ -129,6 +135,25 @@ public class CpuCapture implements ConfigurableDurationData {
     return myCaptureTrees.values();
   }
 
+  /**
+   * @return the per-method statistics of the capture. {@link CpuCaptureParser} computes them on its parsing thread, right after the
+   * capture is parsed. Captures created by other means (e.g. in tests) compute them on first access.
+   */
+  @NotNull
+  public CaptureStatistics getStatistics() {
+    CaptureStatistics statistics = myStatistics;
+    if (statistics == null) {
+      synchronized (this) {
+        statistics = myStatistics;
+        if (statistics == null) {
+          statistics = CaptureStatistics.compute(myCaptureTrees);
+          myStatistics = statistics;
+        }
+      }
+    }
+    return statistics;
+  }
+
   public boolean containsThread(int threadId) {
     return getCaptureNode(threadId) != null;
   }
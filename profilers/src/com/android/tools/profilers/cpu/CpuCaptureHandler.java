@@ -18,6 +18,7 @@ package com.android.tools.profilers.cpu;
 import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.updater.Updatable;
 import com.android.tools.profilers.IdeProfilerServices;
+import com.android.tools.profilers.StringTable;
 import java.io.File;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -36,13 +37,19 @@ public class CpuCaptureHandler implements Updatable, StatusPanelModel {
   @NotNull private final File myCaptureFile;
   private boolean myIsParsing = false;
   private final boolean myIsImportedTrace;
+  /**
+   * Whether the capture is not used anymore, e.g. because the stage showing it was exited.
+   */
+  private boolean myIsReleased = false;
 
   public CpuCaptureHandler(@NotNull IdeProfilerServices services,
                            @NotNull File captureFile,
                            @NotNull ProfilingConfiguration configuration,
                            @Nullable String captureProcessNameHint,
-                           int captureProcessIdHint) {
-    myCaptureParser = new CpuCaptureParser(services);
+                           int captureProcessIdHint,
+                           @NotNull CpuCaptureParseScheduler parseScheduler,
+                           @NotNull StringTable stringTable) {
+    myCaptureParser = new CpuCaptureParser(services, parseScheduler, stringTable);
     myCaptureParser.setProcessNameHint(captureProcessNameHint, captureProcessIdHint);
     myCaptureFile = captureFile;
     myServices = services;
@@ -73,6 +80,15 @@ public class CpuCaptureHandler implements Updatable, StatusPanelModel {
     return myConfiguration.getName();
   }
 
+  /**
+   * {@link StatusPanelModel} interface override.
+   * Returns the progress reported by the trace parser.
+   */
+  @Override
+  public double getProgress() {
+    return myCaptureParser.getParsingProgress();
+  }
+
   /**
    * {@link StatusPanelModel} interface override.
    * Aborts the capture parser.
@@ -93,6 +109,16 @@ public class CpuCaptureHandler implements Updatable, StatusPanelModel {
     }
   }
 
+  /**
+   * Stops parsing the capture without notifying the callback given to {@link #parse(Consumer)}, and frees the share of the parsing memory
+   * budget held by the capture.
+   */
+  public void release() {
+    myIsReleased = true;
+    myIsParsing = false;
+    myCaptureParser.release();
+  }
+
   /**
    * Starts parsing a capture on failure to parse a notification will be triggered indicating the failure type.
    *
@@ -112,6 +138,9 @@ public class CpuCaptureHandler implements Updatable, StatusPanelModel {
 
     // Parsing is in progress. Handle it asynchronously and set the capture afterwards using the main executor.
     capture.handleAsync((parsedCapture, exception) -> {
+      if (myIsReleased) {
+        return parsedCapture;
+      }
       if (capture.isCancelled()) {
         myServices.showNotification(CpuProfilerNotifications.IMPORT_TRACE_PARSING_ABORTED);
       }
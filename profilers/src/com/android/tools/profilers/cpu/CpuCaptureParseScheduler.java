@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu;
+
+import com.android.tools.profilers.StudioProfilers;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Schedules capture parsing jobs for all the {@link CpuCaptureParser}s of a {@link StudioProfilers}.
+ * <p>
+ * The most recently submitted job has the highest priority, as it's the capture the user is waiting for. Jobs are admitted to run
+ * while the estimated memory of the running jobs and of the captures they produced fits in a budget, so parsing a second capture doesn't
+ * compete for memory with a large one already in progress or still loaded. A job is always admitted when nothing else is running,
+ * whatever its estimate.
+ * <p>
+ * A capture holds its share of the budget until its owner calls {@link #release(Object)}, e.g. when the stage showing it exits. A job
+ * that fails, produces no capture or is cancelled frees its share as soon as it stops.
+ * <p>
+ * Cancelling the future of a job removes it from the queue, or, if it's running, cancels its {@link TraceParsingMonitor} so the parser
+ * stops at its next cancellation check.
+ */
+public final class CpuCaptureParseScheduler {
+  /**
+   * Parsed captures take several times the size of their trace in memory.
+   */
+  private static final int MEMORY_PER_TRACE_BYTE = 4;
+
+  private final long myMemoryBudgetBytes;
+
+  private final PriorityQueue<Job<?>> myPendingJobs =
+    new PriorityQueue<>(Comparator.comparingLong((Job<?> job) -> job.mySequence).reversed());
+  private final List<Job<?>> myRunningJobs = new ArrayList<>();
+  /**
+   * Jobs that completed with a capture which wasn't released yet.
+   */
+  private final List<Job<?>> myHeldJobs = new ArrayList<>();
+  /**
+   * Estimated memory of the running and held jobs.
+   */
+  private long myAdmittedMemoryBytes;
+  private long myNextSequence;
+
+  public CpuCaptureParseScheduler(long memoryBudgetBytes) {
+    myMemoryBudgetBytes = memoryBudgetBytes;
+  }
+
+  static long estimateMemoryBytes(long traceSizeBytes) {
+    return traceSizeBytes * MEMORY_PER_TRACE_BYTE;
+  }
+
+  /**
+   * Queues {@code task} to run on {@code executor} with {@code monitor} installed, once admitted.
+   *
+   * @param owner the object holding the result, which must {@link #release(Object)} it once it's not used anymore.
+   * @return a future completed with the task result, or cancelled if the task stopped because its monitor was cancelled.
+   */
+  @NotNull
+  <T> CompletableFuture<T> submit(@NotNull Object owner,
+                                  @NotNull TraceParsingMonitor monitor,
+                                  long estimatedMemoryBytes,
+                                  @NotNull Executor executor,
+                                  @NotNull Supplier<T> task) {
+    Job<T> job;
+    synchronized (this) {
+      job = new Job<>(myNextSequence++, owner, monitor, estimatedMemoryBytes, executor, task);
+      myPendingJobs.add(job);
+    }
+    job.myFuture.whenComplete((result, exception) -> {
+      if (job.myFuture.isCancelled()) {
+        monitor.cancel();
+        synchronized (this) {
+          myPendingJobs.remove(job);
+        }
+      }
+    });
+    dispatch();
+    return job.myFuture;
+  }
+
+  /**
+   * Cancels the pending and running jobs of {@code owner} and frees the share of the budget held by the captures it was given.
+   */
+  void release(@NotNull Object owner) {
+    List<Job<?>> jobsToCancel = new ArrayList<>();
+    synchronized (this) {
+      for (Job<?> job : myPendingJobs) {
+        if (job.myOwner == owner) {
+          jobsToCancel.add(job);
+        }
+      }
+      for (Job<?> job : myRunningJobs) {
+        if (job.myOwner == owner) {
+          job.myReleased = true;
+          jobsToCancel.add(job);
+        }
+      }
+      myHeldJobs.removeIf(job -> {
+        if (job.myOwner != owner) {
+          return false;
+        }
+        myAdmittedMemoryBytes -= job.myMemoryBytes;
+        return true;
+      });
+    }
+    // Cancelling removes pending jobs from the queue, and running jobs free their share once their parser stops.
+    jobsToCancel.forEach(job -> job.myFuture.cancel(true));
+    dispatch();
+  }
+
+  private void dispatch() {
+    List<Job<?>> jobsToStart = new ArrayList<>();
+    synchronized (this) {
+      while (!myPendingJobs.isEmpty()) {
+        Job<?> next = myPendingJobs.peek();
+        if (!myRunningJobs.isEmpty() && myAdmittedMemoryBytes + next.myMemoryBytes > myMemoryBudgetBytes) {
+          break;
+        }
+        myPendingJobs.poll();
+        myRunningJobs.add(next);
+        myAdmittedMemoryBytes += next.myMemoryBytes;
+        jobsToStart.add(next);
+      }
+    }
+    for (Job<?> job : jobsToStart) {
+      job.myExecutor.execute(() -> run(job));
+    }
+  }
+
+  private <T> void run(@NotNull Job<T> job) {
+    try {
+      job.myMonitor.runWith(() -> {
+        if (job.myFuture.isDone()) {
+          return;
+        }
+        try {
+          T result = job.myTask.get();
+          TraceParsingMonitor.reportProgress(1);
+          job.myFuture.complete(result);
+        }
+        catch (TraceParsingMonitor.CanceledException e) {
+          job.myFuture.cancel(false);
+        }
+        catch (Throwable t) {
+          job.myFuture.completeExceptionally(t);
+        }
+      });
+    }
+    finally {
+      synchronized (this) {
+        myRunningJobs.remove(job);
+        // Cancelled and failed jobs complete exceptionally, jobs that parsed nothing complete with null.
+        if (!job.myReleased && !job.myFuture.isCompletedExceptionally() && job.myFuture.getNow(null) != null) {
+          myHeldJobs.add(job);
+        }
+        else {
+          myAdmittedMemoryBytes -= job.myMemoryBytes;
+        }
+      }
+      dispatch();
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int getPendingJobCount() {
+    return myPendingJobs.size();
+  }
+
+  @VisibleForTesting
+  synchronized int getRunningJobCount() {
+    return myRunningJobs.size();
+  }
+
+  @VisibleForTesting
+  synchronized long getAdmittedMemoryBytes() {
+    return myAdmittedMemoryBytes;
+  }
+
+  private static final class Job<T> {
+    private final long mySequence;
+    @NotNull private final Object myOwner;
+    @NotNull private final TraceParsingMonitor myMonitor;
+    private final long myMemoryBytes;
+    @NotNull private final Executor myExecutor;
+    @NotNull private final Supplier<T> myTask;
+    @NotNull private final CompletableFuture<T> myFuture = new CompletableFuture<>();
+    /**
+     * Whether the owner released the job while it was running, in which case its result isn't held.
+     */
+    private boolean myReleased;
+
+    private Job(long sequence,
+                @NotNull Object owner,
+                @NotNull TraceParsingMonitor monitor,
+                long memoryBytes,
+                @NotNull Executor executor,
+                @NotNull Supplier<T> task) {
+      mySequence = sequence;
+      myOwner = owner;
+      myMonitor = monitor;
+      myMemoryBytes = memoryBytes;
+      myExecutor = executor;
+      myTask = task;
+    }
+  }
+}
@@ -21,12 +21,14 @@ import com.android.tools.profiler.proto.Common;
 import com.android.tools.profiler.proto.Cpu.CpuTraceType;
 import com.android.tools.idea.protobuf.ByteString;
 import com.android.tools.profilers.IdeProfilerServices;
+import com.android.tools.profilers.StringTable;
 import com.android.tools.profilers.cpu.art.ArtTraceParser;
 import com.android.tools.profilers.cpu.atrace.AtraceParser;
 import com.android.tools.profilers.cpu.atrace.AtraceProducer;
 import com.android.tools.profilers.cpu.atrace.CpuThreadSliceInfo;
 import com.android.tools.profilers.cpu.atrace.PerfettoProducer;
 import com.android.tools.profilers.cpu.simpleperf.SimpleperfTraceParser;
+import com.android.tools.profilers.sessions.SessionsManager;
 import com.google.common.annotations.VisibleForTesting;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.text.StringUtil;
@@ -62,6 +64,19 @@ public class CpuCaptureParser {
    */
   static final long IMPORTED_TRACE_ID = 42L;
 
+  /**
+   * Schedules the parsing of all captures of the profilers. It's shared because a parser is created for every capture that is loaded,
+   * while parsing jobs compete for the same threads and memory.
+   */
+  @NotNull
+  private final CpuCaptureParseScheduler myParseScheduler;
+
+  /**
+   * Shares the names of the methods of the ART captures with the other captures of the session.
+   */
+  @NotNull
+  private final StringTable myStringTable;
+
   /**
    * Maps a trace id to a corresponding {@link CompletableFuture<CpuCapture>}.
    */
@@ -88,6 +103,17 @@ public class CpuCaptureParser {
    */
   private long myParsingStartTimeMs;
 
+  /**
+   * Monitor of the most recently started parsing, used to report its progress.
+   */
+  @Nullable
+  private volatile TraceParsingMonitor myParsingMonitor;
+
+  /**
+   * Captures whose parsing was cancelled because another capture was selected. Their cancellation is not reported to the user.
+   */
+  private final Set<CompletableFuture<CpuCapture>> mySupersededCaptures = new HashSet<>();
+
   /**
    * Hint to the parser what process to look for. This is used when parsing Perfetto/Atrace captures that were recorded from the UI.
    */
@@ -109,8 +135,23 @@ public class CpuCaptureParser {
    */
   private static Set<String> myPreviouslyLoadedCaptures = new HashSet<>();
 
+  /**
+   * Creates a parser with its own scheduler, whose budget admits every capture.
+   */
+  @VisibleForTesting
   public CpuCaptureParser(@NotNull IdeProfilerServices services) {
+    this(services, new CpuCaptureParseScheduler(Long.MAX_VALUE), new StringTable());
+  }
+
+  /**
+   * @param stringTable the table of the session the captures belong to, see {@link SessionsManager#getStringTable(Common.Session)}.
+   */
+  public CpuCaptureParser(@NotNull IdeProfilerServices services,
+                          @NotNull CpuCaptureParseScheduler parseScheduler,
+                          @NotNull StringTable stringTable) {
     myServices = services;
+    myParseScheduler = parseScheduler;
+    myStringTable = stringTable;
     myCaptures = new HashMap<>();
   }
 
@@ -150,6 +191,10 @@ public class CpuCaptureParser {
    */
   public void abortParsing() {
     myCaptures.forEach((id, capture) -> {
+      // Imports that failed to start have no future, and parsed captures have nothing left to abort.
+      if (capture == null || capture.isDone()) {
+        return;
+      }
       boolean isCaptureCancelled = capture.cancel(true);
       if (!isCaptureCancelled) {
         getLogger().warn(String.format("Parsing of capture %d was not properly cancelled.", id));
@@ -157,10 +202,44 @@ public class CpuCaptureParser {
     });
   }
 
+  /**
+   * Aborts the parsing in progress and frees the share of the parsing memory budget held by the captures of this parser. Called once
+   * the captures are not used anymore.
+   */
+  public void release() {
+    abortParsing();
+    myParseScheduler.release(this);
+  }
+
+  /**
+   * Cancels the parsing of every capture but {@code traceId}, so that the capture the user just selected gets the parsing threads and
+   * memory right away. Cancelled captures are forgotten, so selecting them again parses them again.
+   */
+  private void cancelParsingExcept(long traceId) {
+    myCaptures.entrySet().removeIf(entry -> {
+      CompletableFuture<CpuCapture> capture = entry.getValue();
+      if (entry.getKey() == traceId || capture == null || capture.isDone()) {
+        return false;
+      }
+      mySupersededCaptures.add(capture);
+      capture.cancel(true);
+      return true;
+    });
+  }
+
   public boolean isParsing() {
     return myIsParsing;
   }
 
+  /**
+   * @return the progress of the most recently started parsing, between 0 and 1. Parsers that can't tell how far they are only report
+   * progress at the end of their phases.
+   */
+  public double getParsingProgress() {
+    TraceParsingMonitor monitor = myParsingMonitor;
+    return monitor == null ? 0 : monitor.getProgress();
+  }
+
   public long getParsingElapsedTimeMs() {
     return System.currentTimeMillis() - myParsingStartTimeMs;
   }
@@ -265,9 +344,22 @@ public class CpuCaptureParser {
   }
 
   private CompletableFuture<CpuCapture> createCaptureFuture(@NotNull File traceFile) {
-    CompletableFuture<CpuCapture> future =
-      CompletableFuture.supplyAsync(() -> tryParsingFileWithDifferentParsers(traceFile), myServices.getPoolExecutor());
-    return future;
+    TraceParsingMonitor monitor = new TraceParsingMonitor();
+    myParsingMonitor = monitor;
+    return myParseScheduler.submit(this, monitor, CpuCaptureParseScheduler.estimateMemoryBytes(traceFile.length()),
+                                   myServices.getPoolExecutor(), () -> computeStatistics(tryParsingFileWithDifferentParsers(traceFile)));
+  }
+
+  /**
+   * Computes the capture's {@link CaptureStatistics} on the parsing thread, so the analysis models don't traverse the capture trees again
+   * when they query them.
+   */
+  @Nullable
+  private static CpuCapture computeStatistics(@Nullable CpuCapture capture) {
+    if (capture != null) {
+      capture.getStatistics();
+    }
+    return capture;
   }
 
   /**
@@ -278,9 +370,12 @@ public class CpuCaptureParser {
   private CpuCapture tryParsingFileWithDifferentParsers(File traceFile) {
     try {
       // First try parsing the trace file as an ART trace.
-      ArtTraceParser artTraceParser = new ArtTraceParser();
+      ArtTraceParser artTraceParser = new ArtTraceParser(myStringTable);
       return artTraceParser.parse(traceFile, IMPORTED_TRACE_ID);
     }
+    catch (TraceParsingMonitor.CanceledException e) {
+      throw e;
+    }
     catch (Exception ignored) {
       // We should go on and try parsing the file as a simpleperf or atrace trace.
     }
@@ -290,6 +385,9 @@ public class CpuCaptureParser {
       SimpleperfTraceParser simpleperfParser = new SimpleperfTraceParser();
       return simpleperfParser.parse(traceFile, IMPORTED_TRACE_ID);
     }
+    catch (TraceParsingMonitor.CanceledException e) {
+      throw e;
+    }
     catch (Exception ignored) {
       // We should go on and try parsing the file as an atrace trace.
     }
@@ -331,6 +429,9 @@ public class CpuCaptureParser {
         }
       }
     }
+    catch (TraceParsingMonitor.CanceledException e) {
+      throw e;
+    }
     catch (Exception ex) {
       // We failed to find a proper process, or the file was not atrace.
     }
@@ -351,6 +452,7 @@ public class CpuCaptureParser {
                                              @NotNull ByteString traceData,
                                              CpuTraceType profilerType) {
     updateParsingStateWhenStarting();
+    cancelParsingExcept(traceId);
 
     if (!myCaptures.containsKey(traceId)) {
       // Trace is not being parsed nor is already parsed. We need to start parsing it.
@@ -389,6 +491,10 @@ public class CpuCaptureParser {
     metadata.setTraceFileSizeBytes(traceDataSize);
     if (future != null) {
       future.whenCompleteAsync((capture, exception) -> {
+        if (mySupersededCaptures.remove(future)) {
+          // The capture will be parsed again if it's selected again, its metadata is sent then.
+          return;
+        }
         if (capture != null) {
           // Update capture metadata
           metadata.setStatus(CpuCaptureMetadata.CaptureStatus.SUCCESS);
@@ -450,8 +556,10 @@ public class CpuCaptureParser {
     CpuCaptureMetadata metadata = myCaptureMetadataMap.containsKey(traceId) ?
                                   myCaptureMetadataMap.get(traceId) : new CpuCaptureMetadata(new ProfilingConfiguration());
 
-    CompletableFuture<CpuCapture> future =
-      CompletableFuture.supplyAsync(() -> {
+    TraceParsingMonitor monitor = new TraceParsingMonitor();
+    myParsingMonitor = monitor;
+    CompletableFuture<CpuCapture> parsingFuture = myParseScheduler.submit(
+      this, monitor, CpuCaptureParseScheduler.estimateMemoryBytes(traceBytes.size()), myServices.getPoolExecutor(), () -> {
         ByteString processedBytes = traceBytes;
         metadata.setTraceFileSizeBytes(processedBytes.size());
         boolean failedToPreProcess = processedBytes.equals(TracePreProcessor.FAILURE);
@@ -459,15 +567,22 @@ public class CpuCaptureParser {
           metadata.setStatus(CpuCaptureMetadata.CaptureStatus.PREPROCESS_FAILURE);
           return null;
         }
-        return traceBytesToCapture(session, traceId, processedBytes, profilerType);
-      }, myServices.getPoolExecutor())
-        .thenApplyAsync(capture -> {
-          if (metadata.getStatus() == CpuCaptureMetadata.CaptureStatus.PREPROCESS_FAILURE) {
-            myServices.showNotification(CpuProfilerNotifications.PREPROCESS_FAILURE);
-            getLogger().warn("Unable to pre-process trace file.");
-          }
-          return capture;
-        }, myServices.getMainExecutor());
+        return computeStatistics(traceBytesToCapture(session, traceId, processedBytes, profilerType));
+      });
+    CompletableFuture<CpuCapture> future = parsingFuture
+      .thenApplyAsync(capture -> {
+        if (metadata.getStatus() == CpuCaptureMetadata.CaptureStatus.PREPROCESS_FAILURE) {
+          myServices.showNotification(CpuProfilerNotifications.PREPROCESS_FAILURE);
+          getLogger().warn("Unable to pre-process trace file.");
+        }
+        return capture;
+      }, myServices.getMainExecutor());
+    // Cancelling the returned future (e.g. from abortParsing) must stop the parser itself.
+    future.whenComplete((capture, exception) -> {
+      if (future.isCancelled()) {
+        parsingFuture.cancel(true);
+      }
+    });
 
     return future;
   }
@@ -479,7 +594,7 @@ public class CpuCaptureParser {
       File trace = CpuCaptureStage.saveCapture(traceId, traceData);
       TraceParser parser;
       if (profilerType == CpuTraceType.ART) {
-        parser = new ArtTraceParser();
+        parser = new ArtTraceParser(myStringTable);
       }
       else if (profilerType == CpuTraceType.SIMPLEPERF) {
         parser = new SimpleperfTraceParser();
@@ -179,7 +179,9 @@ public class CpuCaptureStage extends Stage<Timeline> {
                   int captureProcessIdHint) {
     super(profilers);
     myCpuCaptureHandler =
-      new CpuCaptureHandler(profilers.getIdeServices(), captureFile, configuration, captureProcessNameHint, captureProcessIdHint);
+      new CpuCaptureHandler(profilers.getIdeServices(), captureFile, configuration, captureProcessNameHint, captureProcessIdHint,
+                            profilers.getCpuCaptureParseScheduler(),
+                            profilers.getSessionsManager().getStringTable(profilers.getSession()));
   }
 
   public State getState() {
@@ -271,6 +273,8 @@ public class CpuCaptureStage extends Stage<Timeline> {
   @Override
   public void exit() {
     getStudioProfilers().getUpdater().unregister(myCpuCaptureHandler);
+    // E.g. another capture was selected, so stop parsing this one right away.
+    myCpuCaptureHandler.release();
   }
 
   public void addCpuAnalysisModel(@NotNull CpuAnalysisModel model) {
@@ -226,7 +226,8 @@ public class CpuProfilerStage extends StreamingStage implements CodeNavigator.Li
   }
 
   public CpuProfilerStage(@NotNull StudioProfilers profilers, @Nullable File importedTrace) {
-    this(profilers, importedTrace, new CpuCaptureParser(profilers.getIdeServices()));
+    this(profilers, importedTrace, new CpuCaptureParser(profilers.getIdeServices(), profilers.getCpuCaptureParseScheduler(),
+                                                        profilers.getSessionsManager().getStringTable(profilers.getSession())));
   }
 
   @VisibleForTesting
@@ -435,8 +436,8 @@ public class CpuProfilerStage extends StreamingStage implements CodeNavigator.Li
     getStudioProfilers().getIdeServices().getCodeNavigator().removeListener(this);
     getStudioProfilers().removeDependencies(this);
 
-    // Asks the parser to interrupt any parsing in progress.
-    myCaptureParser.abortParsing();
+    // Asks the parser to interrupt any parsing in progress and to give back the memory budget of its captures.
+    myCaptureParser.release();
     myRangeSelectionModel.clearListeners();
     myUpdatableManager.releaseAll();
   }
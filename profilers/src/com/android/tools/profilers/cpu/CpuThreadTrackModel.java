@@ -34,6 +34,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Track model for CPU threads in CPU capture stage. Consists of thread states and trace events.
@@ -67,7 +68,8 @@ public class CpuThreadTrackModel implements CpuAnalyzable<CpuThreadTrackModel> {
     mySelectionRange = range;
     myThreadInfo = threadInfo;
 
-    myTraceEventTooltipBuilder = captureNode -> new CpuCaptureNodeTooltip(timeline, captureNode);
+    myTraceEventTooltipBuilder = captureNode -> new CpuCaptureNodeTooltip(timeline, captureNode, getMethodStatistics(captureNode),
+                                                                          capture.getRange());
 
     myMultiSelectionModel = multiSelectionModel;
   }
@@ -133,6 +135,15 @@ public class CpuThreadTrackModel implements CpuAnalyzable<CpuThreadTrackModel> {
     return myMultiSelectionModel;
   }
 
+  /**
+   * @return statistics of the node's method in this thread, which {@link CpuCaptureParser} computed when parsing the capture.
+   */
+  @Nullable
+  private CaptureStatistics.MethodStatistics getMethodStatistics(@NotNull CaptureNode node) {
+    CaptureStatistics.ThreadStatistics thread = myCapture.getStatistics().getThread(myThreadInfo.getId());
+    return thread == null ? null : thread.getMethod(node.getData().getId());
+  }
+
   private Collection<CaptureNode> getCaptureNode() {
     assert myCapture.containsThread(myThreadInfo.getId());
     return Collections.singleton(myCapture.getCaptureNode(myThreadInfo.getId()));
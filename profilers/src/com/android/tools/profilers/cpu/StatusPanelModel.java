@@ -34,6 +34,13 @@ public interface StatusPanelModel {
   @NotNull
   Range getRange();
 
+  /**
+   * @return the progress of the operation between 0 and 1, or a negative value if the operation can't tell how far it is.
+   */
+  default double getProgress() {
+    return -1;
+  }
+
   /**
    * A way for the user to cancel / stop the current running operation if they deem it takes to long.
    */
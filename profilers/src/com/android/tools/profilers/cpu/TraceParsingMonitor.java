@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cancellation and progress hooks for {@link TraceParser}s.
+ * <p>
+ * {@link CpuCaptureParser} installs a monitor on the thread parsing a capture. Parsers call the static {@link #checkCanceled()} and
+ * {@link #reportProgress(double)} from their main loops, which are no-ops when no monitor is installed, e.g. when a parser is used
+ * directly.
+ */
+public final class TraceParsingMonitor {
+  private static final ThreadLocal<TraceParsingMonitor> ourCurrentMonitor = new ThreadLocal<>();
+
+  private volatile boolean myCanceled;
+  private volatile double myProgress;
+
+  /**
+   * Requests the parsing to stop. The parser notices it at its next {@link #checkCanceled()}.
+   */
+  public void cancel() {
+    myCanceled = true;
+  }
+
+  public boolean isCanceled() {
+    return myCanceled;
+  }
+
+  /**
+   * @return the last progress reported by the parser, between 0 and 1.
+   */
+  public double getProgress() {
+    return myProgress;
+  }
+
+  /**
+   * Runs {@code runnable} with this monitor installed on the current thread.
+   */
+  void runWith(@NotNull Runnable runnable) {
+    TraceParsingMonitor previous = ourCurrentMonitor.get();
+    ourCurrentMonitor.set(this);
+    try {
+      runnable.run();
+    }
+    finally {
+      ourCurrentMonitor.set(previous);
+    }
+  }
+
+  /**
+   * @throws CanceledException if the parsing running on the current thread was canceled.
+   */
+  public static void checkCanceled() {
+    TraceParsingMonitor monitor = ourCurrentMonitor.get();
+    if (monitor != null && monitor.myCanceled) {
+      throw new CanceledException();
+    }
+  }
+
+  /**
+   * Reports the progress of the parsing running on the current thread, as a fraction between 0 and 1.
+   */
+  public static void reportProgress(double fraction) {
+    TraceParsingMonitor monitor = ourCurrentMonitor.get();
+    if (monitor != null) {
+      monitor.myProgress = Math.max(0, Math.min(1, fraction));
+    }
+  }
+
+  /**
+   * @return the monitor installed on the current thread, if any. Used by parsers that hand work over to other threads.
+   */
+  @Nullable
+  public static TraceParsingMonitor getCurrent() {
+    return ourCurrentMonitor.get();
+  }
+
+  /**
+   * Thrown by {@link #checkCanceled()} to unwind a canceled parsing.
+   */
+  public static final class CanceledException extends RuntimeException {
+    public CanceledException() {
+      super("Trace parsing was canceled");
+    }
+  }
+}
@@ -18,11 +18,16 @@ package com.android.tools.profilers.cpu.art;
 import com.android.tools.perflib.vmtrace.MethodInfo;
 import com.android.tools.perflib.vmtrace.TraceAction;
 import com.android.tools.perflib.vmtrace.VmTraceHandler;
+import com.android.tools.profiler.proto.Common;
+import com.android.tools.profilers.StringTable;
 import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.CpuThreadInfo;
+import com.android.tools.profilers.cpu.TraceParsingMonitor;
 import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel;
 import com.android.tools.profilers.cpu.nodemodel.JavaMethodModel;
 import com.android.tools.profilers.cpu.nodemodel.SingleNameModel;
+import com.android.tools.profilers.sessions.SessionsManager;
+import com.google.common.annotations.VisibleForTesting;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
@@ -33,6 +38,10 @@ import org.jetbrains.annotations.Nullable;
 public class ArtTraceHandler implements VmTraceHandler {
   private static final String MAIN_THREAD_NAME = "main";
   private static final String KEY_ELAPSED_TIME_US = "elapsed-time-usec";
+  /**
+   * Number of method actions in the trace, as written in its header. Streaming traces don't have it.
+   */
+  private static final String KEY_NUM_METHOD_CALLS = "num-method-calls";
   private long myStartTimeUs;
   private long myElapsedTimeUs;
 
@@ -46,6 +55,12 @@ public class ArtTraceHandler implements VmTraceHandler {
    */
   private final Map<Long, CaptureNodeModel> myMethods = new HashMap<>();
 
+  /**
+   * Shares the class names and signatures of the methods, which repeat across the methods of a class and across overloads.
+   */
+  @NotNull
+  private final StringTable myStringTable;
+
   /**
    * Map from thread id to per thread stack call constructor.
    */
@@ -54,6 +69,28 @@ public class ArtTraceHandler implements VmTraceHandler {
   @Nullable
   private Map<CpuThreadInfo, CaptureNode> myThreadsGraph;
 
+  /**
+   * Number of method actions handled so far, used to check for cancellation periodically rather than on every action.
+   */
+  private int myMethodActionCount;
+
+  /**
+   * Number of method actions announced by the trace header, or 0 if unknown.
+   */
+  private long myExpectedMethodActionCount;
+
+  @VisibleForTesting
+  public ArtTraceHandler() {
+    this(new StringTable());
+  }
+
+  /**
+   * @param stringTable the table of the session the trace belongs to, see {@link SessionsManager#getStringTable(Common.Session)}.
+   */
+  public ArtTraceHandler(@NotNull StringTable stringTable) {
+    myStringTable = stringTable;
+  }
+
   @Override
   public void addThread(int id, String name) {
     myThreads.put(id, name);
@@ -61,12 +98,21 @@ public class ArtTraceHandler implements VmTraceHandler {
 
   @Override
   public void addMethod(long id, MethodInfo info) {
-    myMethods.put(id, new JavaMethodModel(info.methodName, info.className, info.signature));
+    myMethods.put(id, new JavaMethodModel(myStringTable.intern(info.methodName), myStringTable.intern(info.className),
+                                          myStringTable.intern(info.signature)));
   }
 
   @Override
   public void addMethodAction(int threadId, long methodId, TraceAction methodAction,
                               int threadTime, int globalTime) {
+    if ((++myMethodActionCount & 0xFFF) == 0) {
+      TraceParsingMonitor.checkCanceled();
+      if (myExpectedMethodActionCount > 0) {
+        // Building the capture trees once all the actions are read is the rest of the work.
+        TraceParsingMonitor.reportProgress(0.9 * myMethodActionCount / myExpectedMethodActionCount);
+      }
+    }
+
     // create thread info if it doesn't exist
     if (!myThreads.containsKey(threadId)) {
       myThreads.put(threadId, String.format("Thread id: %1$d", threadId));
@@ -172,6 +218,14 @@ public class ArtTraceHandler implements VmTraceHandler {
     if (key.equals(KEY_ELAPSED_TIME_US)) {
       myElapsedTimeUs = Long.parseLong(value);
     }
+    else if (key.equals(KEY_NUM_METHOD_CALLS)) {
+      try {
+        myExpectedMethodActionCount = Long.parseLong(value);
+      }
+      catch (NumberFormatException ignored) {
+        // Progress is only an estimate, parse the trace without it.
+      }
+    }
   }
 
   @Override
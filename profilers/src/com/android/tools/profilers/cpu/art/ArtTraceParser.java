@@ -18,20 +18,35 @@ package com.android.tools.profilers.cpu.art;
 import com.android.tools.adtui.model.Range;
 import com.android.tools.perflib.vmtrace.VmTraceParser;
 import com.android.tools.profiler.proto.Cpu;
+import com.android.tools.profilers.StringTable;
 import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.CpuCapture;
 import com.android.tools.profilers.cpu.CpuThreadInfo;
 import com.android.tools.profilers.cpu.TraceParser;
+import com.google.common.annotations.VisibleForTesting;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * Receives a binary trace file generated by using ART and parse it into a {@link CpuCapture}
  */
 public class ArtTraceParser implements TraceParser {
 
-  private final ArtTraceHandler myTraceHandler = new ArtTraceHandler();
+  private final ArtTraceHandler myTraceHandler;
+
+  @VisibleForTesting
+  public ArtTraceParser() {
+    this(new StringTable());
+  }
+
+  /**
+   * @param stringTable shares the names of the methods with the other captures of the session.
+   */
+  public ArtTraceParser(@NotNull StringTable stringTable) {
+    myTraceHandler = new ArtTraceHandler(stringTable);
+  }
 
   @Override
   public CpuCapture parse(File trace, long traceId) throws IOException {
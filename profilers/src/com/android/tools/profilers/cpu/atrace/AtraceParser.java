@@ -22,6 +22,7 @@ import com.android.tools.profilers.cpu.CpuCapture;
 import com.android.tools.profilers.cpu.CpuProfilerStage;
 import com.android.tools.profilers.cpu.CpuThreadInfo;
 import com.android.tools.profilers.cpu.TraceParser;
+import com.android.tools.profilers.cpu.TraceParsingMonitor;
 import com.android.tools.profilers.cpu.nodemodel.AtraceNodeModel;
 import com.google.common.annotations.VisibleForTesting;
 import java.io.File;
@@ -41,6 +42,8 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import trebuchet.io.BufferProducer;
+import trebuchet.io.DataSlice;
 import trebuchet.model.CpuModel;
 import trebuchet.model.CpuProcessSlice;
 import trebuchet.model.Model;
@@ -136,6 +139,8 @@ public class AtraceParser implements TraceParser {
   @Override
   public CpuCapture parse(File file, long traceId) throws IOException {
     parseModelIfNeeded(file);
+    // Trebuchet can't tell how far it is, so progress is only reported at the end of each phase.
+    TraceParsingMonitor.reportProgress(0.5);
     double startTimestampUs = convertToUserTimeUs(myModel.getBeginTimestamp());
     double endTimestampUs = convertToUserTimeUs(myModel.getEndTimestamp());
     myRange = new Range(startTimestampUs, endTimestampUs);
@@ -146,8 +151,13 @@ public class AtraceParser implements TraceParser {
       throw new IllegalArgumentException(String.format("A process with the id %s was not found while parsing the capture.", myProcessId));
     }
     buildCaptureTreeNodes();
+    TraceParsingMonitor.checkCanceled();
+    TraceParsingMonitor.reportProgress(0.7);
     buildThreadStateData();
+    TraceParsingMonitor.checkCanceled();
+    TraceParsingMonitor.reportProgress(0.8);
     buildCpuStateData();
+    TraceParsingMonitor.reportProgress(0.9);
     myFrameInfo = new AtraceFrameManager(myProcessModel, convertToUserTimeUsFunction(), findRenderThreadId(myProcessModel));
     return new AtraceCpuCapture(this, myFrameInfo, traceId);
   }
@@ -168,8 +178,13 @@ public class AtraceParser implements TraceParser {
         throw new IOException("Failed to parse file: " + file.getAbsolutePath());
       }
 
+      TraceParsingMonitor.checkCanceled();
+
       ImportTask task = new ImportTask(new PrintlnImportFeedback());
-      myModel = task.importBuffer(producer);
+      Model model = task.importBuffer(new CancelableBufferProducer(producer, TraceParsingMonitor.getCurrent()));
+      // A canceled import ends early with a partial model, which must not be cached.
+      TraceParsingMonitor.checkCanceled();
+      myModel = model;
       // We check if we have a parent timestamp. If not this could be from an imported trace.
       // In the case it is 0, we use the first timestamp of our capture as a reference point.
       if (Double.compare(myModel.getParentTimestamp(), 0.0) == 0) {
@@ -310,6 +325,7 @@ public class AtraceParser implements TraceParser {
   private void buildCaptureTreeNodes() {
     Range range = getRange();
     for (ThreadModel thread : myProcessModel.getThreads()) {
+      TraceParsingMonitor.checkCanceled();
       CpuThreadSliceInfo threadInfo =
         new CpuThreadSliceInfo(thread.getId(), thread.getName(), thread.getProcess().getId(), thread.getProcess().getName());
       CaptureNode root = new CaptureNode(new AtraceNodeModel(thread.getName()));
@@ -348,6 +364,7 @@ public class AtraceParser implements TraceParser {
    */
   private void buildThreadStateData() {
     for (ThreadModel thread : myProcessModel.getThreads()) {
+      TraceParsingMonitor.checkCanceled();
       List<SeriesData<CpuProfilerStage.ThreadState>> states = new ArrayList<>();
       myThreadStateData.put(thread.getId(), states);
       CpuProfilerStage.ThreadState lastState = CpuProfilerStage.ThreadState.UNKNOWN;
@@ -375,6 +392,7 @@ public class AtraceParser implements TraceParser {
     }
 
     for (CpuModel cpu : myModel.getCpus()) {
+      TraceParsingMonitor.checkCanceled();
       List<SeriesData<CpuThreadSliceInfo>> processList = new ArrayList<>();
       CpuProcessSlice lastSlice = cpu.getSlices().get(0);
       long lastBucketCounted = -1;
@@ -497,4 +515,32 @@ public class AtraceParser implements TraceParser {
     return Arrays.stream(getProcessList(SURFACE_FLINGER_PROCESS_NAME)).findFirst()
       .map(threadInfo -> myModel.getProcesses().get(threadInfo.getProcessId())).orElse(null);
   }
-}
\ No newline at end of file
+
+  /**
+   * Ends the stream fed to trebuchet once the parsing is canceled. {@link ImportTask#importBuffer} reads the whole trace without any
+   * cancellation point of its own, and may pull from the producer on its own threads, so the monitor is captured up front.
+   */
+  private static final class CancelableBufferProducer implements BufferProducer {
+    @NotNull private final BufferProducer myDelegate;
+    @Nullable private final TraceParsingMonitor myMonitor;
+
+    private CancelableBufferProducer(@NotNull BufferProducer delegate, @Nullable TraceParsingMonitor monitor) {
+      myDelegate = delegate;
+      myMonitor = monitor;
+    }
+
+    @Nullable
+    @Override
+    public DataSlice next() {
+      if (myMonitor != null && myMonitor.isCanceled()) {
+        return null;
+      }
+      return myDelegate.next();
+    }
+
+    @Override
+    public void close() {
+      myDelegate.close();
+    }
+  }
+}
@@ -18,6 +18,7 @@ package com.android.tools.profilers.cpu.atrace;
 import com.android.tools.idea.protobuf.CodedInputStream;
 import com.android.tools.idea.protobuf.DescriptorProtos;
 import com.android.tools.idea.protobuf.ExtensionRegistryLite;
+import com.android.tools.profilers.cpu.TraceParsingMonitor;
 import com.google.common.base.Charsets;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.util.containers.Predicate;
@@ -154,6 +155,7 @@ public class PerfettoProducer implements TrebuchetBufferProducer {
     CodedInputStream inputStream = CodedInputStream.newInstance(new FileInputStream(file));
     PerfettoTrace.TracePacket packet;
     while ((packet = readOnePacket(inputStream, packetRegistry)) != null) {
+      TraceParsingMonitor.checkCanceled();
       if (packet.hasFtraceEvents()) {
         PerfettoTrace.FtraceEventBundle bundle = packet.getFtraceEvents();
         for (PerfettoTrace.FtraceEvent event : bundle.getEventList()) {
@@ -189,6 +191,7 @@ public class PerfettoProducer implements TrebuchetBufferProducer {
     // Do a second pass on the file now that we have all thread names do a second pass on the file to generate the lines for trebuchet.
     inputStream = CodedInputStream.newInstance(new FileInputStream(file));
     while ((packet = readOnePacket(inputStream, packetRegistry)) != null) {
+      TraceParsingMonitor.checkCanceled();
       if (packet.hasFtraceEvents()) {
         PerfettoTrace.FtraceEventBundle bundle = packet.getFtraceEvents();
         for(PerfettoTrace.FtraceEvent event : bundle.getEventList())
@@ -15,18 +15,32 @@
  */
 package com.android.tools.profilers.cpu.capturedetails;
 
+import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.Timeline;
 import com.android.tools.adtui.model.TooltipModel;
 import com.android.tools.profilers.cpu.CaptureNode;
+import com.android.tools.profilers.cpu.CaptureStatistics;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class CpuCaptureNodeTooltip implements TooltipModel {
   @NotNull private final Timeline myTimeline;
   @NotNull private final CaptureNode myCaptureNode;
+  @Nullable private final CaptureStatistics.MethodStatistics myMethodStatistics;
+  @NotNull private final Range myStatisticsRange;
 
-  public CpuCaptureNodeTooltip(@NotNull Timeline timeline, @NotNull CaptureNode captureNode) {
+  /**
+   * @param methodStatistics statistics of the node's method in the node's thread, or null if they are not available.
+   * @param statisticsRange  range over which to aggregate the statistics, e.g. the capture range.
+   */
+  public CpuCaptureNodeTooltip(@NotNull Timeline timeline,
+                               @NotNull CaptureNode captureNode,
+                               @Nullable CaptureStatistics.MethodStatistics methodStatistics,
+                               @NotNull Range statisticsRange) {
     myTimeline = timeline;
     myCaptureNode = captureNode;
+    myMethodStatistics = methodStatistics;
+    myStatisticsRange = statisticsRange;
   }
 
   @NotNull
@@ -38,4 +52,14 @@ public class CpuCaptureNodeTooltip implements TooltipModel {
   public CaptureNode getCaptureNode() {
     return myCaptureNode;
   }
+
+  @Nullable
+  public CaptureStatistics.MethodStatistics getMethodStatistics() {
+    return myMethodStatistics;
+  }
+
+  @NotNull
+  public Range getStatisticsRange() {
+    return myStatisticsRange;
+  }
 }
@@ -22,6 +22,7 @@ import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.CpuCapture;
 import com.android.tools.profilers.cpu.CpuThreadInfo;
 import com.android.tools.profilers.cpu.TraceParser;
+import com.android.tools.profilers.cpu.TraceParsingMonitor;
 import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel;
 import com.android.tools.profilers.cpu.nodemodel.NoSymbolModel;
 import com.android.tools.profilers.cpu.nodemodel.SingleNameModel;
@@ -223,6 +224,9 @@ public class SimpleperfTraceParser implements TraceParser {
 
     // 0 is used to indicate the end of the trace
     while (recordSize != 0) {
+      TraceParsingMonitor.checkCanceled();
+      // Reading the records is most of the work, the rest is building the capture trees.
+      TraceParsingMonitor.reportProgress(0.8 * buffer.position() / buffer.limit());
       // The next recordSize bytes should represent the record
       byte[] recordBytes = new byte[recordSize];
       buffer.get(recordBytes);
@@ -302,7 +306,10 @@ public class SimpleperfTraceParser implements TraceParser {
     Map<Integer, List<SimpleperfReport.Sample>> threadSamples = splitSamplesPerThread();
 
     // Process the samples for each thread
+    int parsedThreads = 0;
     for (Map.Entry<Integer, List<SimpleperfReport.Sample>> threadSamplesEntry : threadSamples.entrySet()) {
+      TraceParsingMonitor.checkCanceled();
+      TraceParsingMonitor.reportProgress(0.8 + 0.2 * parsedThreads++ / threadSamples.size());
       parseThreadSamples(threadSamplesEntry.getKey(), threadSamplesEntry.getValue());
     }
   }
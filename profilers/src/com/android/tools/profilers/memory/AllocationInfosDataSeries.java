@@ -57,7 +57,8 @@ class AllocationInfosDataSeries extends CaptureDataSeries<CaptureObject> {
             info,
             () -> {
               if (info.getLegacy()) {
-                return new LegacyAllocationCaptureObject(myClient, mySession, info, myFeatureTracker);
+                return new LegacyAllocationCaptureObject(myClient, mySession, info, myFeatureTracker,
+                                                         myStage.getStudioProfilers().getSessionsManager().getStringTable(mySession));
               }
               else {
                 return new LiveAllocationCaptureObject(myClient, mySession, startTimeNs, null, myStage);
@@ -20,6 +20,7 @@ import com.android.ddmlib.AllocationsParser;
 import com.android.tools.profiler.proto.Memory.AllocationEvent;
 import com.android.tools.profiler.proto.Memory.AllocatedClass;
 import com.android.tools.profiler.proto.Memory.AllocationStack;
+import com.android.tools.profilers.StringTable;
 import org.jetbrains.annotations.NotNull;
 
 import java.nio.ByteBuffer;
@@ -34,8 +35,16 @@ public class LegacyAllocationConverter {
     @NotNull
     private final List<StackTraceElement> myCallStackFrames;
 
+    @NotNull
+    private final StringTable myStringTable;
+
     public CallStack(@NotNull List<StackTraceElement> frames) {
+      this(frames, new StringTable());
+    }
+
+    public CallStack(@NotNull List<StackTraceElement> frames, @NotNull StringTable stringTable) {
       myCallStackFrames = frames;
+      myStringTable = stringTable;
     }
 
     @Override
@@ -57,9 +66,14 @@ public class LegacyAllocationConverter {
       AllocationStack.Builder builder = AllocationStack.newBuilder().setStackId(hashCode());
       AllocationStack.StackFrameWrapper.Builder frameBuilder = AllocationStack.StackFrameWrapper.newBuilder();
       for (StackTraceElement frame : myCallStackFrames) {
-        frameBuilder.addFrames(
-          AllocationStack.StackFrame.newBuilder().setClassName(frame.getClassName()).setMethodName(frame.getMethodName())
-            .setFileName(frame.getFileName()).setLineNumber(frame.getLineNumber()).build());
+        AllocationStack.StackFrame.Builder stackFrame = AllocationStack.StackFrame.newBuilder()
+          .setClassName(myStringTable.intern(frame.getClassName()))
+          .setMethodName(myStringTable.intern(frame.getMethodName()))
+          .setLineNumber(frame.getLineNumber());
+        if (frame.getFileName() != null) {
+          stackFrame.setFileName(myStringTable.intern(frame.getFileName()));
+        }
+        frameBuilder.addFrames(stackFrame.build());
       }
       builder.setFullStack(frameBuilder);
       return builder.build();
@@ -114,10 +128,25 @@ public class LegacyAllocationConverter {
   @NotNull
   private Map<List<StackTraceElement>, CallStack> myAllocationStacks = new HashMap<>();
 
+  @NotNull
+  private final StringTable myStringTable;
+
+  public LegacyAllocationConverter() {
+    this(new StringTable());
+  }
+
+  /**
+   * @param stringTable table through which the class, method and file names of the allocations are shared.
+   */
+  public LegacyAllocationConverter(@NotNull StringTable stringTable) {
+    myStringTable = stringTable;
+  }
+
   public int addClassName(@NotNull String className) {
     int id;
     if (!myAllocatedClasses.containsKey(className)) {
       id = myAllocatedClasses.size();
+      className = myStringTable.intern(className);
       myAllocatedClasses.put(className, new ClassName(className, id));
     }
     else {
@@ -130,7 +159,7 @@ public class LegacyAllocationConverter {
   public CallStack addCallStack(@NotNull List<StackTraceElement> stackTraceElements) {
     CallStack result;
     if (!myAllocationStacks.containsKey(stackTraceElements)) {
-      result = new CallStack(stackTraceElements);
+      result = new CallStack(stackTraceElements, myStringTable);
       myAllocationStacks.put(stackTraceElements, result);
     }
     else {
@@ -15,6 +15,7 @@
  */
 package com.android.tools.profilers.memory.adapters;
 
+import com.android.tools.profilers.StringTable;
 import com.google.common.annotations.VisibleForTesting;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -22,6 +23,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A class that shares class name {@link String}s, and provides facilities for splitting the class name to its constituent parts.
@@ -34,6 +36,17 @@ public final class ClassDb {
   // class id to class mapping.
   private final Map<Long, ClassEntry> myClassEntries = new HashMap<>();
   private boolean myResolvedSubclasses = false;
+  // Shares the names of the classes, their packages and package segments, with other databases of the same session.
+  @NotNull private final StringTable myStringTable;
+
+  @VisibleForTesting
+  public ClassDb() {
+    this(new StringTable());
+  }
+
+  public ClassDb(@NotNull StringTable stringTable) {
+    myStringTable = stringTable;
+  }
 
   public void clear() {
     myClassEntries.clear();
@@ -47,7 +60,7 @@ public final class ClassDb {
 
   @NotNull
   public ClassEntry registerClass(long classId, long superClassId, @NotNull String className) {
-    ClassEntry entry = new ClassEntry(classId, superClassId, className);
+    ClassEntry entry = new ClassEntry(classId, superClassId, className, myStringTable);
     myClassEntries.put(classId, entry);
     return entry;
   }
@@ -128,14 +141,29 @@ public final class ClassDb {
      */
     @VisibleForTesting
     public ClassEntry(long classId, long superClassId, @NotNull String className) {
+      this(classId, superClassId, className, null);
+    }
+
+    /**
+     * @param stringTable shares the names with the other entries of the session, or null to keep the names of this entry unshared.
+     */
+    private ClassEntry(long classId, long superClassId, @NotNull String className, @Nullable StringTable stringTable) {
       myClassId = classId;
       mySuperClassId = superClassId;
-      myClassName = className;
+      myClassName = intern(stringTable, className);
       int lastIndexOfDot = myClassName.lastIndexOf('.');
-      myPackageName = lastIndexOfDot > 0 ? myClassName.substring(0, lastIndexOfDot) : "";
-      mySimpleClassName = myClassName.substring(lastIndexOfDot + 1);
+      myPackageName = lastIndexOfDot > 0 ? intern(stringTable, myClassName.substring(0, lastIndexOfDot)) : "";
+      mySimpleClassName = intern(stringTable, myClassName.substring(lastIndexOfDot + 1));
       //noinspection SSBasedInspection
       mySplitPackageName = myPackageName.isEmpty() ? new String[0] : myPackageName.split("\\.");
+      for (int i = 0; i < mySplitPackageName.length; i++) {
+        mySplitPackageName[i] = intern(stringTable, mySplitPackageName[i]);
+      }
+    }
+
+    @NotNull
+    private static String intern(@Nullable StringTable stringTable, @NotNull String string) {
+      return stringTable != null ? stringTable.intern(string) : string;
     }
 
     public long getClassId() {
@@ -82,7 +82,7 @@ public class HeapDumpCaptureObject implements CaptureObject {
   private final TLongObjectHashMap<InstanceObject> myInstanceIndex = new TLongObjectHashMap<>();
 
   @NotNull
-  private final ClassDb myClassDb = new ClassDb();
+  private final ClassDb myClassDb;
 
   @NotNull
   private final HeapDumpInfo myHeapDumpInfo;
@@ -119,6 +119,8 @@ public class HeapDumpCaptureObject implements CaptureObject {
     myProguardMap = proguardMap;
     myFeatureTracker = featureTracker;
     myStage = stage;
+    // Heap dumps of a session load the same classes again, so their names are shared with the other captures of the session.
+    myClassDb = new ClassDb(stage.getStudioProfilers().getSessionsManager().getStringTable(session));
 
     mySupportedInstanceFilters = ImmutableSet.of(new ActivityFragmentLeakInstanceFilter(),
                                                  new ProjectClassesInstanceFilter(myStage.getStudioProfilers().getIdeServices()));
@@ -22,6 +22,7 @@ import com.android.tools.profiler.proto.Common;
 import com.android.tools.profiler.proto.Memory;
 import com.android.tools.profiler.proto.Transport;
 import com.android.tools.profilers.ProfilerClient;
+import com.android.tools.profilers.StringTable;
 import com.android.tools.profilers.analytics.FeatureTracker;
 import com.android.tools.profilers.memory.LegacyAllocationConverter;
 import org.jetbrains.annotations.NotNull;
@@ -59,12 +60,13 @@ public final class LegacyAllocationCaptureObject implements CaptureObject {
   public LegacyAllocationCaptureObject(@NotNull ProfilerClient client,
                                        @NotNull Common.Session session,
                                        @NotNull Memory.AllocationsInfo info,
-                                       @NotNull FeatureTracker featureTracker) {
+                                       @NotNull FeatureTracker featureTracker,
+                                       @NotNull StringTable stringTable) {
     myClient = client;
-    myClassDb = new ClassDb();
+    myClassDb = new ClassDb(stringTable);
     mySession = session;
     myInfo = info;
-    myAllocationConverter = new LegacyAllocationConverter();
+    myAllocationConverter = new LegacyAllocationConverter(stringTable);
     myStartTimeNs = info.getStartTime();
     myEndTimeNs = info.getEndTime();
     myFakeHeapSet = new HeapSet(this, DEFAULT_HEAP_NAME, DEFAULT_HEAP_ID);
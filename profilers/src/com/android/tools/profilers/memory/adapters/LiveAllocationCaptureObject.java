@@ -42,6 +42,7 @@ import com.android.tools.profiler.proto.MemoryProfiler.JNIGlobalRefsEventsReques
 import com.android.tools.profiler.proto.MemoryServiceGrpc;
 import com.android.tools.profiler.proto.Transport;
 import com.android.tools.profilers.ProfilerClient;
+import com.android.tools.profilers.StringTable;
 import com.android.tools.profilers.memory.MemoryProfiler;
 import com.android.tools.profilers.memory.MemoryProfilerAspect;
 import com.android.tools.profilers.memory.MemoryProfilerStage;
@@ -92,6 +93,8 @@ public class LiveAllocationCaptureObject implements CaptureObject {
 
   @VisibleForTesting final ExecutorService myExecutorService;
   private final ClassDb myClassDb;
+  // Shared with the other captures of the session, which load the same class and method names.
+  @NotNull private final StringTable myStringTable;
   private final TIntObjectHashMap<LiveAllocationInstanceObject> myInstanceMap;
   private final TIntObjectHashMap<Memory.AllocationStack> myCallstackMap;
   // Mapping from unsymbolized addresses to symbolized native frames
@@ -130,7 +133,8 @@ public class LiveAllocationCaptureObject implements CaptureObject {
       myExecutorService = loadService;
     }
 
-    myClassDb = new ClassDb();
+    myStringTable = stage != null ? stage.getStudioProfilers().getSessionsManager().getStringTable(session) : new StringTable();
+    myClassDb = new ClassDb(myStringTable);
     myInstanceMap = new TIntObjectHashMap<>();
     myCallstackMap = new TIntObjectHashMap<>();
     myNativeFrameMap = new TLongObjectHashMap<>();
@@ -297,7 +301,10 @@ public class LiveAllocationCaptureObject implements CaptureObject {
       }
       contexts.getMethodsList().forEach(method -> {
         if (!myMethodIdMap.containsKey(method.getMethodId())) {
-          myMethodIdMap.put(method.getMethodId(), method);
+          myMethodIdMap.put(method.getMethodId(), method.toBuilder()
+            .setClassName(myStringTable.intern(method.getClassName()))
+            .setMethodName(myStringTable.intern(method.getMethodName()))
+            .build());
         }
       });
       contexts.getEncodedStacksList().forEach(callStack -> {
@@ -0,0 +1,368 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.sessions;
+
+import com.android.tools.idea.protobuf.ByteString;
+import com.android.tools.idea.protobuf.CodedOutputStream;
+import com.android.tools.idea.protobuf.UnsafeByteOperations;
+import com.android.tools.profiler.proto.Common;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A single-file archive of a profiling session: its session events, all of its other events and all of its byte payloads
+ * (e.g. CPU traces, heap dumps and legacy allocation records).
+ * <p>
+ * File layout:
+ * <pre>
+ *   [MAGIC][VERSION]
+ *   [section 0 bytes][section 1 bytes]...
+ *   [index: section count, then (type, name, offset, length) for each section]
+ *   [index offset]
+ * </pre>
+ * Sections are written back to back and located through the index at the end of the file, so an archive can be written in a single
+ * streaming pass. When an archive is opened, only the index and the session events are read. The other events are streamed out of the
+ * file one at a time, and each payload is only read when it is requested, so an archive is meant to stay open for as long as its
+ * payloads may be needed. Payloads are read into the heap rather than memory-mapped, since a mapping would crash the JVM if the file
+ * were truncated (e.g. by exporting back to the same path) while the payload is still in use.
+ */
+public final class SessionArchive implements Closeable {
+  public static final String FILE_EXTENSION = "apsession";
+
+  private static final int MAGIC = 0x41505341; // "APSA"
+  private static final int VERSION = 1;
+  private static final int FOOTER_SIZE = Long.BYTES;
+
+  private static final byte SECTION_SESSION = 1;
+  private static final byte SECTION_EVENTS = 2;
+  private static final byte SECTION_BYTES = 3;
+
+  private static final String SESSION_SECTION_NAME = "session";
+  private static final String EVENTS_SECTION_NAME = "events";
+
+  @NotNull private final RandomAccessFile myFile;
+  @NotNull private final FileChannel myChannel;
+  @NotNull private final Map<String, Section> mySessionSections = new LinkedHashMap<>();
+  @NotNull private final Map<String, Section> myBytesSections = new LinkedHashMap<>();
+  @NotNull private final List<Common.Event> mySessionEvents;
+
+  private SessionArchive(@NotNull RandomAccessFile file) throws IOException {
+    myFile = file;
+    myChannel = file.getChannel();
+    readIndex();
+    mySessionEvents = new ArrayList<>();
+    readEvents(getSection(SESSION_SECTION_NAME), mySessionEvents::add);
+    if (mySessionEvents.isEmpty()) {
+      throw new IOException("Corrupted session archive: no session events");
+    }
+  }
+
+  /**
+   * Opens an archive for reading. Only the header, the index and the session events are read at this point.
+   *
+   * @throws IOException if the file is not a valid session archive
+   */
+  @NotNull
+  public static SessionArchive open(@NotNull File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      return new SessionArchive(randomAccessFile);
+    }
+    catch (IOException | RuntimeException e) {
+      randomAccessFile.close();
+      throw e;
+    }
+  }
+
+  private void readIndex() throws IOException {
+    long fileSize = myChannel.size();
+    if (fileSize < Integer.BYTES * 2 + FOOTER_SIZE) {
+      throw new IOException("Not a session archive: file is too small");
+    }
+    ByteBuffer header = read(0, Integer.BYTES * 2);
+    if (header.getInt() != MAGIC) {
+      throw new IOException("Not a session archive: bad magic number");
+    }
+    int version = header.getInt();
+    if (version != VERSION) {
+      throw new IOException(String.format("Unsupported session archive version %d", version));
+    }
+
+    long indexOffset = read(fileSize - FOOTER_SIZE, FOOTER_SIZE).getLong();
+    if (indexOffset < Integer.BYTES * 2 || indexOffset > fileSize - FOOTER_SIZE) {
+      throw new IOException("Corrupted session archive: bad index offset");
+    }
+    ByteBuffer index = read(indexOffset, fileSize - FOOTER_SIZE - indexOffset);
+    int count = index.getInt();
+    for (int i = 0; i < count; i++) {
+      byte type = index.get();
+      byte[] nameBytes = new byte[index.getInt()];
+      index.get(nameBytes);
+      String name = new String(nameBytes, StandardCharsets.UTF_8);
+      Section section = new Section(index.getLong(), index.getLong());
+      if (section.myOffset < 0 || section.myLength < 0 || section.myOffset + section.myLength > indexOffset) {
+        throw new IOException(String.format("Corrupted session archive: section %s is out of bounds", name));
+      }
+      (type == SECTION_BYTES ? myBytesSections : mySessionSections).put(name, section);
+    }
+  }
+
+  /**
+   * @return the {@link Common.Event.Kind#SESSION} events of the archived session, i.e. the session started event followed by the
+   * session ended event. Never empty.
+   */
+  @NotNull
+  public List<Common.Event> getSessionEvents() {
+    return mySessionEvents;
+  }
+
+  /**
+   * Reads all the events of the archived session, except for the session events themselves, and passes them to {@code consumer} in the
+   * order they were written. Events are parsed as the file is read, so they are never all held by the archive at once.
+   */
+  public void forEachEvent(@NotNull Consumer<Common.Event> consumer) throws IOException {
+    readEvents(getSection(EVENTS_SECTION_NAME), consumer);
+  }
+
+  private void readEvents(@NotNull Section section, @NotNull Consumer<Common.Event> consumer) throws IOException {
+    try (InputStream input = new BufferedInputStream(new SectionInputStream(section))) {
+      Common.Event event;
+      while ((event = Common.Event.parseDelimitedFrom(input)) != null) {
+        consumer.accept(event);
+      }
+    }
+  }
+
+  /**
+   * @return the ids of all the byte payloads in the archive.
+   */
+  @NotNull
+  public Set<String> getBytesIds() {
+    return Collections.unmodifiableSet(myBytesSections.keySet());
+  }
+
+  public boolean hasBytes(@NotNull String id) {
+    return myBytesSections.containsKey(id);
+  }
+
+  /**
+   * Reads the payload with the given id from the file. The result is a copy, which stays valid after the archive is closed. This is
+   * safe to call from any thread.
+   */
+  @NotNull
+  public ByteString getBytes(@NotNull String id) throws IOException {
+    // The buffer is not shared with anyone else, so it can be wrapped without another copy.
+    return UnsafeByteOperations.unsafeWrap(read(getBytesSection(id)));
+  }
+
+  @NotNull
+  private Section getBytesSection(@NotNull String id) throws IOException {
+    Section section = myBytesSections.get(id);
+    if (section == null) {
+      throw new IOException(String.format("No payload with id %s in the session archive", id));
+    }
+    return section;
+  }
+
+  /**
+   * Copies the payload with the given id to {@code target} straight from the file, without reading it into the heap.
+   */
+  private void transferBytes(@NotNull String id, @NotNull WritableByteChannel target) throws IOException {
+    Section section = getBytesSection(id);
+    long transferred = 0;
+    while (transferred < section.myLength) {
+      long count = myChannel.transferTo(section.myOffset + transferred, section.myLength - transferred, target);
+      if (count <= 0) {
+        throw new IOException("Corrupted session archive: unexpected end of file");
+      }
+      transferred += count;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    myFile.close();
+  }
+
+  @NotNull
+  private Section getSection(@NotNull String name) throws IOException {
+    Section section = mySessionSections.get(name);
+    if (section == null) {
+      throw new IOException(String.format("Corrupted session archive: missing %s section", name));
+    }
+    return section;
+  }
+
+  @NotNull
+  private ByteBuffer read(@NotNull Section section) throws IOException {
+    if (section.myLength > Integer.MAX_VALUE) {
+      throw new IOException("Session archive sections larger than 2GB are not supported");
+    }
+    return read(section.myOffset, section.myLength);
+  }
+
+  @NotNull
+  private ByteBuffer read(long offset, long length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int)length);
+    while (buffer.hasRemaining()) {
+      if (myChannel.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException("Corrupted session archive: unexpected end of file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Reads a section with positional reads, so several sections can be read at the same time.
+   */
+  private final class SectionInputStream extends InputStream {
+    private long myPosition;
+    private final long myEnd;
+
+    private SectionInputStream(@NotNull Section section) {
+      myPosition = section.myOffset;
+      myEnd = section.myOffset + section.myLength;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] buffer = new byte[1];
+      return read(buffer, 0, 1) < 0 ? -1 : buffer[0] & 0xFF;
+    }
+
+    @Override
+    public int read(@NotNull byte[] bytes, int offset, int length) throws IOException {
+      if (myPosition >= myEnd) {
+        return -1;
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, (int)Math.min(length, myEnd - myPosition));
+      int count = myChannel.read(buffer, myPosition);
+      if (count < 0) {
+        throw new IOException("Corrupted session archive: unexpected end of file");
+      }
+      myPosition += count;
+      return count;
+    }
+  }
+
+  private static final class Section {
+    private final long myOffset;
+    private final long myLength;
+
+    private Section(long offset, long length) {
+      myOffset = offset;
+      myLength = length;
+    }
+  }
+
+  /**
+   * Streams a session into an archive. Sections are written as they are added and the index is written on {@link #close()}.
+   * The session events and the other events must be written exactly once each.
+   */
+  public static final class Writer implements Closeable {
+    @NotNull private final DataOutputStream myOutput;
+    @NotNull private final List<String> myNames = new ArrayList<>();
+    @NotNull private final List<Byte> myTypes = new ArrayList<>();
+    @NotNull private final List<Section> mySections = new ArrayList<>();
+    private long myOffset;
+
+    public Writer(@NotNull OutputStream outputStream) throws IOException {
+      myOutput = new DataOutputStream(new BufferedOutputStream(outputStream));
+      myOutput.writeInt(MAGIC);
+      myOutput.writeInt(VERSION);
+      myOffset = Integer.BYTES * 2;
+    }
+
+    public void writeSessionEvents(@NotNull Iterable<Common.Event> events) throws IOException {
+      writeEvents(SECTION_SESSION, SESSION_SECTION_NAME, events);
+    }
+
+    public void writeEvents(@NotNull Iterable<Common.Event> events) throws IOException {
+      writeEvents(SECTION_EVENTS, EVENTS_SECTION_NAME, events);
+    }
+
+    private void writeEvents(byte type, @NotNull String name, @NotNull Iterable<Common.Event> events) throws IOException {
+      long start = myOffset;
+      long length = 0;
+      for (Common.Event event : events) {
+        int size = event.getSerializedSize();
+        event.writeDelimitedTo(myOutput);
+        length += CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+      }
+      addSection(type, name, start, length);
+    }
+
+    public void writeBytes(@NotNull String id, @NotNull ByteString bytes) throws IOException {
+      long start = myOffset;
+      bytes.writeTo(myOutput);
+      addSection(SECTION_BYTES, id, start, bytes.size());
+    }
+
+    /**
+     * Copies a payload of another archive, e.g. when exporting an imported session, without reading it into the heap.
+     */
+    public void writeBytes(@NotNull String id, @NotNull SessionArchive archive) throws IOException {
+      long start = myOffset;
+      long length = archive.getBytesSection(id).myLength;
+      archive.transferBytes(id, Channels.newChannel(myOutput));
+      addSection(SECTION_BYTES, id, start, length);
+    }
+
+    private void addSection(byte type, @NotNull String name, long offset, long length) {
+      myTypes.add(type);
+      myNames.add(name);
+      mySections.add(new Section(offset, length));
+      myOffset += length;
+    }
+
+    @Override
+    public void close() throws IOException {
+      long indexOffset = myOffset;
+      myOutput.writeInt(mySections.size());
+      for (int i = 0; i < mySections.size(); i++) {
+        byte[] name = myNames.get(i).getBytes(StandardCharsets.UTF_8);
+        myOutput.writeByte(myTypes.get(i));
+        myOutput.writeInt(name.length);
+        myOutput.write(name);
+        myOutput.writeLong(mySections.get(i).myOffset);
+        myOutput.writeLong(mySections.get(i).myLength);
+      }
+      myOutput.writeLong(indexOffset);
+      myOutput.flush();
+    }
+  }
+}
@@ -22,6 +22,9 @@ import com.android.tools.profiler.proto.Common;
 import com.android.tools.profilers.ProfilerAspect;
 import com.android.tools.profilers.StudioMonitorStage;
 import com.android.tools.profilers.StudioProfilers;
+import com.intellij.openapi.diagnostic.Logger;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -144,6 +147,24 @@ public class SessionItem extends AspectModel<SessionItem.Aspect> implements Sess
     return SessionsManager.isSessionAlive(mySession);
   }
 
+  @Override
+  public boolean canExport() {
+    return myProfilers.getIdeServices().getFeatureConfig().isUnifiedPipelineEnabled() &&
+           mySessionMetaData.getType() == Common.SessionMetaData.SessionType.FULL &&
+           !isOngoing();
+  }
+
+  @Override
+  public void export(@NotNull OutputStream outputStream) {
+    assert canExport();
+    try {
+      myProfilers.getSessionsManager().exportSessionArchive(mySession, outputStream);
+    }
+    catch (IOException exception) {
+      Logger.getInstance(SessionItem.class).warn("Failed to export session:\n" + exception);
+    }
+  }
+
   /**
    * Update the {@link Common.Session} object. Note that while the content within the session can change, the new session instance should
    * correspond to the same one as identified by the session's id.
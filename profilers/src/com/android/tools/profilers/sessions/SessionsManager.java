@@ -43,24 +43,31 @@ import com.android.tools.profiler.proto.Transport.EventGroup;
 import com.android.tools.profiler.proto.Transport.ExecuteRequest;
 import com.android.tools.profiler.proto.Transport.GetEventGroupsRequest;
 import com.android.tools.profiler.proto.Transport.GetEventGroupsResponse;
+import com.android.tools.profilers.StringTable;
 import com.android.tools.profilers.StudioProfilers;
 import com.android.tools.profilers.cpu.CpuCaptureSessionArtifact;
+import com.android.tools.profilers.cpu.CpuProfiler;
 import com.android.tools.profilers.memory.HprofSessionArtifact;
 import com.android.tools.profilers.memory.LegacyAllocationsSessionArtifact;
+import com.android.tools.profilers.memory.MemoryProfiler;
 import com.google.common.collect.Lists;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.text.StringUtil;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -127,7 +134,7 @@ public class SessionsManager extends AspectModel<SessionAspect> {
   /**
    * A list of handlers that import sessions based on their file types.
    */
-  private final Map<String, Consumer<File>> myImportHandlers = new HashMap<>();
+  private final Map<String, Predicate<File>> myImportHandlers = new HashMap<>();
 
   private int importedSessionCount = 0;
 
@@ -142,6 +149,18 @@ public class SessionsManager extends AspectModel<SessionAspect> {
    */
   @NotNull private final Map<Long, EventStreamServer> myStreamIdToStreamServerMap = new HashMap<>();
 
+  /**
+   * Archives of the imported sessions by session id. They stay open so that their payloads can be read when they are first requested,
+   * and are closed when their session is deleted or when their stream server stops.
+   */
+  @NotNull private final Map<Long, SessionArchive> mySessionArchives = new HashMap<>();
+
+  /**
+   * String tables by session id, shared by all the captures of a session. They are released when their session is deleted or when the
+   * profilers stop.
+   */
+  @NotNull private final Map<Long, StringTable> myStringTables = new ConcurrentHashMap<>();
+
   public SessionsManager(@NotNull StudioProfilers profilers) {
     myProfilers = profilers;
     mySelectedSession = myProfilingSession = Common.Session.getDefaultInstance();
@@ -156,6 +175,8 @@ public class SessionsManager extends AspectModel<SessionAspect> {
     myArtifactsFetchers.add(HprofSessionArtifact::getSessionArtifacts);
     myArtifactsFetchers.add(LegacyAllocationsSessionArtifact::getSessionArtifacts);
     myArtifactsFetchers.add(CpuCaptureSessionArtifact::getSessionArtifacts);
+
+    myImportHandlers.put(SessionArchive.FILE_EXTENSION, this::importSessionArchive);
   }
 
   @NotNull
@@ -514,9 +535,29 @@ public class SessionsManager extends AspectModel<SessionAspect> {
     // TODO b/141261422 the main update loop does not handle removing items at the moment. For now we manually remove the SessionItem and
     // force an update so any artifacts (e.g. heap dump, cpu captures) are also removed from being displayed.
     mySessionItems.remove(session.getSessionId());
+    myStringTables.remove(session.getSessionId());
+    SessionArchive archive = mySessionArchives.remove(session.getSessionId());
+    if (archive != null) {
+      closeSessionArchive(archive);
+    }
     updateSessionItems(Collections.emptyList());
   }
 
+  /**
+   * @return the table shared by all the data of {@code session}.
+   */
+  @NotNull
+  public StringTable getStringTable(@NotNull Common.Session session) {
+    return myStringTables.computeIfAbsent(session.getSessionId(), id -> new StringTable());
+  }
+
+  /**
+   * Drops the string tables of all sessions. Data already loaded keeps its strings, but later data won't share them.
+   */
+  public void releaseStringTables() {
+    myStringTables.clear();
+  }
+
   /**
    * @return the EventStreamServer corresponding to a particular stream id.
    */
@@ -540,35 +581,69 @@ public class SessionsManager extends AspectModel<SessionAspect> {
                                     long startTimestampEpochMs,
                                     Map<String, ByteString> byteCacheMap,
                                     Common.Event... events) {
-    assert myProfilers.getIdeServices().getFeatureConfig().isUnifiedPipelineEnabled();
+    createImportedSession(SessionData.SessionStarted.newBuilder()
+                            .setType(sessionType)
+                            .setStartTimestampEpochMs(startTimestampEpochMs)
+                            .setSessionName(sessionName),
+                          startTimestampNs, endTimestampNs, byteCacheMap, Arrays.asList(events));
+  }
 
-    EventStreamServer streamServer = new EventStreamServer(Long.toString(startTimestampEpochMs));
+  /**
+   * Same as {@link #createImportedSession(String, SessionData.SessionStarted.SessionType, long, long, long, Map, Common.Event...)}, but
+   * with the rest of the session started data (e.g. pid, abi) taken from the given builder.
+   */
+  private void createImportedSession(@NotNull SessionData.SessionStarted.Builder sessionStarted,
+                                     long startTimestampNs,
+                                     long endTimestampNs,
+                                     @NotNull Map<String, ByteString> byteCacheMap,
+                                     @NotNull List<Common.Event> events) {
+    EventStreamServer streamServer = new EventStreamServer(Long.toString(sessionStarted.getStartTimestampEpochMs()));
+    Common.Stream stream = startImportedStream(sessionStarted.getSessionName(), streamServer);
+    if (stream == null) {
+      return;
+    }
+    streamServer.getByteCacheMap().putAll(byteCacheMap);
+    BlockingDeque<Event> deque = streamServer.getEventDeque();
+    events.forEach(deque::offer);
+    offerSessionEvents(deque, sessionStarted, stream, startTimestampNs, endTimestampNs);
+  }
+
+  /**
+   * Starts the server of an imported session and registers it as a new stream.
+   *
+   * @return the new stream, or null if the server could not be started.
+   */
+  @Nullable
+  private Common.Stream startImportedStream(@NotNull String sessionName, @NotNull EventStreamServer streamServer) {
+    assert myProfilers.getIdeServices().getFeatureConfig().isUnifiedPipelineEnabled();
     try {
       streamServer.start();
     }
     catch (IOException exception) {
       getLogger().error(String.format("Failed to create a event server. Aborting import for session %s", sessionName));
-      return;
+      return null;
     }
     Common.Stream stream = TransportService.getInstance().registerStreamServer(Common.Stream.Type.FILE, streamServer);
     myStreamIdToStreamServerMap.put(stream.getStreamId(), streamServer);
-    streamServer.getByteCacheMap().putAll(byteCacheMap);
-    BlockingDeque<Event> deque = streamServer.getEventDeque();
-    for (int i = 0; i < events.length; i++) {
-      deque.offer(events[i]);
-    }
-    // inserts the pair of Session begin + end events.
+    return stream;
+  }
+
+  /**
+   * Inserts the pair of session begin + end events of an imported session. They go after all the other events of the session.
+   */
+  private static void offerSessionEvents(@NotNull BlockingDeque<Event> deque,
+                                         @NotNull SessionData.SessionStarted.Builder sessionStarted,
+                                         @NotNull Common.Stream stream,
+                                         long startTimestampNs,
+                                         long endTimestampNs) {
     deque.offer(Common.Event.newBuilder()
                   .setKind(Common.Event.Kind.SESSION)
                   .setGroupId(startTimestampNs)
                   .setTimestamp(startTimestampNs)
                   .setSession(Common.SessionData.newBuilder()
-                                .setSessionStarted(Common.SessionData.SessionStarted.newBuilder()
+                                .setSessionStarted(sessionStarted
                                                      .setStreamId(stream.getStreamId())
-                                                     .setSessionId(startTimestampNs)
-                                                     .setType(sessionType)
-                                                     .setStartTimestampEpochMs(startTimestampEpochMs)
-                                                     .setSessionName(sessionName)))
+                                                     .setSessionId(startTimestampNs)))
                   .build());
     deque.offer(Common.Event.newBuilder()
                   .setKind(Common.Event.Kind.SESSION)
@@ -580,6 +655,150 @@ public class SessionsManager extends AspectModel<SessionAspect> {
     // New imported session will be auto selected once it is queried in the update loop.
   }
 
+  /**
+   * Writes a finished session, along with all of its events and byte payloads (CPU traces, heap dumps and legacy allocation records),
+   * to a single {@link SessionArchive}. Only supported by the unified pipeline.
+   * <p>
+   * Payloads of a session imported from an archive are copied straight from that archive. Other payloads can only be fetched whole
+   * through the transport pipeline, so they are written one at a time and each one can be collected as soon as it is written.
+   */
+  public void exportSessionArchive(@NotNull Common.Session session, @NotNull OutputStream outputStream) throws IOException {
+    assert myProfilers.getIdeServices().getFeatureConfig().isUnifiedPipelineEnabled();
+    assert !isSessionAlive(session);
+
+    GetEventGroupsResponse sessionResponse = myProfilers.getClient().getTransportClient().getEventGroups(
+      GetEventGroupsRequest.newBuilder().setKind(Event.Kind.SESSION).setGroupId(session.getSessionId()).build());
+    if (sessionResponse.getGroupsCount() == 0) {
+      throw new IOException(String.format("Cannot find session %d", session.getSessionId()));
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (Event.Kind kind : Event.Kind.values()) {
+      // Session events are archived separately. Stream and process events describe the original device rather than the session.
+      if (kind == Event.Kind.NONE || kind == Event.Kind.UNRECOGNIZED || kind == Event.Kind.SESSION ||
+          kind == Event.Kind.STREAM || kind == Event.Kind.PROCESS) {
+        continue;
+      }
+      GetEventGroupsResponse response = myProfilers.getClient().getTransportClient().getEventGroups(
+        GetEventGroupsRequest.newBuilder()
+          .setStreamId(session.getStreamId())
+          .setPid(session.getPid())
+          .setKind(kind)
+          .setFromTimestamp(session.getStartTimestamp())
+          .setToTimestamp(session.getEndTimestamp())
+          .build());
+      response.getGroupsList().forEach(group -> events.addAll(group.getEventsList()));
+    }
+
+    // Byte payloads are keyed by the trace id for CPU captures, and by the start time for heap dumps and legacy allocation records.
+    List<String> bytesIds = new ArrayList<>();
+    Range sessionRangeUs = new Range(TimeUnit.NANOSECONDS.toMicros(session.getStartTimestamp()),
+                                     TimeUnit.NANOSECONDS.toMicros(session.getEndTimestamp()));
+    CpuProfiler.getTraceInfoFromRange(myProfilers.getClient(), session, sessionRangeUs, true)
+      .forEach(info -> bytesIds.add(Long.toString(info.getTraceId())));
+    MemoryProfiler.getHeapDumpsForSession(myProfilers.getClient(), session, sessionRangeUs, myProfilers.getIdeServices())
+      .forEach(info -> bytesIds.add(Long.toString(info.getStartTime())));
+    MemoryProfiler.getAllocationInfosForSession(myProfilers.getClient(), session, sessionRangeUs, myProfilers.getIdeServices()).stream()
+      .filter(info -> info.getLegacy())
+      .forEach(info -> bytesIds.add(Long.toString(info.getStartTime())));
+
+    SessionArchive sourceArchive = mySessionArchives.get(session.getSessionId());
+    SessionArchive.Writer writer = new SessionArchive.Writer(outputStream);
+    writer.writeSessionEvents(sessionResponse.getGroups(0).getEventsList());
+    writer.writeEvents(events);
+    for (String id : bytesIds) {
+      if (sourceArchive != null && sourceArchive.hasBytes(id)) {
+        writer.writeBytes(id, sourceArchive);
+        continue;
+      }
+      ByteString bytes = myProfilers.getClient().getTransportClient()
+        .getBytes(Transport.BytesRequest.newBuilder().setStreamId(session.getStreamId()).setId(id).build())
+        .getContents();
+      if (!bytes.isEmpty()) {
+        writer.writeBytes(id, bytes);
+      }
+    }
+    writer.close();
+  }
+
+  /**
+   * Creates an imported session out of a {@link SessionArchive}. The events are streamed from the archive into the session's stream,
+   * while each payload is only read from the archive the first time it is requested. The archive stays open until the session is
+   * deleted or its stream server stops.
+   *
+   * @return true if the session was imported or was already imported, false otherwise.
+   */
+  private boolean importSessionArchive(@NotNull File file) {
+    if (!myProfilers.getIdeServices().getFeatureConfig().isUnifiedPipelineEnabled()) {
+      getLogger().warn(String.format("Importing Session Failed: session archives are not supported by the legacy pipeline (%s).",
+                                     file.getPath()));
+      return false;
+    }
+
+    SessionArchive archive;
+    try {
+      archive = SessionArchive.open(file);
+    }
+    catch (IOException e) {
+      getLogger().warn(String.format("Importing Session Failed: cannot read session archive %s.", file.getPath()), e);
+      return false;
+    }
+
+    List<Event> sessionEvents = archive.getSessionEvents();
+    SessionData.SessionStarted.Builder sessionStarted = sessionEvents.get(0).getSession().getSessionStarted().toBuilder();
+    long startTimestampNs = sessionEvents.get(0).getTimestamp();
+    long endTimestampNs = sessionEvents.get(sessionEvents.size() - 1).getTimestamp();
+    // Select the session if it is already imported. Do not re-import.
+    if (setSessionById(startTimestampNs)) {
+      closeSessionArchive(archive);
+      return true;
+    }
+
+    EventStreamServer streamServer = new EventStreamServer(Long.toString(sessionStarted.getStartTimestampEpochMs()));
+    streamServer.setBytesLoader(new EventStreamServer.BytesLoader() {
+      @Nullable
+      @Override
+      public ByteString load(@NotNull String id) throws IOException {
+        return archive.hasBytes(id) ? archive.getBytes(id) : null;
+      }
+
+      @Override
+      public void close() throws IOException {
+        archive.close();
+      }
+    });
+    Common.Stream stream = startImportedStream(sessionStarted.getSessionName(), streamServer);
+    if (stream == null) {
+      closeSessionArchive(archive);
+      return false;
+    }
+    BlockingDeque<Event> deque = streamServer.getEventDeque();
+    try {
+      archive.forEachEvent(deque::offer);
+    }
+    catch (IOException e) {
+      getLogger().warn(String.format("Importing Session Failed: cannot read session archive %s.", file.getPath()), e);
+      myStreamIdToStreamServerMap.remove(stream.getStreamId());
+      // Also closes the archive, through the bytes loader.
+      TransportService.getInstance().unregisterStreamServer(stream.getStreamId());
+      return false;
+    }
+    offerSessionEvents(deque, sessionStarted, stream, startTimestampNs, endTimestampNs);
+    mySessionArchives.put(startTimestampNs, archive);
+    myProfilers.getIdeServices().getFeatureTracker().trackCreateSession(Common.SessionMetaData.SessionType.FULL,
+                                                                        SessionCreationSource.MANUAL);
+    return true;
+  }
+
+  private static void closeSessionArchive(@NotNull SessionArchive archive) {
+    try {
+      archive.close();
+    }
+    catch (IOException e) {
+      getLogger().warn("Failed to close session archive", e);
+    }
+  }
+
   /**
    * Create and a new session with a specific type.
    *
@@ -619,7 +838,10 @@ public class SessionsManager extends AspectModel<SessionAspect> {
    * @param handler   handles the file imported
    */
   public void registerImportHandler(@NotNull String extension, @NotNull Consumer<File> handler) {
-    myImportHandlers.put(extension, handler);
+    myImportHandlers.put(extension, file -> {
+      handler.accept(file);
+      return true;
+    });
   }
 
   /**
@@ -637,8 +859,7 @@ public class SessionsManager extends AspectModel<SessionAspect> {
     if (myImportHandlers.get(extension) == null) {
       return false;
     }
-    myImportHandlers.get(extension).accept(file);
-    return true;
+    return myImportHandlers.get(extension).test(file);
   }
 
   /**
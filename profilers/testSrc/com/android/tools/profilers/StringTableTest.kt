@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers
+
+import com.android.tools.profilers.cpu.CpuProfilerTestUtils
+import com.android.tools.profilers.cpu.art.ArtTraceParser
+import com.android.tools.profilers.memory.adapters.ClassDb
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+class StringTableTest {
+
+  @Test
+  fun internReturnsTheSharedInstance() {
+    val table = StringTable()
+    val shared = table.intern(StringBuilder("com.example").toString())
+    assertThat(table.intern(StringBuilder("com.example").toString())).isSameAs(shared)
+    assertThat(table.intern("com.example.Foo")).isNotSameAs(shared)
+    assertThat(table.size()).isEqualTo(2)
+  }
+
+  @Test
+  fun concurrentLookupsShareOneInstancePerString() {
+    val table = StringTable()
+    val names = (0 until 100).map { "com.example.Class$it" }
+    val executor = Executors.newFixedThreadPool(4)
+    try {
+      val results = (0 until 4).map { executor.submit(Callable { names.map { table.intern(StringBuilder(it).toString()) } }) }
+      val interned = results.map { it.get() }
+      assertThat(table.size()).isEqualTo(names.size)
+      names.indices.forEach { index ->
+        assertThat(interned[0][index]).isEqualTo(names[index])
+        interned.forEach { assertThat(it[index]).isSameAs(interned[0][index]) }
+      }
+    }
+    finally {
+      executor.shutdownNow()
+    }
+  }
+
+  @Test
+  fun classDatabasesShareNames() {
+    val table = StringTable()
+    val first = ClassDb(table).registerClass(1, StringBuilder("com.example.Foo").toString())
+    val second = ClassDb(table).registerClass(2, StringBuilder("com.example.Foo").toString())
+    assertThat(second.className).isSameAs(first.className)
+    assertThat(second.packageName).isSameAs(first.packageName)
+    assertThat(second.splitPackageName[0]).isSameAs(first.splitPackageName[0])
+  }
+
+  @Test
+  fun artCapturesShareMethodNames() {
+    val table = StringTable()
+    ArtTraceParser(table).parse(CpuProfilerTestUtils.getTraceFile("valid_trace.trace"), 1)
+    val namesOfFirstCapture = table.size()
+    assertThat(namesOfFirstCapture).isGreaterThan(0)
+
+    // A second capture of the same app finds its names in the table instead of adding copies.
+    ArtTraceParser(table).parse(CpuProfilerTestUtils.getTraceFile("valid_trace.trace"), 2)
+    assertThat(table.size()).isEqualTo(namesOfFirstCapture)
+  }
+}
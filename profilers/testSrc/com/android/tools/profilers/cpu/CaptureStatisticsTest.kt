@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu
+
+import com.android.tools.adtui.model.Range
+import com.android.tools.profiler.proto.Cpu
+import com.android.tools.profilers.FakeTraceParser
+import com.android.tools.profilers.cpu.nodemodel.SingleNameModel
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class CaptureStatisticsTest {
+
+  private fun node(name: String, start: Long, end: Long, vararg children: CaptureNode) = CaptureNode(SingleNameModel(name)).apply {
+    startGlobal = start
+    endGlobal = end
+    children.forEach { addChild(it) }
+  }
+
+  /**
+   * Thread 1:
+   *   [0, 100]   main (thread root)
+   *   [0, 100]     run
+   *   [10, 30]       foo
+   *   [15, 20]         bar
+   *   [40, 90]       foo
+   *   [50, 60]         bar
+   */
+  private val capture = CpuCapture(
+    FakeTraceParser(Range(0.0, 100.0), mapOf(
+      CpuThreadInfo(1, "main", true) to node("main", 0, 100,
+                                             node("run", 0, 100,
+                                                  node("foo", 10, 30, node("bar", 15, 20)),
+                                                  node("foo", 40, 90, node("bar", 50, 60)))),
+      CpuThreadInfo(2, "other", false) to node("other", 0, 100, node("bar", 0, 1000))),
+                    true),
+    1, Cpu.CpuTraceType.ART)
+
+  @Test
+  fun statisticsOverTheWholeCapture() {
+    val thread = capture.statistics.getThread(1)!!
+    assertThat(thread.methods.map { it.model.id }).containsExactly("run", "foo", "bar").inOrder()
+
+    val foo = thread.getMethod("foo")!!
+    val all = Range(0.0, 100.0)
+    assertThat(foo.getCount(all)).isEqualTo(2)
+    assertThat(foo.getTotalTime(all)).isEqualTo(70)
+    assertThat(foo.getSelfTime(all)).isEqualTo(55)
+    assertThat(foo.getLongestDuration(all)).isEqualTo(50)
+  }
+
+  @Test
+  fun statisticsOverASubRange() {
+    val bar = capture.statistics.getThread(1)!!.getMethod("bar")!!
+    assertThat(bar.getCount(Range(20.0, 50.0))).isEqualTo(1)
+    assertThat(bar.getTotalTime(Range(20.0, 50.0))).isEqualTo(10)
+    assertThat(bar.getCount(Range(16.0, 49.0))).isEqualTo(0)
+    assertThat(bar.getLongestDuration(Range(16.0, 49.0))).isEqualTo(-1)
+  }
+
+  @Test
+  fun threadsAreIndependent() {
+    val bar = capture.statistics.getThread(2)!!.getMethod("bar")!!
+    assertThat(bar.getCount(Range(0.0, 100.0))).isEqualTo(1)
+    assertThat(bar.getSelfTime(Range(0.0, 100.0))).isEqualTo(1000)
+    assertThat(capture.statistics.getThread(3)).isNull()
+  }
+
+  @Test
+  fun threadsWithTheSameIdAreKeptApart() {
+    val first = CpuThreadInfo(1, "first", true)
+    val second = CpuThreadInfo(1, "second", false)
+    val statistics = CpuCapture(FakeTraceParser(Range(0.0, 100.0), mapOf(first to node("first", 0, 50, node("foo", 0, 50)),
+                                                                          second to node("second", 50, 100, node("bar", 50, 100))),
+                                                true), 1, Cpu.CpuTraceType.ART).statistics
+    assertThat(statistics.getThread(first)!!.methods.map { it.model.id }).containsExactly("foo")
+    assertThat(statistics.getThread(second)!!.methods.map { it.model.id }).containsExactly("bar")
+    // Looking up by id returns the first thread, like CpuCapture#getCaptureNode.
+    assertThat(statistics.getThread(1)).isSameAs(statistics.getThread(first))
+  }
+
+  @Test
+  fun longestDurationSpansManyBlocks() {
+    val root = node("thread", 0, 100_000)
+    for (i in 0 until 1000L) {
+      root.addChild(node("tick", i * 100, i * 100 + (if (i == 700L) 90 else 10)))
+    }
+    val statistics = CpuCapture(FakeTraceParser(Range(0.0, 100_000.0), mapOf(CpuThreadInfo(1, "thread", true) to root), true), 1,
+                                Cpu.CpuTraceType.ART).statistics
+    val tick = statistics.getThread(1)!!.getMethod("tick")!!
+    assertThat(tick.getCount(Range(0.0, 100_000.0))).isEqualTo(1000)
+    assertThat(tick.getLongestDuration(Range(0.0, 100_000.0))).isEqualTo(90)
+    assertThat(tick.getLongestDuration(Range(0.0, 69_999.0))).isEqualTo(10)
+    assertThat(tick.getLongestDuration(Range(70_000.0, 70_000.0))).isEqualTo(90)
+  }
+}
@@ -19,6 +19,7 @@ import com.android.tools.profiler.proto.Cpu
 import com.android.tools.profilers.FakeFeatureTracker
 import com.android.tools.profilers.FakeIdeProfilerServices
 import com.android.tools.profilers.ProfilersTestData
+import com.android.tools.profilers.StringTable
 import com.google.common.truth.Truth.assertThat
 import org.junit.Test
 
@@ -26,7 +27,8 @@ class CpuCaptureHandlerTest {
   @Test
   fun updateUpdatesRange() {
     val model = CpuCaptureHandler(FakeIdeProfilerServices(), CpuProfilerTestUtils.getTraceFile("simpleperf.trace"),
-                                  ProfilersTestData.DEFAULT_CONFIG, null, 0)
+                                  ProfilersTestData.DEFAULT_CONFIG, null, 0,
+                                  CpuCaptureParseScheduler(Long.MAX_VALUE), StringTable())
     assertThat(model.range.isEmpty).isTrue()
     model.update(1234L)
     assertThat(model.range.isEmpty).isTrue()
@@ -42,7 +44,7 @@ class CpuCaptureHandlerTest {
     val services = FakeIdeProfilerServices()
     val config = ProfilingConfiguration("Test", Cpu.CpuTraceType.UNSPECIFIED_TYPE, Cpu.CpuTraceMode.UNSPECIFIED_MODE)
     val model = CpuCaptureHandler(services, CpuProfilerTestUtils.getTraceFile("corrupted_trace.trace"), ProfilersTestData.DEFAULT_CONFIG,
-                                  null, 0)
+                                  null, 0, CpuCaptureParseScheduler(Long.MAX_VALUE), StringTable())
     model.parse {
       assertThat(it).isNull()
     }
@@ -54,7 +56,8 @@ class CpuCaptureHandlerTest {
     val config = ProfilingConfiguration("Test", Cpu.CpuTraceType.SIMPLEPERF, Cpu.CpuTraceMode.SAMPLED)
     val services = FakeIdeProfilerServices()
     val fakeFeatureTracker = services.featureTracker as FakeFeatureTracker
-    val model = CpuCaptureHandler(services, CpuProfilerTestUtils.getTraceFile("simpleperf_callchain.trace"), config, null, 1)
+    val model = CpuCaptureHandler(services, CpuProfilerTestUtils.getTraceFile("simpleperf_callchain.trace"), config, null, 1,
+                                  CpuCaptureParseScheduler(Long.MAX_VALUE), StringTable())
     model.parse {
       assertThat(it).isNotNull()
     }
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu
+
+import com.android.tools.profilers.cpu.atrace.AtraceParser
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import java.util.ArrayDeque
+import java.util.concurrent.Executor
+
+class CpuCaptureParseSchedulerTest {
+
+  /**
+   * Executor that only runs its tasks when asked to, so tests control when jobs start and complete.
+   */
+  private class DeferredExecutor : Executor {
+    val tasks = ArrayDeque<Runnable>()
+    override fun execute(command: Runnable) {
+      tasks.add(command)
+    }
+
+    fun runNext() = tasks.poll().run()
+  }
+
+  private val executor = DeferredExecutor()
+  private val scheduler = CpuCaptureParseScheduler(100)
+  private val owner = Any()
+
+  @Test
+  fun jobsAreAdmittedWithinTheMemoryBudget() {
+    val first = scheduler.submit(owner, TraceParsingMonitor(), 60, executor) { "first" }
+    val second = scheduler.submit(owner, TraceParsingMonitor(), 60, executor) { "second" }
+    assertThat(scheduler.runningJobCount).isEqualTo(1)
+    assertThat(scheduler.pendingJobCount).isEqualTo(1)
+
+    executor.runNext()
+    assertThat(first.get()).isEqualTo("first")
+    assertThat(scheduler.runningJobCount).isEqualTo(1)
+    assertThat(scheduler.pendingJobCount).isEqualTo(0)
+
+    executor.runNext()
+    assertThat(second.get()).isEqualTo("second")
+    assertThat(scheduler.runningJobCount).isEqualTo(0)
+  }
+
+  @Test
+  fun jobLargerThanTheBudgetRunsWhenNothingElseDoes() {
+    val future = scheduler.submit(owner, TraceParsingMonitor(), 1000, executor) { "large" }
+    assertThat(scheduler.runningJobCount).isEqualTo(1)
+    executor.runNext()
+    assertThat(future.get()).isEqualTo("large")
+  }
+
+  @Test
+  fun mostRecentPendingJobRunsFirst() {
+    val order = mutableListOf<String>()
+    scheduler.submit(owner, TraceParsingMonitor(), 100, executor) { order.add("running") }
+    scheduler.submit(owner, TraceParsingMonitor(), 100, executor) { order.add("older") }
+    scheduler.submit(owner, TraceParsingMonitor(), 100, executor) { order.add("newer") }
+
+    repeat(3) { executor.runNext() }
+    assertThat(order).containsExactly("running", "newer", "older").inOrder()
+  }
+
+  @Test
+  fun cancelingAPendingJobRemovesItFromTheQueue() {
+    scheduler.submit(owner, TraceParsingMonitor(), 100, executor) { "running" }
+    val monitor = TraceParsingMonitor()
+    val pending = scheduler.submit(owner, monitor, 100, executor) { "pending" }
+
+    pending.cancel(true)
+    assertThat(monitor.isCanceled).isTrue()
+    assertThat(scheduler.pendingJobCount).isEqualTo(0)
+  }
+
+  @Test
+  fun cancelingARunningJobStopsItAtTheNextCheck() {
+    val monitor = TraceParsingMonitor()
+    var reachedEnd = false
+    val future = scheduler.submit(owner, monitor, 100, executor) {
+      monitor.cancel()
+      TraceParsingMonitor.checkCanceled()
+      reachedEnd = true
+    }
+
+    executor.runNext()
+    assertThat(reachedEnd).isFalse()
+    assertThat(future.isCancelled).isTrue()
+    assertThat(scheduler.runningJobCount).isEqualTo(0)
+  }
+
+  @Test
+  fun parsedCaptureHoldsItsBudgetUntilReleased() {
+    scheduler.submit(owner, TraceParsingMonitor(), 60, executor) { "capture" }
+    executor.runNext()
+    assertThat(scheduler.runningJobCount).isEqualTo(0)
+    assertThat(scheduler.admittedMemoryBytes).isEqualTo(60)
+
+    // Another capture doesn't fit next to the loaded one once something else runs.
+    val otherOwner = Any()
+    scheduler.submit(otherOwner, TraceParsingMonitor(), 30, executor) { "running" }
+    scheduler.submit(otherOwner, TraceParsingMonitor(), 30, executor) { "pending" }
+    assertThat(scheduler.runningJobCount).isEqualTo(1)
+    assertThat(scheduler.pendingJobCount).isEqualTo(1)
+
+    scheduler.release(owner)
+    assertThat(scheduler.runningJobCount).isEqualTo(2)
+    assertThat(scheduler.admittedMemoryBytes).isEqualTo(60)
+  }
+
+  @Test
+  fun jobWithoutCaptureFreesItsBudgetWhenItStops() {
+    scheduler.submit(owner, TraceParsingMonitor(), 60, executor) { null }
+    scheduler.submit(owner, TraceParsingMonitor(), 30, executor) { throw IllegalStateException() }
+    repeat(2) { executor.runNext() }
+    assertThat(scheduler.admittedMemoryBytes).isEqualTo(0)
+  }
+
+  @Test
+  fun releasingCancelsTheJobsOfTheOwner() {
+    val runningMonitor = TraceParsingMonitor()
+    val running = scheduler.submit(owner, runningMonitor, 100, executor) {
+      TraceParsingMonitor.checkCanceled()
+      "running"
+    }
+    val pending = scheduler.submit(owner, TraceParsingMonitor(), 100, executor) { "pending" }
+    val otherOwner = Any()
+    val other = scheduler.submit(otherOwner, TraceParsingMonitor(), 100, executor) { "other" }
+
+    scheduler.release(owner)
+    assertThat(running.isCancelled).isTrue()
+    assertThat(runningMonitor.isCanceled).isTrue()
+    assertThat(pending.isCancelled).isTrue()
+    assertThat(other.isCancelled).isFalse()
+
+    // The running parser only stops at its next check, then frees its share so the other owner's job starts.
+    executor.runNext()
+    assertThat(scheduler.admittedMemoryBytes).isEqualTo(100)
+    assertThat(scheduler.runningJobCount).isEqualTo(1)
+    executor.runNext()
+    assertThat(other.get()).isEqualTo("other")
+  }
+
+  @Test
+  fun monitorIsOnlyInstalledWhileTheJobRuns() {
+    val monitor = TraceParsingMonitor()
+    var installed: TraceParsingMonitor? = null
+    scheduler.submit(owner, monitor, 0, executor) { installed = TraceParsingMonitor.getCurrent() }
+    executor.runNext()
+    assertThat(installed).isSameAs(monitor)
+
+    // Without a monitor installed the hook is a no-op.
+    assertThat(TraceParsingMonitor.getCurrent()).isNull()
+    TraceParsingMonitor.checkCanceled()
+  }
+
+  @Test
+  fun cancelingStopsAtraceParsing() {
+    val monitor = TraceParsingMonitor()
+    val parser = AtraceParser(ATRACE_PID)
+    val future = scheduler.submit(owner, monitor, 0, executor) {
+      monitor.cancel()
+      parser.parse(CpuProfilerTestUtils.getTraceFile("atrace.ctrace"), 0)
+    }
+    executor.runNext()
+    assertThat(future.isCancelled).isTrue()
+
+    // The canceled parsing left nothing behind, so the parser can still be used.
+    assertThat(parser.parse(CpuProfilerTestUtils.getTraceFile("atrace.ctrace"), 0)).isNotNull()
+  }
+
+  private companion object {
+    const val ATRACE_PID = 2652
+  }
+}
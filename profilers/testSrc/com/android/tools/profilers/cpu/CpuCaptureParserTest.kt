@@ -21,11 +21,13 @@ import com.android.tools.idea.protobuf.ByteString
 import com.android.tools.profilers.FakeFeatureTracker
 import com.android.tools.profilers.FakeIdeProfilerServices
 import com.android.tools.profilers.ProfilersTestData
+import com.android.tools.profilers.StringTable
 import com.google.common.truth.Truth.assertThat
 import org.junit.Assert.fail
 import org.junit.Test
 import java.io.File
 import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executor
 
 class CpuCaptureParserTest {
 
@@ -95,6 +97,39 @@ class CpuCaptureParserTest {
     assertThat(secondParsedCapture).isEqualTo(firstParsedCapture)
   }
 
+  @Test
+  fun parsingAnotherTraceCancelsThePreviousParsing() {
+    val scheduler = CpuCaptureParseScheduler(0)
+    // Keeps the scheduler busy, so the parsing jobs stay pending until the test runs it.
+    var blocker: Runnable? = null
+    scheduler.submit(Any(), TraceParsingMonitor(), 0, Executor { blocker = it }) { "blocker" }
+    val parser = CpuCaptureParser(FakeIdeProfilerServices(), scheduler, StringTable())
+    val traceBytes = CpuProfilerTestUtils.traceFileToByteString("valid_trace.trace")
+
+    val firstCapture = parser.parse(ProfilersTestData.SESSION_DATA, ANY_TRACE_ID, traceBytes, Cpu.CpuTraceType.ART)!!
+    val secondCapture = parser.parse(ProfilersTestData.SESSION_DATA, ANY_TRACE_ID + 1, traceBytes, Cpu.CpuTraceType.ART)!!
+    assertThat(firstCapture.isCancelled).isTrue()
+    assertThat(scheduler.pendingJobCount).isEqualTo(1)
+    // The cancelled capture is forgotten, so selecting its trace again parses it again.
+    assertThat(parser.getCapture(ANY_TRACE_ID)).isNull()
+
+    blocker!!.run()
+    checkValidCapture(secondCapture.get())
+    assertThat(parser.parsingProgress).isWithin(0.0).of(1.0)
+  }
+
+  @Test
+  fun releasingTheParserFreesTheMemoryOfItsCaptures() {
+    val scheduler = CpuCaptureParseScheduler(Long.MAX_VALUE)
+    val parser = CpuCaptureParser(FakeIdeProfilerServices(), scheduler, StringTable())
+    val traceBytes = CpuProfilerTestUtils.traceFileToByteString("valid_trace.trace")
+    parser.parse(ProfilersTestData.SESSION_DATA, ANY_TRACE_ID, traceBytes, Cpu.CpuTraceType.ART)!!.get()
+    assertThat(scheduler.admittedMemoryBytes).isGreaterThan(0L)
+
+    parser.release()
+    assertThat(scheduler.admittedMemoryBytes).isEqualTo(0L)
+  }
+
   @Test
   fun parsingAValidSimpleperfTraceShouldProduceCpuCapture() {
     val parser = CpuCaptureParser(FakeIdeProfilerServices())
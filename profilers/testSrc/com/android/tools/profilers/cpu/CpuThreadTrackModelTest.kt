@@ -52,4 +52,16 @@ class CpuThreadTrackModelTest {
     val threadTrackModel = CpuThreadTrackModel(Range(), capture, CpuThreadInfo(516, "Foo"), DefaultTimeline(), MultiSelectionModel())
     assertThat(threadTrackModel.threadStateChartModel.series).isEmpty()
   }
+
+  @Test
+  fun traceEventTooltipHasMethodStatisticsOfTheThread() {
+    val capture = CpuProfilerTestUtils.getValidCapture()
+    val threadTrackModel = CpuThreadTrackModel(Range(), capture, CpuThreadInfo(516, "Foo"), DefaultTimeline(), MultiSelectionModel())
+    val node = capture.getCaptureNode(516)!!.getChildAt(0)
+
+    val tooltip = threadTrackModel.traceEventTooltipBuilder.apply(node)
+    assertThat(tooltip.methodStatistics).isSameAs(capture.statistics.getThread(516)!!.getMethod(node.data.id))
+    assertThat(tooltip.methodStatistics!!.getCount(tooltip.statisticsRange)).isAtLeast(1)
+    assertThat(tooltip.statisticsRange).isSameAs(capture.range)
+  }
 }
\ No newline at end of file
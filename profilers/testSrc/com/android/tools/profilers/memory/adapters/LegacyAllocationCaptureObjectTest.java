@@ -32,6 +32,7 @@ import com.android.tools.profiler.proto.Memory.AllocationsInfo;
 import com.android.tools.profilers.FakeIdeProfilerServices;
 import com.android.tools.profilers.ProfilerClient;
 import com.android.tools.profilers.ProfilersTestData;
+import com.android.tools.profilers.StringTable;
 import com.android.tools.profilers.memory.FakeMemoryService;
 import com.android.tools.profilers.memory.MemoryProfilerTestUtils;
 import java.nio.ByteBuffer;
@@ -62,7 +63,8 @@ public class LegacyAllocationCaptureObjectTest {
       new LegacyAllocationCaptureObject(new ProfilerClient(myGrpcChannel.getName()),
                                         ProfilersTestData.SESSION_DATA,
                                         testInfo,
-                                        myIdeProfilerServices.getFeatureTracker());
+                                        myIdeProfilerServices.getFeatureTracker(),
+                                        new StringTable());
 
     capture.load(null, null);
     assertTrue(capture.isDoneLoading());
@@ -84,7 +86,8 @@ public class LegacyAllocationCaptureObjectTest {
       new LegacyAllocationCaptureObject(new ProfilerClient(myGrpcChannel.getName()),
                                         ProfilersTestData.SESSION_DATA,
                                         testInfo,
-                                        myIdeProfilerServices.getFeatureTracker());
+                                        myIdeProfilerServices.getFeatureTracker(),
+                                        new StringTable());
 
     // Verify values associated with the AllocationsInfo object.
     assertEquals(startTimeNs, capture.getStartTimeNs());
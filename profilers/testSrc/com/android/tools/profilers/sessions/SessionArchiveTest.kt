@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.sessions
+
+import com.android.tools.idea.protobuf.ByteString
+import com.android.tools.profiler.proto.Common
+import com.google.common.truth.Truth.assertThat
+import com.intellij.openapi.util.io.FileUtil
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.FileOutputStream
+import java.io.IOException
+
+class SessionArchiveTest {
+
+  @Test
+  fun writtenArchiveCanBeReadBack() {
+    val sessionStarted = Common.Event.newBuilder()
+      .setKind(Common.Event.Kind.SESSION)
+      .setGroupId(1)
+      .setTimestamp(10)
+      .setSession(Common.SessionData.newBuilder().setSessionStarted(
+        Common.SessionData.SessionStarted.newBuilder().setSessionId(1).setPid(20).setSessionName("app (device)")))
+      .build()
+    val sessionEnded = Common.Event.newBuilder().setKind(Common.Event.Kind.SESSION).setGroupId(1).setTimestamp(100).setIsEnded(true).build()
+    val events = (1..100L).map {
+      Common.Event.newBuilder().setKind(Common.Event.Kind.CPU_USAGE).setPid(20).setTimestamp(10 + it).build()
+    }
+    val traceBytes = ByteString.copyFromUtf8("trace contents")
+    val heapDumpBytes = ByteString.copyFrom(ByteArray(4096) { it.toByte() })
+
+    val file = FileUtil.createTempFile("session", "." + SessionArchive.FILE_EXTENSION)
+    FileOutputStream(file).use {
+      SessionArchive.Writer(it).apply {
+        writeSessionEvents(listOf(sessionStarted, sessionEnded))
+        writeEvents(events)
+        writeBytes("1234", traceBytes)
+        writeBytes("5678", heapDumpBytes)
+        close()
+      }
+    }
+
+    SessionArchive.open(file).use { archive ->
+      assertThat(archive.sessionEvents).containsExactly(sessionStarted, sessionEnded).inOrder()
+      assertThat(readEvents(archive)).containsExactlyElementsIn(events).inOrder()
+      assertThat(archive.bytesIds).containsExactly("1234", "5678")
+      assertThat(archive.hasBytes("1234")).isTrue()
+      assertThat(archive.hasBytes("4321")).isFalse()
+      assertThat(archive.getBytes("1234")).isEqualTo(traceBytes)
+      assertThat(archive.getBytes("5678")).isEqualTo(heapDumpBytes)
+    }
+  }
+
+  @Test
+  fun emptyEventsSectionIsSupported() {
+    val file = FileUtil.createTempFile("session", "." + SessionArchive.FILE_EXTENSION)
+    FileOutputStream(file).use {
+      SessionArchive.Writer(it).apply {
+        writeSessionEvents(listOf(Common.Event.newBuilder().setKind(Common.Event.Kind.SESSION).build()))
+        writeEvents(emptyList())
+        close()
+      }
+    }
+
+    SessionArchive.open(file).use { archive ->
+      assertThat(archive.sessionEvents).hasSize(1)
+      assertThat(readEvents(archive)).isEmpty()
+      assertThat(archive.bytesIds).isEmpty()
+    }
+  }
+
+  @Test
+  fun payloadsStayValidAfterTheFileIsTruncated() {
+    val bytes = ByteString.copyFrom(ByteArray(4096) { it.toByte() })
+    val file = FileUtil.createTempFile("session", "." + SessionArchive.FILE_EXTENSION)
+    FileOutputStream(file).use {
+      SessionArchive.Writer(it).apply {
+        writeSessionEvents(listOf(Common.Event.newBuilder().setKind(Common.Event.Kind.SESSION).build()))
+        writeEvents(emptyList())
+        writeBytes("1234", bytes)
+        close()
+      }
+    }
+
+    val payload = SessionArchive.open(file).use { it.getBytes("1234") }
+    // E.g. exporting the imported session back to the same file.
+    FileOutputStream(file).use { }
+    assertThat(payload).isEqualTo(bytes)
+  }
+
+  @Test
+  fun payloadsCanBeCopiedToAnotherArchive() {
+    val sessionEvent = Common.Event.newBuilder().setKind(Common.Event.Kind.SESSION).build()
+    val bytes = ByteString.copyFrom(ByteArray(100000) { it.toByte() })
+    val file = FileUtil.createTempFile("session", "." + SessionArchive.FILE_EXTENSION)
+    FileOutputStream(file).use {
+      SessionArchive.Writer(it).apply {
+        writeSessionEvents(listOf(sessionEvent))
+        writeEvents(emptyList())
+        writeBytes("1234", bytes)
+        close()
+      }
+    }
+
+    val copy = FileUtil.createTempFile("session", "." + SessionArchive.FILE_EXTENSION)
+    SessionArchive.open(file).use { archive ->
+      FileOutputStream(copy).use {
+        SessionArchive.Writer(it).apply {
+          writeSessionEvents(archive.sessionEvents)
+          writeEvents(listOf(sessionEvent))
+          writeBytes("1234", archive)
+          writeBytes("5678", ByteString.copyFromUtf8("after the copy"))
+          close()
+        }
+      }
+    }
+
+    SessionArchive.open(copy).use { archive ->
+      assertThat(readEvents(archive)).containsExactly(sessionEvent)
+      assertThat(archive.getBytes("1234")).isEqualTo(bytes)
+      assertThat(archive.getBytes("5678")).isEqualTo(ByteString.copyFromUtf8("after the copy"))
+    }
+  }
+
+  @Test(expected = IOException::class)
+  fun copyingPayloadOfTruncatedArchiveFails() {
+    val file = FileUtil.createTempFile("session", "." + SessionArchive.FILE_EXTENSION)
+    FileOutputStream(file).use {
+      SessionArchive.Writer(it).apply {
+        writeSessionEvents(listOf(Common.Event.newBuilder().setKind(Common.Event.Kind.SESSION).build()))
+        writeEvents(emptyList())
+        writeBytes("1234", ByteString.copyFrom(ByteArray(4096)))
+        close()
+      }
+    }
+
+    SessionArchive.open(file).use { archive ->
+      // E.g. exporting the imported session back to the same file.
+      FileOutputStream(file).use { }
+      SessionArchive.Writer(ByteArrayOutputStream()).writeBytes("1234", archive)
+    }
+  }
+
+  @Test(expected = IOException::class)
+  fun openingArchiveWithoutSessionEventsFails() {
+    val file = FileUtil.createTempFile("session", "." + SessionArchive.FILE_EXTENSION)
+    FileOutputStream(file).use {
+      SessionArchive.Writer(it).apply {
+        writeSessionEvents(emptyList())
+        writeEvents(emptyList())
+        close()
+      }
+    }
+    SessionArchive.open(file)
+  }
+
+  @Test(expected = IOException::class)
+  fun openingAnotherFileTypeFails() {
+    val file = FileUtil.createTempFile("session", ".trace")
+    file.writeText("This is not a session archive")
+    SessionArchive.open(file)
+  }
+
+  private fun readEvents(archive: SessionArchive) = mutableListOf<Common.Event>().also { events -> archive.forEachEvent { events.add(it) } }
+}
@@ -40,6 +40,7 @@ import com.android.tools.profilers.memory.LegacyAllocationsSessionArtifact
 import com.android.tools.profilers.network.FakeNetworkService
 import com.google.common.truth.Truth
 import com.google.common.truth.Truth.assertThat
+import com.intellij.openapi.util.io.FileUtil
 import org.junit.Assume
 import org.junit.Before
 import org.junit.Rule
@@ -575,6 +576,29 @@ class SessionsManagerTest(private val useUnifiedEvents: Boolean) {
     assertThat(myObserver.sessionsChangedCount).isEqualTo(3)
   }
 
+  @Test
+  fun testStringTablesAreReleasedWithTheirSessionAndWhenProfilersStop() {
+    val device = Common.Device.newBuilder().setDeviceId(1).setState(Common.Device.State.ONLINE).build()
+    val process = Common.Process.newBuilder().setPid(10).setDeviceId(1).setState(Common.Process.State.ALIVE).build()
+    myTransportService.addDevice(device)
+    myTransportService.addProcess(device, process)
+    myTimer.tick(FakeTimer.ONE_SECOND_IN_NS)
+    myProfilers.setProcess(device, process)
+    endSessionHelper()
+    val session = myManager.selectedSession
+
+    val table = myManager.getStringTable(session)
+    assertThat(myManager.getStringTable(session)).isSameAs(table)
+    assertThat(myManager.getStringTable(session.toBuilder().setSessionId(session.sessionId + 1).build())).isNotSameAs(table)
+
+    myManager.deleteSession(session)
+    val tableAfterDelete = myManager.getStringTable(session)
+    assertThat(tableAfterDelete).isNotSameAs(table)
+
+    myProfilers.stop()
+    assertThat(myManager.getStringTable(session)).isNotSameAs(tableAfterDelete)
+  }
+
   @Test
   fun testDeleteProfilingSession() {
     val device = Common.Device.newBuilder().setDeviceId(1).setState(Common.Device.State.ONLINE).build()
@@ -687,6 +711,14 @@ class SessionsManagerTest(private val useUnifiedEvents: Boolean) {
     assertThat(myManager.sessionArtifacts[0].session).isEqualTo(session2)
   }
 
+  @Test
+  fun testImportingInvalidSessionArchiveFails() {
+    val file = FileUtil.createTempFile("session", "." + SessionArchive.FILE_EXTENSION)
+    file.writeText("This is not a session archive")
+    assertThat(myManager.importSessionFromFile(file)).isFalse()
+    assertThat(myManager.sessionArtifacts).isEmpty()
+  }
+
   private fun beginSessionHelper(device: Common.Device, process: Common.Process) {
     if (useUnifiedEvents) {
       myManager.beginSession(1, device, process)
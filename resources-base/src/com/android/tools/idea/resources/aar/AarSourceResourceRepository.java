@@ -328,6 +328,16 @@ public class AarSourceResourceRepository extends AbstractAarResourceRepository {
       super(resourceDirectoryOrFile, resourceFilesAndFolders, namespace);
     }
 
+    private Loader(@NotNull Loader parent) {
+      super(parent);
+    }
+
+    @Override
+    @NotNull
+    protected Loader createValueFileWorker() {
+      return new Loader(this);
+    }
+
     @Override
     protected boolean loadIdsFromRTxt() {
       if (myZipFile == null) {
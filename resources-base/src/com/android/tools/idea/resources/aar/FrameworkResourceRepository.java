@@ -126,6 +126,15 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
     return repository;
   }
 
+  /**
+   * Checks if the repository contains resources for all the given languages.
+   *
+   * @param languages the set of ISO 639 language codes
+   */
+  public boolean containsLanguages(@NotNull Set<String> languages) {
+    return myLanguageGroups.containsAll(getLanguageGroups(languages));
+  }
+
   /**
    * Loads resources for requested languages that are not present in this resource repository.
    *
@@ -402,6 +411,19 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
       myLoadedLanguageGroups = new TreeSet<>(sourceRepository.myLanguageGroups);
     }
 
+    private Loader(@NotNull Loader parent) {
+      super(parent);
+      myLanguageGroups = parent.myLanguageGroups;
+      // The folders to load are selected by the parent, so the worker doesn't need the language groups loaded earlier.
+      myLoadedLanguageGroups = ImmutableSet.of();
+    }
+
+    @Override
+    @NotNull
+    protected Loader createValueFileWorker() {
+      return new Loader(this);
+    }
+
     @Override
     protected void loadFromZip(@NotNull FrameworkResourceRepository repository) {
       try (ZipFile zipFile = new ZipFile(myResourceDirectoryOrFile.toFile())) {
@@ -21,6 +21,8 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
@@ -33,6 +35,7 @@ import org.jetbrains.annotations.Nullable;
  */
 public final class Base128InputStream extends BufferedInputStream {
   @Nullable private Map<String, String> myStringCache;
+  @Nullable private List<String> myStringTable;
 
   /**
    * Wraps a given input stream.
@@ -62,6 +65,14 @@ public final class Base128InputStream extends BufferedInputStream {
     myStringCache = stringCache;
   }
 
+  /**
+   * Makes all subsequent {@link #readString()} calls use the string table. Has to be called at the same position in the stream
+   * where {@link Base128OutputStream#enableStringTable()} was called when the stream was written.
+   */
+  public void enableStringTable() {
+    myStringTable = new ArrayList<>();
+  }
+
   /**
    * Reads a 32-bit integer from the stream. The integer had to be written by {@link Base128OutputStream#writeInt(int)}.
    *
@@ -131,16 +142,35 @@ public final class Base128InputStream extends BufferedInputStream {
     if (len == 0) {
       return null;
     }
+    if (myStringTable != null) {
+      if ((len & 1) != 0) {
+        int index = len >>> 1;
+        if (index >= myStringTable.size()) {
+          throw StreamFormatException.invalidFormat();
+        }
+        return myStringTable.get(index);
+      }
+      len >>>= 1;
+    }
     --len;
+    String str;
     if (len == 0) {
-      return "";
+      str = "";
+    }
+    else {
+      StringBuilder buf = new StringBuilder(len);
+      for (int i = 0; i < len; i++) {
+        buf.append(readChar());
+      }
+      str = buf.toString();
+      if (myStringCache != null) {
+        str = myStringCache.computeIfAbsent(str, Function.identity());
+      }
     }
-    StringBuilder buf = new StringBuilder(len);
-    for (int i = 0; i < len; i++) {
-      buf.append(readChar());
+    if (myStringTable != null) {
+      myStringTable.add(str);
     }
-    String str = buf.toString();
-    return myStringCache == null ? str : myStringCache.computeIfAbsent(str, Function.identity());
+    return str;
   }
 
   /**
@@ -15,6 +15,8 @@
  */
 package com.android.tools.idea.resources.base;
 
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -29,6 +31,8 @@ import org.jetbrains.annotations.Nullable;
  * @see Base128InputStream
  */
 public class Base128OutputStream extends BufferedOutputStream {
+  @Nullable private Object2IntMap<String> myStringIndexes;
+
   public Base128OutputStream(@NotNull OutputStream stream) {
     super(stream);
   }
@@ -93,9 +97,22 @@ public class Base128OutputStream extends BufferedOutputStream {
     } while (value != 0);
   }
 
+  /**
+   * Makes all subsequent {@link #writeString} calls share a string table with the reader, so that every distinct string is written
+   * only once and its repeated occurrences are written as indexes into the table. A stream written this way has to be read by
+   * a {@link Base128InputStream} on which {@link Base128InputStream#enableStringTable()} is called at the same position.
+   */
+  public final void enableStringTable() {
+    myStringIndexes = new Object2IntOpenHashMap<>();
+    myStringIndexes.defaultReturnValue(-1);
+  }
+
   /**
    * Write a String to the stream. The string is prefixed by its length + 1.
    * Each character is then written using the {@link #writeChar} method.
+   * <p>
+   * If the string table is enabled, the prefix is 2 * (length + 1) for a string that is written for the first time, and
+   * 2 * index + 1 for a string that has been written before, in which case the characters are omitted.
    *
    * @param str the string to write or null
    * @throws IOException if an I/O error occurs.
@@ -104,15 +121,31 @@ public class Base128OutputStream extends BufferedOutputStream {
     if (str == null) {
       writeInt(0);
     }
-    else {
+    else if (myStringIndexes == null) {
       int len = str.length();
       writeInt(len + 1);
-      for (int i = 0; i < len; i++) {
-        writeChar(str.charAt(i));
+      writeChars(str);
+    }
+    else {
+      int index = myStringIndexes.getInt(str);
+      if (index >= 0) {
+        writeInt(index * 2 + 1);
+      }
+      else {
+        myStringIndexes.put(str, myStringIndexes.size());
+        writeInt((str.length() + 1) * 2);
+        writeChars(str);
       }
     }
   }
 
+  private void writeChars(@NotNull String str) throws IOException {
+    int len = str.length();
+    for (int i = 0; i < len; i++) {
+      writeChar(str.charAt(i));
+    }
+  }
+
   /**
    * Writes a 16-bit integer to the stream. Small positive integers take less space than larger ones:
    * <ul>
@@ -106,6 +106,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -117,6 +119,14 @@ import org.xmlpull.v1.XmlPullParserException;
 
 public abstract class RepositoryLoader<T extends LoadableResourceRepository> implements FileFilter {
   private static final Logger LOG = Logger.getInstance(RepositoryLoader.class);
+
+  private static final int MAX_PARSING_THREADS = 8;
+  /**
+   * Pool used by {@link #loadResourceFiles} for parsing value resource files in parallel. The pool is shared by all loaders, so
+   * that loading many repositories at the same time doesn't create more threads than there are cores.
+   */
+  private static final ForkJoinPool ourParsingPool =
+      new ForkJoinPool(Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_PARSING_THREADS)));
   /** The set of attribute formats that is used when no formats are explicitly specified and the attribute is not a flag or enum. */
   private final Set<AttributeFormat> DEFAULT_ATTR_FORMATS = Sets.immutableEnumSet(
       AttributeFormat.BOOLEAN,
@@ -129,7 +139,7 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
       AttributeFormat.STRING);
   private final PatternBasedFileFilter myFileFilter = new PatternBasedFileFilter();
 
-  @NotNull private final Map<ResourceType, Set<String>> myPublicResources = new EnumMap<>(ResourceType.class);
+  @NotNull private final Map<ResourceType, Set<String>> myPublicResources;
   @NotNull private final ListMultimap<String, BasicAttrResourceItem> myAttrs = ArrayListMultimap.create();
   @NotNull private final ListMultimap<String, BasicAttrResourceItem> myAttrCandidates = ArrayListMultimap.create();
   @NotNull private final ListMultimap<String, BasicStyleableResourceItem> myStyleables = ArrayListMultimap.create();
@@ -150,6 +160,8 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
   @NotNull private final ResourceNamespace myNamespace;
   @Nullable private final Collection<PathString> myResourceFilesAndFolders;
   @Nullable protected ZipFile myZipFile;
+  /** Not null if this loader is a worker parsing a single value resource file, see {@link #createValueFileWorker}. */
+  @Nullable private final ParsedValueFile myParsedValueFile;
 
   public RepositoryLoader(@NotNull Path resourceDirectoryOrFile, @Nullable Collection<PathString> resourceFilesAndFolders,
                           @NotNull ResourceNamespace namespace) {
@@ -158,6 +170,25 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
     myLoadingFromZipArchive = isZipArchive(resourceDirectoryOrFile);
     myNamespace = namespace;
     myResourceFilesAndFolders = resourceFilesAndFolders;
+    myPublicResources = new EnumMap<>(ResourceType.class);
+    myParsedValueFile = null;
+  }
+
+  /**
+   * Creates a worker that parses a single value resource file on behalf of {@code parent}, see {@link #createValueFileWorker}.
+   * The worker has its own parser, configuration caches and the {@link ParsedValueFile} the results are recorded in.
+   * It shares only the public resource names and the zip file of the parent, which are not modified while the files are parsed.
+   */
+  protected RepositoryLoader(@NotNull RepositoryLoader<T> parent) {
+    myResourceDirectoryOrFile = parent.myResourceDirectoryOrFile;
+    myResourceDirectoryOrFilePath = parent.myResourceDirectoryOrFilePath;
+    myLoadingFromZipArchive = parent.myLoadingFromZipArchive;
+    myNamespace = parent.myNamespace;
+    myResourceFilesAndFolders = parent.myResourceFilesAndFolders;
+    myPublicResources = Collections.unmodifiableMap(parent.myPublicResources);
+    myDefaultVisibility = parent.myDefaultVisibility;
+    myZipFile = parent.myZipFile;
+    myParsedValueFile = new ParsedValueFile();
   }
 
   @NotNull
@@ -189,12 +220,13 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
       loadPublicResourceNames();
       boolean shouldParseResourceIds = !loadIdsFromRTxt();
 
+      List<PathString> resourceFiles = new ArrayList<>();
       zipFile.stream().forEach(zipEntry -> {
         if (!zipEntry.isDirectory()) {
-          PathString path = new PathString(zipEntry.getName());
-          loadResourceFile(path, repository, shouldParseResourceIds);
+          resourceFiles.add(new PathString(zipEntry.getName()));
         }
       });
+      loadResourceFiles(resourceFiles, repository, shouldParseResourceIds);
     }
     catch (Exception e) {
       LOG.error("Failed to load resources from " + myResourceDirectoryOrFile.toString(), e);
@@ -219,9 +251,7 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
                                          ImmutableList.of(myResourceDirectoryOrFile) :
                                          myResourceFilesAndFolders.stream().map(PathString::toPath).collect(Collectors.toList());
       List<PathString> resourceFiles = findResourceFiles(sourceFilesAndFolders);
-      for (PathString file : resourceFiles) {
-        loadResourceFile(file, repository, shouldParseResourceIds);
-      }
+      loadResourceFiles(resourceFiles, repository, shouldParseResourceIds);
     }
     catch (Exception e) {
       LOG.error("Failed to load resources from " + myResourceDirectoryOrFile.toString(), e);
@@ -230,6 +260,93 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
     finishLoading(repository);
   }
 
+  /**
+   * Loads the given resource files in their order. Value resource files are parsed in parallel if the loader supports it,
+   * see {@link #createValueFileWorker}.
+   */
+  private void loadResourceFiles(@NotNull List<PathString> resourceFiles, @NotNull T repository, boolean shouldParseResourceIds) {
+    Map<PathString, ForkJoinTask<ParsedValueFile>> valueFileTasks = parseValueResourceFilesInParallel(resourceFiles, repository);
+    try {
+      for (PathString file : resourceFiles) {
+        ForkJoinTask<ParsedValueFile> task = valueFileTasks.get(file);
+        if (task == null) {
+          loadResourceFile(file, repository, shouldParseResourceIds);
+        }
+        else {
+          addParsedValueFile(file, task.join());
+        }
+      }
+    }
+    finally {
+      valueFileTasks.values().forEach(task -> task.cancel(false));
+    }
+  }
+
+  /**
+   * Starts parsing of the value resource files among {@code resourceFiles} on {@link #ourParsingPool}. Each file is parsed by its own
+   * worker loader that records the created resource items instead of adding them to the repository. The recorded items are added
+   * by {@link #addParsedValueFile} on the loading thread in the canonical file order, so the resulting repository is the same as
+   * if the files were parsed sequentially.
+   *
+   * @return the parsing tasks keyed by the value resource files
+   */
+  @NotNull
+  private Map<PathString, ForkJoinTask<ParsedValueFile>> parseValueResourceFilesInParallel(@NotNull List<PathString> resourceFiles,
+                                                                                           @NotNull T repository) {
+    if (ourParsingPool.getParallelism() <= 1) {
+      return Collections.emptyMap();
+    }
+
+    Map<PathString, ForkJoinTask<ParsedValueFile>> tasks = new HashMap<>();
+    for (PathString file : resourceFiles) {
+      String folderName = file.getParentFileName();
+      if (folderName != null && isXmlFile(file)) {
+        FolderInfo folderInfo = FolderInfo.create(folderName, myFolderConfigCache);
+        if (folderInfo != null && folderInfo.resourceType == null) {
+          RepositoryLoader<T> worker = createValueFileWorker();
+          if (worker == null) {
+            return Collections.emptyMap();
+          }
+          ParsedValueFile parsedFile = worker.myParsedValueFile;
+          assert parsedFile != null : "Workers must be created by the RepositoryLoader(RepositoryLoader) constructor";
+          RepositoryConfiguration configuration = getConfiguration(repository, folderInfo.configuration);
+          tasks.put(file, ourParsingPool.submit(() -> {
+            worker.parseValueResourceFile(file, configuration);
+            return parsedFile;
+          }));
+        }
+      }
+    }
+    return tasks;
+  }
+
+  /**
+   * Returns a worker that parses a single value resource file on a thread of the parsing pool, or null if this loader
+   * parses all files on the loading thread. Workers are created by the {@link #RepositoryLoader(RepositoryLoader)} constructor
+   * and have to copy whatever state of the subclass is used for parsing, since the worker and the loader run concurrently.
+   */
+  @Nullable
+  protected RepositoryLoader<T> createValueFileWorker() {
+    return null;
+  }
+
+  /**
+   * Adds the resources recorded by a worker created by {@link #createValueFileWorker} in the same way as
+   * {@link #parseValueResourceFile} would have added them.
+   */
+  private void addParsedValueFile(@NotNull PathString file, @NotNull ParsedValueFile parsedFile) {
+    for (BasicValueResourceItemBase item : parsedFile.items) {
+      addValueResourceItem(item);
+    }
+    for (BasicAttrResourceItem attr : parsedFile.attrCandidates) {
+      addAttr(attr, myAttrCandidates);
+    }
+    if (parsedFile.error != null) {
+      handleParsingError(file, parsedFile.error);
+    }
+    addValueFileResources();
+  }
+
   protected final void loadResourceFile(@NotNull PathString file, @NotNull T repository, boolean shouldParseResourceIds) {
     String folderName = file.getParentFileName();
     if (folderName != null) {
@@ -496,7 +613,12 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
     }
     // KXmlParser throws RuntimeException for an undefined prefix and an illegal attribute name.
     catch (IOException | XmlPullParserException | XmlSyntaxException | RuntimeException e) {
-      handleParsingError(file, e);
+      if (myParsedValueFile == null) {
+        handleParsingError(file, e);
+      }
+      else {
+        myParsedValueFile.error = e;
+      }
     }
 
     addValueFileResources();
@@ -508,6 +630,11 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
   }
 
   private void addValueResourceItem(@NotNull BasicValueResourceItemBase item) {
+    if (myParsedValueFile != null) {
+      myParsedValueFile.items.add(item);
+      return;
+    }
+
     ResourceType resourceType = item.getType();
     // Add attr and styleable resources to intermediate maps to post-process them in the processAttrsAndStyleables
     // method after all resources are loaded.
@@ -854,7 +981,12 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
           // The second condition is determined by the fact that the attr in the res-auto namespace may have an explicit definition
           // outside of this resource repository.
           if (attr.getNamespace().equals(myNamespace) && (myNamespace != ResourceNamespace.RES_AUTO || !attr.getFormats().isEmpty())) {
-            addAttr(attr, myAttrCandidates);
+            if (myParsedValueFile == null) {
+              addAttr(attr, myAttrCandidates);
+            }
+            else {
+              myParsedValueFile.attrCandidates.add(attr);
+            }
           }
         }
         catch (XmlSyntaxException e) {
@@ -1171,6 +1303,15 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
     }
   }
 
+  /**
+   * Results of parsing a single value resource file by a worker created by {@link #createValueFileWorker}.
+   */
+  private static final class ParsedValueFile {
+    @NotNull final List<BasicValueResourceItemBase> items = new ArrayList<>();
+    @NotNull final List<BasicAttrResourceItem> attrCandidates = new ArrayList<>();
+    @Nullable Exception error;
+  }
+
   private static final class ResourceFileCollector implements FileVisitor<Path> {
     @NotNull final List<PathString> resourceFiles = new ArrayList<>();
     @NotNull final List<IOException> ioErrors = new ArrayList<>();
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.resources.base;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Base128OutputStream} and {@link Base128InputStream}.
+ */
+public class Base128StreamTest {
+  @Test
+  public void testStringTable() throws IOException {
+    ByteArrayOutputStream plainBytes = new ByteArrayOutputStream();
+    try (Base128OutputStream stream = new Base128OutputStream(plainBytes)) {
+      writeStrings(stream);
+    }
+    ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+    try (Base128OutputStream stream = new Base128OutputStream(tableBytes)) {
+      stream.writeString("header");
+      stream.enableStringTable();
+      writeStrings(stream);
+    }
+
+    try (Base128InputStream stream = new Base128InputStream(new ByteArrayInputStream(tableBytes.toByteArray()))) {
+      assertThat(stream.readString()).isEqualTo("header");
+      stream.enableStringTable();
+      assertThat(stream.readString()).isEqualTo("app_name");
+      assertThat(stream.readString()).isNull();
+      assertThat(stream.readString()).isEqualTo("");
+      String first = stream.readString();
+      assertThat(first).isEqualTo("http://schemas.android.com/apk/res/android");
+      assertThat(stream.readString()).isEqualTo("app_name");
+      assertThat(stream.readString()).isEqualTo("");
+      assertThat(stream.readString()).isSameAs(first);
+      assertThat(stream.readInt()).isEqualTo(42);
+    }
+    assertThat(tableBytes.size()).isLessThan(plainBytes.size());
+  }
+
+  @Test
+  public void testStringTableSharesStringsWithStringCache() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (Base128OutputStream stream = new Base128OutputStream(bytes)) {
+      stream.enableStringTable();
+      writeStrings(stream);
+    }
+
+    // Strings read for the first time go through the string cache, so they are shared with other repositories using the same cache.
+    String cached = new String("http://schemas.android.com/apk/res/android");
+    Map<String, String> stringCache = new HashMap<>();
+    stringCache.put(cached, cached);
+    try (Base128InputStream stream = new Base128InputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      stream.setStringCache(stringCache);
+      stream.enableStringTable();
+      assertThat(stream.readString()).isEqualTo("app_name");
+      assertThat(stream.readString()).isNull();
+      assertThat(stream.readString()).isEqualTo("");
+      assertThat(stream.readString()).isSameAs(cached);
+      assertThat(stream.readString()).isSameAs(stringCache.get("app_name"));
+      assertThat(stream.readString()).isEqualTo("");
+      assertThat(stream.readString()).isSameAs(cached);
+    }
+  }
+
+  private static void writeStrings(Base128OutputStream stream) throws IOException {
+    stream.writeString("app_name");
+    stream.writeString(null);
+    stream.writeString("");
+    stream.writeString("http://schemas.android.com/apk/res/android");
+    stream.writeString("app_name");
+    stream.writeString("");
+    stream.writeString("http://schemas.android.com/apk/res/android");
+    stream.writeInt(42);
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.resources.base;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.android.ide.common.rendering.api.ResourceNamespace;
+import com.android.ide.common.util.PathString;
+import com.android.resources.ResourceType;
+import com.android.resources.ResourceVisibility;
+import com.android.tools.idea.resources.aar.AarSourceResourceRepository;
+import com.android.utils.PathUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RepositoryLoader}.
+ */
+public class RepositoryLoaderTest {
+  private static final String[] LOCALES = {"", "-de", "-es", "-fr", "-it", "-ja", "-ko", "-pt", "-ru", "-zh"};
+
+  private Path myTempDir;
+  private Path myResDir;
+
+  @Before
+  public void setUp() throws Exception {
+    myTempDir = Files.createTempDirectory("unitTest");
+    myResDir = myTempDir.resolve("res");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    PathUtils.deleteRecursivelyIfExists(myTempDir);
+  }
+
+  private void createFile(@NotNull String relativePath, @NotNull String contents) throws IOException {
+    Path file = myResDir.resolve(relativePath);
+    Files.createDirectories(file.getParent());
+    Files.write(file, contents.getBytes(UTF_8));
+  }
+
+  @Test
+  public void testParallelParsingMatchesSequentialParsing() throws Exception {
+    for (String locale : LOCALES) {
+      createFile("values" + locale + "/strings.xml",
+                 "<resources>\n" +
+                 "  <string name=\"app_name\">App" + locale + "</string>\n" +
+                 "  <string name=\"hello\">Hello <b>world</b>" + locale + "</string>\n" +
+                 "  <string name=\"hello\">Hello again" + locale + "</string>\n" +
+                 "  <plurals name=\"things\">\n" +
+                 "    <item quantity=\"one\">thing" + locale + "</item>\n" +
+                 "    <item quantity=\"other\">things" + locale + "</item>\n" +
+                 "  </plurals>\n" +
+                 "</resources>\n");
+    }
+    createFile("values/attrs.xml",
+               "<resources>\n" +
+               "  <attr name=\"myAttr\" format=\"color\"/>\n" +
+               "  <declare-styleable name=\"MyView\">\n" +
+               "    <attr name=\"myAttr\"/>\n" +
+               "    <attr name=\"otherAttr\" format=\"dimension\"/>\n" +
+               "    <attr name=\"android:text\"/>\n" +
+               "  </declare-styleable>\n" +
+               "  <style name=\"MyStyle\" parent=\"Base\">\n" +
+               "    <item name=\"myAttr\">#fff</item>\n" +
+               "  </style>\n" +
+               "</resources>\n");
+    createFile("values-v21/dimens.xml",
+               "<resources>\n" +
+               "  <dimen name=\"margin\">8dp</dimen>\n" +
+               "  <item name=\"button\" type=\"id\"/>\n" +
+               "</resources>\n");
+    createFile("values/broken.xml",
+               "<resources>\n" +
+               "  <color name=\"red\">#f00</color>\n" +
+               "  <string name=\"broken\">\n");
+    createFile("layout/main.xml",
+               "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\">\n" +
+               "  <Button android:id=\"@+id/button\"/>\n" +
+               "  <TextView android:id=\"@+id/text\"/>\n" +
+               "</LinearLayout>\n");
+
+    AarSourceResourceRepository repository = AarSourceResourceRepository.createForTest(myResDir, ResourceNamespace.RES_AUTO, "test");
+    TestLoader sequential = new TestLoader(myResDir, false);
+    sequential.loadRepositoryContents(repository);
+    TestLoader parallel = new TestLoader(myResDir, true);
+    parallel.loadRepositoryContents(repository);
+
+    assertThat(sequential.items).isNotEmpty();
+    assertThat(parallel.items).containsExactlyElementsIn(sequential.items).inOrder();
+    assertThat(sequential.errors).hasSize(1);
+    assertThat(parallel.errors).containsExactlyElementsIn(sequential.errors).inOrder();
+    for (BasicResourceItem item : parallel.items) {
+      boolean isPublic = item.getType() == ResourceType.STRING && item.getName().equals("app_name");
+      assertThat(item.getVisibility()).isEqualTo(isPublic ? ResourceVisibility.PUBLIC : ResourceVisibility.PRIVATE);
+    }
+  }
+
+  /**
+   * Records the loaded resource items and parsing errors instead of adding them to the repository.
+   */
+  private static class TestLoader extends RepositoryLoader<AarSourceResourceRepository> {
+    @NotNull final List<BasicResourceItem> items = new ArrayList<>();
+    @NotNull final List<String> errors = new ArrayList<>();
+    private final boolean myParallel;
+
+    TestLoader(@NotNull Path resourceDirectory, boolean parallel) {
+      super(resourceDirectory, null, ResourceNamespace.RES_AUTO);
+      myParallel = parallel;
+    }
+
+    private TestLoader(@NotNull TestLoader parent) {
+      super(parent);
+      myParallel = false;
+    }
+
+    @Override
+    @Nullable
+    protected TestLoader createValueFileWorker() {
+      return myParallel ? new TestLoader(this) : null;
+    }
+
+    @Override
+    protected void loadPublicResourceNames() {
+      addPublicResourceName(ResourceType.STRING, "app_name");
+    }
+
+    @Override
+    protected void addResourceItem(@NotNull BasicResourceItem item, @NotNull AarSourceResourceRepository repository) {
+      items.add(item);
+    }
+
+    @Override
+    protected void handleParsingError(@NotNull PathString file, @NotNull Exception e) {
+      errors.add(file.getFileName() + ": " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.database;
+
+import com.android.tools.profiler.proto.Cpu;
+import com.android.tools.profiler.proto.Cpu.CpuUsageData;
+import com.android.tools.profiler.proto.CpuProfiler.GetThreadsResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * In-memory index of the CPU usage data and thread activities of a session being recorded, built by {@link CpuTable} from the rows
+ * already in the database and kept up to date as rows are inserted, so that range queries don't have to go through SQLite.
+ * <p>
+ * CPU usage samples carry cumulative app, system and elapsed times, so once sorted by timestamp they already are prefix sums: the
+ * usage over any range is the difference between its two end samples, found with two binary searches. Thread activities are kept as
+ * one timeline per thread, so a range query is a binary search per thread instead of one SQL query per thread.
+ */
+final class CpuSessionIndex {
+  @NotNull private final Timeline<CpuUsageData> myUsageData = new Timeline<>();
+  /**
+   * Thread timelines by thread id. A TreeMap preserves the threads sorting order expected by callers.
+   */
+  @NotNull private final Map<Integer, Timeline<Activity>> myThreads = new TreeMap<>();
+
+  synchronized void insertUsageData(@NotNull CpuUsageData data) {
+    myUsageData.insertOrReplace(data.getEndTimestamp(), data);
+  }
+
+  /**
+   * @return usage samples within (startTimestamp, endTimestamp], sorted by timestamp.
+   */
+  @NotNull
+  synchronized List<CpuUsageData> getUsageData(long startTimestamp, long endTimestamp) {
+    return myUsageData.getValues(myUsageData.upperBound(startTimestamp), myUsageData.upperBound(endTimestamp));
+  }
+
+  synchronized void insertActivity(int tid, long timestamp, @NotNull Cpu.CpuThreadData.State state, @NotNull String name) {
+    myThreads.computeIfAbsent(tid, id -> new Timeline<>()).insertOrReplace(timestamp, new Activity(state, name));
+  }
+
+  /**
+   * Same contract as {@link CpuTable#getThreadsDataByRequest}: for each thread, the state it was in at {@code startTimestamp} (unless
+   * it was dead by then), reported at {@code startTimestamp}, followed by all of its activities within (startTimestamp, endTimestamp].
+   */
+  @NotNull
+  synchronized List<GetThreadsResponse.Thread> getThreads(long startTimestamp, long endTimestamp) {
+    List<GetThreadsResponse.Thread> threads = new ArrayList<>();
+    for (Map.Entry<Integer, Timeline<Activity>> entry : myThreads.entrySet()) {
+      Timeline<Activity> timeline = entry.getValue();
+      int from = timeline.upperBound(startTimestamp);
+      int to = timeline.upperBound(endTimestamp);
+      GetThreadsResponse.Thread.Builder builder = null;
+      if (from > 0) {
+        Activity previous = timeline.getValue(from - 1);
+        if (previous.myState != Cpu.CpuThreadData.State.DEAD) {
+          builder = GetThreadsResponse.Thread.newBuilder().setTid(entry.getKey()).setName(previous.myName);
+          builder.addActivities(
+            GetThreadsResponse.ThreadActivity.newBuilder().setNewState(previous.myState).setTimestamp(startTimestamp));
+        }
+      }
+      for (int i = from; i < to; i++) {
+        Activity activity = timeline.getValue(i);
+        if (builder == null) {
+          builder = GetThreadsResponse.Thread.newBuilder().setTid(entry.getKey()).setName(activity.myName);
+        }
+        builder.addActivities(
+          GetThreadsResponse.ThreadActivity.newBuilder().setNewState(activity.myState).setTimestamp(timeline.getTimestamp(i)));
+      }
+      if (builder != null) {
+        threads.add(builder.build());
+      }
+    }
+    return threads;
+  }
+
+  private static final class Activity {
+    @NotNull private final Cpu.CpuThreadData.State myState;
+    @NotNull private final String myName;
+
+    private Activity(@NotNull Cpu.CpuThreadData.State state, @NotNull String name) {
+      myState = state;
+      myName = name;
+    }
+  }
+
+  /**
+   * Values sorted by timestamp, stored as a primitive timestamp array next to a value list. Data mostly arrives in order, in which case
+   * an insertion is an append.
+   */
+  private static final class Timeline<T> {
+    private long[] myTimestamps = new long[16];
+    @NotNull private final List<T> myValues = new ArrayList<>();
+
+    private void insertOrReplace(long timestamp, @NotNull T value) {
+      int size = myValues.size();
+      if (size == 0 || myTimestamps[size - 1] < timestamp) {
+        ensureCapacity(size + 1);
+        myTimestamps[size] = timestamp;
+        myValues.add(value);
+        return;
+      }
+      int index = Arrays.binarySearch(myTimestamps, 0, size, timestamp);
+      if (index >= 0) {
+        // Mirrors the INSERT OR REPLACE semantics of the backing table.
+        myValues.set(index, value);
+        return;
+      }
+      index = -index - 1;
+      ensureCapacity(size + 1);
+      System.arraycopy(myTimestamps, index, myTimestamps, index + 1, size - index);
+      myTimestamps[index] = timestamp;
+      myValues.add(index, value);
+    }
+
+    /**
+     * @return the index of the first entry strictly after {@code timestamp}.
+     */
+    private int upperBound(long timestamp) {
+      int low = 0;
+      int high = myValues.size();
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (myTimestamps[mid] <= timestamp) {
+          low = mid + 1;
+        }
+        else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private long getTimestamp(int index) {
+      return myTimestamps[index];
+    }
+
+    @NotNull
+    private T getValue(int index) {
+      return myValues.get(index);
+    }
+
+    @NotNull
+    private List<T> getValues(int fromIndex, int toIndex) {
+      return fromIndex < toIndex ? new ArrayList<>(myValues.subList(fromIndex, toIndex)) : new ArrayList<>();
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > myTimestamps.length) {
+        myTimestamps = Arrays.copyOf(myTimestamps, Math.max(capacity, myTimestamps.length * 2));
+      }
+    }
+  }
+}
@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import org.jetbrains.annotations.NotNull;
 
 public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
@@ -48,10 +49,17 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
    */
   private final Map<Long, Set<Integer>> mySessionThreadIdsCache = Collections.synchronizedMap(new HashMap<>());
 
+  /**
+   * In-memory indices of the CPU usage data and thread activities per session index, maintained on insert. Only sessions being
+   * recorded have one, see {@link #setSessionIndexed(Common.Session, boolean)}. Sessions without an index are queried from the database.
+   */
+  private final Map<Long, CpuSessionIndex> mySessionIndices = new ConcurrentHashMap<>();
+
   public enum CpuStatements {
     INSERT_THREAD_ACTIVITY,
     QUERY_ALL_DISTINCT_THREADS,
     QUERY_THREAD_ACTIVITIES,
+    QUERY_ALL_THREAD_ACTIVITIES,
     INSERT_CPU_DATA,
     QUERY_CPU_DATA,
     QUERY_TRACE_INFO,
@@ -105,6 +113,8 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
                       "(Session, ThreadId, Timestamp, State, Name) VALUES (?, ?, ?, ?, ?)");
       createStatement(CpuTable.CpuStatements.QUERY_ALL_DISTINCT_THREADS,
                       "SELECT DISTINCT ThreadId FROM Thread_Activities WHERE Session = ?");
+      createStatement(CpuTable.CpuStatements.QUERY_ALL_THREAD_ACTIVITIES,
+                      "SELECT ThreadId, Timestamp, State, Name FROM Thread_Activities WHERE Session = ?");
       createStatement(CpuTable.CpuStatements.QUERY_THREAD_ACTIVITIES,
                       // First make sure to fetch the states of all threads that were alive at request's start timestamp
                       "SELECT t2.Name, t2.State, ? as ReqStart " +
@@ -127,9 +137,55 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
 
   public void insert(Common.Session session, CpuUsageData data) {
     execute(CpuStatements.INSERT_CPU_DATA, session.getSessionId(), data.getEndTimestamp(), data.toByteArray());
+    CpuSessionIndex index = mySessionIndices.get(session.getSessionId());
+    if (index != null) {
+      index.insertUsageData(data);
+    }
+  }
+
+  /**
+   * Starts or stops serving the CPU usage and thread range queries of {@code session} from memory.
+   * <p>
+   * Starting builds the index from the rows already in the database, and the inserts done through this table keep it up to date
+   * afterwards. It must be called before the data of the session is polled, since rows inserted while the index is being built could
+   * be missed. Stopping drops the index, so later queries go to the database again.
+   */
+  public void setSessionIndexed(@NotNull Common.Session session, boolean indexed) {
+    long sessionId = session.getSessionId();
+    if (!indexed) {
+      mySessionIndices.remove(sessionId);
+      return;
+    }
+    if (mySessionIndices.containsKey(sessionId)) {
+      return;
+    }
+
+    CpuSessionIndex index = new CpuSessionIndex();
+    try {
+      ResultSet usageResults = executeQuery(CpuStatements.QUERY_CPU_DATA, sessionId, Long.MIN_VALUE, Long.MAX_VALUE);
+      while (usageResults.next()) {
+        index.insertUsageData(CpuUsageData.parseFrom(usageResults.getBytes(DATA_COLUMN)));
+      }
+      ResultSet activityResults = executeQuery(CpuStatements.QUERY_ALL_THREAD_ACTIVITIES, sessionId);
+      while (activityResults.next()) {
+        // Please refer QUERY_ALL_THREAD_ACTIVITIES statement for the ResultSet's column to type/value mapping.
+        index.insertActivity(activityResults.getInt(1), activityResults.getLong(2),
+                             Cpu.CpuThreadData.State.valueOf(activityResults.getString(3)), activityResults.getString(4));
+      }
+    }
+    catch (InvalidProtocolBufferException | SQLException ex) {
+      onError(ex);
+      return;
+    }
+    mySessionIndices.putIfAbsent(sessionId, index);
   }
 
   public List<CpuUsageData> getCpuDataByRequest(CpuDataRequest request) {
+    CpuSessionIndex index = mySessionIndices.get(request.getSession().getSessionId());
+    if (index != null) {
+      return index.getUsageData(request.getStartTimestamp(), request.getEndTimestamp());
+    }
+
     List<CpuUsageData> cpuData = new ArrayList<>();
     try {
       ResultSet results =
@@ -152,10 +208,14 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
                                String name,
                                List<GetThreadsResponse.ThreadActivity> activities) {
     getThreadIdCacheForSession(session.getSessionId()).add(tid);
+    CpuSessionIndex index = mySessionIndices.get(session.getSessionId());
     for (GetThreadsResponse.ThreadActivity activity : activities) {
       // TODO: optimize it by adding the states in batches
       execute(CpuStatements.INSERT_THREAD_ACTIVITY, session.getSessionId(), tid, activity.getTimestamp(), activity.getNewState().toString(),
               name);
+      if (index != null) {
+        index.insertActivity(tid, activity.getTimestamp(), activity.getNewState(), name);
+      }
     }
   }
 
@@ -163,15 +223,24 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
                              long timestamp,
                              List<GetThreadsResponse.ThreadSnapshot.Snapshot> snapshots) {
     Set<Integer> idSet = getThreadIdCacheForSession(session.getSessionId());
+    CpuSessionIndex index = mySessionIndices.get(session.getSessionId());
     // For now, insert it as activity. TODO: differentiate the concepts of snapshot and activity
     for (GetThreadsResponse.ThreadSnapshot.Snapshot snapshot : snapshots) {
       idSet.add(snapshot.getTid());
       execute(CpuStatements.INSERT_THREAD_ACTIVITY,
               session.getSessionId(), snapshot.getTid(), timestamp, snapshot.getState().toString(), snapshot.getName());
+      if (index != null) {
+        index.insertActivity(snapshot.getTid(), timestamp, snapshot.getState(), snapshot.getName());
+      }
     }
   }
 
   public List<GetThreadsResponse.Thread> getThreadsDataByRequest(GetThreadsRequest request) {
+    CpuSessionIndex index = mySessionIndices.get(request.getSession().getSessionId());
+    if (index != null) {
+      return index.getThreads(request.getStartTimestamp(), request.getEndTimestamp());
+    }
+
     // Use a TreeMap to preserve the threads sorting order (by tid)
     Map<Integer, GetThreadsResponse.Thread.Builder> threads = new TreeMap<>();
     try {
@@ -99,6 +99,34 @@ public abstract class DataStoreTable<T extends Enum> {
     return myStatementMap.get();
   }
 
+  /**
+   * Closes the statements prepared for the calling thread. A thread that is done with the table, e.g. the writer of a poller whose
+   * stream ended, calls this so its statements don't stay open for the lifetime of the connection.
+   */
+  public void closeThreadStatements() {
+    Map<T, PreparedStatement> statements = myStatementMap.get();
+    myStatementMap.remove();
+    if (statements != null) {
+      closeStatements(statements.values());
+    }
+    Map<String, PreparedStatement> customQueries = myCustomQueryCache.get();
+    myCustomQueryCache.remove();
+    if (customQueries != null) {
+      closeStatements(customQueries.values());
+    }
+  }
+
+  private static void closeStatements(@NotNull Collection<PreparedStatement> statements) {
+    for (PreparedStatement statement : statements) {
+      try {
+        statement.close();
+      }
+      catch (SQLException ignored) {
+        // The statement is not used anymore, and fails to close only if the connection is already closed.
+      }
+    }
+  }
+
   protected void createTable(@NotNull String table, String... columns) throws SQLException {
     myConnection.createStatement().execute(String.format("DROP TABLE IF EXISTS %s ", table));
     StringBuilder statement = new StringBuilder();
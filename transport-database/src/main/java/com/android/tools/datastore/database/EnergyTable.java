@@ -98,6 +98,11 @@ public final class EnergyTable extends DataStoreTable<EnergyTable.EventStatement
     execute(EventStatements.INSERT_SAMPLE, session.getSessionId(), sample.getTimestamp(), sample.toByteArray());
   }
 
+  public void insertOrReplace(@NotNull Common.Session session, @NotNull List<EnergyProfiler.EnergySample> samples) {
+    executeBatch(EventStatements.INSERT_SAMPLE, samples,
+                 sample -> new Object[]{session.getSessionId(), sample.getTimestamp(), sample.toByteArray()});
+  }
+
   public void insertOrReplace(@NotNull Common.Session session, @NotNull Common.Event event) {
     execute(EventStatements.INSERT_EVENT, session.getSessionId(), event.getGroupId(), event.getTimestamp(), event.getIsEnded(),
             event.toByteArray());
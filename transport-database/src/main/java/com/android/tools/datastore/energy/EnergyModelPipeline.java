@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.energy;
+
+import com.android.tools.datastore.database.EnergyTable;
+import com.android.tools.profiler.proto.Common;
+import com.android.tools.profiler.proto.EnergyProfiler.EnergySample;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Feeds the inputs collected by an energy poller into a {@link BatteryModel} and stores the resulting samples, off the poll thread.
+ * <p>
+ * Each poll submits one batch containing the model inputs it collected, in order, and the time range it covered. Batches are queued
+ * and drained on the model executor: a drain applies every pending batch to the model and then stores the samples of all the sample
+ * windows covered by those batches at once. A slow model update therefore never delays the next poll, and a backlog of batches is
+ * caught up in a single pass.
+ */
+public final class EnergyModelPipeline {
+  @NotNull private final Common.Session mySession;
+  @NotNull private final BatteryModel myBatteryModel;
+  @NotNull private final EnergyTable myEnergyTable;
+  @NotNull private final Executor myExecutor;
+
+  @NotNull private final ConcurrentLinkedQueue<Batch> myPendingBatches = new ConcurrentLinkedQueue<>();
+  @NotNull private final AtomicBoolean myDrainScheduled = new AtomicBoolean();
+
+  public EnergyModelPipeline(@NotNull Common.Session session,
+                             @NotNull BatteryModel batteryModel,
+                             @NotNull EnergyTable energyTable,
+                             @NotNull Executor executor) {
+    mySession = session;
+    myBatteryModel = batteryModel;
+    myEnergyTable = energyTable;
+    myExecutor = executor;
+  }
+
+  /**
+   * Queues the model inputs collected between {@code startTimestampNs} and {@code endTimestampNs}. Consecutive calls are expected to
+   * cover consecutive time ranges.
+   */
+  public void submit(@NotNull List<Input> inputs, long startTimestampNs, long endTimestampNs) {
+    myPendingBatches.add(new Batch(inputs, startTimestampNs, endTimestampNs));
+    if (myDrainScheduled.compareAndSet(false, true)) {
+      myExecutor.execute(this::drain);
+    }
+  }
+
+  private synchronized void drain() {
+    // Reset the flag before polling, so a batch submitted while draining schedules another drain instead of being left behind.
+    myDrainScheduled.set(false);
+    Batch batch = myPendingBatches.poll();
+    if (batch == null) {
+      return;
+    }
+
+    long startTimestampNs = batch.myStartTimestampNs;
+    long endTimestampNs = batch.myEndTimestampNs;
+    List<EnergySample> samples;
+    // The battery model may be shared by the pipelines of several sessions.
+    synchronized (myBatteryModel) {
+      while (batch != null) {
+        for (Input input : batch.myInputs) {
+          myBatteryModel.handleEvent(input.myTimestampNs, input.myEvent, input.myArg);
+        }
+        endTimestampNs = Math.max(endTimestampNs, batch.myEndTimestampNs);
+        batch = myPendingBatches.poll();
+      }
+      samples = myBatteryModel.getSamplesBetween(startTimestampNs, endTimestampNs);
+    }
+    myEnergyTable.insertOrReplace(mySession, samples);
+  }
+
+  /**
+   * A single {@link BatteryModel#handleEvent(long, BatteryModel.Event, Object)} call, recorded to be replayed on the model executor.
+   */
+  public static final class Input {
+    private final long myTimestampNs;
+    @NotNull private final BatteryModel.Event myEvent;
+    @NotNull private final Object myArg;
+
+    public Input(long timestampNs, @NotNull BatteryModel.Event event, @NotNull Object arg) {
+      myTimestampNs = timestampNs;
+      myEvent = event;
+      myArg = arg;
+    }
+  }
+
+  private static final class Batch {
+    @NotNull private final List<Input> myInputs;
+    private final long myStartTimestampNs;
+    private final long myEndTimestampNs;
+
+    private Batch(@NotNull List<Input> inputs, long startTimestampNs, long endTimestampNs) {
+      myInputs = inputs;
+      myStartTimestampNs = startTimestampNs;
+      myEndTimestampNs = endTimestampNs;
+    }
+  }
+}
@@ -19,6 +19,7 @@ import com.android.tools.datastore.LogService;
 import com.android.tools.datastore.database.EnergyTable;
 import com.android.tools.datastore.energy.BatteryModel;
 import com.android.tools.datastore.energy.CpuConfig;
+import com.android.tools.datastore.energy.EnergyModelPipeline;
 import com.android.tools.datastore.energy.PowerProfile;
 import com.android.tools.profiler.proto.Common;
 import com.android.tools.profiler.proto.Cpu;
@@ -32,7 +33,10 @@ import com.android.tools.profiler.proto.NetworkServiceGrpc;
 import com.android.tools.profiler.proto.Transport.TimeRequest;
 import com.android.tools.profiler.proto.TransportServiceGrpc;
 import io.grpc.StatusRuntimeException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -42,11 +46,14 @@ import org.jetbrains.annotations.Nullable;
  * <p>
  * NOTE: This poller depends on other services (e.g. CPU, Network). Be sure that those service's
  * pollers get called first.
+ * <p>
+ * Energy estimates are not computed on the poll thread. The samples collected by each poll are handed to an
+ * {@link EnergyModelPipeline}, which updates the {@link BatteryModel} and stores the estimated samples on the model executor.
  */
 public final class EnergyDataPoller extends PollRunner {
   @NotNull private final Common.Session mySession;
   @NotNull private final LogService myLogService;
-  @NotNull private final BatteryModel myBatteryModel;
+  @NotNull private final EnergyModelPipeline myModelPipeline;
   @NotNull private final EnergyTable myEnergyTable;
   @NotNull private final EnergyServiceGrpc.EnergyServiceBlockingStub myEnergyService;
   private long myDataRequestStartTimestampNs;
@@ -70,9 +77,10 @@ public final class EnergyDataPoller extends PollRunner {
                           @NotNull CpuServiceGrpc.CpuServiceBlockingStub cpuService,
                           @NotNull NetworkServiceGrpc.NetworkServiceBlockingStub networkService,
                           @NotNull EnergyServiceGrpc.EnergyServiceBlockingStub energyService,
+                          @NotNull Executor modelExecutor,
                           @NotNull LogService logService) {
     super(POLLING_DELAY_NS);
-    myBatteryModel = batteryModel;
+    myModelPipeline = new EnergyModelPipeline(session, batteryModel, eventTable, modelExecutor);
     myEnergyTable = eventTable;
     myTransportService = transportService;
     myCpuService = cpuService;
@@ -111,43 +119,46 @@ public final class EnergyDataPoller extends PollRunner {
     EnergyProfiler.EnergyRequest request = EnergyProfiler.EnergyRequest
       .newBuilder().setSession(mySession).setStartTimestamp(myDataRequestStartTimestampNs).setEndTimestamp(endTimestampNs).build();
 
-    addLatestEvents(request); // Update events before samples, so any event with an effect on samples will get reflected in the samples.
-    addLatestSamples(request);
+    // Update events before samples, so any event with an effect on samples will get reflected in the samples.
+    List<EnergyModelPipeline.Input> modelInputs = new ArrayList<>();
+    addLatestEvents(request, modelInputs);
+    addLatestSamples(request, modelInputs);
+    myModelPipeline.submit(modelInputs, request.getStartTimestamp(), request.getEndTimestamp());
 
     myDataRequestStartTimestampNs = endTimestampNs;
   }
 
-  private void addLatestEvents(@NotNull EnergyProfiler.EnergyRequest request) {
+  private void addLatestEvents(@NotNull EnergyProfiler.EnergyRequest request, @NotNull List<EnergyModelPipeline.Input> modelInputs) {
     for (Common.Event event : myEnergyService.getEvents(request).getEventsList()) {
       // Location-related events.
       if (event.getEnergyEvent().hasLocationUpdateRequested()) {
-        myBatteryModel.handleEvent(
+        modelInputs.add(new EnergyModelPipeline.Input(
           event.getTimestamp(),
           BatteryModel.Event.LOCATION_REGISTER,
           new PowerProfile.LocationEvent(
             event.getGroupId(),
-            PowerProfile.LocationType.from(event.getEnergyEvent().getLocationUpdateRequested().getRequest().getProvider())));
+            PowerProfile.LocationType.from(event.getEnergyEvent().getLocationUpdateRequested().getRequest().getProvider()))));
       }
       if (event.getEnergyEvent().hasLocationChanged()) {
-        myBatteryModel.handleEvent(
+        modelInputs.add(new EnergyModelPipeline.Input(
           event.getTimestamp(),
           BatteryModel.Event.LOCATION_UPDATE,
           new PowerProfile.LocationEvent(
-            event.getGroupId(), PowerProfile.LocationType.from(event.getEnergyEvent().getLocationChanged().getLocation().getProvider())));
+            event.getGroupId(), PowerProfile.LocationType.from(event.getEnergyEvent().getLocationChanged().getLocation().getProvider()))));
       }
       if (event.getEnergyEvent().hasLocationUpdateRemoved()) {
-        myBatteryModel.handleEvent(
+        modelInputs.add(new EnergyModelPipeline.Input(
           event.getTimestamp(),
           BatteryModel.Event.LOCATION_UNREGISTER,
           new PowerProfile.LocationEvent(
-            event.getGroupId(), PowerProfile.LocationType.NONE));
+            event.getGroupId(), PowerProfile.LocationType.NONE)));
       }
 
       myEnergyTable.insertOrReplace(mySession, event);
     }
   }
 
-  private void addLatestSamples(@NotNull EnergyProfiler.EnergyRequest request) {
+  private void addLatestSamples(@NotNull EnergyProfiler.EnergyRequest request, @NotNull List<EnergyModelPipeline.Input> modelInputs) {
     // Network-related samples
     {
       NetworkProfiler.NetworkDataRequest networkDataRequest =
@@ -164,9 +175,10 @@ public final class EnergyDataPoller extends PollRunner {
             break;
           case SPEED_DATA:
             NetworkProfiler.SpeedData speedData = networkData.getSpeedData();
-            myBatteryModel.handleEvent(networkData.getEndTimestamp(),
-                                       BatteryModel.Event.NETWORK_USAGE,
-                                       new PowerProfile.NetworkStats(myLastKnownNetworkType, speedData.getReceived(), speedData.getSent()));
+            modelInputs.add(new EnergyModelPipeline.Input(
+              networkData.getEndTimestamp(),
+              BatteryModel.Event.NETWORK_USAGE,
+              new PowerProfile.NetworkStats(myLastKnownNetworkType, speedData.getReceived(), speedData.getSent())));
             break;
           default:
             break;
@@ -207,15 +219,11 @@ public final class EnergyDataPoller extends PollRunner {
           continue;
         }
 
-        myBatteryModel.handleEvent(currUsageData.getEndTimestamp(), BatteryModel.Event.CPU_USAGE,
-                                   myCpuConfig.getCpuCoreUsages(prevUsageData, currUsageData));
+        modelInputs.add(new EnergyModelPipeline.Input(currUsageData.getEndTimestamp(), BatteryModel.Event.CPU_USAGE,
+                                                      myCpuConfig.getCpuCoreUsages(prevUsageData, currUsageData)));
         prevUsageData = currUsageData;
       }
     }
-
-    for (EnergyProfiler.EnergySample sample : myBatteryModel.getSamplesBetween(request.getStartTimestamp(), request.getEndTimestamp())) {
-      myEnergyTable.insertOrReplace(mySession, sample);
-    }
   }
 
   @NotNull
@@ -21,30 +21,81 @@ import com.android.tools.datastore.database.UnifiedEventsTable;
 import com.android.tools.profiler.proto.Common.Event;
 import com.android.tools.profiler.proto.Transport.GetEventsRequest;
 import com.android.tools.profiler.proto.TransportServiceGrpc;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import io.grpc.StatusRuntimeException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.jetbrains.annotations.NotNull;
 
 /**
  * This is a thread safe class to poll events from a grpc service. This class cannot be restarted once
  * stop is called it is guaranteed that run will not be executing.
+ * <p>
+ * Events are read from the stream on the thread calling {@link #run()} and written to the database by a writer task, which inserts all
+ * the events that queued up while it was writing the previous ones as a single batch. The batches grow with the rate of incoming events,
+ * while an event arriving alone is still written right away. The queue between the two is bounded: when the writer falls behind, reading
+ * the stream blocks until it catches up, which bounds both the memory used by the queue and how far the database lags behind the stream.
  */
 public class UnifiedEventsDataPoller implements Runnable, DataStoreTable.DataStoreTableErrorCallback {
+  /**
+   * Maximum number of events inserted in a single batch.
+   */
+  @VisibleForTesting
+  static final int MAX_BATCH_SIZE = 512;
+
+  /**
+   * Maximum number of events received but not yet written.
+   */
+  @VisibleForTesting
+  static final int MAX_PENDING_EVENTS = 4 * MAX_BATCH_SIZE;
+
+  /**
+   * Runs the writers of all the pollers. Its threads are reused across connections and exit when they have been idle for a while. It is
+   * not the fetch executor of the datastore, as that one may run tasks on the calling thread.
+   */
+  private static final Executor WRITER_EXECUTOR =
+    Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("UnifiedEventsWriter-%d").setDaemon(true).build());
+
+  /**
+   * Queued after the last event of the stream to stop the writer.
+   */
+  private static final Event END_OF_STREAM = Event.newBuilder().build();
+
   private final long myStreamId;
   @NotNull private final UnifiedEventsTable myTable;
   @NotNull private final TransportServiceGrpc.TransportServiceBlockingStub myEventPollingService;
   @NotNull private final DataStoreService myDataStoreService;
+  @NotNull private final Executor myWriteExecutor;
   @NotNull private final CountDownLatch myRunningLatch;
   @NotNull private final AtomicBoolean myIsRunning = new AtomicBoolean(false);
+  @NotNull private final BlockingQueue<Event> myPendingEvents = new ArrayBlockingQueue<>(MAX_PENDING_EVENTS);
 
   public UnifiedEventsDataPoller(long streamId,
                                  @NotNull UnifiedEventsTable unifiedEventsTable,
                                  @NotNull TransportServiceGrpc.TransportServiceBlockingStub pollingService,
                                  @NotNull DataStoreService dataStoreService) {
+    this(streamId, unifiedEventsTable, pollingService, dataStoreService, WRITER_EXECUTOR);
+  }
+
+  @VisibleForTesting
+  UnifiedEventsDataPoller(long streamId,
+                          @NotNull UnifiedEventsTable unifiedEventsTable,
+                          @NotNull TransportServiceGrpc.TransportServiceBlockingStub pollingService,
+                          @NotNull DataStoreService dataStoreService,
+                          @NotNull Executor writeExecutor) {
     myEventPollingService = pollingService;
     myDataStoreService = dataStoreService;
+    myWriteExecutor = writeExecutor;
     myStreamId = streamId;
     myTable = unifiedEventsTable;
     myRunningLatch = new CountDownLatch(1);
@@ -69,20 +120,86 @@ public class UnifiedEventsDataPoller implements Runnable, DataStoreTable.DataSto
   @Override
   public void run() {
     myIsRunning.set(true);
+    CountDownLatch writerDone = new CountDownLatch(1);
+    myWriteExecutor.execute(() -> writeEvents(writerDone));
+    boolean interrupted = false;
     try {
       // The iterator returned will block on next calls, only returning when data is received or the server disconnects.
       Iterator<Event> events = myEventPollingService.getEvents(GetEventsRequest.getDefaultInstance());
       while (events.hasNext()) {
         Event event = events.next();
         if (event != null) {
-          myTable.insertUnifiedEvent(myStreamId, event);
+          interrupted |= enqueue(event, writerDone);
         }
       }
     }
     catch (StatusRuntimeException exception) {
       // device disconnect logic handle via TransportDeviceManager
     }
+    finally {
+      // The writer must always see the end of the stream, otherwise it would wait for events forever.
+      interrupted |= enqueue(END_OF_STREAM, writerDone);
+    }
+    // Wait for the received events to be written before signaling the end of run.
+    Uninterruptibles.awaitUninterruptibly(writerDone);
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
     // Signal end of run.
     myRunningLatch.countDown();
   }
+
+  /**
+   * Queues {@code event} for the writer, waiting for room while the writer is behind. The event is dropped if the writer is gone.
+   *
+   * @return whether the current thread was interrupted while waiting.
+   */
+  private boolean enqueue(@NotNull Event event, @NotNull CountDownLatch writerDone) {
+    boolean interrupted = false;
+    while (writerDone.getCount() > 0) {
+      try {
+        if (myPendingEvents.offer(event, 100, TimeUnit.MILLISECONDS)) {
+          break;
+        }
+      }
+      catch (InterruptedException exception) {
+        interrupted = true;
+      }
+    }
+    return interrupted;
+  }
+
+  @VisibleForTesting
+  int getPendingEventCount() {
+    return myPendingEvents.size();
+  }
+
+  private void writeEvents(@NotNull CountDownLatch done) {
+    List<Event> batch = new ArrayList<>();
+    try {
+      while (true) {
+        batch.add(myPendingEvents.take());
+        myPendingEvents.drainTo(batch, MAX_BATCH_SIZE - 1);
+        // END_OF_STREAM is the last element ever queued, so it can only be at the end of a batch.
+        boolean isEndOfStream = batch.get(batch.size() - 1) == END_OF_STREAM;
+        if (isEndOfStream) {
+          batch.remove(batch.size() - 1);
+        }
+        if (!batch.isEmpty()) {
+          myTable.insertUnifiedEvents(myStreamId, batch);
+          batch.clear();
+        }
+        if (isEndOfStream) {
+          return;
+        }
+      }
+    }
+    catch (InterruptedException ignored) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      myTable.closeThreadStatements();
+      done.countDown();
+    }
+  }
 }
@@ -139,6 +139,8 @@ public class CpuService extends CpuServiceGrpc.CpuServiceImplBase implements Ser
       observer.onNext(client.startMonitoringApp(request));
       observer.onCompleted();
       long sessionId = request.getSession().getSessionId();
+      // Index the session before its data gets polled, so the live range queries don't go through the database.
+      myCpuTable.setSessionIndexed(request.getSession(), true);
       myRunners
         .put(sessionId, new CpuDataPoller(request.getSession(), myCpuTable, client, myLogService));
       myFetchExecutor.accept(myRunners.get(sessionId));
@@ -156,6 +158,7 @@ public class CpuService extends CpuServiceGrpc.CpuServiceImplBase implements Ser
     if (runner != null) {
       runner.stop();
     }
+    myCpuTable.setSessionIndexed(request.getSession(), false);
     // Our polling service can get shutdown if we unplug the device.
     // This should be the only function that gets called as StudioProfilers attempts
     // to stop monitoring the last app it was monitoring.
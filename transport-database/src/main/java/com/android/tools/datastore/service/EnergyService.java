@@ -40,6 +40,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import org.jetbrains.annotations.NotNull;
 
@@ -51,6 +52,7 @@ public class EnergyService extends EnergyServiceGrpc.EnergyServiceImplBase imple
   @NotNull private final DataStoreService myService;
   private final Map<Long, PollRunner> myRunners = new HashMap<>();
   private final Consumer<Runnable> myFetchExecutor;
+  @NotNull private final Executor myModelExecutor;
   @NotNull private final LogService myLogService;
 
   @SuppressWarnings("unchecked")
@@ -59,15 +61,30 @@ public class EnergyService extends EnergyServiceGrpc.EnergyServiceImplBase imple
   private ResponseData<EnergyEventsResponse> myLastEventsResponse = ResponseData.createEmpty();
 
   public EnergyService(@NotNull DataStoreService service, @NotNull Consumer<Runnable> fetchExecutor, @NotNull LogService logService) {
-    this(new BatteryModel(), service, fetchExecutor, logService);
+    this(new BatteryModel(), service, fetchExecutor, fetchExecutor::accept, logService);
   }
 
+  /**
+   * Battery model updates are run inline on the poll thread, so samples can be queried as soon as a poll returns.
+   */
   @VisibleForTesting
   public EnergyService(@NotNull BatteryModel batteryModel, @NotNull DataStoreService service, Consumer<Runnable> fetchExecutor,
                        @NotNull LogService logService) {
+    this(batteryModel, service, fetchExecutor, Runnable::run, logService);
+  }
+
+  /**
+   * @param modelExecutor executor on which the energy pollers update the battery model and store the estimated samples.
+   */
+  private EnergyService(@NotNull BatteryModel batteryModel,
+                        @NotNull DataStoreService service,
+                        Consumer<Runnable> fetchExecutor,
+                        @NotNull Executor modelExecutor,
+                        @NotNull LogService logService) {
     myBatteryModel = batteryModel;
     myService = service;
     myFetchExecutor = fetchExecutor;
+    myModelExecutor = modelExecutor;
     myLogService = logService;
     myEnergyTable = new EnergyTable();
   }
@@ -87,7 +104,7 @@ public class EnergyService extends EnergyServiceGrpc.EnergyServiceImplBase imple
       long sessionId = request.getSession().getSessionId();
       myRunners
         .put(sessionId, new EnergyDataPoller(request.getSession(), myBatteryModel, myEnergyTable, transportClient, cpuClient, networkClient,
-                                             energyClient, myLogService));
+                                             energyClient, myModelExecutor, myLogService));
       myFetchExecutor.accept(myRunners.get(sessionId));
     }
     else {
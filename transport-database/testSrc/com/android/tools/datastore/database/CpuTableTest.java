@@ -15,6 +15,7 @@
  */
 package com.android.tools.datastore.database;
 
+import static com.android.tools.profiler.proto.Cpu.CpuThreadData.State.DEAD;
 import static com.android.tools.profiler.proto.Cpu.CpuThreadData.State.RUNNING;
 import static com.android.tools.profiler.proto.Cpu.CpuThreadData.State.SLEEPING;
 import static com.android.tools.profiler.proto.Cpu.CpuThreadData.State.WAITING;
@@ -69,6 +70,7 @@ public class CpuTableTest extends DatabaseTest<CpuTable> {
       table.insertSnapshot(Common.Session.getDefaultInstance(), 0, snapshots);
     });
     methodCalls.add((table) -> table.insertTraceInfo(Common.Session.getDefaultInstance(), Cpu.CpuTraceInfo.getDefaultInstance()));
+    methodCalls.add((table) -> table.setSessionIndexed(Common.Session.getDefaultInstance(), true));
     return methodCalls;
   }
 
@@ -256,6 +258,83 @@ public class CpuTableTest extends DatabaseTest<CpuTable> {
     }
   }
 
+  @Test
+  public void testGetDataInsertedOutOfOrder() {
+    Common.Session session = Common.Session.newBuilder().setSessionId(3L).setStreamId(3).setPid(PROCESS_ID).build();
+    getTable().setSessionIndexed(session, true);
+    for (long timestamp : new long[]{5, 1, 3, 3}) {
+      getTable().insert(session, Cpu.CpuUsageData.newBuilder().setEndTimestamp(timestamp).setAppCpuTimeInMillisec(timestamp).build());
+    }
+
+    CpuProfiler.CpuDataRequest request =
+      CpuProfiler.CpuDataRequest.newBuilder().setSession(session).setStartTimestamp(0).setEndTimestamp(Long.MAX_VALUE).build();
+    List<Cpu.CpuUsageData> response = getTable().getCpuDataByRequest(request);
+    assertThat(response.stream().map(Cpu.CpuUsageData::getEndTimestamp).toArray()).asList().containsExactly(1L, 3L, 5L).inOrder();
+  }
+
+  @Test
+  public void testGetThreadsDataByRequestExcludesThreadsDeadBeforeRange() {
+    Common.Session session = Common.Session.newBuilder().setSessionId(3L).setStreamId(3).setPid(PROCESS_ID).build();
+    getTable().setSessionIndexed(session, true);
+    List<CpuProfiler.GetThreadsResponse.ThreadActivity> activities = new ArrayList<>();
+    activities.add(CpuProfiler.GetThreadsResponse.ThreadActivity.newBuilder().setTimestamp(1).setNewState(RUNNING).build());
+    activities.add(CpuProfiler.GetThreadsResponse.ThreadActivity.newBuilder().setTimestamp(2).setNewState(DEAD).build());
+    getTable().insertActivities(session, 1, "Dead thread", activities);
+    activities.clear();
+    activities.add(CpuProfiler.GetThreadsResponse.ThreadActivity.newBuilder().setTimestamp(1).setNewState(RUNNING).build());
+    getTable().insertActivities(session, 2, "Live thread", activities);
+
+    CpuProfiler.GetThreadsRequest request =
+      CpuProfiler.GetThreadsRequest.newBuilder().setSession(session).setStartTimestamp(5).setEndTimestamp(10).build();
+    List<CpuProfiler.GetThreadsResponse.Thread> response = getTable().getThreadsDataByRequest(request);
+    assertThat(response).hasSize(1);
+    assertThat(response.get(0).getTid()).isEqualTo(2);
+    assertThat(response.get(0).getName()).isEqualTo("Live thread");
+    // The state the thread was in before the range is reported at the start of the range.
+    assertThat(response.get(0).getActivitiesList()).containsExactly(
+      CpuProfiler.GetThreadsResponse.ThreadActivity.newBuilder().setTimestamp(5).setNewState(RUNNING).build());
+  }
+
+  @Test
+  public void testIndexedSessionIncludesRowsInsertedBeforeIndexing() {
+    Common.Session session = Common.Session.newBuilder().setSessionId(3L).setStreamId(3).setPid(PROCESS_ID).build();
+    List<CpuProfiler.GetThreadsResponse.ThreadActivity> activities = new ArrayList<>();
+    activities.add(CpuProfiler.GetThreadsResponse.ThreadActivity.newBuilder().setTimestamp(1).setNewState(RUNNING).build());
+    getTable().insert(session, Cpu.CpuUsageData.newBuilder().setEndTimestamp(1).build());
+    getTable().insertActivities(session, 1, "Thread 1", activities);
+
+    getTable().setSessionIndexed(session, true);
+    activities.clear();
+    activities.add(CpuProfiler.GetThreadsResponse.ThreadActivity.newBuilder().setTimestamp(2).setNewState(SLEEPING).build());
+    getTable().insert(session, Cpu.CpuUsageData.newBuilder().setEndTimestamp(2).build());
+    getTable().insertActivities(session, 1, "Thread 1", activities);
+    getTable().insertActivities(session, 2, "Thread 2", activities);
+    assertAllRowsOfMixedSession(session);
+
+    // Once the index is dropped, the same rows come from the database.
+    getTable().setSessionIndexed(session, false);
+    assertAllRowsOfMixedSession(session);
+  }
+
+  private void assertAllRowsOfMixedSession(@NotNull Common.Session session) {
+    CpuProfiler.CpuDataRequest dataRequest =
+      CpuProfiler.CpuDataRequest.newBuilder().setSession(session).setStartTimestamp(0).setEndTimestamp(10).build();
+    assertThat(getTable().getCpuDataByRequest(dataRequest).stream().map(Cpu.CpuUsageData::getEndTimestamp).toArray()).asList()
+      .containsExactly(1L, 2L).inOrder();
+
+    CpuProfiler.GetThreadsRequest threadsRequest =
+      CpuProfiler.GetThreadsRequest.newBuilder().setSession(session).setStartTimestamp(0).setEndTimestamp(10).build();
+    List<CpuProfiler.GetThreadsResponse.Thread> threads = getTable().getThreadsDataByRequest(threadsRequest);
+    assertThat(threads).hasSize(2);
+    assertThat(threads.get(0).getTid()).isEqualTo(1);
+    assertThat(threads.get(0).getActivitiesList()).containsExactly(
+      CpuProfiler.GetThreadsResponse.ThreadActivity.newBuilder().setTimestamp(1).setNewState(RUNNING).build(),
+      CpuProfiler.GetThreadsResponse.ThreadActivity.newBuilder().setTimestamp(2).setNewState(SLEEPING).build()).inOrder();
+    assertThat(threads.get(1).getTid()).isEqualTo(2);
+    assertThat(threads.get(1).getActivitiesList()).containsExactly(
+      CpuProfiler.GetThreadsResponse.ThreadActivity.newBuilder().setTimestamp(2).setNewState(SLEEPING).build());
+  }
+
   @Test
   public void testGetTraceInfo() {
     for (int i = 0; i < TEST_DATA_COUNT; i++) {
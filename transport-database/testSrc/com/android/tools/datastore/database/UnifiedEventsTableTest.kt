@@ -61,6 +61,7 @@ class UnifiedEventsTableTest : DatabaseTest<UnifiedEventsTable>() {
     val events = mutableListOf(Common.Event.newBuilder().build())
     return mutableListOf(
       (Consumer { it.insertUnifiedEvent(1, events[0]) }),
+      (Consumer { it.insertUnifiedEvents(1, events) }),
       (Consumer { it.deleteEvents(1, 1, 1, Common.Event.Kind.SESSION, 1, 1) }),
       (Consumer {
         it.queryUnifiedEventGroups(
@@ -110,6 +111,14 @@ class UnifiedEventsTableTest : DatabaseTest<UnifiedEventsTable>() {
     assertThat(eventResult).containsExactlyElementsIn(listOf(event))
   }
 
+  @Test
+  fun insertEventsInBatch() {
+    val events = (1L..5L).map { eventBuilder(Common.Event.Kind.SESSION, false, 1, it, 1, it) }
+    // Duplicates within a batch are dropped like duplicates of single inserts.
+    table.insertUnifiedEvents(1, events + events[0])
+    assertThat(table.queryUnifiedEvents()).containsExactlyElementsIn(events)
+  }
+
   @Test
   fun deleteEvents() {
     val eventCount = 5
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.energy
+
+import com.android.tools.datastore.DataStoreDatabase
+import com.android.tools.datastore.FakeLogService
+import com.android.tools.datastore.database.EnergyTable
+import com.android.tools.profiler.proto.Common
+import com.android.tools.profiler.proto.EnergyProfiler
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+class EnergyModelPipelineTest {
+  companion object {
+    private val SAMPLE_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(200)
+    private val SESSION = Common.Session.newBuilder().setSessionId(1).build()
+    private const val NETWORK_USAGE = 10
+  }
+
+  private val powerProfile = object : PowerProfile {
+    override fun getCpuUsage(usages: Array<PowerProfile.CpuCoreUsage>) = 0
+    override fun getNetworkUsage(stats: PowerProfile.NetworkStats) = if (stats.mySendingBps > 0) NETWORK_USAGE else 0
+    override fun getLocationUsage(locationStats: PowerProfile.LocationStats) = 0
+  }
+
+  private val pendingTasks = ArrayList<Runnable>()
+
+  private lateinit var dbFile: File
+  private lateinit var database: DataStoreDatabase
+  private lateinit var table: EnergyTable
+  private lateinit var pipeline: EnergyModelPipeline
+
+  @Before
+  fun setUp() {
+    dbFile = File.createTempFile("EnergyModelPipeline", "mysql")
+    database = DataStoreDatabase(dbFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    table = EnergyTable()
+    table.initialize(database.connection)
+    pipeline = EnergyModelPipeline(SESSION, BatteryModel(powerProfile, SAMPLE_INTERVAL_NS), table) { pendingTasks.add(it) }
+  }
+
+  @After
+  fun tearDown() {
+    database.disconnect()
+    dbFile.delete()
+  }
+
+  private fun getSamples(startNs: Long, endNs: Long): List<EnergyProfiler.EnergySample> =
+    table.getSamples(EnergyProfiler.EnergyRequest.newBuilder().setSession(SESSION).setStartTimestamp(startNs).setEndTimestamp(endNs).build())
+
+  private fun networkInput(timestampNs: Long, sendingBps: Long) =
+    EnergyModelPipeline.Input(timestampNs, BatteryModel.Event.NETWORK_USAGE,
+                              PowerProfile.NetworkStats(PowerProfile.NetworkType.WIFI, 0, sendingBps))
+
+  @Test
+  fun samplesAreOnlyStoredOnceTheModelExecutorRuns() {
+    pipeline.submit(listOf(networkInput(SAMPLE_INTERVAL_NS, 100)), 0, SAMPLE_INTERVAL_NS * 5)
+    assertThat(getSamples(0, SAMPLE_INTERVAL_NS * 5)).isEmpty()
+
+    pendingTasks.removeAt(0).run()
+    val samples = getSamples(0, SAMPLE_INTERVAL_NS * 5)
+    assertThat(samples.map { it.timestamp }).containsExactly(0L, 200_000_000L, 400_000_000L, 600_000_000L, 800_000_000L).inOrder()
+    assertThat(samples.map { it.energyUsage.networkUsage }).containsExactly(0, NETWORK_USAGE, NETWORK_USAGE, NETWORK_USAGE, NETWORK_USAGE)
+      .inOrder()
+  }
+
+  @Test
+  fun pendingBatchesAreDrainedTogether() {
+    pipeline.submit(listOf(networkInput(SAMPLE_INTERVAL_NS, 100)), 0, SAMPLE_INTERVAL_NS * 2)
+    pipeline.submit(listOf(networkInput(SAMPLE_INTERVAL_NS * 3, 0)), SAMPLE_INTERVAL_NS * 2, SAMPLE_INTERVAL_NS * 4)
+    assertThat(pendingTasks).hasSize(1)
+
+    pendingTasks.removeAt(0).run()
+    val samples = getSamples(0, SAMPLE_INTERVAL_NS * 4)
+    assertThat(samples.map { it.energyUsage.networkUsage }).containsExactly(0, NETWORK_USAGE, NETWORK_USAGE, 0).inOrder()
+
+    // Once drained, the next batch schedules a new drain.
+    pipeline.submit(emptyList(), SAMPLE_INTERVAL_NS * 4, SAMPLE_INTERVAL_NS * 5)
+    assertThat(pendingTasks).hasSize(1)
+  }
+}
@@ -31,6 +31,10 @@ import io.grpc.stub.StreamObserver
 import org.junit.After
 import org.junit.Before
 import org.junit.Test
+import java.sql.Connection
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.locks.ReentrantLock
 
@@ -40,6 +44,8 @@ class UnifiedEventsDataPollerTest : DataStorePollerTest() {
   private lateinit var transportService: FakeTransportService
   private lateinit var table: UnifiedEventsTable
   private lateinit var server: Server
+  private lateinit var serviceStub: TransportServiceGrpc.TransportServiceBlockingStub
+  private lateinit var connection: Connection
   private lateinit var poller: UnifiedEventsDataPoller
 
   @Before
@@ -49,13 +55,14 @@ class UnifiedEventsDataPollerTest : DataStorePollerTest() {
     transportService = FakeTransportService()
     val namespace = DataStoreService.BackingNamespace.DEFAULT_SHARED_NAMESPACE
     val database = dataStore.createDatabase(servicePath + namespace.myNamespace, namespace.myCharacteristic) { _ -> }
+    connection = database.connection
     table = UnifiedEventsTable()
-    table.initialize(database.connection)
+    table.initialize(connection)
 
     server = InProcessServerBuilder.forName("UnifiedEventsPollerServer").addService(transportService).build()
     server.start()
     val managedChannel = InProcessChannelBuilder.forName("UnifiedEventsPollerServer").build()
-    val serviceStub = TransportServiceGrpc.newBlockingStub(managedChannel)
+    serviceStub = TransportServiceGrpc.newBlockingStub(managedChannel)
 
     poller = UnifiedEventsDataPoller(1, table, serviceStub, dataStore)
   }
@@ -95,10 +102,66 @@ class UnifiedEventsDataPollerTest : DataStorePollerTest() {
   }
 
 
+  @Test
+  fun writerInsertsStreamInOrderInBatchesUntilEndOfStream() {
+    val events = (0 until UnifiedEventsDataPoller.MAX_BATCH_SIZE * 3).map {
+      Common.Event.newBuilder().setTimestamp(it.toLong()).setPid(1).setGroupId(it.toLong()).setKind(Common.Event.Kind.SESSION).build()
+    }
+    transportService.events = events
+    val recordingTable = RecordingEventsTable()
+    recordingTable.initialize(connection)
+    val recordingPoller = UnifiedEventsDataPoller(1, recordingTable, serviceStub, dataStore, Executor { Thread(it).start() })
+
+    val thread = Thread(recordingPoller)
+    thread.start()
+    // Hold the writer in its first insert until the rest of the stream has queued up behind it.
+    assertThat(recordingTable.firstInsertStarted.await(1, TimeUnit.SECONDS)).isTrue()
+    val queuedEvents = events.size - recordingTable.batches[0].size
+    var retryAttempts = 50
+    while (recordingPoller.pendingEventCount < queuedEvents && retryAttempts-- > 0) {
+      Thread.sleep(20)
+    }
+    assertThat(recordingPoller.pendingEventCount).isEqualTo(queuedEvents)
+    recordingTable.releaseInserts.countDown()
+
+    // run() returns once the end of the stream was written.
+    thread.join(TimeUnit.SECONDS.toMillis(5))
+    assertThat(thread.isAlive).isFalse()
+    assertThat(recordingTable.batches.flatten()).containsExactlyElementsIn(events).inOrder()
+    val expectedBatchCount = (queuedEvents + UnifiedEventsDataPoller.MAX_BATCH_SIZE - 1) / UnifiedEventsDataPoller.MAX_BATCH_SIZE
+    assertThat(recordingTable.batches.drop(1).map { it.size }).hasSize(expectedBatchCount)
+    recordingTable.batches.forEach { assertThat(it.size).isAtMost(UnifiedEventsDataPoller.MAX_BATCH_SIZE) }
+    assertThat(recordingTable.queryUnifiedEvents()).containsExactlyElementsIn(events)
+    assertThat(recordingTable.closedThreadStatements).isTrue()
+  }
+
+  /**
+   * Records the batches it inserts, and blocks in its inserts until [releaseInserts] is counted down.
+   */
+  private class RecordingEventsTable : UnifiedEventsTable() {
+    val batches: MutableList<List<Common.Event>> = CopyOnWriteArrayList()
+    val firstInsertStarted = CountDownLatch(1)
+    val releaseInserts = CountDownLatch(1)
+    @Volatile var closedThreadStatements = false
+
+    override fun insertUnifiedEvents(streamId: Long, events: List<Common.Event>) {
+      batches.add(ArrayList(events))
+      firstInsertStarted.countDown()
+      releaseInserts.await()
+      super.insertUnifiedEvents(streamId, events)
+    }
+
+    override fun closeThreadStatements() {
+      closedThreadStatements = true
+      super.closeThreadStatements()
+    }
+  }
+
   private class FakeTransportService : TransportServiceGrpc.TransportServiceImplBase() {
 
     val eventsLock = ReentrantLock()
     val eventsPopulated = eventsLock.newCondition()
+    @Volatile var events: List<Common.Event> = eventsList
 
     companion object {
       val eventsList = mutableListOf(Common.Event.newBuilder()
@@ -122,7 +185,7 @@ class UnifiedEventsDataPollerTest : DataStorePollerTest() {
     }
 
     override fun getEvents(request: GetEventsRequest?, responseObserver: StreamObserver<Common.Event>) {
-      eventsList.forEach { responseObserver.onNext(it) }
+      events.forEach { responseObserver.onNext(it) }
       responseObserver.onCompleted()
       eventsLock.lock()
       eventsPopulated.signal()